@@ -0,0 +1,67 @@
+package memoryrush.game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spiellogik ohne Netzwerk: Aufbau des Spielfelds, Erkennen des Spielendes und Ermitteln der Gewinner.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameStateBenchmark {
+    @Param({"16", "1024", "32768"})
+    int pairs;
+
+    private GameState state;
+
+    @Setup
+    public void setup() {
+        state = new GameState();
+        for (int i = 1; i <= 4; i++) {
+            state.getPlayers().add(new Player(i, "Player " + i));
+        }
+        state.initCards(pairs, 42);
+        // Alle Karten bis auf ein Paar gefunden: schlechtester Fall für eine Suche nach offenen Karten
+        Board board = state.getBoard();
+        int keep = board.cardId(0);
+        for (int i = 0; i < board.size(); i++) {
+            if (board.cardId(i) != keep) board.setMatched(i, true);
+        }
+        for (int i = 0; i < pairs; i++) {
+            state.scorePoint(state.getPlayers().get(i % 4));
+        }
+    }
+
+    @Benchmark
+    public GameState initCards() {
+        GameState fresh = new GameState();
+        fresh.initCards(pairs, 42);
+        return fresh;
+    }
+
+    @Benchmark
+    public boolean allCardsMatched() {
+        return state.allCardsMatched();
+    }
+
+    @Benchmark
+    public List<Player> getWinners() {
+        return state.getWinners();
+    }
+}
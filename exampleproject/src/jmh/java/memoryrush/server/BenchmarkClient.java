@@ -0,0 +1,38 @@
+package memoryrush.server;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Client ohne Netzwerk für die Benchmarks: leert seine Ausgangswarteschlange sofort und kodiert jede
+ * Nachricht wie ein Transport, damit Fan-out und Kodierung mitgemessen werden.
+ */
+class BenchmarkClient extends ClientConnection {
+    private final Blackhole blackhole;
+    private final MessageListener listener;
+
+    /** Beobachtet die Nachrichten eines Clients (z.B. um mitzuspielen). */
+    interface MessageListener {
+        void onMessage(ServerMessage message);
+    }
+
+    BenchmarkClient(int playerId, Blackhole blackhole, MessageListener listener) {
+        super(playerId, MemoryRushServer.playerName(playerId), new ServerConfig());
+        this.blackhole = blackhole;
+        this.listener = listener;
+    }
+
+    @Override
+    protected void messageQueued() {
+        ServerMessage m;
+        while ((m = outbound.poll()) != null) {
+            blackhole.consume(encode(m));
+            if (listener != null) listener.onMessage(m);
+        }
+    }
+
+    @Override
+    public void close() {
+        outbound.close();
+        disconnected();
+    }
+}
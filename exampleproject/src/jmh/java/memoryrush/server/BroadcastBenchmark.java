@@ -0,0 +1,62 @@
+package memoryrush.server;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-out wie in {@code GameRoom.broadcast}: die Nachrichten eines Zuges (FLIP, MATCH, TURN) werden an
+ * N Clients abgelegt und danach einmal pro Client zum Schreiben freigegeben und kodiert.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BroadcastBenchmark {
+    @Param({"4", "64", "1024"})
+    int clients;
+
+    private BenchmarkClient[] connections;
+    private final memoryrush.game.Player player = new memoryrush.game.Player(1, "Player 1");
+    private int index = 0;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        connections = new BenchmarkClient[clients];
+        for (int i = 0; i < clients; i++) {
+            connections[i] = new BenchmarkClient(i + 1, blackhole, null);
+        }
+    }
+
+    @Benchmark
+    public void matchedFlip() {
+        int i = index++ & 31;
+        // Neue Nachrichten pro Zug, damit auch das einmalige Kodieren mitgemessen wird
+        ServerMessage[] messages = {
+                ServerMessage.flip(i, i >> 1),
+                ServerMessage.match(player, i ^ 1, i),
+                ServerMessage.turn(player)
+        };
+        for (ServerMessage m : messages) {
+            for (BenchmarkClient c : connections) {
+                c.enqueue(m);
+            }
+        }
+        for (BenchmarkClient c : connections) {
+            c.messageQueued();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package memoryrush.server;
+
+import memoryrush.protocol.BinaryProtocol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Zerlegen der Client-Befehle im Text- und Binärprotokoll. Der Client ist keinem Raum zugeordnet,
+ * die Befehle werden also nur erkannt und verworfen.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandParseBenchmark {
+    private BenchmarkClient client;
+    private byte[] flipFrame;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        client = new BenchmarkClient(1, blackhole, null);
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        BinaryProtocol.writeVarint(payload, 17);
+        byte[] frame = BinaryProtocol.frame(BinaryProtocol.C_FLIP, payload);
+        // Der Reader erwartet den Frame ohne Längenpräfix
+        flipFrame = Arrays.copyOfRange(frame, BinaryProtocol.varintSize(frame.length - 1), frame.length);
+    }
+
+    @Benchmark
+    public boolean parseFlipLine() {
+        return client.handleLine("FLIP:17");
+    }
+
+    @Benchmark
+    public boolean parseChatLine() {
+        return client.handleLine("CHAT:viel Glück allerseits");
+    }
+
+    @Benchmark
+    public boolean parseFlipFrame() throws IOException {
+        return client.handleFrame(new BinaryProtocol.Reader(flipFrame, 0, flipFrame.length));
+    }
+}
@@ -0,0 +1,75 @@
+package memoryrush.server;
+
+import memoryrush.protocol.BinaryProtocol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Speicherbedarf pro Flip auf dem Lese- und Schreibweg. Gedacht für den GC-Profiler:
+ * {@code java -jar target/benchmarks.jar FlipAllocationBenchmark -prof gc}; maßgeblich ist
+ * {@code gc.alloc.rate.norm} (Bytes pro Aufruf).
+ * <p>
+ * Das Zerlegen aus dem Eingangspuffer ({@code decodeFlipLine}, {@code decodeFlipFrame}) soll nahe 0 Bytes
+ * liegen; {@code decodeFlipString} zeigt zum Vergleich den Weg über einen String pro Zeile. Beim Kodieren
+ * bleiben die Nachricht selbst und je ein Array für Text und Frame übrig. Der Client ist keinem Raum
+ * zugeordnet, der Flip endet also nach dem Zerlegen.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FlipAllocationBenchmark {
+    private BenchmarkClient client;
+    private final byte[] flipLine = "FLIP:17".getBytes(StandardCharsets.US_ASCII);
+    private byte[] flipFrame;
+    private final BinaryProtocol.Reader reader = new BinaryProtocol.Reader();
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        client = new BenchmarkClient(1, blackhole, null);
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        BinaryProtocol.writeVarint(payload, 17);
+        byte[] frame = BinaryProtocol.frame(BinaryProtocol.C_FLIP, payload);
+        // Der Reader erwartet den Frame ohne Längenpräfix
+        flipFrame = Arrays.copyOfRange(frame, BinaryProtocol.varintSize(frame.length - 1), frame.length);
+    }
+
+    @Benchmark
+    public boolean decodeFlipLine() {
+        return client.handleLine(flipLine, 0, flipLine.length);
+    }
+
+    @Benchmark
+    public boolean decodeFlipString() {
+        return client.handleLine(new String(flipLine, 0, flipLine.length, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public boolean decodeFlipFrame() throws IOException {
+        return client.handleFrame(reader.reset(flipFrame, 0, flipFrame.length));
+    }
+
+    @Benchmark
+    public void encodeFlip(Blackhole blackhole) {
+        ServerMessage message = ServerMessage.flip(17, 8);
+        blackhole.consume(message.getBytes());
+        blackhole.consume(message.getBinary());
+    }
+}
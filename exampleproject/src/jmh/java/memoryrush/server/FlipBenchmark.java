@@ -0,0 +1,162 @@
+package memoryrush.server;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ein Zug Ende-zu-Ende durch {@link GameRoom#handleFlip(int, int)}: zwei Flips des Spielers am Zug,
+ * inklusive Mailbox, Spiellogik, Broadcast an vier Clients und Kodierung. Gespielt wird mit perfektem
+ * Gedächtnis, so dass jede Partie endet und danach eine neue beginnt.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FlipBenchmark {
+    @Param({"16", "256"})
+    int pairs;
+
+    private Matchmaker matchmaker;
+    private Blackhole blackhole;
+    /** Mailbox-Läufe, die Timer-Threads angestoßen haben; werden im Benchmark-Thread nachgeholt. */
+    private final Queue<Runnable> foreign = new ConcurrentLinkedQueue<>();
+    private Thread benchmarkThread;
+    private Executor executor;
+    private int roomIds = 0;
+    private GameRoom room;
+
+    // Wissen des mitspielenden Beobachters
+    private int currentPlayer;
+    private boolean over;
+    private int[] idAt;
+    private boolean[] matched;
+    private int[] firstPosition;
+    private final ArrayDeque<int[]> knownPairs = new ArrayDeque<>();
+    private int cursor;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        ServerConfig config = new ServerConfig();
+        config.setPairs(pairs);
+        this.matchmaker = new Matchmaker(config);
+        this.blackhole = blackhole;
+        this.benchmarkThread = Thread.currentThread();
+        // Räume laufen synchron im Benchmark-Thread
+        this.executor = task -> {
+            if (Thread.currentThread() == benchmarkThread) {
+                task.run();
+            } else {
+                foreign.add(task);
+            }
+        };
+        newGame();
+    }
+
+    private void newGame() {
+        over = false;
+        currentPlayer = -1;
+        knownPairs.clear();
+        cursor = 0;
+        room = new GameRoom(++roomIds, matchmaker, executor);
+        for (int id = 1; id <= MemoryRushServer.MAX_PLAYERS; id++) {
+            room.join(new BenchmarkClient(id, blackhole, id == 1 ? this::observe : null));
+        }
+    }
+
+    private void observe(ServerMessage m) {
+        String[] parts = m.getText().split(" ");
+        switch (m.getType()) {
+            case START -> {
+                int cards = Integer.parseInt(parts[1]);
+                idAt = new int[cards];
+                matched = new boolean[cards];
+                firstPosition = new int[cards / 2];
+                Arrays.fill(idAt, -1);
+                Arrays.fill(firstPosition, -1);
+            }
+            case TURN -> currentPlayer = Integer.parseInt(parts[parts.length - 1]);
+            case FLIP -> {
+                int index = Integer.parseInt(parts[1]);
+                int id = Integer.parseInt(parts[2]);
+                if (idAt[index] == -1) {
+                    idAt[index] = id;
+                    int other = firstPosition[id];
+                    if (other == -1) {
+                        firstPosition[id] = index;
+                    } else {
+                        knownPairs.add(new int[]{other, index});
+                    }
+                }
+            }
+            case MATCH -> {
+                matched[Integer.parseInt(parts[parts.length - 3])] = true;
+                matched[Integer.parseInt(parts[parts.length - 2])] = true;
+            }
+            case GAMEOVER -> over = true;
+            default -> { }
+        }
+    }
+
+    @Benchmark
+    public void flipPair() {
+        Runnable task;
+        while ((task = foreign.poll()) != null) {
+            task.run();
+        }
+        if (over) {
+            newGame();
+        }
+        int player = currentPlayer;
+        int first;
+        int second = -1;
+        int[] pair = nextKnownPair();
+        if (pair != null) {
+            first = pair[0];
+            second = pair[1];
+        } else {
+            first = nextUnknown(-1);
+        }
+        room.handleFlip(player, first);
+        if (second == -1) {
+            int partner = firstPosition[idAt[first]];
+            second = partner != first && partner != -1 && !matched[partner] ? partner : nextUnknown(first);
+        }
+        room.handleFlip(player, second);
+    }
+
+    private int[] nextKnownPair() {
+        int[] pair;
+        while ((pair = knownPairs.poll()) != null) {
+            if (!matched[pair[0]]) return pair;
+        }
+        return null;
+    }
+
+    private int nextUnknown(int exclude) {
+        while (cursor < idAt.length && (idAt[cursor] != -1 || matched[cursor])) cursor++;
+        if (cursor < idAt.length && cursor != exclude) return cursor;
+        for (int i = 0; i < idAt.length; i++) {
+            if (!matched[i] && i != exclude) return i;
+        }
+        return 0;
+    }
+}
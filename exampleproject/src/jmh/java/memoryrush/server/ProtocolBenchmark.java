@@ -0,0 +1,78 @@
+package memoryrush.server;
+
+import memoryrush.game.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kodieren jedes Nachrichtentyps im Text- und Binärprotokoll.
+ * Jede Messung erzeugt die Nachricht neu, da {@link ServerMessage} ihre Kodierung zwischenspeichert.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProtocolBenchmark {
+    @Param({"NAME", "PLAYERS", "START", "TURN", "FLIP", "MATCH", "NOMATCH", "TIMEOUT", "GAMEOVER", "CHAT",
+            "ERROR", "TOP", "RANK", "SESSION", "STATE", "REVEALED"})
+    String type;
+
+    private final List<Player> players = List.of(new Player(1, "Player 1"), new Player(2, "Player 2"),
+            new Player(3, "Player 3"), new Player(4, "Player 4"));
+    private final List<Leaderboard.Ranked> ranking = List.of(new Leaderboard.Ranked(12, 3, "Player 3"),
+            new Leaderboard.Ranked(9, 1, "Player 1"), new Leaderboard.Ranked(4, 2, "Player 2"));
+
+    private ServerMessage.Type messageType;
+
+    @Setup
+    public void setup() {
+        messageType = ServerMessage.Type.valueOf(type);
+    }
+
+    private ServerMessage create() {
+        Player p = players.get(0);
+        return switch (messageType) {
+            case NAME -> ServerMessage.name(1, "Player 1");
+            case PLAYERS -> ServerMessage.players(players);
+            case START -> ServerMessage.start(32, 30000);
+            case TURN -> ServerMessage.turn(p);
+            case FLIP -> ServerMessage.flip(17, 8);
+            case MATCH -> ServerMessage.match(p, 3, 17);
+            case NOMATCH -> ServerMessage.noMatch(p, 3, 17);
+            case TIMEOUT -> ServerMessage.timeout(p, 17);
+            case GAMEOVER -> ServerMessage.gameOver(players.subList(0, 2));
+            case CHAT -> ServerMessage.chat(1, "Player 1", "viel Glück allerseits");
+            case ERROR -> ServerMessage.error("Unbekannter Befehl");
+            case TOP -> ServerMessage.top(ranking);
+            case RANK -> ServerMessage.rank(5, 12, 1034);
+            case SESSION -> ServerMessage.session("o6l8duI_VaGN4JrBweZpQw");
+            case STATE -> ServerMessage.state(32, 30000, p, 17250, 3, 17, players);
+            case REVEALED -> ServerMessage.revealed(new int[]{0, 4, 9, 4, 12, 1, 30, 1});
+            default -> ServerMessage.of(type);
+        };
+    }
+
+    @Benchmark
+    public byte[] formatText() {
+        return create().getBytes();
+    }
+
+    @Benchmark
+    public byte[] formatBinary() {
+        return create().getBinary();
+    }
+}
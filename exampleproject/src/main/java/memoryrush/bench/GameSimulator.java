@@ -0,0 +1,361 @@
+package memoryrush.bench;
+
+import memoryrush.game.Board;
+import memoryrush.game.GameEngine;
+import memoryrush.game.GameEvents;
+import memoryrush.game.GameState;
+import memoryrush.game.Player;
+
+import java.io.Serial;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Spielt Partien ohne Server direkt auf der {@link GameEngine}, verteilt per Fork-Join auf alle Kerne. Gedacht
+ * zum Abwägen von Feldgrößen (wie lange dauert ein Spiel, wie groß ist der Vorteil des ersten Spielers),
+ * zum Prüfen von Regeländerungen und zum Durchschütteln der Zustandsmaschine.
+ * <p>
+ * Jede Partie hängt nur von {@code --seed} und ihrer Nummer ab, nicht von der Aufteilung auf Threads; eine
+ * auffällige Partie lässt sich daher mit {@code --replay=N} einzeln mit allen Ereignissen nachspielen.
+ * Die simulierten Spieler merken sich alle aufgedeckten Karten und nutzen dieses Wissen mit der
+ * Wahrscheinlichkeit {@code --accuracy}. Mit {@code --timeouts} lassen sie Züge verstreichen (die Uhr der
+ * Engine wird dann vorgestellt), mit {@code --noise} kommen zusätzlich zufällige, meist ungültige Befehle
+ * (falscher Spieler, falsche Position, verfrühter Timeout, übersprungener Zug) hinzu. Nach jeder Partie
+ * werden Spielende und Punktesumme geprüft; Abweichungen erscheinen als Verstöße.
+ * <p>
+ * Aufruf z.B. {@code java -cp target/classes memoryrush.bench.GameSimulator --games=2000000 --pairs=8,16,32
+ * --players=2 --accuracy=0.8}.
+ */
+public class GameSimulator {
+    /** Partien, ab denen eine Teilaufgabe nicht weiter geteilt wird. */
+    private static final int LEAF_GAMES = 2048;
+    private static final int TURN_MILLIS = 15_000;
+
+    private final int pairs;
+    private final int players;
+    private final double accuracy;
+    private final double timeouts;
+    private final double noise;
+    private final long seed;
+
+    private GameSimulator(int pairs, int players, double accuracy, double timeouts, double noise, long seed) {
+        this.pairs = pairs;
+        this.players = players;
+        this.accuracy = accuracy;
+        this.timeouts = timeouts;
+        this.noise = noise;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) {
+        long games = 1_000_000;
+        int[] pairSizes = {8, 16, 32};
+        int players = 2;
+        double accuracy = 0.8;
+        double timeouts = 0;
+        double noise = 0;
+        long seed = 1;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        long replay = -1;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--games=")) games = Long.parseLong(value);
+            else if (arg.startsWith("--pairs=")) pairSizes = parseList(value);
+            else if (arg.startsWith("--players=")) players = Integer.parseInt(value);
+            else if (arg.startsWith("--accuracy=")) accuracy = Double.parseDouble(value);
+            else if (arg.startsWith("--timeouts=")) timeouts = Double.parseDouble(value);
+            else if (arg.startsWith("--noise=")) noise = Double.parseDouble(value);
+            else if (arg.startsWith("--seed=")) seed = Long.parseLong(value);
+            else if (arg.startsWith("--parallelism=")) parallelism = Integer.parseInt(value);
+            else if (arg.startsWith("--replay=")) replay = Long.parseLong(value);
+            else throw new IllegalArgumentException("Unbekannte Option: " + arg);
+        }
+        if (players < 2) throw new IllegalArgumentException("Mindestens 2 Spieler");
+        if (replay >= 0) {
+            new GameSimulator(pairSizes[0], players, accuracy, timeouts, noise, seed)
+                    .play(replay, new Stats(), true);
+            return;
+        }
+        System.out.printf("Simulation: %d Spiele je Feldgröße, %d Spieler, Trefferquote %.0f %%, Timeouts %.0f %%, "
+                + "Störbefehle %.0f %%, Seed %d, %d Threads%n", games, players, accuracy * 100, timeouts * 100,
+                noise * 100, seed, parallelism);
+        System.out.printf("%6s %12s %12s %12s %12s %12s %12s %10s %10s%n", "Paare", "Spiele/min", "Flips/Spiel",
+                "Züge/Spiel", "Max. Züge", "Sieg Start %", "Remis %", "Timeouts", "Verstöße");
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (int pairCount : pairSizes) {
+                GameSimulator simulator = new GameSimulator(pairCount, players, accuracy, timeouts, noise, seed);
+                long begin = System.nanoTime();
+                Stats stats = pool.invoke(simulator.new Batch(0, games));
+                double minutes = (System.nanoTime() - begin) / 60e9;
+                System.out.printf("%6d %12.0f %12.1f %12.1f %12d %12.1f %12.1f %10d %10d%n", pairCount,
+                        stats.games / minutes, (double) stats.flips / stats.games, (double) stats.turns / stats.games,
+                        stats.maxTurns, 100.0 * stats.starterWins / stats.games, 100.0 * stats.ties / stats.games,
+                        stats.timeouts, stats.violations);
+                if (stats.violations > 0) {
+                    System.out.println("  Erste auffällige Partie: --pairs=" + pairCount + " --replay="
+                            + stats.firstViolation);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static int[] parseList(String value) {
+        String[] parts = value.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Integer.parseInt(parts[i].trim());
+        }
+        return result;
+    }
+
+    /** Teilt den Bereich der Partienummern, bis er klein genug ist, und spielt ihn dann am Stück. */
+    private final class Batch extends RecursiveTask<Stats> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+
+        Batch(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Stats compute() {
+            if (to - from <= LEAF_GAMES) {
+                Stats stats = new Stats();
+                for (long game = from; game < to; game++) {
+                    play(game, stats, false);
+                }
+                return stats;
+            }
+            long middle = (from + to) >>> 1;
+            Batch left = new Batch(from, middle);
+            left.fork();
+            Stats right = new Batch(middle, to).compute();
+            return right.merge(left.join());
+        }
+    }
+
+    /**
+     * Spielt eine Partie bis GAMEOVER und trägt sie in {@code stats} ein.
+     * @param trace jedes Ereignis ausgeben (für {@code --replay})
+     */
+    private void play(long game, Stats stats, boolean trace) {
+        SplittableRandom random = new SplittableRandom(seed ^ (game * 0x9E3779B97F4A7C15L));
+        long[] now = {0};
+        GameState state = new GameState();
+        for (int i = 0; i < players; i++) {
+            state.getPlayers().add(new Player(i, "Spieler " + (i + 1)));
+        }
+        GameEngine engine = new GameEngine(state, TURN_MILLIS, () -> now[0]);
+        Memory memory = new Memory(pairs * 2);
+        long flips = 0;
+        long turns = 0;
+        String violation = null;
+        record(engine.start(pairs, random.nextLong()), memory, trace);
+        Board board = state.getBoard();
+        // Großzügige Obergrenze: wer sie erreicht, dreht sich im Kreis statt das Feld abzuräumen
+        long maxSteps = 50L * board.size() * players + 1000;
+        for (long step = 0; !engine.isOver(); step++) {
+            if (step > maxSteps) {
+                violation = "kein Spielende nach " + maxSteps + " Schritten";
+                break;
+            }
+            if (noise > 0 && random.nextDouble() < noise) {
+                GameEvents events = disturb(engine, random, board.size());
+                if (events == null) {
+                    violation = "Timeout vor Ablauf der Zugzeit";
+                    break;
+                }
+                flips += record(events, memory, trace);
+                continue;
+            }
+            int playerId = state.getPlayers().get(state.getCurrentPlayerIndex()).getId();
+            boolean useMemory = random.nextDouble() < accuracy;
+            int first = memory.knownPair(board, useMemory);
+            if (first < 0) first = memory.unknownCard(board, random, -1);
+            flips += record(engine.flip(playerId, first), memory, trace);
+            // Hatte eine Störung schon eine Karte geöffnet, kann das eben das letzte Paar gewesen sein
+            if (engine.isOver()) break;
+            if (timeouts > 0 && random.nextDouble() < timeouts) {
+                now[0] += TURN_MILLIS * 1_000_000L;
+                GameEvents events = engine.timeout();
+                if (events.isEmpty()) {
+                    violation = "Timeout nach Ablauf der Zugzeit ignoriert";
+                    break;
+                }
+                stats.timeouts++;
+                record(events, memory, trace);
+                turns++;
+                continue;
+            }
+            int second = memory.partner(board, first, useMemory);
+            if (second < 0) second = memory.unknownCard(board, random, first);
+            flips += record(engine.flip(playerId, second), memory, trace);
+            turns++;
+        }
+        int score = 0;
+        for (Player p : state.getPlayers()) score += p.getScore();
+        if (violation == null && (!state.allCardsMatched() || score != pairs)) {
+            violation = "Spielende mit " + score + " von " + pairs + " Punkten";
+        }
+        List<Player> winners = state.getWinners();
+        if (winners.size() > 1) {
+            stats.ties++;
+        } else if (winners.get(0).getId() == 0) {
+            stats.starterWins++;
+        }
+        stats.games++;
+        stats.flips += flips;
+        stats.turns += turns;
+        stats.maxTurns = Math.max(stats.maxTurns, turns);
+        if (violation != null) {
+            stats.violations++;
+            stats.firstViolation = Math.min(stats.firstViolation, game);
+        }
+        if (trace) {
+            System.out.println("Partie " + game + ": " + flips + " Flips, " + turns + " Züge, Gewinner "
+                    + winners.stream().map(Player::getName).toList() + (violation != null ? ", Verstoß: " + violation : ""));
+        }
+    }
+
+    /**
+     * Ein zufälliger Befehl außer der Reihe. Ein verfrühter Timeout muss folgenlos bleiben.
+     * @return die Ereignisse oder null bei einem Regelverstoß der Engine
+     */
+    private GameEvents disturb(GameEngine engine, SplittableRandom random, int size) {
+        return switch (random.nextInt(4)) {
+            case 0 -> engine.flip(random.nextInt(players + 1) - 1, random.nextInt(size + 2) - 1);
+            case 1 -> engine.flip(engine.getState().getPlayers().get(engine.getState().getCurrentPlayerIndex()).getId(),
+                    random.nextInt(size + 2) - 1);
+            case 2 -> {
+                GameEvents events = engine.timeout();
+                yield events.isEmpty() ? events : null;
+            }
+            default -> engine.skipTurn();
+        };
+    }
+
+    /** Merkt sich aufgedeckte Karten; gibt bei {@code trace} die Ereignisse aus. */
+    private static int record(GameEvents events, Memory memory, boolean trace) {
+        int flips = 0;
+        for (int i = 0; i < events.size(); i++) {
+            if (events.type(i) == GameEvents.Type.FLIP) {
+                memory.seen(events.cardIndex(i), events.cardId(i));
+                flips++;
+            }
+        }
+        if (trace && !events.isEmpty()) System.out.println("  " + events);
+        return flips;
+    }
+
+    /**
+     * Gemeinsames Gedächtnis der simulierten Spieler: je Motiv die zuerst gesehene Position, je Position die
+     * Partnerkarte, sobald beide bekannt sind, dazu die noch nie aufgedeckten Positionen (zum Ziehen ohne
+     * Wiederholung) und die Motive, deren beide Karten bekannt sind.
+     */
+    private static final class Memory {
+        private final int[] seenAt;
+        private final int[] partnerAt;
+        private final int[] unseen;
+        private final int[] unseenSlot;
+        private int unseenCount;
+        private final int[] knownPairs;
+        private int knownPairCount = 0;
+
+        Memory(int size) {
+            seenAt = new int[size / 2];
+            Arrays.fill(seenAt, -1);
+            partnerAt = new int[size];
+            Arrays.fill(partnerAt, -1);
+            unseen = new int[size];
+            unseenSlot = new int[size];
+            for (int i = 0; i < size; i++) {
+                unseen[i] = i;
+                unseenSlot[i] = i;
+            }
+            unseenCount = size;
+            knownPairs = new int[size / 2];
+        }
+
+        void seen(int index, int cardId) {
+            int slot = unseenSlot[index];
+            if (slot < 0) return;
+            int last = unseen[--unseenCount];
+            unseen[slot] = last;
+            unseenSlot[last] = slot;
+            unseenSlot[index] = -1;
+            if (seenAt[cardId] < 0) {
+                seenAt[cardId] = index;
+            } else {
+                partnerAt[index] = seenAt[cardId];
+                partnerAt[seenAt[cardId]] = index;
+                knownPairs[knownPairCount++] = cardId;
+            }
+        }
+
+        /** Erste Karte eines bekannten, noch offenen Paares oder -1. */
+        int knownPair(Board board, boolean useMemory) {
+            while (knownPairCount > 0) {
+                int cardId = knownPairs[knownPairCount - 1];
+                if (!board.isMatched(seenAt[cardId])) return useMemory ? seenAt[cardId] : -1;
+                knownPairCount--;
+            }
+            return -1;
+        }
+
+        /** Bekannte Partnerkarte zu {@code index} oder -1. */
+        int partner(Board board, int index, boolean useMemory) {
+            if (!useMemory || board.isMatched(index)) return -1;
+            return partnerAt[index];
+        }
+
+        /** Eine noch nie aufgedeckte Karte, sonst irgendeine offene außer {@code except}. */
+        int unknownCard(Board board, SplittableRandom random, int except) {
+            for (int attempt = 0; attempt < 4 && unseenCount > 0; attempt++) {
+                int index = unseen[random.nextInt(unseenCount)];
+                if (index != except) return index;
+            }
+            int start = random.nextInt(board.size());
+            for (int i = 0; i < board.size(); i++) {
+                int index = (start + i) % board.size();
+                if (index != except && !board.isMatched(index)) return index;
+            }
+            return except;
+        }
+    }
+
+    /** Zähler einer Teilaufgabe; werden beim Zusammenführen addiert. */
+    private static final class Stats {
+        long games;
+        long flips;
+        long turns;
+        long maxTurns;
+        long starterWins;
+        long ties;
+        long timeouts;
+        long violations;
+        long firstViolation = Long.MAX_VALUE;
+
+        Stats merge(Stats other) {
+            games += other.games;
+            flips += other.flips;
+            turns += other.turns;
+            maxTurns = Math.max(maxTurns, other.maxTurns);
+            starterWins += other.starterWins;
+            ties += other.ties;
+            timeouts += other.timeouts;
+            violations += other.violations;
+            firstViolation = Math.min(firstViolation, other.firstViolation);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package memoryrush.bench;
+
+import memoryrush.server.LatencyHistogram;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lastgenerator ohne Oberfläche: öffnet viele simulierte Spieler-Verbindungen zu einem laufenden Server,
+ * spricht das echte Textprotokoll ({@code FLIP:}, {@code CHAT:}) und spielt vollständige Partien.
+ * Nach Spielende verbindet sich ein Bot neu, damit die Last konstant bleibt.
+ * <p>
+ * Gemeldet werden Durchsatz (Flips/s, Spiele/min) und die Latenz vom Senden eines {@code FLIP:} bis zum
+ * zugehörigen {@code FLIP} (erste Karte) bzw. {@code MATCH}/{@code NOMATCH} (zweite Karte).
+ * Mit {@code --spectators=N} verfolgen zusätzlich N Verbindungen laufende Spiele per {@code WATCH};
+ * gezählt werden die Nachrichten, die sie erreichen.
+ * <p>
+ * Aufruf z.B. {@code java -cp target/classes memoryrush.bench.LoadGenerator --host=localhost --port=8090
+ * --connections=2000 --seconds=60 --think-ms=300 --accuracy=0.7}.
+ */
+public class LoadGenerator {
+    private final String host;
+    private final int port;
+    private final int thinkMs;
+    private final double accuracy;
+    private final double chatProbability;
+    private volatile boolean running = true;
+
+    private final LatencyHistogram flipLatency = new LatencyHistogram();
+    private final LatencyHistogram resultLatency = new LatencyHistogram();
+    private final LongAdder flips = new LongAdder();
+    /** Jeder Bot trägt bei Spielende 1/Spielerzahl bei, zusammen also ein Spiel. */
+    private final DoubleAdder games = new DoubleAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicInteger connected = new AtomicInteger();
+    private final LongAdder spectatorMessages = new LongAdder();
+
+    private LoadGenerator(String host, int port, int thinkMs, double accuracy, double chatProbability) {
+        this.host = host;
+        this.port = port;
+        this.thinkMs = thinkMs;
+        this.accuracy = accuracy;
+        this.chatProbability = chatProbability;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = "localhost";
+        int port = 8090;
+        int connections = 1000;
+        int seconds = 60;
+        int thinkMs = 300;
+        double accuracy = 0.7;
+        double chat = 0.05;
+        int rampPerSecond = 500;
+        int reportSeconds = 5;
+        int spectators = 0;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--host=")) host = value;
+            else if (arg.startsWith("--port=")) port = Integer.parseInt(value);
+            else if (arg.startsWith("--connections=")) connections = Integer.parseInt(value);
+            else if (arg.startsWith("--seconds=")) seconds = Integer.parseInt(value);
+            else if (arg.startsWith("--think-ms=")) thinkMs = Integer.parseInt(value);
+            else if (arg.startsWith("--accuracy=")) accuracy = Double.parseDouble(value);
+            else if (arg.startsWith("--chat=")) chat = Double.parseDouble(value);
+            else if (arg.startsWith("--ramp=")) rampPerSecond = Integer.parseInt(value);
+            else if (arg.startsWith("--report-s=")) reportSeconds = Integer.parseInt(value);
+            else if (arg.startsWith("--spectators=")) spectators = Integer.parseInt(value);
+            else throw new IllegalArgumentException("Unbekannte Option: " + arg);
+        }
+        new LoadGenerator(host, port, thinkMs, accuracy, chat)
+                .run(connections, spectators, seconds, Math.max(1, rampPerSecond), Math.max(1, reportSeconds));
+    }
+
+    private void run(int connections, int spectators, int seconds, int rampPerSecond, int reportSeconds)
+            throws Exception {
+        System.out.printf("Lastgenerator: %d Verbindungen (+%d Zuschauer) zu %s:%d, %d s, Bedenkzeit %d ms, "
+                + "Trefferquote %.0f %%%n", connections, spectators, host, port, seconds, thinkMs, accuracy * 100);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        Thread[] bots = new Thread[connections + spectators];
+        long rampIntervalNanos = TimeUnit.SECONDS.toNanos(1) / rampPerSecond;
+        for (int i = 0; i < connections; i++) {
+            bots[i] = Thread.ofVirtual().name("bot-" + i).start(this::botLoop);
+            // Verbindungen gleichmäßig aufbauen statt alle im selben Moment
+            long next = start + (i + 1) * rampIntervalNanos;
+            long wait = next - System.nanoTime();
+            if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        for (int i = 0; i < spectators; i++) {
+            bots[connections + i] = Thread.ofVirtual().name("spectator-" + i).start(this::spectatorLoop);
+        }
+
+        long[] flipBefore = flipLatency.snapshot();
+        long[] resultBefore = resultLatency.snapshot();
+        long flipsBefore = 0;
+        long spectatorBefore = 0;
+        double gamesBefore = 0;
+        long intervalStart = System.nanoTime();
+        System.out.printf("%8s %10s %10s %10s %12s %12s %12s %12s %12s%n", "Zeit s", "Verbunden", "Flips/s",
+                "Spiele/min", "FLIP p50 µs", "FLIP p99 µs", "Ergebnis p50", "Ergebnis p99", "Zuschauer/s");
+        while (System.nanoTime() < end) {
+            TimeUnit.SECONDS.sleep(Math.min(reportSeconds,
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(end - System.nanoTime()))));
+            long now = System.nanoTime();
+            double intervalSeconds = (now - intervalStart) / 1e9;
+            long[] flipNow = flipLatency.snapshot();
+            long[] resultNow = resultLatency.snapshot();
+            long flipsNow = flips.sum();
+            long spectatorNow = spectatorMessages.sum();
+            double gamesNow = games.sum();
+            long[] flipDiff = LatencyHistogram.difference(flipNow, flipBefore);
+            long[] resultDiff = LatencyHistogram.difference(resultNow, resultBefore);
+            System.out.printf("%8d %10d %10.0f %10.1f %12d %12d %12d %12d %12.0f%n",
+                    TimeUnit.NANOSECONDS.toSeconds(now - start), connected.get(),
+                    (flipsNow - flipsBefore) / intervalSeconds, (gamesNow - gamesBefore) * 60 / intervalSeconds,
+                    LatencyHistogram.percentile(flipDiff, 0.50), LatencyHistogram.percentile(flipDiff, 0.99),
+                    LatencyHistogram.percentile(resultDiff, 0.50), LatencyHistogram.percentile(resultDiff, 0.99),
+                    (spectatorNow - spectatorBefore) / intervalSeconds);
+            flipBefore = flipNow;
+            resultBefore = resultNow;
+            flipsBefore = flipsNow;
+            spectatorBefore = spectatorNow;
+            gamesBefore = gamesNow;
+            intervalStart = now;
+        }
+        running = false;
+        for (Thread bot : bots) {
+            bot.join(2000);
+        }
+
+        double total = (System.nanoTime() - start) / 1e9;
+        long[] flipAll = flipLatency.snapshot();
+        long[] resultAll = resultLatency.snapshot();
+        System.out.printf("Gesamt: %d Flips (%.0f/s), %.1f Spiele (%.1f/min), %d Verbindungsfehler%n",
+                flips.sum(), flips.sum() / total, games.sum(), games.sum() * 60 / total, errors.sum());
+        System.out.printf("FLIP → FLIP:           p50 %d µs, p99 %d µs, p99.9 %d µs%n",
+                LatencyHistogram.percentile(flipAll, 0.50), LatencyHistogram.percentile(flipAll, 0.99),
+                LatencyHistogram.percentile(flipAll, 0.999));
+        System.out.printf("FLIP → MATCH/NOMATCH:  p50 %d µs, p99 %d µs, p99.9 %d µs%n",
+                LatencyHistogram.percentile(resultAll, 0.50), LatencyHistogram.percentile(resultAll, 0.99),
+                LatencyHistogram.percentile(resultAll, 0.999));
+        if (spectators > 0) {
+            System.out.printf("Zuschauer: %d Nachrichten (%.0f/s)%n",
+                    spectatorMessages.sum(), spectatorMessages.sum() / total);
+        }
+        System.exit(0);
+    }
+
+    /** Spielt Partie um Partie, jeweils über eine neue Verbindung, bis die Messzeit abgelaufen ist. */
+    private void botLoop() {
+        while (running) {
+            try (Socket socket = new Socket(host, port)) {
+                socket.setSoTimeout(1000);
+                connected.incrementAndGet();
+                try {
+                    new Bot(socket).play();
+                } finally {
+                    connected.decrementAndGet();
+                }
+            } catch (IOException e) {
+                errors.increment();
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Verfolgt als Zuschauer ein beliebiges laufendes Spiel und zählt die empfangenen Nachrichten. Nach
+     * Spielende oder wenn gerade kein Spiel läuft, wird neu angemeldet.
+     */
+    private void spectatorLoop() {
+        while (running) {
+            try (Socket socket = new Socket(host, port)) {
+                socket.setSoTimeout(1000);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+                out.println("WATCH");
+                while (running) {
+                    String line;
+                    try {
+                        line = in.readLine();
+                    } catch (java.net.SocketTimeoutException e) {
+                        continue;
+                    }
+                    if (line == null || line.startsWith("GAMEOVER")) break;
+                    if (line.startsWith("ERROR")) {
+                        // Noch kein Spiel zum Zuschauen, oder die Verbindung wurde vorher schon einem Spiel
+                        // zugeteilt: neu verbinden
+                        Thread.sleep(500);
+                        break;
+                    }
+                    spectatorMessages.increment();
+                }
+            } catch (IOException e) {
+                errors.increment();
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Ein simulierter Spieler für eine Partie. Merkt sich jede aufgedeckte Karte (auch die der Mitspieler)
+     * und nutzt bekannte Paare mit der eingestellten Trefferquote; sonst wählt er zufällig.
+     */
+    private class Bot {
+        private final BufferedReader in;
+        private final PrintWriter out;
+        private String name = "";
+        private int players = 1;
+        private boolean[] matched = new boolean[0];
+        /** Erste und zweite bekannte Position je Motiv, -1 = unbekannt. */
+        private int[] firstSeen = new int[0];
+        private int[] secondSeen = new int[0];
+        /** Motive, deren beide Positionen bekannt sind. */
+        private final ArrayDeque<Integer> knownPairs = new ArrayDeque<>();
+        private int firstIndex = -1;
+        private int secondIndex = -1;
+        private boolean awaitingFirst = false;
+        private boolean awaitingResult = false;
+        private long sentAt;
+
+        Bot(Socket socket) throws IOException {
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+        }
+
+        void play() throws IOException {
+            while (running) {
+                String line;
+                try {
+                    line = in.readLine();
+                } catch (java.net.SocketTimeoutException e) {
+                    continue;
+                }
+                if (line == null) return;
+                if (line.startsWith("GAMEOVER")) {
+                    games.add(1.0 / players);
+                    return;
+                }
+                handle(line);
+            }
+        }
+
+        private void handle(String line) {
+            if (line.startsWith("NAME ")) {
+                name = line.substring(5);
+            } else if (line.startsWith("PLAYERS ")) {
+                players = line.substring(8).split(",").length;
+            } else if (line.startsWith("START ")) {
+                int cards = Integer.parseInt(line.split(" ")[1]);
+                matched = new boolean[cards];
+                firstSeen = new int[cards / 2];
+                secondSeen = new int[cards / 2];
+                Arrays.fill(firstSeen, -1);
+                Arrays.fill(secondSeen, -1);
+            } else if (line.startsWith("TURN ")) {
+                awaitingFirst = false;
+                awaitingResult = false;
+                if (line.substring(5).equals(name)) {
+                    think();
+                    chooseFirst();
+                    send(firstIndex);
+                    awaitingFirst = true;
+                }
+            } else if (line.startsWith("FLIP ")) {
+                String[] parts = line.split(" ");
+                int index = Integer.parseInt(parts[1]);
+                remember(index, Integer.parseInt(parts[2]));
+                if (awaitingFirst && index == firstIndex) {
+                    flipLatency.record(elapsedMicros());
+                    awaitingFirst = false;
+                    think();
+                    chooseSecond(Integer.parseInt(parts[2]));
+                    send(secondIndex);
+                    awaitingResult = true;
+                }
+            } else if (line.startsWith("MATCH ") || line.startsWith("NOMATCH ")) {
+                // Name enthält Leerzeichen; die Indizes stehen am Ende (MATCH zusätzlich mit Punktestand)
+                String[] parts = line.split(" ");
+                boolean match = line.startsWith("MATCH ");
+                int i1 = Integer.parseInt(parts[parts.length - (match ? 3 : 2)]);
+                int i2 = Integer.parseInt(parts[parts.length - (match ? 2 : 1)]);
+                if (match) {
+                    matched[i1] = true;
+                    matched[i2] = true;
+                }
+                if (awaitingResult && i2 == secondIndex) {
+                    resultLatency.record(elapsedMicros());
+                    awaitingResult = false;
+                }
+            } else if (line.startsWith("TIMEOUT ")) {
+                awaitingFirst = false;
+                awaitingResult = false;
+            }
+        }
+
+        private void remember(int index, int cardId) {
+            if (cardId < 0 || cardId >= firstSeen.length) return;
+            if (firstSeen[cardId] == -1) {
+                firstSeen[cardId] = index;
+            } else if (firstSeen[cardId] != index && secondSeen[cardId] == -1) {
+                secondSeen[cardId] = index;
+                knownPairs.add(cardId);
+            }
+        }
+
+        private void chooseFirst() {
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            secondIndex = -1;
+            if (rnd.nextDouble() < accuracy) {
+                while (!knownPairs.isEmpty()) {
+                    int id = knownPairs.poll();
+                    if (!matched[firstSeen[id]]) {
+                        firstIndex = firstSeen[id];
+                        secondIndex = secondSeen[id];
+                        return;
+                    }
+                }
+            }
+            firstIndex = randomClosedCard(-1);
+        }
+
+        private void chooseSecond(int firstCardId) {
+            if (secondIndex >= 0) return;
+            int partner = firstSeen[firstCardId] != firstIndex ? firstSeen[firstCardId] : secondSeen[firstCardId];
+            if (partner >= 0 && !matched[partner] && ThreadLocalRandom.current().nextDouble() < accuracy) {
+                secondIndex = partner;
+            } else {
+                secondIndex = randomClosedCard(firstIndex);
+            }
+        }
+
+        private int randomClosedCard(int exclude) {
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            int idx;
+            do {
+                idx = rnd.nextInt(matched.length);
+            } while (matched[idx] || idx == exclude);
+            return idx;
+        }
+
+        private void send(int index) {
+            if (chatProbability > 0 && ThreadLocalRandom.current().nextDouble() < chatProbability) {
+                out.println("CHAT:viel Glück " + name);
+            }
+            sentAt = System.nanoTime();
+            out.println("FLIP:" + index);
+            flips.increment();
+        }
+
+        /** Bedenkzeit mit ±50 % Streuung. */
+        private void think() {
+            if (thinkMs <= 0) return;
+            long ms = thinkMs / 2 + ThreadLocalRandom.current().nextLong(thinkMs + 1);
+            try {
+                Thread.sleep(ms);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private long elapsedMicros() {
+            return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentAt);
+        }
+    }
+}
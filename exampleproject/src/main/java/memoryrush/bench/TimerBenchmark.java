@@ -0,0 +1,146 @@
+package memoryrush.bench;
+
+import memoryrush.server.TimingWheel;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vergleicht das {@link TimingWheel} der Zug-Timer mit einem {@link ScheduledThreadPoolExecutor} (ein Thread,
+ * wie vorher für die Zug-Timer): viele gleichzeitige Deadlines werden geplant, jede mehrmals verschoben
+ * (wie bei Zugwechseln) und schließlich ausgelöst. Gemessen werden die Kosten pro Planen/Verschieben,
+ * der erzeugte Müll und die Verspätung beim Auslösen.
+ * <p>
+ * Aufruf z.B. {@code java -cp target/classes memoryrush.bench.TimerBenchmark --timers=100000 --delay-ms=2000}.
+ */
+public class TimerBenchmark {
+    public static void main(String[] args) throws Exception {
+        int timers = 100_000;
+        int delayMs = 2000;
+        int reschedules = 3;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--timers=")) timers = Integer.parseInt(value);
+            else if (arg.startsWith("--delay-ms=")) delayMs = Integer.parseInt(value);
+            else if (arg.startsWith("--reschedules=")) reschedules = Integer.parseInt(value);
+        }
+        System.out.printf("%-10s %10s %14s %16s %12s %10s %10s %10s%n", "Timer", "Deadlines", "Planen ns/Op",
+                "Verschieben ns/Op", "Alloc MB", "p50 ms", "p99 ms", "max ms");
+        // Je ein Aufwärmlauf, damit der JIT beide Varianten gleich behandelt
+        runWheel(timers, delayMs, reschedules, false);
+        runWheel(timers, delayMs, reschedules, true);
+        runExecutor(timers, delayMs, reschedules, false);
+        runExecutor(timers, delayMs, reschedules, true);
+    }
+
+    private static void runWheel(int timers, int delayMs, int reschedules, boolean print) throws Exception {
+        TimingWheel wheel = new TimingWheel("bench-wheel", 10, 4096);
+        long[] deadlines = new long[timers];
+        long[] lateness = new long[timers];
+        CountDownLatch fired = new CountDownLatch(timers);
+        TimingWheel.Timeout[] handles = new TimingWheel.Timeout[timers];
+        for (int i = 0; i < timers; i++) {
+            int index = i;
+            handles[i] = wheel.newTimeout(() -> {
+                lateness[index] = System.nanoTime() - deadlines[index];
+                fired.countDown();
+            });
+        }
+        long allocBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < timers; i++) {
+            int delay = randomDelay(delayMs);
+            deadlines[i] = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+            handles[i].schedule(delay);
+        }
+        long scheduleNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int r = 0; r < reschedules; r++) {
+            for (int i = 0; i < timers; i++) {
+                int delay = randomDelay(delayMs);
+                deadlines[i] = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+                handles[i].schedule(delay);
+            }
+        }
+        long rescheduleNanos = System.nanoTime() - start;
+        long alloc = allocatedBytes() - allocBefore;
+        fired.await();
+        wheel.stop();
+        if (print) {
+            print("Wheel", timers, scheduleNanos, rescheduleNanos, (long) timers * reschedules, alloc, lateness);
+        }
+    }
+
+    private static void runExecutor(int timers, int delayMs, int reschedules, boolean print) throws Exception {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        long[] deadlines = new long[timers];
+        long[] lateness = new long[timers];
+        CountDownLatch fired = new CountDownLatch(timers);
+        Runnable[] tasks = new Runnable[timers];
+        ScheduledFuture<?>[] futures = new ScheduledFuture<?>[timers];
+        for (int i = 0; i < timers; i++) {
+            int index = i;
+            tasks[i] = () -> {
+                lateness[index] = System.nanoTime() - deadlines[index];
+                fired.countDown();
+            };
+        }
+        long allocBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < timers; i++) {
+            int delay = randomDelay(delayMs);
+            deadlines[i] = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+            futures[i] = executor.schedule(tasks[i], delay, TimeUnit.MILLISECONDS);
+        }
+        long scheduleNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int r = 0; r < reschedules; r++) {
+            for (int i = 0; i < timers; i++) {
+                // Abbrechen und neu planen, wie setTurn es vorher gemacht hat
+                futures[i].cancel(false);
+                int delay = randomDelay(delayMs);
+                deadlines[i] = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+                futures[i] = executor.schedule(tasks[i], delay, TimeUnit.MILLISECONDS);
+            }
+        }
+        long rescheduleNanos = System.nanoTime() - start;
+        long alloc = allocatedBytes() - allocBefore;
+        fired.await();
+        executor.shutdown();
+        if (print) {
+            print("Executor", timers, scheduleNanos, rescheduleNanos, (long) timers * reschedules, alloc, lateness);
+        }
+    }
+
+    /** Verteilt die Deadlines über die zweite Hälfte der Zugzeit. */
+    private static int randomDelay(int delayMs) {
+        return delayMs / 2 + ThreadLocalRandom.current().nextInt(delayMs / 2 + 1);
+    }
+
+    private static void print(String name, int timers, long scheduleNanos, long rescheduleNanos, long rescheduleOps,
+                              long allocBytes, long[] lateness) {
+        long[] sorted = lateness.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-10s %10d %14d %16d %12.1f %10.1f %10.1f %10.1f%n", name, timers,
+                scheduleNanos / timers, rescheduleOps == 0 ? 0 : rescheduleNanos / rescheduleOps,
+                allocBytes / (1024.0 * 1024.0), millis(sorted[sorted.length / 2]),
+                millis(sorted[(int) Math.min(sorted.length - 1, sorted.length * 0.99)]), millis(sorted[sorted.length - 1]));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /** Im aktuellen Thread allokierte Bytes (HotSpot-spezifisch), sonst 0. */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads) {
+            return threads.getThreadAllocatedBytes(Thread.currentThread().threadId());
+        }
+        return 0;
+    }
+}
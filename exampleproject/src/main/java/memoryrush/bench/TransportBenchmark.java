@@ -0,0 +1,207 @@
+package memoryrush.bench;
+
+import memoryrush.server.MemoryRushServer;
+import memoryrush.server.ServerConfig;
+import memoryrush.server.TransportStats;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Vergleicht die Server-Transporte (Plattform-Threads, virtuelle Threads, NIO) im selben Prozess:
+ * wie viele Verbindungen aufgebaut werden, wie viele Plattform-Threads der Server dafür braucht
+ * und wie lange ein {@code FLIP:} bis zur Antwort {@code FLIP} dauert. Dazu kommen Schreibvorgänge und
+ * geschätzte Pakete pro Spielaktion; mit {@code --coalesce=false} lässt sich das Schreiben jeder einzelnen
+ * Nachricht mit der Bündelung pro Aktion vergleichen.
+ * <p>
+ * Aufruf z.B. {@code java -cp target/classes memoryrush.bench.TransportBenchmark --connections=2000 --seconds=10}.
+ * Die simulierten Spieler laufen auf virtuellen Threads, damit der Client selbst kaum Plattform-Threads belegt.
+ */
+public class TransportBenchmark {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        int connections = 2000;
+        int seconds = 10;
+        boolean coalesce = true;
+        int flushDelayMs = 0;
+        List<ServerConfig.Transport> modes = List.of(ServerConfig.Transport.values());
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--connections=")) connections = Integer.parseInt(value);
+            else if (arg.startsWith("--seconds=")) seconds = Integer.parseInt(value);
+            else if (arg.startsWith("--coalesce=")) coalesce = Boolean.parseBoolean(value);
+            else if (arg.startsWith("--flush-delay-ms=")) flushDelayMs = Integer.parseInt(value);
+            else if (arg.startsWith("--modes=")) {
+                modes = Arrays.stream(value.split(",")).map(m -> ServerConfig.Transport.valueOf(m.toUpperCase())).toList();
+            }
+        }
+        int port = 9100;
+        System.out.printf("%-9s %12s %10s %14s %8s %10s %10s %10s %12s %12s%n", "Modus", "Verbunden",
+                "Aufbau ms", "Plattf.-Thr.", "Flips", "p50 µs", "p99 µs", "max µs", "Writes/Akt.", "Pakete/Akt.");
+        for (ServerConfig.Transport mode : modes) {
+            ServerConfig config = new ServerConfig();
+            config.setPort(port++);
+            config.setTransport(mode);
+            config.setCoalesce(coalesce);
+            config.setFlushDelayMs(flushDelayMs);
+            run(config, connections, seconds);
+        }
+        System.exit(0);
+    }
+
+    private static void run(ServerConfig config, int connections, int seconds) throws Exception {
+        ServerConfig.Transport mode = config.getTransport();
+        int port = config.getPort();
+        Thread serverThread = new Thread(() -> new MemoryRushServer(config).start(), "bench-server-" + mode);
+        serverThread.setDaemon(true);
+        serverThread.start();
+        Thread.sleep(500);
+
+        int threadsBefore = THREADS.getThreadCount();
+        // Messzeit beginnt erst, wenn alle Verbindungen stehen
+        AtomicLong deadline = new AtomicLong(Long.MAX_VALUE);
+        List<SimulatedPlayer> players = new ArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+        long connectStart = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            try {
+                SimulatedPlayer p = new SimulatedPlayer(new Socket("localhost", port), deadline);
+                players.add(p);
+                readers.add(Thread.ofVirtual().start(p));
+            } catch (IOException e) {
+                break;
+            }
+        }
+        long connectMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectStart);
+        int serverThreads = THREADS.getThreadCount() - threadsBefore;
+        // Zähler sind prozessweit; gemessen wird nur die Differenz dieses Laufs
+        long actionsBefore = TransportStats.getActions();
+        long writesBefore = TransportStats.getWrites();
+        long packetsBefore = TransportStats.getPackets();
+        deadline.set(System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds));
+
+        for (Thread t : readers) {
+            t.join();
+        }
+        long[] all = players.stream().flatMapToLong(p -> Arrays.stream(p.latencies, 0, p.count)).sorted().toArray();
+        long actions = Math.max(1, TransportStats.getActions() - actionsBefore);
+        System.out.printf("%-9s %12d %10d %14d %8d %10d %10d %10d %12.2f %12.2f%n", mode, players.size(), connectMs,
+                serverThreads, all.length, percentile(all, 0.50), percentile(all, 0.99),
+                all.length == 0 ? 0 : all[all.length - 1],
+                (double) (TransportStats.getWrites() - writesBefore) / actions,
+                (double) (TransportStats.getPackets() - packetsBefore) / actions);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[(int) Math.min(sorted.length - 1, Math.floor(p * sorted.length))];
+    }
+
+    /**
+     * Ein Spieler, der bei jedem eigenen Zug zwei zufällige offene Karten aufdeckt und die Zeit bis zur
+     * jeweiligen FLIP-Antwort misst. Endet bei Spielende oder Ablauf der Messzeit.
+     */
+    private static class SimulatedPlayer implements Runnable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final PrintWriter out;
+        private final AtomicLong deadline;
+        private String name = "";
+        private boolean[] matched = new boolean[0];
+        private int pendingIndex = -1;
+        private int secondIndex = -1;
+        private long pendingSince;
+        long[] latencies = new long[64];
+        int count = 0;
+
+        SimulatedPlayer(Socket socket, AtomicLong deadline) throws IOException {
+            this.socket = socket;
+            this.deadline = deadline;
+            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            this.out = new PrintWriter(socket.getOutputStream(), true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                socket.setSoTimeout(200);
+                while (System.nanoTime() < deadline.get()) {
+                    String line;
+                    try {
+                        line = in.readLine();
+                    } catch (java.net.SocketTimeoutException e) {
+                        continue;
+                    }
+                    if (line == null || line.startsWith("GAMEOVER")) break;
+                    handle(line);
+                }
+            } catch (IOException ignored) {
+            } finally {
+                try { socket.close(); } catch (IOException ignored) {}
+            }
+        }
+
+        private void handle(String line) {
+            String[] parts = line.split(" ");
+            switch (parts[0]) {
+                case "NAME" -> name = line.substring(5);
+                case "START" -> matched = new boolean[Integer.parseInt(parts[1])];
+                case "TURN" -> {
+                    if (line.substring(5).equals(name)) {
+                        int first = randomClosedCard(-1);
+                        secondIndex = randomClosedCard(first);
+                        flip(first);
+                    }
+                }
+                case "FLIP" -> {
+                    if (Integer.parseInt(parts[1]) == pendingIndex) {
+                        record(System.nanoTime() - pendingSince);
+                        pendingIndex = -1;
+                        if (secondIndex >= 0) {
+                            int second = secondIndex;
+                            secondIndex = -1;
+                            flip(second);
+                        }
+                    }
+                }
+                case "MATCH" -> {
+                    matched[Integer.parseInt(parts[3])] = true;
+                    matched[Integer.parseInt(parts[4])] = true;
+                }
+                default -> { }
+            }
+        }
+
+        private void flip(int index) {
+            pendingIndex = index;
+            pendingSince = System.nanoTime();
+            out.println("FLIP:" + index);
+        }
+
+        private int randomClosedCard(int exclude) {
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            int idx;
+            do {
+                idx = rnd.nextInt(matched.length);
+            } while (matched[idx] || idx == exclude);
+            return idx;
+        }
+
+        private void record(long nanos) {
+            if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+            latencies[count++] = TimeUnit.NANOSECONDS.toMicros(nanos);
+        }
+    }
+}
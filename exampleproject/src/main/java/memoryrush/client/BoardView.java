@@ -0,0 +1,28 @@
+package memoryrush.client;
+
+import javafx.scene.Node;
+
+/**
+ * Darstellung des Kartenfelds. Der Client führt das Spielmodell (gefundene Karten, offene Karte, wer am
+ * Zug ist) und sagt der Darstellung nur, welche Karte wie aussehen soll; Klicks auf verdeckte Karten
+ * meldet die Darstellung mit dem Kartenindex zurück.
+ * <p>
+ * Für kleine Felder gibt es {@link ButtonBoard} (ein Button pro Karte), für große {@link CanvasBoard}
+ * (eine Zeichenfläche, nur sichtbare und geänderte Karten werden gezeichnet).
+ */
+interface BoardView {
+    /** Knoten, der in der Mitte des Fensters angezeigt wird. */
+    Node getNode();
+
+    /** Deckt eine Karte auf; sie ist danach nicht mehr anklickbar. */
+    void reveal(int index, String face, boolean animate);
+
+    /** Deckt eine nicht gefundene Karte wieder zu. */
+    void cover(int index);
+
+    /** Markiert eine Karte als gefunden (offen und ausgegraut); {@code face == null} behält das gezeigte Motiv. */
+    void markMatched(int index, String face);
+
+    /** Im eigenen Zug sind verdeckte Karten anklickbar, sonst keine. */
+    void setInteractive(boolean interactive);
+}
@@ -0,0 +1,104 @@
+package memoryrush.client;
+
+import javafx.animation.ScaleTransition;
+import javafx.animation.SequentialTransition;
+import javafx.geometry.Insets;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.layout.GridPane;
+import javafx.util.Duration;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Kartenfeld aus einem {@link Button} pro Karte in einem {@link GridPane}, mit Dreh-Animation beim
+ * Aufdecken. Für die üblichen Feldgrößen (bis etwa hundert Karten) gedacht.
+ */
+final class ButtonBoard implements BoardView {
+    private static final String COVER = "❓";
+
+    private final GridPane grid = new GridPane();
+    private final Button[] buttons;
+    /** Karte ist aufgedeckt oder gefunden und deshalb nicht anklickbar. */
+    private final boolean[] open;
+    private boolean interactive = false;
+
+    ButtonBoard(int totalCards, IntConsumer onClick) {
+        // Gittergröße bestimmen (möglichst rechteckig)
+        int rows = (int) Math.floor(Math.sqrt(totalCards));
+        while (rows > 1 && totalCards % rows != 0) {
+            rows--;
+        }
+        int cols = totalCards / rows;
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.setPadding(new Insets(10));
+        buttons = new Button[totalCards];
+        open = new boolean[totalCards];
+        for (int i = 0; i < totalCards; i++) {
+            Button cardBtn = new Button(COVER);
+            cardBtn.setPrefSize(80, 80);
+            cardBtn.setStyle("-fx-font-size: 24; -fx-background-color: #FFA500; -fx-text-fill: #000000;");
+            cardBtn.setDisable(true);
+            final int idx = i;
+            cardBtn.setOnAction(e -> onClick.accept(idx));
+            buttons[i] = cardBtn;
+            grid.add(cardBtn, i % cols, i / cols);
+        }
+    }
+
+    @Override
+    public Node getNode() {
+        return grid;
+    }
+
+    @Override
+    public void reveal(int index, String face, boolean animate) {
+        if (index < 0 || index >= buttons.length) return;
+        Button cardBtn = buttons[index];
+        open[index] = true;
+        // Karte während sie offen ist deaktivieren
+        cardBtn.setDisable(true);
+        if (!animate) {
+            cardBtn.setText(face);
+            return;
+        }
+        // Flip-Animation: Karte erst zuklappen, dann Motiv zeigen
+        ScaleTransition st1 = new ScaleTransition(Duration.millis(150), cardBtn);
+        st1.setFromX(1.0);
+        st1.setToX(0.0);
+        ScaleTransition st2 = new ScaleTransition(Duration.millis(150), cardBtn);
+        st2.setFromX(0.0);
+        st2.setToX(1.0);
+        st1.setOnFinished(e -> cardBtn.setText(face));
+        new SequentialTransition(st1, st2).play();
+    }
+
+    @Override
+    public void cover(int index) {
+        if (index < 0 || index >= buttons.length) return;
+        open[index] = false;
+        buttons[index].setText(COVER);
+        buttons[index].setDisable(!interactive);
+    }
+
+    @Override
+    public void markMatched(int index, String face) {
+        if (index < 0 || index >= buttons.length) return;
+        open[index] = true;
+        // Gefundene Karten bleiben offen (leicht ausgegraut zur Markierung)
+        if (face != null) buttons[index].setText(face);
+        buttons[index].setDisable(true);
+        buttons[index].setStyle("-fx-opacity: 0.7;");
+    }
+
+    @Override
+    public void setInteractive(boolean interactive) {
+        // Zwischen zwei fremden Zügen ändert sich nichts: dann keinen Button anfassen
+        if (interactive == this.interactive) return;
+        this.interactive = interactive;
+        for (int i = 0; i < buttons.length; i++) {
+            buttons[i].setDisable(open[i] || !interactive);
+        }
+    }
+}
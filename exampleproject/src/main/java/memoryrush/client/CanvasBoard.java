@@ -0,0 +1,247 @@
+package memoryrush.client;
+
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Orientation;
+import javafx.geometry.VPos;
+import javafx.scene.Cursor;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Kartenfeld für große Spielfelder: alle Karten werden auf eine einzige {@link Canvas} in Fenstergröße
+ * gezeichnet, statt pro Karte einen Knoten mit eigenem Stil, Handler und Animation anzulegen. Pro Karte
+ * bleiben nur ein Zustandsbyte und das Motiv.
+ * <p>
+ * Gezeichnet wird einmal pro Puls und nur, was sich geändert hat: geänderte Karten merkt ein {@link BitSet},
+ * laufende Dreh-Animationen zeichnen nur ihre eigene Zelle neu. Nur beim Scrollen oder bei Größenänderung
+ * wird der sichtbare Ausschnitt komplett neu gezeichnet; Karten außerhalb davon werden nie gezeichnet.
+ * Klicks werden über die Zellgeometrie auf den Kartenindex abgebildet.
+ */
+final class CanvasBoard implements BoardView {
+    private static final byte COVERED = 0;
+    private static final byte OPEN = 1;
+    private static final byte MATCHED = 2;
+    private static final double CELL = 56;
+    private static final double GAP = 6;
+    private static final double PITCH = CELL + GAP;
+    private static final long FLIP_NANOS = 300_000_000L;
+    private static final Color BACKGROUND = Color.web("#F4F4F4");
+    private static final Color CARD_BACK = Color.web("#FFA500");
+    private static final Color CARD_FACE = Color.WHITE;
+    private static final Color CARD_BORDER = Color.web("#B0B0B0");
+
+    private final int size;
+    private final byte[] state;
+    private final String[] faces;
+    private final IntConsumer onClick;
+    private final Canvas canvas = new Canvas();
+    private final ScrollBar scrollBar = new ScrollBar();
+    private final BorderPane root = new BorderPane();
+    /** Karten, die seit dem letzten Zeichnen geändert wurden. */
+    private final BitSet dirty = new BitSet();
+    /** Laufende Dreh-Animationen: Kartenindex und Startzeit (System.nanoTime). */
+    private int[] animIndex = new int[8];
+    private long[] animStart = new long[8];
+    private int animCount = 0;
+    private boolean fullRepaint = true;
+    private boolean interactive = false;
+    private int cols = 1;
+    private final AnimationTimer painter = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            paint(now);
+        }
+    };
+
+    CanvasBoard(int totalCards, IntConsumer onClick) {
+        this.size = totalCards;
+        this.state = new byte[totalCards];
+        this.faces = new String[totalCards];
+        this.onClick = onClick;
+        Pane holder = new Pane(canvas);
+        // Die Zeichenfläche folgt der Fenstergröße, bestimmt sie aber nicht
+        canvas.setManaged(false);
+        canvas.widthProperty().bind(holder.widthProperty());
+        canvas.heightProperty().bind(holder.heightProperty());
+        canvas.widthProperty().addListener((obs, old, width) -> layoutChanged());
+        canvas.heightProperty().addListener((obs, old, height) -> layoutChanged());
+        scrollBar.setOrientation(Orientation.VERTICAL);
+        scrollBar.valueProperty().addListener((obs, old, value) -> fullRepaint = true);
+        holder.setOnScroll(e -> scrollBar.setValue(Math.max(scrollBar.getMin(),
+                Math.min(scrollBar.getMax(), scrollBar.getValue() - e.getDeltaY()))));
+        canvas.setOnMouseClicked(e -> click(e.getX(), e.getY()));
+        root.setCenter(holder);
+        root.setRight(scrollBar);
+        // Nur zeichnen, solange das Feld angezeigt wird (ein neues Spiel ersetzt es)
+        root.sceneProperty().addListener((obs, old, scene) -> {
+            if (scene != null) {
+                fullRepaint = true;
+                painter.start();
+            } else {
+                painter.stop();
+            }
+        });
+    }
+
+    @Override
+    public Node getNode() {
+        return root;
+    }
+
+    @Override
+    public void reveal(int index, String face, boolean animate) {
+        if (index < 0 || index >= size) return;
+        state[index] = OPEN;
+        faces[index] = face;
+        if (animate) {
+            startAnimation(index);
+        }
+        dirty.set(index);
+    }
+
+    @Override
+    public void cover(int index) {
+        if (index < 0 || index >= size || state[index] == MATCHED) return;
+        state[index] = COVERED;
+        dirty.set(index);
+    }
+
+    @Override
+    public void markMatched(int index, String face) {
+        if (index < 0 || index >= size) return;
+        state[index] = MATCHED;
+        if (face != null) faces[index] = face;
+        dirty.set(index);
+    }
+
+    @Override
+    public void setInteractive(boolean interactive) {
+        // Anklickbarkeit wird beim Klick geprüft; der Mauszeiger zeigt sie an, gezeichnet wird nichts
+        this.interactive = interactive;
+        canvas.setCursor(interactive ? Cursor.HAND : Cursor.DEFAULT);
+    }
+
+    private void layoutChanged() {
+        cols = Math.max(1, (int) ((canvas.getWidth() - GAP) / PITCH));
+        int rows = (size + cols - 1) / cols;
+        double content = rows * PITCH + GAP;
+        double visible = canvas.getHeight();
+        scrollBar.setMax(Math.max(0, content - visible));
+        scrollBar.setVisibleAmount(visible);
+        scrollBar.setBlockIncrement(Math.max(PITCH, visible - PITCH));
+        scrollBar.setUnitIncrement(PITCH);
+        scrollBar.setValue(Math.min(scrollBar.getValue(), scrollBar.getMax()));
+        fullRepaint = true;
+    }
+
+    /** Bildet einen Klick auf den Kartenindex ab; Klicks in die Zwischenräume zählen nicht. */
+    private void click(double x, double y) {
+        if (!interactive) return;
+        double contentY = y + scrollBar.getValue();
+        int col = (int) ((x - GAP) / PITCH);
+        int row = (int) ((contentY - GAP) / PITCH);
+        if (x < GAP || contentY < GAP || col >= cols) return;
+        if ((x - GAP) - col * PITCH > CELL || (contentY - GAP) - row * PITCH > CELL) return;
+        int index = row * cols + col;
+        if (index < size && state[index] == COVERED) {
+            onClick.accept(index);
+        }
+    }
+
+    private void startAnimation(int index) {
+        if (animCount == animIndex.length) {
+            animIndex = Arrays.copyOf(animIndex, animCount * 2);
+            animStart = Arrays.copyOf(animStart, animCount * 2);
+        }
+        animIndex[animCount] = index;
+        animStart[animCount] = -1; // Start mit dem nächsten Puls
+        animCount++;
+    }
+
+    /** Einmal pro Puls: sichtbaren Ausschnitt oder nur geänderte und animierte Karten neu zeichnen. */
+    private void paint(long now) {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        int first = firstVisible();
+        int last = lastVisible();
+        if (fullRepaint) {
+            fullRepaint = false;
+            dirty.clear();
+            gc.setFill(BACKGROUND);
+            gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+            for (int i = first; i <= last; i++) {
+                drawCard(gc, i, 1.0);
+            }
+        } else if (!dirty.isEmpty()) {
+            for (int i = dirty.nextSetBit(first); i >= 0 && i <= last; i = dirty.nextSetBit(i + 1)) {
+                drawCard(gc, i, 1.0);
+            }
+            // Unsichtbare Änderungen zeichnet der nächste volle Durchlauf beim Scrollen
+            dirty.clear();
+        }
+        int remaining = 0;
+        for (int a = 0; a < animCount; a++) {
+            int index = animIndex[a];
+            if (animStart[a] < 0) animStart[a] = now;
+            double progress = (double) (now - animStart[a]) / FLIP_NANOS;
+            if (index >= first && index <= last) {
+                // Erste Hälfte: Rückseite klappt zu, zweite Hälfte: Motiv klappt auf
+                double scale = progress >= 1 ? 1.0 : Math.abs(1 - 2 * progress);
+                drawCard(gc, index, progress < 0.5 ? -scale : scale);
+            }
+            if (progress < 1) {
+                animIndex[remaining] = index;
+                animStart[remaining] = animStart[a];
+                remaining++;
+            }
+        }
+        animCount = remaining;
+    }
+
+    private int firstVisible() {
+        int row = (int) Math.max(0, (scrollBar.getValue() - GAP) / PITCH);
+        return Math.min(size, row * cols);
+    }
+
+    private int lastVisible() {
+        int row = (int) ((scrollBar.getValue() + canvas.getHeight()) / PITCH);
+        return Math.min(size - 1, (row + 1) * cols - 1);
+    }
+
+    /**
+     * Zeichnet eine Zelle. {@code scaleX} zwischen 0 und 1 staucht die Karte für die Dreh-Animation;
+     * ein negativer Wert zeigt dabei noch die Rückseite.
+     */
+    private void drawCard(GraphicsContext gc, int index, double scaleX) {
+        double x = GAP + (index % cols) * PITCH;
+        double y = GAP + (index / cols) * PITCH - scrollBar.getValue();
+        gc.setFill(BACKGROUND);
+        gc.fillRect(x, y, CELL, CELL);
+        boolean faceUp = state[index] != COVERED && scaleX >= 0;
+        double width = CELL * Math.abs(scaleX);
+        double left = x + (CELL - width) / 2;
+        gc.setGlobalAlpha(state[index] == MATCHED ? 0.7 : 1.0);
+        gc.setFill(faceUp ? CARD_FACE : CARD_BACK);
+        gc.fillRoundRect(left, y, width, CELL, 8, 8);
+        gc.setStroke(CARD_BORDER);
+        gc.strokeRoundRect(left, y, width, CELL, 8, 8);
+        if (width > CELL / 2) {
+            gc.setFill(Color.BLACK);
+            gc.setFont(Font.font(CELL * 0.45));
+            gc.setTextAlign(TextAlignment.CENTER);
+            gc.setTextBaseline(VPos.CENTER);
+            gc.fillText(faceUp ? faces[index] : "?", x + CELL / 2, y + CELL / 2);
+        }
+        gc.setGlobalAlpha(1.0);
+    }
+}
@@ -1,7 +1,6 @@
 package memoryrush.client;
 
 import javafx.application.Application;
-import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
@@ -12,21 +11,60 @@ import javafx.util.Duration;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.animation.PauseTransition;
-import javafx.animation.ScaleTransition;
-import javafx.animation.SequentialTransition;
+
+import memoryrush.protocol.BinaryProtocol;
 
 import java.io.*;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 
 /**
  * Client-Anwendung für Memory Rush. Stellt die JavaFX-Oberfläche bereit und kommuniziert mit dem Server.
+ * Bricht die Verbindung während eines Spiels ab, verbindet sich der Client neu und fordert mit dem
+ * Sitzungstoken seinen Platz zurück.
+ * <p>
+ * Mit {@code --watch=<Raum>} (oder {@code --watch=any}) verfolgt der Client ein laufendes Spiel als
+ * Zuschauer, ohne aufdecken oder chatten zu können. Mit {@code --server=host:port} verbindet er sich statt
+ * mit {@code localhost:8090} mit einem anderen Server bzw. einem Gateway vor mehreren Servern.
+ * <p>
+ * Servernachrichten werden im Listener-Thread dekodiert und über eine {@link UiUpdateQueue} einmal pro
+ * Animations-Puls gesammelt angewendet. Zug-Hervorhebung, Punkte, Countdown und Chattext werden dabei nur
+ * vorgemerkt und am Ende des Stapels einmal gezeichnet, so dass mehrere TURN- oder Punkteänderungen in
+ * schneller Folge nur die letzte Darstellung kosten.
+ * <p>
+ * Das Kartenfeld zeichnet bis {@link #CANVAS_BOARD_THRESHOLD} Karten ein {@link ButtonBoard}, darüber ein
+ * {@link CanvasBoard}; mit {@code --board=buttons} bzw. {@code --board=canvas} lässt sich das festlegen.
  */
 public class MemoryRushClient extends Application {
-    private PrintWriter out;
-    private BufferedReader in;
+    private static final String DEFAULT_SERVER = "localhost:8090";
+    /** Versuche, nach einem Verbindungsabbruch wieder zum Server durchzukommen (etwa eine Minute). */
+    private static final int RECONNECT_ATTEMPTS = 60;
+    private static final long RECONNECT_DELAY_MS = 1000;
+    /** Ab dieser Kartenzahl wird das Feld auf eine Zeichenfläche gezeichnet statt aus Buttons gebaut. */
+    private static final int CANVAS_BOARD_THRESHOLD = 100;
+
+    private OutputStream out;
+    private InputStream in;
+    /** Mit {@code --protocol=binary} gestartet: Antwort des Servers auf PROTO steht noch aus. */
+    private boolean negotiating = false;
+    /** Nach erfolgreicher Aushandlung wird binär gelesen und geschrieben. */
+    private volatile boolean binaryProtocol = false;
+    private final List<Runnable> pendingCommands = new ArrayList<>();
+    /** Sitzungstoken vom Server; damit wird der Platz nach einem Verbindungsabbruch zurückgefordert. */
+    private volatile String sessionToken;
+    private volatile boolean gameOver = false;
+    /** Raum, der als Zuschauer verfolgt wird (0 = beliebiges Spiel); -1 zum Mitspielen. */
+    private int watchRoom = -1;
+    /** Spieler-IDs aus dem Binärprotokoll (nur Listener-Thread). */
+    private final Map<Integer, String> playerNames = new HashMap<>();
+    /** Aktuelle Spielerliste für das Zerlegen von Textnachrichten (nur Listener-Thread). */
+    private List<String> knownNames = List.of();
     private String myName = "";
     private boolean myTurn = false;
     private final Map<String, Label> scoreLabels = new HashMap<>();
@@ -35,12 +73,25 @@ public class MemoryRushClient extends Application {
     private Label timeLabel;
     private TextArea chatArea;
     private TextField chatField;
-    private Button[] cardButtons;
+    private BoardView board;
     private boolean[] matched;
     private int openIndex = -1;
     private boolean waitingForResult = false;
     private Timeline timerTimeline;
     private int timeRemaining = 30;
+    /** Bedenkzeit pro Zug in Sekunden (vom Server mit START mitgeteilt). */
+    private int turnSeconds = 30;
+    /** Sammelt die UI-Aktionen des Listener-Threads für den nächsten Puls. */
+    private final UiUpdateQueue updates = new UiUpdateQueue(this::applyPendingView);
+    /** Spieler am Zug; seine Hervorhebung wird erst am Ende des Stapels gezeichnet. */
+    private String currentTurn = "-";
+    private boolean turnViewDirty = false;
+    /** Noch nicht angezeigte Punktestände (Spieler -> Punkte). */
+    private final Map<String, Integer> pendingScores = new LinkedHashMap<>();
+    /** Neu zu startender Countdown in Sekunden; -1 = unverändert. */
+    private int pendingCountdown = -1;
+    /** Noch nicht angehängter Text für das Chatfenster. */
+    private final StringBuilder pendingChat = new StringBuilder();
     // Emojis für Kartenmotive (für Karten-IDs 0-15)
     private final String[] emojiFaces = {
             "\uD83D\uDC36", // 🐶
@@ -94,7 +145,10 @@ public class MemoryRushClient extends Application {
         chatField.setOnAction(e -> sendChat());
         HBox chatInputBar = new HBox(5, chatField, sendButton);
         chatInputBar.setAlignment(Pos.CENTER_LEFT);
-        VBox chatBox = new VBox(5, chatLabel, chatArea, chatInputBar);
+        // Serverweite Bestenliste und eigener Rang werden im Chatfenster angezeigt
+        Button leaderboardButton = new Button("Bestenliste");
+        leaderboardButton.setOnAction(e -> requestLeaderboard());
+        VBox chatBox = new VBox(5, chatLabel, chatArea, chatInputBar, leaderboardButton);
         chatBox.setPadding(new Insets(10));
         chatBox.setPrefWidth(270);
         // Spielfeld-Gitter (anfangs leer, wird nach "START" aufgebaut)
@@ -110,8 +164,16 @@ public class MemoryRushClient extends Application {
         root.setBottom(bottomBar);
         Scene scene = new Scene(root, 1000, 600);
         primaryStage.setTitle("Memory Rush");
+        String watch = getParameters().getNamed().get("watch");
+        if (watch != null) {
+            watchRoom = "any".equalsIgnoreCase(watch) ? 0 : Integer.parseInt(watch);
+            primaryStage.setTitle("Memory Rush – Zuschauer");
+            chatField.setDisable(true);
+            sendButton.setDisable(true);
+        }
         primaryStage.setScene(scene);
         primaryStage.show();
+        updates.start();
 
         // Verbindung zum Server herstellen
         connectToServer();
@@ -123,284 +185,705 @@ public class MemoryRushClient extends Application {
     }
 
     /**
-     * Stellt die Verbindung zum Server her.
+     * Stellt die Verbindung zum Server her und beantragt bei Bedarf das Binärprotokoll.
      */
     private void connectToServer() {
         try {
-            Socket socket = new Socket("localhost", 8090);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            out = new PrintWriter(socket.getOutputStream(), true);
+            openConnection(null);
         } catch (IOException e) {
-            showError("Verbindung zum Server fehlgeschlagen: " + e.getMessage());
+            updates.post(() -> showError("Verbindung zum Server fehlgeschlagen: " + e.getMessage() + "\n"));
+        }
+    }
+
+    /**
+     * Öffnet die Verbindung; mit Token wird als Erstes der alte Platz per {@code REJOIN} zurückgefordert.
+     */
+    private synchronized void openConnection(String rejoinToken) throws IOException {
+        String server = getParameters().getNamed().getOrDefault("server", DEFAULT_SERVER);
+        int colon = server.lastIndexOf(':');
+        Socket socket = colon < 0 ? new Socket(server, 8090)
+                : new Socket(server.substring(0, colon), Integer.parseInt(server.substring(colon + 1)));
+        in = new BufferedInputStream(socket.getInputStream());
+        out = new BufferedOutputStream(socket.getOutputStream());
+        binaryProtocol = false;
+        negotiating = false;
+        pendingCommands.clear();
+        // Raumgebundene Befehle als erste Textzeile: ein Gateway wählt danach den Knoten des Spiels
+        if (rejoinToken != null) {
+            writeLine("REJOIN " + rejoinToken);
+        }
+        if (watchRoom >= 0) {
+            sendWatch(watchRoom);
+        }
+        String protocol = getParameters().getNamed().get("protocol");
+        if ("binary".equalsIgnoreCase(protocol)) {
+            // Bis zur Antwort des Servers werden Befehle zurückgehalten
+            negotiating = true;
+            writeLine("PROTO BIN " + BinaryProtocol.VERSION);
+        }
+    }
+
+    /**
+     * Versucht nach einem Verbindungsabbruch im laufenden Spiel, sich neu zu verbinden. Der Server schickt
+     * nach dem {@code REJOIN} den kompletten Spielstand (STATE, REVEALED), auch nach einem Neustart.
+     * Zuschauer haben keinen Platz und melden sich einfach erneut mit {@code WATCH} an.
+     * @return true, wenn wieder eine Verbindung besteht
+     */
+    private boolean reconnect() {
+        String token = sessionToken;
+        updates.post(() -> appendChat("Verbindung unterbrochen – verbinde neu...\n"));
+        for (int attempt = 0; attempt < RECONNECT_ATTEMPTS; attempt++) {
+            try {
+                Thread.sleep(RECONNECT_DELAY_MS);
+                openConnection(watchRoom < 0 ? token : null);
+                return true;
+            } catch (IOException e) {
+                // Server noch nicht wieder erreichbar
+            } catch (InterruptedException e) {
+                return false;
+            }
         }
+        return false;
     }
 
     /**
-     * Lauscht auf Nachrichten vom Server (in eigenem Thread) und reicht sie zur Verarbeitung weiter.
+     * Lauscht auf Nachrichten vom Server (in eigenem Thread). Jede Nachricht wird hier dekodiert und
+     * als fertige UI-Aktion in die {@link UiUpdateQueue} gelegt.
      */
     private void listenToServer() {
-        try {
-            String line;
-            while ((line = in.readLine()) != null) {
-                final String msg = line;
-                // Im JavaFX Application Thread verarbeiten (UI-Updates)
-                Platform.runLater(() -> processServerMessage(msg));
+        while (true) {
+            String reason = null;
+            try {
+                readMessages();
+            } catch (IOException e) {
+                reason = e.getMessage();
+            }
+            if (sessionToken == null || gameOver) {
+                if (reason != null) {
+                    String message = reason;
+                    updates.post(() -> showError("Serververbindung verloren: " + message));
+                }
+                return;
+            }
+            if (!reconnect()) {
+                updates.post(() -> showError("Serververbindung verloren, Wiederverbinden fehlgeschlagen.\n"));
+                return;
+            }
+        }
+    }
+
+    /** Liest Nachrichten, bis die Verbindung endet. */
+    private void readMessages() throws IOException {
+        while (true) {
+            Runnable update;
+            if (binaryProtocol) {
+                BinaryProtocol.Reader frame = BinaryProtocol.readFrame(in);
+                if (frame == null) break;
+                update = decodeFrame(frame);
+            } else {
+                String line = readLine();
+                if (line == null) break;
+                update = parseLine(line);
+            }
+            if (update != null) {
+                // Im JavaFX Application Thread mit dem nächsten Puls verarbeiten (UI-Updates)
+                updates.post(update);
             }
-        } catch (IOException e) {
-            Platform.runLater(() -> showError("Serververbindung verloren: " + e.getMessage()));
         }
     }
 
     /**
-     * Verarbeitet eine einzelne Nachricht vom Server und aktualisiert entsprechend die UI oder internen Zustand.
+     * Liest eine Textzeile direkt aus dem Bytestrom (nach der Aushandlung folgen im selben Strom Binär-Frames).
      */
-    private void processServerMessage(String message) {
-        if (message.startsWith("NAME ")) {
-            // Zuweisung des eigenen Spielernamens vom Server
-            myName = message.substring(5);
-            // (Optional könnte man den Namen z.B. im Fenstertitel anzeigen)
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == '\n') {
+                String s = line.toString(StandardCharsets.UTF_8);
+                return s.endsWith("\r") ? s.substring(0, s.length() - 1) : s;
+            }
+            line.write(b);
+        }
+        return line.size() > 0 ? line.toString(StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Zerlegt eine Nachricht des Textprotokolls und liefert die passende UI-Aktion (oder null).
+     * Läuft im Listener-Thread.
+     */
+    private Runnable parseLine(String message) {
+        if (message.startsWith("PROTO ")) {
+            // Antwort auf die Protokollaushandlung
+            finishNegotiation(message.startsWith("PROTO BIN"));
+            return null;
+        } else if (message.startsWith("NAME ")) {
+            String name = message.substring(5);
+            return () -> onName(name);
         } else if (message.startsWith("PLAYERS ")) {
             // Komplette Spielerliste (Komma-separierte Namen)
-            String namesList = message.substring(8);
-            String[] names = namesList.split(",");
-            scoreboardBox.getChildren().clear();
-            scoreLabels.clear();
-            for (String name : names) {
-                name = name.trim();
-                Label lbl = new Label(name + (name.equals(myName) ? " (You)" : "") + ": 0");
-                if (name.equals(myName)) {
-                    lbl.setStyle("-fx-text-fill: blue;");
-                }
-                scoreboardBox.getChildren().add(lbl);
-                scoreLabels.put(name, lbl);
+            List<String> names = new ArrayList<>();
+            for (String name : message.substring(8).split(",")) {
+                names.add(name.trim());
             }
+            knownNames = names;
+            return () -> onPlayers(names);
         } else if (message.startsWith("START")) {
-            // Spielbeginn – Aufbau des Kartenfeldes
             String[] parts = message.split(" ");
             int totalCards = 16;
+            int turnMillis = 30000;
             if (parts.length > 1) {
                 try {
                     totalCards = Integer.parseInt(parts[1]);
+                    if (parts.length > 2) turnMillis = Integer.parseInt(parts[2]);
                 } catch (NumberFormatException e) {
                     // Falls keine Zahl mitgesendet, Standardwert 16 (4x4)
                 }
             }
-            initCardGrid(totalCards);
-            chatArea.appendText("Das Spiel hat begonnen!\n");
+            int cards = totalCards;
+            int millis = turnMillis;
+            return () -> onStart(cards, millis);
         } else if (message.startsWith("TURN ")) {
             String playerName = message.substring(5);
-            turnLabel.setText("Aktueller Zug: " + playerName);
-            // Hervorheben, wer am Zug ist (Scoreboard)
-            for (Map.Entry<String, Label> entry : scoreLabels.entrySet()) {
-                String name = entry.getKey();
-                Label lbl = entry.getValue();
-                if (name.equals(playerName)) {
-                    lbl.setStyle(lbl.getStyle() + "-fx-font-weight: bold; -fx-underline: true;");
-                } else {
-                    // Hervorhebung entfernen (bei eigenem Namen Blau beibehalten)
-                    if (name.equals(myName)) {
-                        lbl.setStyle("-fx-text-fill: blue;");
-                    } else {
-                        lbl.setStyle("");
-                    }
-                }
-            }
-            // Merken, ob der lokale Spieler am Zug ist
-            myTurn = playerName.equals(myName);
-            // Reset des Auswahl-Status für neuen Zug
-            openIndex = -1;
-            waitingForResult = false;
-            // Karten-Buttons (de)aktivieren je nachdem, ob eigener Zug
-            updateCardButtonsState();
-            // Runden-Timer (Countdown) neu starten
-            if (timerTimeline != null) {
-                timerTimeline.stop();
-            }
-            timeRemaining = 30;
-            timeLabel.setText("Zeit: 30");
-            timerTimeline = new Timeline(new KeyFrame(Duration.seconds(1), ev -> {
-                timeRemaining--;
-                timeLabel.setText("Zeit: " + timeRemaining);
-                if (timeRemaining <= 0) {
-                    timerTimeline.stop();
-                }
-            }));
-            timerTimeline.setCycleCount(30);
-            timerTimeline.play();
+            return () -> onTurn(playerName);
         } else if (message.startsWith("FLIP ")) {
-            // Eine Karte wird aufgedeckt (Server teilt Index und Motiv-ID mit)
             StringTokenizer st = new StringTokenizer(message);
             st.nextToken(); // "FLIP"
             int idx = Integer.parseInt(st.nextToken());
             int cardId = Integer.parseInt(st.nextToken());
-            if (idx >= 0 && idx < cardButtons.length) {
-                Button cardBtn = cardButtons[idx];
-                // Emoji oder ID ermitteln
-                String face = (cardId >= 0 && cardId < emojiFaces.length)
-                        ? emojiFaces[cardId]
-                        : String.valueOf(cardId);
-                // Flip-Animation: Karte erst zuklappen, dann Motiv zeigen
-                ScaleTransition st1 = new ScaleTransition(Duration.millis(150), cardBtn);
-                st1.setFromX(1.0);
-                st1.setToX(0.0);
-                ScaleTransition st2 = new ScaleTransition(Duration.millis(150), cardBtn);
-                st2.setFromX(0.0);
-                st2.setToX(1.0);
-                st1.setOnFinished(e -> {
-                    cardBtn.setText(face);
-                });
-                SequentialTransition flipAnim = new SequentialTransition(st1, st2);
-                flipAnim.play();
-                // Karte während sie offen ist deaktivieren
-                cardBtn.setDisable(true);
-                if (openIndex == -1) {
-                    // Erste Karte eines Paares wurde umgedreht
-                    openIndex = idx;
-                } else {
-                    // Zweite Karte umgedreht, Ergebnis folgt in MATCH/NOMATCH
-                    // (Keine weitere Aktion hier nötig)
+            return () -> onFlip(idx, cardId);
+        } else if (message.startsWith("MATCH ")) {
+            // MATCH Spieler idx1 idx2 neuerScore – Spielernamen können Leerzeichen enthalten
+            String[] rest = splitName(message.substring(6));
+            String[] parts = rest[1].split(" ");
+            if (parts.length >= 3) {
+                int idx1 = Integer.parseInt(parts[0]);
+                int idx2 = Integer.parseInt(parts[1]);
+                int newScore = Integer.parseInt(parts[2]);
+                return () -> onMatch(rest[0], idx1, idx2, newScore);
+            }
+        } else if (message.startsWith("NOMATCH ")) {
+            // NOMATCH Spieler idx1 idx2
+            String[] rest = splitName(message.substring(8));
+            String[] parts = rest[1].split(" ");
+            if (parts.length >= 2) {
+                int idx1 = Integer.parseInt(parts[0]);
+                int idx2 = Integer.parseInt(parts[1]);
+                return () -> onNoMatch(idx1, idx2);
+            }
+        } else if (message.startsWith("TIMEOUT ")) {
+            // TIMEOUT Spieler [idxOffen]
+            String[] rest = splitName(message.substring(8));
+            int idx = rest[1].isEmpty() ? -1 : Integer.parseInt(rest[1].trim());
+            return () -> onTimeout(rest[0], idx);
+        } else if (message.startsWith("GAMEOVER ")) {
+            // "GAMEOVER Name" oder "GAMEOVER TIE name1,name2"
+            gameOver = true;
+            String content = message.substring(9);
+            List<String> winners = content.startsWith("TIE ")
+                    ? List.of(content.substring(4).split(","))
+                    : List.of(content);
+            return () -> onGameOver(winners);
+        } else if (message.startsWith("CHAT ")) {
+            String chatMsg = message.substring(5);
+            return () -> onChat(chatMsg);
+        } else if (message.startsWith("TOP")) {
+            // TOP Name=Punkte,Name=Punkte,...
+            List<String> entries = new ArrayList<>();
+            if (message.length() > 4) {
+                for (String entry : message.substring(4).split(",")) {
+                    int eq = entry.lastIndexOf('=');
+                    entries.add(entry.substring(0, eq) + ": " + entry.substring(eq + 1));
                 }
             }
-        } else if (message.startsWith("MATCH ")) {
-            // Ein Paar wurde gefunden: MATCH Spieler idx1 idx2 neuerScore
+            return () -> onTop(entries);
+        } else if (message.startsWith("RANK ")) {
+            // RANK rang punkte spieler
             String[] parts = message.split(" ");
-            if (parts.length >= 5) {
-                String playerName = parts[1];
-                int idx1 = Integer.parseInt(parts[2]);
-                int idx2 = Integer.parseInt(parts[3]);
-                int newScore = Integer.parseInt(parts[4]);
-                // Gefundene Karten bleiben offen (leicht ausgegraut zur Markierung)
-                if (idx1 >= 0 && idx1 < cardButtons.length) {
-                    cardButtons[idx1].setDisable(true);
-                    cardButtons[idx1].setStyle("-fx-opacity: 0.7;");
+            long rank = Long.parseLong(parts[1]);
+            int score = Integer.parseInt(parts[2]);
+            long total = Long.parseLong(parts[3]);
+            return () -> onRank(rank, score, total);
+        } else if (message.startsWith("SESSION ")) {
+            sessionToken = message.substring(8);
+        } else if (message.startsWith("STATE ")) {
+            // STATE Karten Zugzeit verbleibend offeneKarte Motiv Name=Punkte,...;Spieler am Zug
+            int semicolon = message.lastIndexOf(';');
+            String[] parts = message.substring(6, semicolon).split(" ", 6);
+            int cards = Integer.parseInt(parts[0]);
+            int turnMillis = Integer.parseInt(parts[1]);
+            int remaining = Integer.parseInt(parts[2]);
+            int open = Integer.parseInt(parts[3]);
+            int openId = Integer.parseInt(parts[4]);
+            Map<String, Integer> scores = new LinkedHashMap<>();
+            for (String entry : parts[5].split(",")) {
+                int eq = entry.lastIndexOf('=');
+                scores.put(entry.substring(0, eq), Integer.parseInt(entry.substring(eq + 1)));
+            }
+            String current = message.substring(semicolon + 1);
+            return () -> onState(cards, turnMillis, current, remaining, open, openId, scores);
+        } else if (message.startsWith("REVEALED ")) {
+            // REVEALED Index:Motiv,Index:Motiv,...
+            String[] entries = message.substring(9).split(",");
+            int[] revealed = new int[2 * entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                int colon = entries[i].indexOf(':');
+                revealed[2 * i] = Integer.parseInt(entries[i].substring(0, colon));
+                revealed[2 * i + 1] = Integer.parseInt(entries[i].substring(colon + 1));
+            }
+            return () -> onRevealed(revealed);
+        } else if (message.startsWith("AWAY ")) {
+            String name = message.substring(5);
+            return () -> onAway(name, true);
+        } else if (message.startsWith("BACK ")) {
+            String name = message.substring(5);
+            return () -> onAway(name, false);
+        } else if (message.startsWith("ERROR")) {
+            return () -> showError(message + "\n");
+        }
+        return null;
+    }
+
+    /**
+     * Trennt einen Spielernamen vom Rest der Nachricht. Da Namen Leerzeichen enthalten ("Player 1"),
+     * wird gegen die bekannte Spielerliste verglichen; unbekannte Namen enden am ersten Leerzeichen.
+     * @return {Name, Rest ohne führendes Leerzeichen}
+     */
+    private String[] splitName(String text) {
+        String best = null;
+        for (String name : knownNames) {
+            if ((text.equals(name) || text.startsWith(name + " "))
+                    && (best == null || name.length() > best.length())) {
+                best = name;
+            }
+        }
+        if (best == null) {
+            int space = text.indexOf(' ');
+            best = space < 0 ? text : text.substring(0, space);
+        }
+        String rest = text.length() > best.length() ? text.substring(best.length() + 1) : "";
+        return new String[]{best, rest};
+    }
+
+    /**
+     * Dekodiert einen Frame des Binärprotokolls und liefert die passende UI-Aktion (oder null).
+     * Spieler kommen hier nur als ID; die Namen stammen aus NAME- und PLAYERS-Frames.
+     */
+    private Runnable decodeFrame(BinaryProtocol.Reader frame) throws IOException {
+        switch (frame.opcode()) {
+            case BinaryProtocol.NAME -> {
+                int id = frame.readVarint();
+                String name = frame.readString();
+                playerNames.put(id, name);
+                return () -> onName(name);
+            }
+            case BinaryProtocol.PLAYERS -> {
+                int count = frame.readVarint();
+                List<String> names = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    int id = frame.readVarint();
+                    String name = frame.readString();
+                    playerNames.put(id, name);
+                    names.add(name);
                 }
-                if (idx2 >= 0 && idx2 < cardButtons.length) {
-                    cardButtons[idx2].setDisable(true);
-                    cardButtons[idx2].setStyle("-fx-opacity: 0.7;");
+                knownNames = names;
+                return () -> onPlayers(names);
+            }
+            case BinaryProtocol.START -> {
+                int cards = frame.readVarint();
+                int turnMillis = frame.hasRemaining() ? frame.readVarint() : 30000;
+                return () -> onStart(cards, turnMillis);
+            }
+            case BinaryProtocol.TURN -> {
+                String name = playerName(frame.readVarint());
+                return () -> onTurn(name);
+            }
+            case BinaryProtocol.FLIP -> {
+                int idx = frame.readVarint();
+                int cardId = frame.readVarint();
+                return () -> onFlip(idx, cardId);
+            }
+            case BinaryProtocol.MATCH -> {
+                String name = playerName(frame.readVarint());
+                int idx1 = frame.readVarint();
+                int idx2 = frame.readVarint();
+                int score = frame.readVarint();
+                return () -> onMatch(name, idx1, idx2, score);
+            }
+            case BinaryProtocol.NOMATCH -> {
+                frame.readVarint(); // Spieler wird für die Anzeige nicht benötigt
+                int idx1 = frame.readVarint();
+                int idx2 = frame.readVarint();
+                return () -> onNoMatch(idx1, idx2);
+            }
+            case BinaryProtocol.TIMEOUT -> {
+                String name = playerName(frame.readVarint());
+                int idx = frame.readVarint() - 1;
+                return () -> onTimeout(name, idx);
+            }
+            case BinaryProtocol.GAMEOVER -> {
+                gameOver = true;
+                int count = frame.readVarint();
+                List<String> winners = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    winners.add(playerName(frame.readVarint()));
                 }
-                matched[idx1] = true;
-                matched[idx2] = true;
-                // Punktestand im Scoreboard aktualisieren
-                if (scoreLabels.containsKey(playerName)) {
-                    Label lbl = scoreLabels.get(playerName);
-                    lbl.setText(playerName + (playerName.equals(myName) ? " (You)" : "") + ": " + newScore);
+                return () -> onGameOver(winners);
+            }
+            case BinaryProtocol.CHAT -> {
+                String line = playerName(frame.readVarint()) + ": " + frame.readString();
+                return () -> onChat(line);
+            }
+            case BinaryProtocol.ERROR -> {
+                String text = frame.readString();
+                return () -> showError("ERROR " + text + "\n");
+            }
+            case BinaryProtocol.TOP -> {
+                int count = frame.readVarint();
+                List<String> entries = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    frame.readVarint(); // Spieler-ID
+                    String name = frame.readString();
+                    entries.add(name + ": " + frame.readVarint());
                 }
-                // Auswahl zurücksetzen, Zug geht ggf. für selben Spieler weiter
-                openIndex = -1;
-                waitingForResult = false;
+                return () -> onTop(entries);
             }
-        } else if (message.startsWith("NOMATCH ")) {
-            // Kein Paar: NOMATCH Spieler idx1 idx2
-            String[] parts = message.split(" ");
-            if (parts.length >= 4) {
-                int idx1 = Integer.parseInt(parts[2]);
-                int idx2 = Integer.parseInt(parts[3]);
-                // Kleiner Delay, dann Karten zurückdrehen
-                PauseTransition pause = new PauseTransition(Duration.seconds(1));
-                pause.setOnFinished(ev -> {
-                    if (idx1 >= 0 && idx1 < cardButtons.length) {
-                        cardButtons[idx1].setText("❓");
-                        if (!matched[idx1]) {
-                            cardButtons[idx1].setDisable(false);
-                        }
-                    }
-                    if (idx2 >= 0 && idx2 < cardButtons.length) {
-                        cardButtons[idx2].setText("❓");
-                        if (!matched[idx2]) {
-                            cardButtons[idx2].setDisable(false);
-                        }
-                    }
-                });
-                pause.play();
-                openIndex = -1;
-                waitingForResult = false;
+            case BinaryProtocol.RANK -> {
+                int rank = frame.readVarint();
+                int score = frame.readVarint();
+                int total = frame.readVarint();
+                return () -> onRank(rank, score, total);
             }
-        } else if (message.startsWith("TIMEOUT ")) {
-            // Zug-Zeit abgelaufen: TIMEOUT Spieler [idxOffen]
-            String[] parts = message.split(" ");
-            if (parts.length >= 2) {
-                String playerName = parts[1];
-                String info;
-                if (playerName.equals(myName)) {
-                    info = "Deine Zeit ist abgelaufen!\n";
-                } else {
-                    info = "Die Zeit von " + playerName + " ist abgelaufen.\n";
+            case BinaryProtocol.SESSION -> {
+                sessionToken = frame.readString();
+                return null;
+            }
+            case BinaryProtocol.STATE -> {
+                int cards = frame.readVarint();
+                int turnMillis = frame.readVarint();
+                String current = playerName(frame.readVarint());
+                int remaining = frame.readVarint();
+                int open = frame.readVarint() - 1;
+                int openId = frame.readVarint();
+                int count = frame.readVarint();
+                Map<String, Integer> scores = new LinkedHashMap<>();
+                for (int i = 0; i < count; i++) {
+                    String name = playerName(frame.readVarint());
+                    scores.put(name, frame.readVarint());
                 }
-                chatArea.appendText(info);
-                if (parts.length == 3) {
-                    // Eine offene Karte wird zurückgedeckt
-                    int idx = Integer.parseInt(parts[2]);
-                    if (idx >= 0 && idx < cardButtons.length) {
-                        cardButtons[idx].setText("❓");
-                        if (!matched[idx]) {
-                            cardButtons[idx].setDisable(false);
-                        }
-                    }
+                return () -> onState(cards, turnMillis, current, remaining, open, openId, scores);
+            }
+            case BinaryProtocol.REVEALED -> {
+                int[] revealed = new int[2 * frame.readVarint()];
+                for (int i = 0; i < revealed.length; i++) {
+                    revealed[i] = frame.readVarint();
                 }
-                openIndex = -1;
-                waitingForResult = false;
+                return () -> onRevealed(revealed);
             }
-        } else if (message.startsWith("GAMEOVER ")) {
-            // Spielende: entweder "GAMEOVER Name" oder "GAMEOVER TIE name1,name2"
-            if (timerTimeline != null) {
+            case BinaryProtocol.AWAY, BinaryProtocol.BACK -> {
+                boolean away = frame.opcode() == BinaryProtocol.AWAY;
+                String name = playerName(frame.readVarint());
+                return () -> onAway(name, away);
+            }
+            case BinaryProtocol.TEXT -> {
+                return parseLine(frame.readString());
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    private String playerName(int id) {
+        return playerNames.getOrDefault(id, "Player " + id);
+    }
+
+    /** Eigener Spielername vom Server. */
+    private void onName(String name) {
+        myName = name;
+        // (Optional könnte man den Namen z.B. im Fenstertitel anzeigen)
+    }
+
+    /** Komplette Spielerliste: Scoreboard neu aufbauen. */
+    private void onPlayers(List<String> names) {
+        scoreboardBox.getChildren().clear();
+        scoreLabels.clear();
+        for (String name : names) {
+            Label lbl = new Label(name + (name.equals(myName) ? " (You)" : "") + ": 0");
+            if (name.equals(myName)) {
+                lbl.setStyle("-fx-text-fill: blue;");
+            }
+            scoreboardBox.getChildren().add(lbl);
+            scoreLabels.put(name, lbl);
+        }
+        // Neue Labels brauchen die Zug-Hervorhebung wieder
+        turnViewDirty = true;
+    }
+
+    /** Spielbeginn – Aufbau des Kartenfeldes. */
+    private void onStart(int totalCards, int turnMillis) {
+        turnSeconds = Math.max(1, (turnMillis + 999) / 1000);
+        initCardGrid(totalCards);
+        appendChat("Das Spiel hat begonnen!\n");
+    }
+
+    /**
+     * Neuer Zug: Kartenfreigabe sofort, Hervorhebung und Countdown erst am Ende des Stapels, damit
+     * mehrere Züge in einem Puls nur einmal gezeichnet werden.
+     */
+    private void onTurn(String playerName) {
+        currentTurn = playerName;
+        turnViewDirty = true;
+        // Merken, ob der lokale Spieler am Zug ist
+        myTurn = playerName.equals(myName);
+        // Reset des Auswahl-Status für neuen Zug
+        openIndex = -1;
+        waitingForResult = false;
+        // Karten-Buttons (de)aktivieren je nachdem, ob eigener Zug
+        updateCardButtonsState();
+        // Runden-Timer (Countdown) neu starten
+        startCountdown(turnSeconds);
+    }
+
+    /** Merkt einen neuen Countdown vor; gestartet wird nur der letzte eines Stapels. */
+    private void startCountdown(int seconds) {
+        pendingCountdown = seconds;
+    }
+
+    /**
+     * Zeichnet nach jedem Stapel von Servernachrichten, was die Handler nur vorgemerkt haben: Chattext,
+     * Punkte, Zug-Hervorhebung und Countdown.
+     */
+    private void applyPendingView() {
+        if (pendingChat.length() > 0) {
+            chatArea.appendText(pendingChat.toString());
+            pendingChat.setLength(0);
+        }
+        for (Map.Entry<String, Integer> score : pendingScores.entrySet()) {
+            Label lbl = scoreLabels.get(score.getKey());
+            if (lbl != null) {
+                String name = score.getKey();
+                lbl.setText(name + (name.equals(myName) ? " (You)" : "") + ": " + score.getValue());
+            }
+        }
+        pendingScores.clear();
+        if (turnViewDirty) {
+            turnViewDirty = false;
+            turnLabel.setText("Aktueller Zug: " + currentTurn);
+            // Hervorheben, wer am Zug ist (Scoreboard); eigener Name bleibt blau
+            for (Map.Entry<String, Label> entry : scoreLabels.entrySet()) {
+                String name = entry.getKey();
+                String style = name.equals(myName) ? "-fx-text-fill: blue;" : "";
+                if (name.equals(currentTurn)) {
+                    style += "-fx-font-weight: bold; -fx-underline: true;";
+                }
+                entry.getValue().setStyle(style);
+            }
+        }
+        if (pendingCountdown >= 0) {
+            restartCountdown(pendingCountdown);
+            pendingCountdown = -1;
+        }
+    }
+
+    /** Text für das Chatfenster; angehängt wird einmal pro Stapel. */
+    private void appendChat(String text) {
+        pendingChat.append(text);
+    }
+
+    private void restartCountdown(int seconds) {
+        if (timerTimeline != null) {
+            timerTimeline.stop();
+        }
+        timeRemaining = seconds;
+        timeLabel.setText("Zeit: " + seconds);
+        if (seconds <= 0) return;
+        timerTimeline = new Timeline(new KeyFrame(Duration.seconds(1), ev -> {
+            timeRemaining--;
+            timeLabel.setText("Zeit: " + timeRemaining);
+            if (timeRemaining <= 0) {
                 timerTimeline.stop();
             }
-            String content = message.substring(9);
-            String endMsg;
-            if (content.startsWith("TIE")) {
-                String tieNames = content.substring(4);
-                endMsg = "Spielende! Unentschieden zwischen: " + tieNames + ".\n";
-            } else {
-                endMsg = "Spielende! Gewinner: " + content + "\n";
+        }));
+        timerTimeline.setCycleCount(seconds);
+        timerTimeline.play();
+    }
+
+    /**
+     * Spielstand beim Wiedereinstieg (nach REJOIN) oder wenn ein ruhendes Spiel weitergeht: Feld aufbauen
+     * bzw. behalten, Punkte, Spieler am Zug, offene Karte und verbliebene Zugzeit übernehmen.
+     */
+    private void onState(int totalCards, int turnMillis, String current, int remainingMillis, int open, int openId,
+                         Map<String, Integer> scores) {
+        turnSeconds = Math.max(1, (turnMillis + 999) / 1000);
+        if (board == null || matched.length != totalCards) {
+            initCardGrid(totalCards);
+            appendChat("Spielstand übernommen.\n");
+        } else {
+            appendChat("Das Spiel geht weiter.\n");
+        }
+        scores.forEach(this::showScore);
+        onTurn(current);
+        if (open >= 0 && open < matched.length) {
+            board.reveal(open, face(openId), false);
+            openIndex = open;
+        }
+        startCountdown((remainingMillis + 999) / 1000);
+    }
+
+    /** Bereits gefundene Karten (Paare aus Index und Motiv) nach einem Wiedereinstieg aufdecken. */
+    private void onRevealed(int[] revealed) {
+        if (board == null) return;
+        for (int i = 0; i + 1 < revealed.length; i += 2) {
+            int idx = revealed[i];
+            if (idx < 0 || idx >= matched.length) continue;
+            matched[idx] = true;
+            board.markMatched(idx, face(revealed[i + 1]));
+        }
+    }
+
+    /** Eine Karte wird aufgedeckt (Server teilt Index und Motiv-ID mit). */
+    private void onFlip(int idx, int cardId) {
+        if (board != null && idx >= 0 && idx < matched.length) {
+            // Mit Dreh-Animation aufdecken; offene Karten sind nicht anklickbar
+            board.reveal(idx, face(cardId), true);
+            if (openIndex == -1) {
+                // Erste Karte eines Paares wurde umgedreht
+                openIndex = idx;
             }
-            chatArea.appendText(endMsg);
-            // Alle Kartenzüge deaktivieren (Spiel vorbei)
-            for (Button btn : cardButtons) {
-                btn.setDisable(true);
+            // Zweite Karte: Ergebnis folgt in MATCH/NOMATCH
+        }
+    }
+
+    /** Ein Paar wurde gefunden. */
+    private void onMatch(String playerName, int idx1, int idx2, int newScore) {
+        // Gefundene Karten bleiben offen (leicht ausgegraut zur Markierung)
+        if (board != null) {
+            for (int idx : new int[]{idx1, idx2}) {
+                if (idx < 0 || idx >= matched.length) continue;
+                matched[idx] = true;
+                // Motiv ist seit dem FLIP bekannt und bleibt stehen
+                board.markMatched(idx, null);
             }
-        } else if (message.startsWith("CHAT ")) {
-            // Chat-Nachricht anzeigen
-            String chatMsg = message.substring(5);
-            chatArea.appendText(chatMsg + "\n");
-        } else if (message.startsWith("ERROR")) {
-            // Fehlernachricht vom Server (z.B. Spiel schon gestartet)
-            showError(message + "\n");
+        }
+        // Punktestand im Scoreboard aktualisieren
+        showScore(playerName, newScore);
+        // Auswahl zurücksetzen, Zug geht ggf. für selben Spieler weiter
+        openIndex = -1;
+        waitingForResult = false;
+    }
+
+    /** Merkt einen Punktestand vor; angezeigt wird der letzte pro Spieler und Stapel. */
+    private void showScore(String playerName, int score) {
+        pendingScores.put(playerName, score);
+    }
+
+    /** Mitspieler hat die Verbindung verloren (seine Züge werden übersprungen) oder ist zurück. */
+    private void onAway(String playerName, boolean away) {
+        Label lbl = scoreLabels.get(playerName);
+        if (lbl != null) {
+            lbl.setOpacity(away ? 0.5 : 1.0);
+        }
+        appendChat(playerName + (away ? " hat die Verbindung verloren.\n" : " ist wieder da.\n"));
+    }
+
+    /** Emoji zum Motiv oder die ID, wenn es mehr Motive als Emojis gibt. */
+    private String face(int cardId) {
+        return cardId >= 0 && cardId < emojiFaces.length ? emojiFaces[cardId] : String.valueOf(cardId);
+    }
+
+    /** Kein Paar: nach kurzer Pause beide Karten zurückdrehen. */
+    private void onNoMatch(int idx1, int idx2) {
+        PauseTransition pause = new PauseTransition(Duration.seconds(1));
+        pause.setOnFinished(ev -> {
+            coverCard(idx1);
+            coverCard(idx2);
+        });
+        pause.play();
+        openIndex = -1;
+        waitingForResult = false;
+    }
+
+    /** Zug-Zeit abgelaufen; eine offene Karte (idx >= 0) wird zurückgedeckt. */
+    private void onTimeout(String playerName, int idx) {
+        String info;
+        if (playerName.equals(myName)) {
+            info = "Deine Zeit ist abgelaufen!\n";
+        } else {
+            info = "Die Zeit von " + playerName + " ist abgelaufen.\n";
+        }
+        appendChat(info);
+        if (idx >= 0) {
+            coverCard(idx);
+        }
+        openIndex = -1;
+        waitingForResult = false;
+    }
+
+    /** Deckt eine nicht gefundene Karte wieder zu und gibt sie frei. */
+    private void coverCard(int idx) {
+        if (board != null && idx >= 0 && idx < matched.length && !matched[idx]) {
+            board.cover(idx);
+        }
+    }
+
+    /** Spielende mit einem oder mehreren Gewinnern. */
+    private void onGameOver(List<String> winners) {
+        if (timerTimeline != null) {
+            timerTimeline.stop();
+        }
+        pendingCountdown = -1;
+        String endMsg;
+        if (winners.size() > 1) {
+            endMsg = "Spielende! Unentschieden zwischen: " + String.join(",", winners) + ".\n";
+        } else {
+            endMsg = "Spielende! Gewinner: " + winners.get(0) + "\n";
+        }
+        appendChat(endMsg);
+        // Alle Kartenzüge deaktivieren (Spiel vorbei)
+        myTurn = false;
+        if (board != null) {
+            board.setInteractive(false);
+        }
+    }
+
+    /** Bestenliste anzeigen (Einträge "Name: Punkte", absteigend). */
+    private void onTop(List<String> entries) {
+        StringBuilder sb = new StringBuilder("Bestenliste:\n");
+        for (int i = 0; i < entries.size(); i++) {
+            sb.append(i + 1).append(". ").append(entries.get(i)).append("\n");
+        }
+        appendChat(sb.toString());
+    }
+
+    /** Eigenen Rang anzeigen. */
+    private void onRank(long rank, int score, long total) {
+        if (rank == 0) {
+            appendChat("Du hast noch keine Punkte in der Bestenliste.\n");
+        } else {
+            appendChat("Dein Rang: " + rank + " von " + total + " (" + score + " Punkte)\n");
         }
     }
 
+    /** Chat-Nachricht anzeigen ("Name: Text"). */
+    private void onChat(String chatMsg) {
+        appendChat(chatMsg + "\n");
+    }
+
     /**
-     * Initialisiert das Kartengitter (alle Karten verdeckt anzeigen) basierend auf der Kartenzahl.
+     * Baut das Kartenfeld (alle Karten verdeckt) für die angegebene Kartenzahl auf; große Felder werden auf
+     * eine Zeichenfläche gezeichnet.
      */
     private void initCardGrid(int totalCards) {
-        // Gittergröße bestimmen (möglichst rechteckig)
-        int rows = (int) Math.floor(Math.sqrt(totalCards));
-        while (rows > 1 && totalCards % rows != 0) {
-            rows--;
-        }
-        int cols = totalCards / rows;
-        GridPane cardGrid = new GridPane();
-        cardGrid.setHgap(10);
-        cardGrid.setVgap(10);
-        cardGrid.setPadding(new Insets(10));
-        cardButtons = new Button[totalCards];
+        String mode = getParameters().getNamed().getOrDefault("board", "auto");
+        boolean canvas = mode.equalsIgnoreCase("canvas")
+                || (!mode.equalsIgnoreCase("buttons") && totalCards > CANVAS_BOARD_THRESHOLD);
+        board = canvas ? new CanvasBoard(totalCards, this::handleCardClick)
+                : new ButtonBoard(totalCards, this::handleCardClick);
         matched = new boolean[totalCards];
-        for (int i = 0; i < totalCards; i++) {
-            matched[i] = false;
-        }
-        for (int i = 0; i < totalCards; i++) {
-            Button cardBtn = new Button("❓");
-            cardBtn.setPrefSize(80, 80);
-            cardBtn.setStyle("-fx-font-size: 24; -fx-background-color: #FFA500; -fx-text-fill: #000000;");
-            final int idx = i;
-            cardBtn.setOnAction(e -> handleCardClick(idx));
-            cardButtons[i] = cardBtn;
-            int r = i / cols;
-            int c = i % cols;
-            cardGrid.add(cardBtn, c, r);
-        }
-        // Neues Grid in der UI anzeigen
+        // Neues Feld in der UI anzeigen
         BorderPane root = (BorderPane) turnLabel.getScene().getRoot();
-        root.setCenter(cardGrid);
+        root.setCenter(board.getNode());
     }
 
     /**
@@ -415,7 +898,7 @@ public class MemoryRushClient extends Application {
             return;
         }
         // Flip-Befehl an Server senden
-        out.println("FLIP:" + index);
+        sendFlip(index);
         // Wenn dies die zweite Karte im Zug war, auf Ergebnis warten (keine weiteren Klicks zulassen)
         if (openIndex != -1) {
             waitingForResult = true;
@@ -423,19 +906,11 @@ public class MemoryRushClient extends Application {
     }
 
     /**
-     * Aktualisiert den Aktivierungszustand aller Kartenbuttons je nach Spielzug.
+     * Nur im eigenen Zug dürfen verdeckte, nicht gefundene Karten angeklickt werden.
      */
     private void updateCardButtonsState() {
-        if (cardButtons == null) return;
-        for (int i = 0; i < cardButtons.length; i++) {
-            if (matched[i]) {
-                // Bereits gefundene Paare bleiben deaktiviert
-                cardButtons[i].setDisable(true);
-            } else {
-                // Nur im eigenen Zug dürfen verdeckte, nicht gefundene Karten angeklickt werden
-                cardButtons[i].setDisable(!myTurn);
-            }
-        }
+        if (board == null) return;
+        board.setInteractive(myTurn);
     }
 
     /**
@@ -444,15 +919,110 @@ public class MemoryRushClient extends Application {
     private void sendChat() {
         String text = chatField.getText().trim();
         if (text.isEmpty()) return;
-        out.println("CHAT:" + text);
+        sendChatText(text);
         chatField.clear();
     }
 
+    /** Fragt die Top 10 der Bestenliste und den eigenen Rang ab. */
+    private synchronized void requestLeaderboard() {
+        if (negotiating) {
+            pendingCommands.add(this::requestLeaderboard);
+            return;
+        }
+        if (binaryProtocol) {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(1);
+            BinaryProtocol.writeVarint(payload, 10);
+            writeFrame(BinaryProtocol.C_TOP, payload);
+            writeFrame(BinaryProtocol.C_RANK, new ByteArrayOutputStream(0));
+        } else {
+            writeLine("TOP 10");
+            writeLine("RANK");
+        }
+    }
+
+    /**
+     * Schickt einen Flip-Befehl im ausgehandelten Protokoll. Während die Aushandlung läuft, wird der
+     * Befehl zurückgehalten, da der Server danach sofort im neuen Format liest.
+     */
+    private synchronized void sendFlip(int index) {
+        if (negotiating) {
+            pendingCommands.add(() -> sendFlip(index));
+            return;
+        }
+        if (binaryProtocol) {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(4);
+            BinaryProtocol.writeVarint(payload, index);
+            writeFrame(BinaryProtocol.C_FLIP, payload);
+        } else {
+            writeLine("FLIP:" + index);
+        }
+    }
+
+    /** Meldet den Client als Zuschauer an. */
+    private synchronized void sendWatch(int roomId) {
+        if (negotiating) {
+            pendingCommands.add(() -> sendWatch(roomId));
+            return;
+        }
+        if (binaryProtocol) {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(4);
+            BinaryProtocol.writeVarint(payload, roomId);
+            writeFrame(BinaryProtocol.C_WATCH, payload);
+        } else {
+            writeLine(roomId == 0 ? "WATCH" : "WATCH " + roomId);
+        }
+    }
+
+    /** Schickt eine Chatnachricht im ausgehandelten Protokoll. */
+    private synchronized void sendChatText(String text) {
+        if (negotiating) {
+            pendingCommands.add(() -> sendChatText(text));
+            return;
+        }
+        if (binaryProtocol) {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(text.length() + 2);
+            BinaryProtocol.writeString(payload, text);
+            writeFrame(BinaryProtocol.C_CHAT, payload);
+        } else {
+            writeLine("CHAT:" + text);
+        }
+    }
+
+    /**
+     * Schließt die Aushandlung ab (Listener-Thread) und verschickt zurückgehaltene Befehle.
+     */
+    private synchronized void finishNegotiation(boolean binary) {
+        binaryProtocol = binary;
+        negotiating = false;
+        for (Runnable command : pendingCommands) {
+            command.run();
+        }
+        pendingCommands.clear();
+    }
+
+    private synchronized void writeLine(String line) {
+        try {
+            out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        } catch (IOException e) {
+            updates.post(() -> showError("Senden fehlgeschlagen: " + e.getMessage() + "\n"));
+        }
+    }
+
+    private synchronized void writeFrame(int opcode, ByteArrayOutputStream payload) {
+        try {
+            out.write(BinaryProtocol.frame(opcode, payload));
+            out.flush();
+        } catch (IOException e) {
+            updates.post(() -> showError("Senden fehlgeschlagen: " + e.getMessage() + "\n"));
+        }
+    }
+
     /**
      * Zeigt eine Fehlermeldung im Chat-Bereich an (z.B. Verbindungsprobleme).
      */
     private void showError(String errorMsg) {
-        chatArea.appendText("ERROR: " + errorMsg);
+        appendChat("ERROR: " + errorMsg);
     }
 
     public static void main(String[] args) {
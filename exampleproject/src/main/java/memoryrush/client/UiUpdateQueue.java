@@ -0,0 +1,60 @@
+package memoryrush.client;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Übergibt dekodierte Servernachrichten gesammelt an den JavaFX Application Thread. Statt einem
+ * {@code Platform.runLater} pro Nachricht landen die UI-Aktionen in einer Warteschlange, die einmal pro
+ * Animations-Puls abgearbeitet wird; danach läuft {@code afterBatch}, das aufgeschobene Anzeigen (Zug,
+ * Punkte, Countdown, Chat) nur einmal für den ganzen Stapel aktualisiert.
+ * <p>
+ * {@link #post(Runnable)} darf von jedem Thread aufgerufen werden; alles andere läuft im FX-Thread.
+ */
+final class UiUpdateQueue {
+    /** Höchstens so viele Aktionen pro Puls, damit auch eine Nachrichtenflut das Bild nicht einfriert. */
+    private static final int MAX_PER_PULSE = 4096;
+
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final Runnable afterBatch;
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drain();
+        }
+    };
+
+    /** @param afterBatch wird im FX-Thread nach jedem nicht leeren Stapel ausgeführt */
+    UiUpdateQueue(Runnable afterBatch) {
+        this.afterBatch = afterBatch;
+    }
+
+    /** Beginnt mit dem Abarbeiten; im FX-Thread aufrufen. */
+    void start() {
+        timer.start();
+    }
+
+    /** Reiht eine UI-Aktion ein; sie läuft spätestens mit dem nächsten Puls. */
+    void post(Runnable update) {
+        pending.add(update);
+    }
+
+    private void drain() {
+        Runnable update;
+        int processed = 0;
+        while (processed < MAX_PER_PULSE && (update = pending.poll()) != null) {
+            try {
+                update.run();
+            } catch (RuntimeException e) {
+                // Eine fehlerhafte Nachricht darf die übrigen nicht aufhalten
+                e.printStackTrace();
+            }
+            processed++;
+        }
+        if (processed > 0) {
+            afterBatch.run();
+        }
+    }
+}
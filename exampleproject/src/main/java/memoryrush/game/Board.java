@@ -0,0 +1,119 @@
+package memoryrush.game;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Kompaktes Spielfeld auf Basis primitiver Arrays: Motiv-IDs als {@code short[]}, gefundene Karten als Bitmenge.
+ * Ein Feld mit n Karten belegt so etwa 2,1 Bytes pro Karte statt eines eigenen Objekts je Karte, und
+ * das Spielende ist über einen Zähler in O(1) erkennbar. Für bestehenden Code liefert {@link #card(int)}
+ * eine {@link Card}-Ansicht auf eine Position.
+ */
+public final class Board {
+    /** Größte unterstützte Anzahl Paare (IDs werden vorzeichenlos in 16 Bit abgelegt). */
+    public static final int MAX_PAIRS = 1 << 16;
+
+    private final short[] ids;
+    private final long[] matched;
+    private int matchedCount = 0;
+
+    /**
+     * Legt je zwei Karten pro Motiv an und mischt sie (Fisher-Yates). Gleicher Zufallsgenerator mit gleichem
+     * Seed ergibt dasselbe Feld.
+     * @param pairs Anzahl der Paare (insgesamt 2*pairs Karten)
+     */
+    public Board(int pairs, RandomGenerator random) {
+        if (pairs < 1 || pairs > MAX_PAIRS) {
+            throw new IllegalArgumentException("Anzahl Paare muss zwischen 1 und " + MAX_PAIRS + " liegen");
+        }
+        int size = pairs * 2;
+        ids = new short[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = (short) (i >> 1);
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            short tmp = ids[i];
+            ids[i] = ids[j];
+            ids[j] = tmp;
+        }
+        matched = new long[(size + 63) >>> 6];
+    }
+
+    private Board(short[] ids, long[] matched, int matchedCount) {
+        this.ids = ids;
+        this.matched = matched;
+        this.matchedCount = matchedCount;
+    }
+
+    /**
+     * Stellt ein Spielfeld aus einem Schnappschuss wieder her.
+     * @param cardIds Motiv-IDs in Feldreihenfolge (siehe {@link #cardIds()})
+     * @param matchedBits gefundene Karten als Bitmenge (siehe {@link #matchedBits()})
+     */
+    public static Board restore(int[] cardIds, long[] matchedBits) {
+        if (cardIds.length == 0 || cardIds.length % 2 != 0 || cardIds.length > 2 * MAX_PAIRS) {
+            throw new IllegalArgumentException("Ungültige Kartenzahl " + cardIds.length);
+        }
+        short[] ids = new short[cardIds.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (short) cardIds[i];
+        }
+        long[] matched = Arrays.copyOf(matchedBits, (ids.length + 63) >>> 6);
+        int count = 0;
+        for (long word : matched) count += Long.bitCount(word);
+        return new Board(ids, matched, count);
+    }
+
+    /** Anzahl der Karten auf dem Feld. */
+    public int size() {
+        return ids.length;
+    }
+
+    /** Motiv-ID der Karte an dieser Position. */
+    public int cardId(int index) {
+        return ids[index] & 0xFFFF;
+    }
+
+    /** Kopie aller Motiv-IDs in Feldreihenfolge (z.B. für das Spieljournal). */
+    public int[] cardIds() {
+        int[] copy = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            copy[i] = ids[i] & 0xFFFF;
+        }
+        return copy;
+    }
+
+    /** Kopie der Bitmenge gefundener Karten (Bit i = Karte i). */
+    public long[] matchedBits() {
+        return matched.clone();
+    }
+
+    public boolean isMatched(int index) {
+        return (matched[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void setMatched(int index, boolean value) {
+        long bit = 1L << index;
+        long word = matched[index >>> 6];
+        if (((word & bit) != 0) == value) return;
+        matched[index >>> 6] = value ? word | bit : word & ~bit;
+        matchedCount += value ? 1 : -1;
+    }
+
+    /** Noch nicht gefundene Paare. */
+    public int remainingPairs() {
+        return (ids.length - matchedCount) / 2;
+    }
+
+    /** Prüft in O(1), ob alle Karten gefunden sind. */
+    public boolean isCleared() {
+        return matchedCount == ids.length;
+    }
+
+    /** Ansicht auf eine Position; Änderungen wirken direkt auf das Feld. */
+    public Card card(int index) {
+        if (index < 0 || index >= ids.length) throw new IndexOutOfBoundsException(index);
+        return new Card(this, index);
+    }
+}
@@ -1,24 +1,29 @@
 package memoryrush.game;
 
-/** Repräsentiert eine Spielkarte im Memory. */
+/** Repräsentiert eine Spielkarte im Memory als Ansicht auf eine Position des {@link Board}. */
 public class Card {
-    private int id;
-    private boolean matched;
+    private final Board board;
+    private final int index;
 
-    public Card(int id) {
-        this.id = id;
-        this.matched = false;
+    Card(Board board, int index) {
+        this.board = board;
+        this.index = index;
+    }
+
+    /** Position der Karte auf dem Spielfeld. */
+    public int getIndex() {
+        return index;
     }
 
     public int getId() {
-        return id;
+        return board.cardId(index);
     }
 
     public boolean isMatched() {
-        return matched;
+        return board.isMatched(index);
     }
 
     public void setMatched(boolean matched) {
-        this.matched = matched;
+        board.setMatched(index, matched);
     }
-}
\ No newline at end of file
+}
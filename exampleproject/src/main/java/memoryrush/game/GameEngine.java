@@ -0,0 +1,198 @@
+package memoryrush.game;
+
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.LongSupplier;
+
+/**
+ * Die Spielregeln ohne Netzwerk, Threads oder Zeitgeber: Karten aufdecken, Paare werten, Zugwechsel und
+ * Zeitüberschreitung. Jeder Befehl ändert den {@link GameState} und liefert die ausgelösten Ereignisse als
+ * {@link GameEvents} zurück; was daraus wird (Nachrichten, Journal, Metriken, Timer), entscheidet der
+ * Aufrufer. Zufall steckt nur im Seed von {@link #start(int, long)}, die Zeit nur in der übergebenen Uhr –
+ * gleiche Eingaben ergeben also immer denselben Spielverlauf.
+ * <p>
+ * Die Engine ist nicht threadsicher; sie wird wie der Raum, der sie benutzt, immer nur von einem Thread
+ * zugleich bedient.
+ */
+public final class GameEngine {
+    private final GameState state;
+    private final int turnMillis;
+    /** Zeitquelle in Nanosekunden (im Server {@code System::nanoTime}, in der Simulation ein Zähler). */
+    private final LongSupplier clock;
+    private final GameEvents events = new GameEvents();
+    /** Ob ein Spieler (nach ID) gerade mitspielt; abwesende werden beim Zugwechsel übersprungen. */
+    private IntPredicate present = playerId -> true;
+    private boolean started = false;
+    private boolean over = false;
+    /** Ende des laufenden Zuges nach {@link #clock}. */
+    private long turnDeadline;
+
+    /**
+     * @param state Spielstand, auf dem die Engine arbeitet (Spieler werden vor dem Start eingetragen)
+     * @param turnMillis Zugzeit in Millisekunden
+     * @param clock monotone Uhr in Nanosekunden
+     */
+    public GameEngine(GameState state, int turnMillis, LongSupplier clock) {
+        this.state = state;
+        this.turnMillis = turnMillis;
+        this.clock = clock;
+    }
+
+    public GameState getState() {
+        return state;
+    }
+
+    public void setPresence(IntPredicate present) {
+        this.present = present;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    public boolean isOver() {
+        return over;
+    }
+
+    /**
+     * Mischt ein neues Feld und gibt den Zug an den ersten Spieler.
+     * @return START und TURN; leer, wenn das Spiel schon läuft oder weniger als zwei Spieler da sind
+     */
+    public GameEvents start(int pairs, long seed) {
+        events.clear();
+        if (started || state.getPlayers().size() < 2) return events;
+        started = true;
+        state.initCards(pairs, seed);
+        events.add(GameEvents.Type.START, -1, state.getBoard().size(), 0);
+        beginTurn(0, 0);
+        return events;
+    }
+
+    /**
+     * Übernimmt einen wiederhergestellten Spielstand; der laufende Zug endet nach {@code remainingMillis}.
+     */
+    public void restore(Board board, List<Player> players, int currentPlayerIndex, int firstSelectedIndex,
+                        int remainingMillis) {
+        state.restore(board, players, currentPlayerIndex, firstSelectedIndex);
+        started = true;
+        over = false;
+        resumeTurn(remainingMillis);
+    }
+
+    /** Setzt die Deadline des laufenden Zuges neu, z.B. wenn ein ruhendes Spiel weitergeht. */
+    public void resumeTurn(int remainingMillis) {
+        turnDeadline = clock.getAsLong() + remainingMillis * 1_000_000L;
+    }
+
+    /** Beendet das Spiel ohne Ergebnis (z.B. alle Spieler weg); danach bewirkt kein Befehl mehr etwas. */
+    public void abort() {
+        over = true;
+    }
+
+    /** Verbleibende Zugzeit nach der Uhr, mindestens 0. */
+    public int remainingTurnMillis() {
+        return (int) Math.max(0, (turnDeadline - clock.getAsLong()) / 1_000_000);
+    }
+
+    /**
+     * Ein Spieler deckt eine Karte auf. Ignoriert wird der Befehl, wenn der Spieler nicht am Zug ist, die
+     * Position ungültig oder schon gefunden ist oder dieselbe Karte zweimal gewählt wird.
+     * @return FLIP bei der ersten Karte; bei der zweiten FLIP, MATCH/NOMATCH und TURN bzw. GAMEOVER
+     */
+    public GameEvents flip(int playerId, int index) {
+        events.clear();
+        if (!started || over) return events;
+        int playerIndex = state.getCurrentPlayerIndex();
+        Player player = state.getPlayers().get(playerIndex);
+        if (player.getId() != playerId) return events;
+        Board board = state.getBoard();
+        if (index < 0 || index >= board.size() || board.isMatched(index)) return events;
+        int cardId = board.cardId(index);
+        int firstIndex = state.getFirstSelectedIndex();
+        if (firstIndex == -1) {
+            state.setFirstSelectedIndex(index);
+            events.add(GameEvents.Type.FLIP, playerIndex, index, cardId);
+            return events;
+        }
+        if (firstIndex == index) return events;
+        state.setFirstSelectedIndex(-1);
+        // Der Paarversuch schließt den Zug ab; ein noch ausstehender Timeout darf ihn nicht mehr beenden
+        state.setTurnCompleted(true);
+        events.add(GameEvents.Type.FLIP, playerIndex, index, cardId);
+        if (board.cardId(firstIndex) == cardId) {
+            board.setMatched(firstIndex, true);
+            board.setMatched(index, true);
+            state.scorePoint(player);
+            events.add(GameEvents.Type.MATCH, playerIndex, firstIndex, index);
+            if (state.allCardsMatched()) {
+                over = true;
+                events.add(GameEvents.Type.GAMEOVER, -1, 0, 0);
+            } else {
+                // Gleicher Spieler ist erneut am Zug
+                beginTurn(playerIndex, 0);
+            }
+        } else {
+            events.add(GameEvents.Type.NOMATCH, playerIndex, firstIndex, index);
+            nextTurn(playerIndex, 0);
+        }
+        return events;
+    }
+
+    /**
+     * Beendet den laufenden Zug, falls seine Zeit nach der Uhr abgelaufen ist und noch kein Paar versucht
+     * wurde. Ein verspäteter Aufruf, der noch zu einem früheren Zug gehört, bewirkt also nichts.
+     * @return TIMEOUT und TURN, sonst leer
+     */
+    public GameEvents timeout() {
+        events.clear();
+        if (!started || over || state.isTurnCompleted() || clock.getAsLong() - turnDeadline < 0) return events;
+        endTurn(0);
+        return events;
+    }
+
+    /**
+     * Beendet den laufenden Zug sofort (z.B. weil der Spieler am Zug nicht mehr da ist): eine offene Karte
+     * wird zugedeckt und der nächste anwesende Spieler ist dran.
+     * @return TIMEOUT und TURN (der übergangene Spieler zählt in {@link GameEvents#skipped(int)} mit), leer
+     *         wenn kein Spiel läuft
+     */
+    public GameEvents skipTurn() {
+        events.clear();
+        if (!started || over) return events;
+        endTurn(1);
+        return events;
+    }
+
+    /** @param skipped bereits übersprungene Spieler (der bisherige, wenn er nicht da ist) */
+    private void endTurn(int skipped) {
+        int playerIndex = state.getCurrentPlayerIndex();
+        int open = state.getFirstSelectedIndex();
+        state.setFirstSelectedIndex(-1);
+        events.add(GameEvents.Type.TIMEOUT, playerIndex, open, 0);
+        nextTurn(playerIndex, skipped);
+    }
+
+    /**
+     * Gibt den Zug an den nächsten anwesenden Spieler nach {@code playerIndex}; ist niemand anwesend, einfach
+     * an den nächsten.
+     * @param skipped bereits übersprungene Spieler, die in TURN mitgezählt werden
+     */
+    private void nextTurn(int playerIndex, int skipped) {
+        List<Player> players = state.getPlayers();
+        for (int i = 1; i <= players.size(); i++) {
+            int candidate = (playerIndex + i) % players.size();
+            if (present.test(players.get(candidate).getId())) {
+                beginTurn(candidate, skipped + i - 1);
+                return;
+            }
+        }
+        beginTurn((playerIndex + 1) % players.size(), skipped);
+    }
+
+    private void beginTurn(int playerIndex, int skipped) {
+        state.setCurrentPlayerIndex(playerIndex);
+        state.setTurnCompleted(false);
+        turnDeadline = clock.getAsLong() + turnMillis * 1_000_000L;
+        events.add(GameEvents.Type.TURN, playerIndex, 0, skipped);
+    }
+}
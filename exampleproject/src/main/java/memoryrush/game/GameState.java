@@ -1,37 +1,73 @@
 package memoryrush.game;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /** Enthält den vollständigen Spielzustand: Karten, Spieler und Turn-Status. */
 public class GameState {
     private List<Player> players = new ArrayList<>();
-    private List<Card> cards = new ArrayList<>();
+    private Board board = new Board(1, new SplittableRandom(0));
     private int currentPlayerIndex = 0;
     private int firstSelectedIndex = -1;
     private boolean turnCompleted = false;
+    /** Höchster Punktestand im Spiel und die Spieler, die ihn haben (laufend mitgeführt). */
+    private int bestScore = 0;
+    private final List<Player> leaders = new ArrayList<>();
 
     /**
      * Initialisiert das Kartendeck mit der angegebenen Anzahl von Kartenpaaren.
-     * Es werden jeweils zwei Karten mit gleicher ID erzeugt und das Deck danach gemischt.
-     * @param numPairs Anzahl der Paare (insgesamt 2*numPairs Karten)
+     * Es werden jeweils zwei Karten mit gleicher ID erzeugt und das Deck danach gemischt; derselbe Seed
+     * ergibt dasselbe Deck (Simulation, Nachspielen).
+     * @param numPairs Anzahl der Paare (insgesamt 2*numPairs Karten, höchstens {@link Board#MAX_PAIRS} Paare)
+     * @param seed Startwert für das Mischen
      */
-    public void initCards(int numPairs) {
-        cards.clear();
-        for (int id = 0; id < numPairs; id++) {
-            cards.add(new Card(id));
-            cards.add(new Card(id));
+    public void initCards(int numPairs, long seed) {
+        board = new Board(numPairs, new SplittableRandom(seed));
+    }
+
+    /**
+     * Übernimmt einen laufenden Spielstand (z.B. nach einem Neustart des Servers) und bestimmt die
+     * Spitze neu.
+     */
+    public void restore(Board board, List<Player> players, int currentPlayerIndex, int firstSelectedIndex) {
+        this.board = board;
+        this.players = new ArrayList<>(players);
+        this.currentPlayerIndex = currentPlayerIndex;
+        this.firstSelectedIndex = firstSelectedIndex;
+        this.turnCompleted = false;
+        bestScore = 0;
+        leaders.clear();
+        for (Player p : this.players) {
+            if (p.getScore() > bestScore) {
+                bestScore = p.getScore();
+                leaders.clear();
+            }
+            if (p.getScore() == bestScore && bestScore > 0) leaders.add(p);
         }
-        Collections.shuffle(cards, new Random());
     }
 
     public List<Player> getPlayers() {
         return players;
     }
+    public Board getBoard() {
+        return board;
+    }
+    /** Kartenliste als Ansicht auf das {@link Board} (für bestehenden Code; neue Stellen nutzen das Board). */
     public List<Card> getCards() {
-        return cards;
+        Board b = board;
+        return new AbstractList<>() {
+            @Override
+            public Card get(int index) {
+                return b.card(index);
+            }
+
+            @Override
+            public int size() {
+                return b.size();
+            }
+        };
     }
     public int getCurrentPlayerIndex() {
         return currentPlayerIndex;
@@ -64,25 +100,30 @@ public class GameState {
 
     /** Prüft, ob alle Karten gefunden (gematcht) sind. */
     public boolean allCardsMatched() {
-        for (Card c : cards) {
-            if (!c.isMatched()) return false;
+        return board.isCleared();
+    }
+
+    /**
+     * Schreibt einem Spieler einen Punkt gut und führt die Spitze mit, damit die Gewinner am Ende
+     * ohne erneuten Durchlauf feststehen.
+     * @return neuer Punktestand des Spielers
+     */
+    public int scorePoint(Player player) {
+        player.incrementScore();
+        int score = player.getScore();
+        if (score > bestScore) {
+            bestScore = score;
+            leaders.clear();
+            leaders.add(player);
+        } else if (score == bestScore) {
+            leaders.add(player);
         }
-        return true;
+        return score;
     }
 
     /** Bestimmt den/die Gewinner (Spieler mit der höchsten Punktzahl). */
     public List<Player> getWinners() {
-        List<Player> winners = new ArrayList<>();
-        int highest = -1;
-        for (Player p : players) {
-            if (p.getScore() > highest) {
-                highest = p.getScore();
-                winners.clear();
-                winners.add(p);
-            } else if (p.getScore() == highest) {
-                winners.add(p);
-            }
-        }
-        return winners;
+        // Ohne jeden Punkt liegen alle gleichauf
+        return new ArrayList<>(bestScore == 0 ? players : leaders);
     }
 }
@@ -1,13 +1,31 @@
 package memoryrush.game;
 
-/** Repräsentiert einen Spieler mit Name und aktuellem Punktestand. */
+/** Repräsentiert einen Spieler mit ID, Name und aktuellem Punktestand. */
 public class Player {
+    private int id;
     private String name;
     private int score;
 
     public Player(String name) {
+        this(-1, name);
+    }
+
+    /**
+     * @param id serverweit eindeutige Spieler-ID (wird im Binärprotokoll statt des Namens übertragen)
+     */
+    public Player(int id, String name) {
+        this(id, name, 0);
+    }
+
+    /** Spieler mit bereits erzieltem Punktestand (z.B. aus einem Schnappschuss). */
+    public Player(int id, String name, int score) {
+        this.id = id;
         this.name = name;
-        this.score = 0;
+        this.score = score;
+    }
+
+    public int getId() {
+        return id;
     }
 
     public String getName() {
@@ -21,4 +39,4 @@ public class Player {
     public void incrementScore() {
         score++;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,335 @@
+package memoryrush.gateway;
+
+import memoryrush.protocol.NodeRouting;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Vorgeschaltetes Gateway für mehrere Spielserver-Knoten. Nimmt Client-Verbindungen an, wählt einen Knoten
+ * und reicht danach alle Bytes unverändert in beide Richtungen durch (Text- wie Binärprotokoll).
+ * <p>
+ * Entschieden wird anhand der ersten Zeile des Clients, auf die höchstens {@code --route-wait-ms} gewartet
+ * wird: {@code REJOIN <Token>} und {@code WATCH <Raum>} gehen an den Knoten, aus dessen Bereich Token bzw.
+ * Raum stammen (siehe {@link NodeRouting}); {@code WATCH} ohne Raum bekommt einen Knoten nach Ring und Last,
+ * ohne einen Lobby-Platz zu belegen. Neue Spieler werden zu Lobbys von bis zu
+ * {@link #PLAYERS_PER_LOBBY} zusammengefasst; jede Lobby bekommt einen Schlüssel, der über den
+ * {@link HashRing} einem Knoten zugeordnet wird, damit die Spieler einer Lobby auf demselben Knoten im selben
+ * Raum landen. Ist der Besitzer nicht erreichbar oder deutlich stärker belastet als der Durchschnitt
+ * ({@link #LOAD_FACTOR}), übernimmt der nächste Knoten auf dem Ring.
+ * <p>
+ * Aufruf z.B. mit drei Knoten auf einem Rechner:
+ * <pre>
+ * java memoryrush.server.MemoryRushServer --port=8091 --node-id=1 --metrics-port=9091
+ * java memoryrush.server.MemoryRushServer --port=8092 --node-id=2 --metrics-port=9092
+ * java memoryrush.server.MemoryRushServer --port=8093 --node-id=3 --metrics-port=9093
+ * java memoryrush.gateway.Gateway --port=8090 --nodes=localhost:8091/9091,localhost:8092/9092,localhost:8093/9093
+ * </pre>
+ * Der n-te Eintrag von {@code --nodes} muss mit {@code --node-id=n} gestartet sein; der Metrik-Port nach dem
+ * Schrägstrich ist optional und liefert Erreichbarkeit und Last ({@code /health}).
+ */
+public class Gateway {
+    /** Spieler pro Lobby wie im Server; danach beginnt eine neue Lobby mit neuem Schlüssel. */
+    static final int PLAYERS_PER_LOBBY = 4;
+    /** Nach dieser Zeit startet der Server eine nicht volle Lobby; spätere Spieler bekommen eine neue. */
+    static final long LOBBY_WINDOW_MS = 5000;
+    /** Ein Knoten bekommt keine neuen Lobbys, solange seine Last über dem 1,25-fachen Durchschnitt läge. */
+    static final double LOAD_FACTOR = 1.25;
+    private static final int MAX_FIRST_LINE = 256;
+    private static final long STATUS_INTERVAL_MS = 60000;
+
+    private final int port;
+    private final int routeWaitMs;
+    private final int healthMs;
+    private final List<GatewayNode> nodes;
+    private final Map<Integer, GatewayNode> nodesById = new HashMap<>();
+    private final HashRing ring;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(500)).build();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "gateway-health");
+        t.setDaemon(true);
+        return t;
+    });
+    private final LongAdder rejected = new LongAdder();
+    /** Fortlaufender Schlüssel für Zuschauer ohne Raum; verteilt sie über den Ring. */
+    private final AtomicInteger spectatorKey = new AtomicInteger();
+
+    // Aktuelle Lobby für neue Spieler; geschützt durch this
+    private int lobbyKey = 0;
+    private int lobbySeats = 0;
+    private long lobbyOpened = 0;
+    private GatewayNode lobbyNode;
+
+    private Gateway(int port, List<GatewayNode> nodes, int routeWaitMs, int healthMs) {
+        this.port = port;
+        this.nodes = nodes;
+        this.routeWaitMs = routeWaitMs;
+        this.healthMs = healthMs;
+        for (GatewayNode node : nodes) {
+            nodesById.put(node.getId(), node);
+        }
+        this.ring = new HashRing(nodes);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 8090;
+        int routeWaitMs = 200;
+        int healthMs = 1000;
+        List<GatewayNode> nodes = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Ungültiges Argument: " + arg);
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            switch (key) {
+                case "port" -> port = Integer.parseInt(value);
+                case "nodes" -> {
+                    for (String spec : value.split(",")) {
+                        nodes.add(GatewayNode.parse(nodes.size() + 1, spec.trim()));
+                    }
+                }
+                case "route-wait-ms" -> routeWaitMs = Integer.parseInt(value);
+                case "health-ms" -> healthMs = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unbekannte Option: " + key);
+            }
+        }
+        if (nodes.isEmpty()) throw new IllegalArgumentException("--nodes fehlt");
+        if (nodes.size() > NodeRouting.MAX_NODE_ID) throw new IllegalArgumentException("Zu viele Knoten");
+        if (routeWaitMs < 1 || healthMs < 100) throw new IllegalArgumentException("route-wait-ms >= 1, health-ms >= 100");
+        new Gateway(port, nodes, routeWaitMs, healthMs).start();
+    }
+
+    /** Startet die Statusabfrage der Knoten und nimmt danach Verbindungen an, je eine auf virtuellen Threads. */
+    private void start() throws IOException {
+        scheduler.scheduleWithFixedDelay(this::checkNodes, 0, healthMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(this::logStatus, STATUS_INTERVAL_MS, STATUS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
+            System.out.println("Gateway gestartet auf Port " + port + " für " + nodes.size() + " Knoten.");
+            while (true) {
+                Socket client = serverSocket.accept();
+                Thread.ofVirtual().name("gateway-" + client.getPort()).start(() -> handle(client));
+            }
+        }
+    }
+
+    private void checkNodes() {
+        for (GatewayNode node : nodes) {
+            node.checkHealth(http);
+        }
+    }
+
+    /** Liest die erste Zeile, wählt den Knoten und reicht die Verbindung durch. */
+    private void handle(Socket client) {
+        try {
+            client.setTcpNoDelay(true);
+            byte[] head = readFirstLine(client);
+            String line = new String(head, StandardCharsets.UTF_8).trim();
+            Socket upstream;
+            GatewayNode target;
+            if (line.startsWith("REJOIN ") || (line.startsWith("WATCH ") && !line.equals("WATCH 0"))) {
+                // Raumgebunden: nur der Knoten, der das Spiel hat, kann den Befehl beantworten
+                target = ownerOf(line);
+                upstream = target != null ? connect(target) : null;
+                if (upstream == null) {
+                    reject(client, "Der Server dieses Spiels ist nicht erreichbar");
+                    return;
+                }
+            } else {
+                // Zuschauer ohne Raum zählen nicht zur Lobby, sonst landen zusammengehörige Spieler getrennt
+                boolean spectator = line.equals("WATCH") || line.equals("WATCH 0");
+                target = null;
+                upstream = null;
+                while (upstream == null) {
+                    target = spectator ? place("watch-" + spectatorKey.incrementAndGet()) : lobbyNode();
+                    if (target == null) {
+                        reject(client, "Kein Spielserver erreichbar");
+                        return;
+                    }
+                    upstream = connect(target);
+                }
+            }
+            splice(client, upstream, head, target);
+        } catch (IOException e) {
+            closeQuietly(client);
+        }
+    }
+
+    /**
+     * Wartet höchstens {@link #routeWaitMs} auf die erste Zeile des Clients. Neue Spieler schicken oft
+     * zunächst gar nichts; dann ist das Ergebnis leer bzw. unvollständig und wird trotzdem weitergereicht.
+     * Raumgebundene Befehle ({@code REJOIN}, {@code WATCH}) schickt der Client immer als Textzeile vor
+     * {@code PROTO BIN}, weil er nach der Aushandlung bis zur Antwort des Servers nichts mehr sendet.
+     */
+    private byte[] readFirstLine(Socket client) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream(64);
+        InputStream in = client.getInputStream();
+        client.setSoTimeout(routeWaitMs);
+        try {
+            while (head.size() < MAX_FIRST_LINE) {
+                int b = in.read();
+                if (b < 0) throw new IOException("Verbindung vor der ersten Zeile geschlossen");
+                head.write(b);
+                if (b == '\n') break;
+            }
+        } catch (SocketTimeoutException e) {
+            // keine Zeile: wie ein neuer Spieler behandeln
+        }
+        client.setSoTimeout(0);
+        return head.toByteArray();
+    }
+
+    /** Knoten aus dem Präfix des Tokens bzw. dem Bereich der Raum-ID; null, wenn keiner passt. */
+    private GatewayNode ownerOf(String line) {
+        int nodeId;
+        if (line.startsWith("REJOIN ")) {
+            nodeId = NodeRouting.nodeOfToken(line.substring(7).trim());
+        } else {
+            try {
+                nodeId = NodeRouting.nodeOfRoom(Integer.parseInt(line.substring(6).trim()));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return nodesById.get(nodeId);
+    }
+
+    /**
+     * Knoten der aktuellen Lobby. Eine neue Lobby beginnt, wenn die alte voll ist, ihr Startfenster vorbei
+     * ist oder ihr Knoten ausfällt.
+     * @return null, wenn kein Knoten erreichbar ist
+     */
+    private synchronized GatewayNode lobbyNode() {
+        long now = System.currentTimeMillis();
+        if (lobbyNode == null || !lobbyNode.isUp() || lobbySeats >= PLAYERS_PER_LOBBY
+                || now - lobbyOpened > LOBBY_WINDOW_MS) {
+            lobbyKey++;
+            lobbySeats = 0;
+            lobbyOpened = now;
+            lobbyNode = place("lobby-" + lobbyKey);
+            if (lobbyNode == null) return null;
+        }
+        lobbySeats++;
+        return lobbyNode;
+    }
+
+    /**
+     * Erster erreichbarer Knoten auf dem Ring ab dem Schlüssel, dessen Last mit einer weiteren Lobby unter
+     * {@link #LOAD_FACTOR} mal dem Durchschnitt bliebe; sind alle darüber, der erste erreichbare.
+     */
+    private GatewayNode place(String key) {
+        List<GatewayNode> candidates = ring.candidates(key);
+        int up = 0;
+        long total = 0;
+        for (GatewayNode node : candidates) {
+            if (node.isUp()) {
+                up++;
+                total += node.load();
+            }
+        }
+        if (up == 0) return null;
+        double limit = Math.ceil((total + PLAYERS_PER_LOBBY) * LOAD_FACTOR / up);
+        GatewayNode fallback = null;
+        for (GatewayNode node : candidates) {
+            if (!node.isUp()) continue;
+            if (node.load() + PLAYERS_PER_LOBBY <= limit) return node;
+            if (fallback == null) fallback = node;
+        }
+        return fallback;
+    }
+
+    /** @return Verbindung zum Knoten oder null, wenn er nicht erreichbar ist (er wird dann übergangen) */
+    private Socket connect(GatewayNode node) {
+        Socket upstream = new Socket();
+        try {
+            upstream.connect(new InetSocketAddress(node.getHost(), node.getPort()), 1000);
+            upstream.setTcpNoDelay(true);
+            return upstream;
+        } catch (IOException e) {
+            closeQuietly(upstream);
+            System.out.println(node + " nicht erreichbar: " + e.getMessage());
+            node.markDown();
+            return null;
+        }
+    }
+
+    /**
+     * Schickt die bereits gelesenen Bytes an den Knoten und kopiert danach in beide Richtungen, bis eine Seite
+     * schließt; dann werden beide Verbindungen geschlossen.
+     */
+    private void splice(Socket client, Socket upstream, byte[] head, GatewayNode node) {
+        node.connectionOpened();
+        Thread.ofVirtual().name("gateway-down-" + client.getPort()).start(() -> pipe(upstream, client));
+        try {
+            OutputStream out = upstream.getOutputStream();
+            out.write(head);
+            out.flush();
+            pipe(client, upstream);
+        } catch (IOException e) {
+            closeQuietly(client);
+            closeQuietly(upstream);
+        } finally {
+            node.connectionClosed();
+        }
+    }
+
+    private static void pipe(Socket from, Socket to) {
+        try {
+            from.getInputStream().transferTo(to.getOutputStream());
+        } catch (IOException e) {
+            // eine Seite hat die Verbindung beendet
+        } finally {
+            closeQuietly(from);
+            closeQuietly(to);
+        }
+    }
+
+    /** Lehnt eine Verbindung mit einer Fehlermeldung im Textprotokoll ab. */
+    private void reject(Socket client, String reason) {
+        rejected.increment();
+        try {
+            client.getOutputStream().write(("ERROR " + reason + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // Client ist schon weg
+        }
+        closeQuietly(client);
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // bereits geschlossen
+        }
+    }
+
+    /** Gibt regelmäßig Erreichbarkeit und Last aller Knoten aus. */
+    private void logStatus() {
+        StringBuilder status = new StringBuilder("Gateway: ");
+        for (GatewayNode node : nodes) {
+            status.append(node).append(node.isUp() ? " erreichbar" : " nicht erreichbar")
+                    .append(", Last ").append(node.load())
+                    .append(", durchgereicht ").append(node.getActive())
+                    .append(" (gesamt ").append(node.getRouted()).append("); ");
+        }
+        System.out.println(status.append("abgewiesen: ").append(rejected.sum()));
+    }
+}
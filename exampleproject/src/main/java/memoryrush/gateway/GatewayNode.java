@@ -0,0 +1,148 @@
+package memoryrush.gateway;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ein Spielserver-Knoten aus Sicht des Gateways: Adresse, Erreichbarkeit und Last. Die Last ist die größere
+ * von zwei Zahlen: die Clients, die der Knoten unter {@code /health} meldet (inklusive solcher, die über
+ * andere Gateways kamen), und die Verbindungen, die dieses Gateway gerade zu ihm durchreicht (zwischen zwei
+ * Abfragen aktuell).
+ * <p>
+ * Ohne Metrik-Port gibt es keine Abfrage; der Knoten gilt dann als erreichbar, bis ein Verbindungsaufbau
+ * scheitert, und wird nach {@link #RETRY_MS} wieder versucht.
+ */
+final class GatewayNode {
+    /** So lange wird ein Knoten ohne Statusabfrage nach einem gescheiterten Verbindungsaufbau übergangen. */
+    static final long RETRY_MS = 5000;
+    private static final Duration HEALTH_TIMEOUT = Duration.ofMillis(500);
+
+    private final int id;
+    private final String host;
+    private final int port;
+    private final int metricsPort;
+    private volatile boolean up = true;
+    private volatile long downUntil = 0;
+    private volatile int reportedClients = 0;
+    /** Über dieses Gateway gerade offene Verbindungen. */
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder routed = new LongAdder();
+
+    GatewayNode(int id, String host, int port, int metricsPort) {
+        this.id = id;
+        this.host = host;
+        this.port = port;
+        this.metricsPort = metricsPort;
+    }
+
+    /**
+     * Liest eine Knotenangabe der Form {@code host:port} oder {@code host:port/metricsPort}.
+     * @param id Knoten-ID, mit der der Server gestartet wurde ({@code --node-id})
+     */
+    static GatewayNode parse(int id, String spec) {
+        int slash = spec.indexOf('/');
+        String address = slash < 0 ? spec : spec.substring(0, slash);
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0) throw new IllegalArgumentException("Knoten ohne Port: " + spec);
+        int metricsPort = slash < 0 ? 0 : Integer.parseInt(spec.substring(slash + 1));
+        return new GatewayNode(id, address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)),
+                metricsPort);
+    }
+
+    int getId() {
+        return id;
+    }
+
+    String getHost() {
+        return host;
+    }
+
+    int getPort() {
+        return port;
+    }
+
+    String getAddress() {
+        return host + ":" + port;
+    }
+
+    boolean isUp() {
+        return up && System.currentTimeMillis() >= downUntil;
+    }
+
+    int load() {
+        return Math.max(reportedClients, active.get());
+    }
+
+    int getActive() {
+        return active.get();
+    }
+
+    long getRouted() {
+        return routed.sum();
+    }
+
+    /** Eine durchgereichte Verbindung beginnt. */
+    void connectionOpened() {
+        active.incrementAndGet();
+        routed.increment();
+    }
+
+    void connectionClosed() {
+        active.decrementAndGet();
+    }
+
+    /** Verbindungsaufbau gescheitert: bis zur nächsten erfolgreichen Abfrage bzw. {@link #RETRY_MS} übergehen. */
+    void markDown() {
+        downUntil = System.currentTimeMillis() + RETRY_MS;
+        if (metricsPort > 0) up = false;
+    }
+
+    /**
+     * Fragt {@code /health} des Knotens ab. Antwortet er nicht, nicht mit {@code UP} oder mit einer anderen
+     * Knoten-ID (falsch konfiguriert), bekommt er keine neuen Verbindungen.
+     */
+    void checkHealth(HttpClient http) {
+        if (metricsPort <= 0) return;
+        boolean ok = false;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://" + host + ":" + metricsPort + "/health"))
+                    .timeout(HEALTH_TIMEOUT).build();
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            String[] fields = response.body().trim().split(" ");
+            if (response.statusCode() == 200 && fields.length > 0 && fields[0].equals("UP")) {
+                ok = true;
+                for (String field : fields) {
+                    if (field.startsWith("clients=")) {
+                        reportedClients = Integer.parseInt(field.substring(8));
+                    } else if (field.startsWith("node=") && Integer.parseInt(field.substring(5)) != id) {
+                        if (up) {
+                            System.out.println(this + " meldet " + field + ", erwartet node=" + id
+                                    + " – wird übergangen.");
+                        }
+                        ok = false;
+                    }
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // nicht erreichbar oder unverständliche Antwort
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (ok != up) {
+            System.out.println(this + " ist " + (ok ? "wieder erreichbar." : "nicht erreichbar."));
+        }
+        up = ok;
+        if (ok) downUntil = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Knoten " + id + " (" + getAddress() + ")";
+    }
+}
@@ -0,0 +1,65 @@
+package memoryrush.gateway;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Konsistenter Hash-Ring über die Spielserver-Knoten. Jeder Knoten steht mit {@link #VIRTUAL_NODES}
+ * Punkten auf dem Ring, damit sich Schlüssel gleichmäßig verteilen; fällt ein Knoten weg, wandern nur
+ * dessen Schlüssel zum jeweils nächsten Knoten, alle anderen bleiben, wo sie sind.
+ * <p>
+ * Der Ring wird einmal beim Start gebaut und danach nur gelesen; Ausfälle und Last berücksichtigt der
+ * Aufrufer, indem er die Kandidaten der Reihe nach prüft.
+ */
+final class HashRing {
+    /** Punkte pro Knoten auf dem Ring. */
+    static final int VIRTUAL_NODES = 128;
+
+    private final TreeMap<Long, GatewayNode> ring = new TreeMap<>();
+    private final int nodeCount;
+
+    HashRing(List<GatewayNode> nodes) {
+        for (GatewayNode node : nodes) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash(node.getAddress() + "#" + i), node);
+            }
+        }
+        this.nodeCount = nodes.size();
+    }
+
+    /**
+     * Alle Knoten in Ringreihenfolge ab der Position des Schlüssels, jeder genau einmal; der erste ist der
+     * eigentliche Besitzer, die folgenden übernehmen, wenn er ausfällt oder überlastet ist.
+     */
+    List<GatewayNode> candidates(String key) {
+        List<GatewayNode> result = new ArrayList<>(nodeCount);
+        long h = hash(key);
+        for (Map<Long, GatewayNode> part : List.of(ring.tailMap(h, true), ring.headMap(h, false))) {
+            for (GatewayNode node : part.values()) {
+                if (!result.contains(node)) {
+                    result.add(node);
+                    if (result.size() == nodeCount) return result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** FNV-1a über die UTF-8-Bytes, danach durchgemischt, damit auch ähnliche Schlüssel streuen. */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
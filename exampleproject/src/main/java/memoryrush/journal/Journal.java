@@ -0,0 +1,380 @@
+package memoryrush.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only Journal aller Spielereignisse für Replay, Nachprüfung und Auswertung.
+ * <p>
+ * Räume rufen nur die Aufzeichnungsmethoden auf; diese legen das Ereignis in eine lock-freie Warteschlange
+ * und kehren sofort zurück – kein I/O, kein Syscall im Flip-Pfad. Ein einzelner Writer-Thread kodiert die
+ * Ereignisse in ein per {@link MappedByteBuffer} eingeblendetes Segment und macht jeden Stapel mit einem
+ * einzigen {@code force} dauerhaft (Group Commit). Ist ein Segment voll, wird das nächste angelegt.
+ * <p>
+ * Segmentformat: {@code journal-NNNNNNNN.seg}, beginnend mit {@link #MAGIC}; danach Datensätze aus
+ * Varint-Länge, Nutzdaten und CRC32C der Nutzdaten. Eine Länge 0 markiert das Ende der geschriebenen Daten.
+ * Gelesen wird mit {@link JournalReader}.
+ * <p>
+ * Jeder Serverprozess beginnt ein neues Segment und schreibt als erstes Ereignis {@link JournalEvent.Type#RUN}.
+ * Raum-IDs sind nur innerhalb eines Laufs eindeutig (ohne Schnappschuss zählt der Server nach einem Neustart
+ * wieder von vorn); erst die RUN-Marken trennen gleichnamige Räume verschiedener Läufe.
+ * <p>
+ * Kommt der Writer nicht nach (langsame Platte), wartet höchstens {@link #MAX_PENDING} Ereignisse lang;
+ * weitere werden verworfen und gezählt ({@link #getDropped()}). Scheitert das Schreiben ganz (z.B. Platte
+ * voll), wird das Journal abgeschaltet und verwirft fortan alles.
+ */
+public final class Journal implements AutoCloseable {
+    /** Kennung am Anfang jedes Segments ("MRJ1"). */
+    public static final int MAGIC = 0x4D524A31;
+    static final String SEGMENT_PREFIX = "journal-";
+    static final String SEGMENT_SUFFIX = ".seg";
+    /** So lange sammelt der Writer höchstens Ereignisse, wenn gerade nichts ansteht. */
+    private static final long COMMIT_INTERVAL_NANOS = 2_000_000;
+    /** Höchstens so viele Ereignisse pro Commit, damit Dauerlast die Commits nicht aufschiebt. */
+    private static final int MAX_BATCH = 4096;
+    /** Höchstzahl wartender Ereignisse; darüber wird verworfen, statt den Heap wachsen zu lassen. */
+    static final int MAX_PENDING = 1 << 20;
+    private static final Journal DISABLED = new Journal();
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final Queue<JournalEvent> pending = new ConcurrentLinkedQueue<>();
+    /** Größe von {@link #pending} (die Warteschlange selbst zählt nur in O(n)). */
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean running;
+    private volatile long eventsWritten = 0;
+    private volatile long commits = 0;
+
+    // Nur Writer-Thread
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int segmentNumber;
+    private int forcedPosition;
+    private ByteBuffer scratch = ByteBuffer.allocate(256);
+    private final CRC32C crc = new CRC32C();
+
+    private Journal() {
+        this.directory = null;
+        this.segmentBytes = 0;
+        this.writer = null;
+    }
+
+    private Journal(Path directory, int segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        segmentNumber = lastSegmentNumber(directory);
+        openNextSegment();
+        running = true;
+        // Der Lauf heißt nach seinem ersten Segment; das ist über alle Neustarts eindeutig und aufsteigend
+        append(JournalEvent.Type.RUN, 0, 0, segmentNumber, 0, null, null);
+        writer = new Thread(this::writeLoop, "journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Journal, das alle Ereignisse verwirft (Server ohne {@code --journal-dir}). */
+    public static Journal disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Öffnet ein Journal im Verzeichnis. Bestehende Segmente bleiben unverändert; geschrieben wird ab
+     * einem neuen Segment.
+     * @param segmentBytes Größe eines Segments in Bytes
+     */
+    public static Journal open(Path directory, int segmentBytes) throws IOException {
+        return new Journal(directory, segmentBytes);
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    public void join(int roomId, int playerId, String name) {
+        append(JournalEvent.Type.JOIN, roomId, playerId, 0, 0, name, null);
+    }
+
+    public void leave(int roomId, int playerId) {
+        append(JournalEvent.Type.LEAVE, roomId, playerId, 0, 0, null, null);
+    }
+
+    /** Spielstart mit der gemischten Kartenreihenfolge, aus der sich das Spiel nachspielen lässt. */
+    public void start(int roomId, int turnMillis, int[] cardIds) {
+        append(JournalEvent.Type.START, roomId, 0, turnMillis, 0, null, cardIds);
+    }
+
+    public void turn(int roomId, int playerId) {
+        append(JournalEvent.Type.TURN, roomId, playerId, 0, 0, null, null);
+    }
+
+    public void flip(int roomId, int playerId, int index, int cardId) {
+        append(JournalEvent.Type.FLIP, roomId, playerId, index, cardId, null, null);
+    }
+
+    public void match(int roomId, int playerId, int firstIndex, int secondIndex) {
+        append(JournalEvent.Type.MATCH, roomId, playerId, firstIndex, secondIndex, null, null);
+    }
+
+    public void noMatch(int roomId, int playerId, int firstIndex, int secondIndex) {
+        append(JournalEvent.Type.NOMATCH, roomId, playerId, firstIndex, secondIndex, null, null);
+    }
+
+    public void timeout(int roomId, int playerId, int openIndex) {
+        append(JournalEvent.Type.TIMEOUT, roomId, playerId, openIndex, 0, null, null);
+    }
+
+    public void gameOver(int roomId, int[] winnerIds) {
+        append(JournalEvent.Type.GAMEOVER, roomId, 0, 0, 0, null, winnerIds);
+    }
+
+    /**
+     * Fortsetzung eines Spiels aus einem Schnappschuss: Feld und Punktestände, wie sie nach dem Neustart
+     * gelten. Die Plätze selbst werden danach wie beim Beitritt mit {@link #join(int, int, String)} eingetragen;
+     * als erstes Ereignis des Raums im neuen Lauf verbindet RESTORE ihn mit der Partie aus dem vorigen.
+     * @param currentPlayerId Spieler am Zug
+     * @param playerIds Spieler-IDs der Plätze
+     * @param scores Punktestände in derselben Reihenfolge
+     */
+    public void restore(int roomId, int turnMillis, int currentPlayerId, int[] cardIds, int[] playerIds,
+                        int[] scores) {
+        if (!running) return;
+        int[] values = Arrays.copyOf(cardIds, cardIds.length + 2 * playerIds.length);
+        for (int i = 0; i < playerIds.length; i++) {
+            values[cardIds.length + 2 * i] = playerIds[i];
+            values[cardIds.length + 2 * i + 1] = scores[i];
+        }
+        append(JournalEvent.Type.RESTORE, roomId, currentPlayerId, turnMillis, cardIds.length, null, values);
+    }
+
+    private void append(JournalEvent.Type type, int roomId, int playerId, int first, int second, String name,
+                        int[] values) {
+        if (!running) return;
+        if (pendingCount.incrementAndGet() > MAX_PENDING) {
+            pendingCount.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        pending.add(new JournalEvent(type, System.currentTimeMillis(), roomId, playerId, first, second, name, values));
+    }
+
+    /** Anzahl der bisher geschriebenen Ereignisse. */
+    public long getEventsWritten() {
+        return eventsWritten;
+    }
+
+    /** Verworfene Ereignisse, weil der Writer nicht nachkam. */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /** Anzahl der Group Commits (je ein {@code force} für einen Stapel Ereignisse). */
+    public long getCommits() {
+        return commits;
+    }
+
+    /**
+     * Schreibt alle noch wartenden Ereignisse, macht sie dauerhaft und beendet den Writer.
+     */
+    @Override
+    public void close() {
+        if (!running) return;
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (running) {
+                if (drain()) {
+                    commit();
+                } else {
+                    LockSupport.parkNanos(COMMIT_INTERVAL_NANOS);
+                }
+            }
+            while (drain()) {
+                commit();
+            }
+            channel.close();
+        } catch (IOException | RuntimeException e) {
+            // Ohne Journal läuft das Spiel weiter; weitere Ereignisse werden verworfen. force() meldet
+            // I/O-Fehler (z.B. Platte voll) als UncheckedIOException
+            System.out.println("Journal kann nicht geschrieben werden: " + e);
+            running = false;
+            pending.clear();
+            pendingCount.set(0);
+        }
+    }
+
+    /**
+     * Schreibt wartende Ereignisse ins Segment, höchstens {@link #MAX_BATCH} pro Commit.
+     * @return true, wenn mindestens eines geschrieben wurde
+     */
+    private boolean drain() throws IOException {
+        JournalEvent event;
+        int written = 0;
+        while (written < MAX_BATCH && (event = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            write(event);
+            written++;
+        }
+        if (written == 0) return false;
+        eventsWritten += written;
+        return true;
+    }
+
+    /** Group Commit: ein {@code force} für alles, was seit dem letzten Commit geschrieben wurde. */
+    private void commit() {
+        int position = segment.position();
+        if (position == forcedPosition) return;
+        segment.force(forcedPosition, position - forcedPosition);
+        forcedPosition = position;
+        commits++;
+    }
+
+    private void write(JournalEvent event) throws IOException {
+        scratch.clear();
+        encode(event);
+        scratch.flip();
+        int length = scratch.remaining();
+        int recordBytes = varintSize(length) + length + Integer.BYTES;
+        if (recordBytes > segment.remaining()) {
+            if (recordBytes + Integer.BYTES > segmentBytes) {
+                throw new IOException("Ereignis mit " + length + " Bytes passt in kein Segment");
+            }
+            commit();
+            channel.close();
+            openNextSegment();
+        }
+        crc.reset();
+        crc.update(scratch.duplicate());
+        putVarint(segment, length);
+        segment.put(scratch);
+        segment.putInt((int) crc.getValue());
+    }
+
+    private void encode(JournalEvent e) {
+        ensureScratch(32);
+        scratch.put((byte) e.type().code);
+        scratch.putLong(e.timeMillis());
+        putVarint(e.roomId());
+        switch (e.type()) {
+            case JOIN -> {
+                putVarint(e.playerId());
+                byte[] name = e.name().getBytes(StandardCharsets.UTF_8);
+                putVarint(name.length);
+                ensureScratch(name.length);
+                scratch.put(name);
+            }
+            case LEAVE, TURN -> putVarint(e.playerId());
+            case RUN -> putVarint(e.first());
+            case START -> {
+                putVarint(e.first());
+                putValues(e.values());
+            }
+            case FLIP, MATCH, NOMATCH -> {
+                putVarint(e.playerId());
+                putVarint(e.first());
+                putVarint(e.second());
+            }
+            case TIMEOUT -> {
+                putVarint(e.playerId());
+                putVarint(e.first());
+            }
+            case GAMEOVER -> putValues(e.values());
+            case RESTORE -> {
+                putVarint(e.playerId());
+                putVarint(e.first());
+                putVarint(e.second());
+                putValues(e.values());
+            }
+        }
+    }
+
+    private void putValues(int[] values) {
+        putVarint(values.length);
+        for (int v : values) putVarint(v);
+    }
+
+    private void putVarint(int value) {
+        ensureScratch(5);
+        putVarint(scratch, value);
+    }
+
+    private void ensureScratch(int bytes) {
+        if (scratch.remaining() >= bytes) return;
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + bytes));
+        scratch.flip();
+        larger.put(scratch);
+        scratch = larger;
+    }
+
+    /** Schreibt einen Wert als vorzeichenlosen 32-Bit-Varint (negative Werte belegen 5 Bytes). */
+    static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private void openNextSegment() throws IOException {
+        segmentNumber++;
+        Path path = directory.resolve(segmentName(segmentNumber));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segment.putInt(MAGIC);
+        forcedPosition = 0;
+    }
+
+    static String segmentName(int number) {
+        return String.format("%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX);
+    }
+
+    /** Nummer eines Segments aus dem Dateinamen oder -1, wenn es kein Segment ist. */
+    static int segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) return -1;
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int lastSegmentNumber(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.mapToInt(Journal::segmentNumber).max().orElse(0);
+        }
+    }
+}
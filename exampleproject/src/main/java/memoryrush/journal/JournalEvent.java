@@ -0,0 +1,71 @@
+package memoryrush.journal;
+
+import java.util.Arrays;
+
+/**
+ * Ein Spielereignis im Journal. Welche Felder belegt sind, hängt vom Typ ab; nicht benutzte Zahlenfelder
+ * sind 0, {@code name} und {@code values} dann null.
+ *
+ * @param type      Art des Ereignisses
+ * @param timeMillis Zeitpunkt (Epoch-Millisekunden)
+ * @param roomId    Raum, in dem das Ereignis stattfand (RUN: 0)
+ * @param playerId  beteiligter Spieler (JOIN, LEAVE, TURN, FLIP, MATCH, NOMATCH, TIMEOUT); RESTORE: Spieler am Zug
+ * @param first     RUN: Nummer des Laufs; START, RESTORE: Zugzeit in ms; FLIP: Kartenindex; MATCH/NOMATCH: erste Karte; TIMEOUT: offene
+ *                  Karte
+ * @param second    FLIP: Motiv-ID; MATCH/NOMATCH: zweite Karte; RESTORE: Anzahl der Karten
+ * @param name      JOIN: Spielername
+ * @param values    START: Motiv-IDs aller Karten in Feldreihenfolge; GAMEOVER: IDs der Gewinner; RESTORE: Motiv-IDs
+ *                  aller Karten, danach je Platz Spieler-ID und Punktestand
+ */
+public record JournalEvent(Type type, long timeMillis, int roomId, int playerId, int first, int second,
+                           String name, int[] values) {
+
+    /** Ereignistypen; der Code steht als erstes Byte im Datensatz und darf sich nicht ändern. */
+    public enum Type {
+        JOIN(1), LEAVE(2), START(3), TURN(4), FLIP(5), MATCH(6), NOMATCH(7), TIMEOUT(8), GAMEOVER(9),
+        /** Spiel aus einem Schnappschuss fortgesetzt; ersetzt für das Nachspielen START und die Punkte davor. */
+        RESTORE(10),
+        /** Ein Serverprozess beginnt zu schreiben; Raum-IDs gelten bis zur nächsten RUN-Marke. */
+        RUN(11);
+
+        private static final Type[] BY_CODE = new Type[16];
+
+        static {
+            for (Type t : values()) BY_CODE[t.code] = t;
+        }
+
+        final int code;
+
+        Type(int code) {
+            this.code = code;
+        }
+
+        static Type of(int code) {
+            Type t = code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+            if (t == null) throw new IllegalArgumentException("Unbekannter Ereignistyp " + code);
+            return t;
+        }
+    }
+
+    /** Motiv-IDs der Karten (START, RESTORE). */
+    public int[] cardIds() {
+        return type == Type.RESTORE ? Arrays.copyOf(values, second) : values;
+    }
+
+    /** Lesbare Zeile im Stil des Textprotokolls, z.B. {@code 12 FLIP 3 17 8}. */
+    @Override
+    public String toString() {
+        String prefix = roomId + " " + type + " ";
+        return switch (type) {
+            case JOIN -> prefix + playerId + " " + name;
+            case LEAVE, TURN -> prefix + playerId;
+            case RUN -> prefix + first;
+            case START -> prefix + values.length + " " + first + " " + Arrays.toString(values);
+            case FLIP, MATCH, NOMATCH -> prefix + playerId + " " + first + " " + second;
+            case TIMEOUT -> prefix + playerId + " " + first;
+            case GAMEOVER -> prefix + Arrays.toString(values);
+            case RESTORE -> prefix + playerId + " " + second + " " + first + " " + Arrays.toString(cardIds())
+                    + " " + Arrays.toString(Arrays.copyOfRange(values, second, values.length));
+        };
+    }
+}
@@ -0,0 +1,264 @@
+package memoryrush.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Liest die Segmente eines {@link Journal} in Schreibreihenfolge und spielt Partien daraus nach.
+ * <p>
+ * Aufruf z.B. {@code java -cp target/classes memoryrush.journal.JournalReader --dir=journal} für alle
+ * Ereignisse oder mit {@code --room=12} für die Partien dieses Raums samt Nachprüfung: jede aufgedeckte Karte
+ * muss zum Feld aus START (bzw. RESTORE nach einem Neustart) passen, jedes MATCH ein echtes Paar sein und
+ * GAMEOVER die Spieler mit den meisten Punkten nennen. Da Raum-IDs nur innerhalb eines Serverlaufs eindeutig
+ * sind, kann ein Raum mehrere Partien haben (siehe {@link #games}); {@code --game=2} wählt eine davon aus.
+ */
+public final class JournalReader {
+
+    private JournalReader() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Paths.get("journal");
+        int room = -1;
+        int game = 0;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--dir=")) dir = Paths.get(value);
+            else if (arg.startsWith("--room=")) room = Integer.parseInt(value);
+            else if (arg.startsWith("--game=")) game = Integer.parseInt(value);
+            else throw new IllegalArgumentException("Unbekannte Option: " + arg);
+        }
+        if (room < 0) {
+            long count = read(dir, System.out::println);
+            System.out.println(count + " Ereignisse");
+        } else {
+            int roomId = room;
+            List<JournalEvent> events = new ArrayList<>();
+            read(dir, e -> {
+                if (e.roomId() == roomId || e.type() == JournalEvent.Type.RUN) events.add(e);
+            });
+            List<List<JournalEvent>> games = games(events, roomId);
+            if (game > games.size()) {
+                System.out.println("Raum " + roomId + " hat nur " + games.size() + " Partien");
+                return;
+            }
+            for (int i = 0; i < games.size(); i++) {
+                if (game > 0 && i != game - 1) continue;
+                System.out.println("Partie " + (i + 1) + " von " + games.size() + ":");
+                games.get(i).forEach(System.out::println);
+                System.out.println(replay(games.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Teilt die Ereignisse eines Raums (in Schreibreihenfolge, samt den RUN-Marken aller Läufe) in Partien.
+     * Innerhalb eines Laufs beherbergt eine Raum-ID nur eine Partie; mit jedem neuen Lauf beginnt also eine
+     * neue, es sei denn, das erste Ereignis des Raums im neuen Lauf ist RESTORE: dann setzt er die Partie aus
+     * dem vorigen Lauf fort.
+     * @return die Partien in Reihenfolge, jede ohne RUN-Marken
+     */
+    public static List<List<JournalEvent>> games(List<JournalEvent> events, int roomId) {
+        List<List<JournalEvent>> games = new ArrayList<>();
+        List<JournalEvent> current = null;
+        boolean newRun = false;
+        for (JournalEvent e : events) {
+            if (e.type() == JournalEvent.Type.RUN) {
+                newRun = true;
+                continue;
+            }
+            if (e.roomId() != roomId) continue;
+            boolean continued = newRun && e.type() == JournalEvent.Type.RESTORE;
+            if (current == null || (newRun && !continued)) {
+                current = new ArrayList<>();
+                games.add(current);
+            }
+            newRun = false;
+            current.add(e);
+        }
+        return games;
+    }
+
+    /**
+     * Liest alle Ereignisse aller Segmente im Verzeichnis. Ein unvollständiger oder beschädigter Datensatz
+     * (z.B. nach einem Absturz mitten im Schreiben) beendet das Lesen des betroffenen Segments.
+     * @return Anzahl der gelesenen Ereignisse
+     */
+    public static long read(Path directory, Consumer<JournalEvent> consumer) throws IOException {
+        List<Path> segments;
+        try (var files = Files.list(directory)) {
+            segments = files.filter(p -> Journal.segmentNumber(p) > 0)
+                    .sorted(Comparator.comparingInt(Journal::segmentNumber))
+                    .toList();
+        }
+        long count = 0;
+        for (Path segment : segments) {
+            count += readSegment(segment, consumer);
+        }
+        return count;
+    }
+
+    private static long readSegment(Path file, Consumer<JournalEvent> consumer) throws IOException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (in.remaining() < Integer.BYTES || in.getInt() != Journal.MAGIC) {
+            throw new IOException(file + " ist kein Journal-Segment");
+        }
+        CRC32C crc = new CRC32C();
+        long count = 0;
+        while (in.hasRemaining()) {
+            int length = readVarint(in);
+            if (length == 0) break;
+            if (length < 0 || length > in.remaining() - Integer.BYTES) {
+                System.out.println(file.getFileName() + ": unvollständiger Datensatz nach " + count + " Ereignissen");
+                break;
+            }
+            ByteBuffer body = in.slice(in.position(), length);
+            in.position(in.position() + length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != in.getInt()) {
+                System.out.println(file.getFileName() + ": Prüfsumme falsch nach " + count + " Ereignissen");
+                break;
+            }
+            consumer.accept(decode(body));
+            count++;
+        }
+        return count;
+    }
+
+    private static JournalEvent decode(ByteBuffer in) {
+        JournalEvent.Type type = JournalEvent.Type.of(in.get());
+        long time = in.getLong();
+        int room = readVarint(in);
+        int player = 0;
+        int first = 0;
+        int second = 0;
+        String name = null;
+        int[] values = null;
+        switch (type) {
+            case JOIN -> {
+                player = readVarint(in);
+                byte[] bytes = new byte[readVarint(in)];
+                in.get(bytes);
+                name = new String(bytes, StandardCharsets.UTF_8);
+            }
+            case LEAVE, TURN -> player = readVarint(in);
+            case RUN -> first = readVarint(in);
+            case START -> {
+                first = readVarint(in);
+                values = readValues(in);
+            }
+            case FLIP, MATCH, NOMATCH -> {
+                player = readVarint(in);
+                first = readVarint(in);
+                second = readVarint(in);
+            }
+            case TIMEOUT -> {
+                player = readVarint(in);
+                first = readVarint(in);
+            }
+            case GAMEOVER -> values = readValues(in);
+            case RESTORE -> {
+                player = readVarint(in);
+                first = readVarint(in);
+                second = readVarint(in);
+                values = readValues(in);
+            }
+        }
+        return new JournalEvent(type, time, room, player, first, second, name, values);
+    }
+
+    private static int[] readValues(ByteBuffer in) {
+        int[] values = new int[readVarint(in)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readVarint(in);
+        }
+        return values;
+    }
+
+    /** Gegenstück zu {@code Journal.putVarint}; -1 bei einem ungültigen Varint. */
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35 && in.hasRemaining(); shift += 7) {
+            int b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        return -1;
+    }
+
+    /**
+     * Spielt die Ereignisse einer Partie nach und prüft sie gegen das Feld aus START bzw. RESTORE.
+     * @return Zusammenfassung mit Punkten, Gewinnern und gefundenen Unstimmigkeiten
+     */
+    public static String replay(List<JournalEvent> events) {
+        int[] board = null;
+        Map<Integer, Integer> scores = new LinkedHashMap<>();
+        List<String> problems = new ArrayList<>();
+        int[] announced = null;
+        for (JournalEvent e : events) {
+            switch (e.type()) {
+                case JOIN -> scores.putIfAbsent(e.playerId(), 0);
+                case LEAVE -> {
+                    // Wer die Lobby verlässt, spielt nicht mit; nach dem Start bleibt der Spieler in der Wertung
+                    if (board == null) scores.remove(e.playerId());
+                }
+                case START -> board = e.values();
+                case RESTORE -> {
+                    // Der Schnappschuss gilt; was danach vor dem Absturz noch geschah, ist verloren
+                    board = e.cardIds();
+                    int[] values = e.values();
+                    for (int i = e.second(); i + 1 < values.length; i += 2) {
+                        scores.put(values[i], values[i + 1]);
+                    }
+                }
+                case FLIP -> {
+                    if (board == null || e.first() >= board.length || board[e.first()] != e.second()) {
+                        problems.add("FLIP " + e.first() + " zeigt " + e.second() + " statt des Motivs aus START");
+                    }
+                }
+                case MATCH -> {
+                    if (board == null || Math.max(e.first(), e.second()) >= board.length
+                            || board[e.first()] != board[e.second()]) {
+                        problems.add("MATCH " + e.first() + "/" + e.second() + " ist kein Paar");
+                    }
+                    scores.merge(e.playerId(), 1, Integer::sum);
+                }
+                case GAMEOVER -> announced = e.values();
+                default -> { }
+            }
+        }
+        int best = scores.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+        int[] winners = scores.entrySet().stream()
+                .filter(s -> s.getValue() == best)
+                .mapToInt(Map.Entry::getKey)
+                .sorted()
+                .toArray();
+        if (announced != null) {
+            int[] sorted = announced.clone();
+            Arrays.sort(sorted);
+            if (!Arrays.equals(sorted, winners)) {
+                problems.add("GAMEOVER nennt " + Arrays.toString(announced) + ", nachgespielt " + Arrays.toString(winners));
+            }
+        }
+        return "Nachgespielt: Punkte " + scores + ", Gewinner " + Arrays.toString(winners)
+                + (announced == null ? " (Spiel nicht beendet)" : "")
+                + (problems.isEmpty() ? ", keine Unstimmigkeiten" : ", Unstimmigkeiten: " + problems);
+    }
+}
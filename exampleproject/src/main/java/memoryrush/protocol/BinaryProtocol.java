@@ -0,0 +1,249 @@
+package memoryrush.protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Kompaktes Binärprotokoll, das Client und Server optional statt des Textprotokolls sprechen.
+ * <p>
+ * Aushandlung: Der Client schickt als Textzeile {@code PROTO BIN <version>}. Der Server antwortet mit
+ * {@code PROTO BIN <version>} (höchstens seine eigene Version) und schreibt ab dieser Zeile binär; der
+ * Client schreibt nach dem Absenden ebenfalls binär. Antwortet der Server mit {@code PROTO TEXT}, bleibt
+ * es beim Textprotokoll. Clients ohne Aushandlung merken davon nichts.
+ * <p>
+ * Ein Frame besteht aus einer Varint-Länge, einem Opcode-Byte und den Nutzdaten. Zahlen (Indizes, Punkte,
+ * Spieler-IDs) sind Varints, Texte UTF-8 mit vorangestellter Varint-Länge. Spieler werden nach dem
+ * {@link #PLAYERS}-Frame nur noch über ihre ID referenziert.
+ */
+public final class BinaryProtocol {
+    /** Höchste unterstützte Protokollversion. */
+    public static final int VERSION = 1;
+
+    // Client -> Server
+    public static final int C_FLIP = 0x01;
+    public static final int C_CHAT = 0x02;
+    public static final int C_QUIT = 0x03;
+    /** Bestenliste anfordern; Nutzdaten: gewünschte Anzahl Plätze. */
+    public static final int C_TOP = 0x04;
+    /** Eigenen Rang anfordern. */
+    public static final int C_RANK = 0x05;
+    /** Eigenen Platz in einem laufenden Spiel wieder einnehmen; Nutzdaten: Sitzungstoken. */
+    public static final int C_REJOIN = 0x06;
+    /** Laufendes Spiel als Zuschauer verfolgen; Nutzdaten: Raum-ID (0 = beliebiges Spiel). */
+    public static final int C_WATCH = 0x07;
+
+    // Server -> Client
+    public static final int NAME = 0x10;
+    public static final int PLAYERS = 0x11;
+    public static final int START = 0x12;
+    public static final int TURN = 0x13;
+    public static final int FLIP = 0x14;
+    public static final int MATCH = 0x15;
+    public static final int NOMATCH = 0x16;
+    public static final int TIMEOUT = 0x17;
+    public static final int GAMEOVER = 0x18;
+    public static final int CHAT = 0x19;
+    public static final int ERROR = 0x1A;
+    /** Bestenliste: Anzahl, dann je Spieler-ID, Name, Punkte. */
+    public static final int TOP = 0x1B;
+    /** Eigener Rang: Rang (0 = noch keine Punkte), Punkte, Anzahl erfasster Spieler. */
+    public static final int RANK = 0x1C;
+    /** Sitzungstoken, mit dem der Client seinen Platz nach einem Verbindungsabbruch zurückbekommt. */
+    public static final int SESSION = 0x1D;
+    /**
+     * Spielstand zum Wiedereinstieg: Kartenzahl, Zugzeit, Spieler am Zug (ID), verbleibende Zugzeit in ms,
+     * offene Karte + 1 (0 = keine) und ihr Motiv, dann Anzahl und je Spieler-ID und Punkte.
+     */
+    public static final int STATE = 0x1E;
+    /** Bereits gefundene Karten zum Wiedereinstieg: Anzahl, dann je Index und Motiv. */
+    public static final int REVEALED = 0x1F;
+    /** Spieler hat die Verbindung verloren, sein Platz bleibt reserviert; Nutzdaten: Spieler-ID. */
+    public static final int AWAY = 0x20;
+    /** Abwesender Spieler ist wieder da; Nutzdaten: Spieler-ID. */
+    public static final int BACK = 0x21;
+    /** Beliebige Textzeile für Befehle ohne eigene Binärdarstellung. */
+    public static final int TEXT = 0x7F;
+
+    /** Obergrenze für eine Frame-Länge; größere Frames gelten als Protokollfehler. */
+    public static final int MAX_FRAME_LENGTH = 64 * 1024;
+
+    private BinaryProtocol() {
+    }
+
+    /** Anzahl Bytes, die {@code value} als Varint belegt. */
+    public static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /** Schreibt einen vorzeichenlosen Varint (7 Bit pro Byte, höchstwertiges Bit = Fortsetzung). */
+    public static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Schreibt einen Varint direkt in ein Array, das groß genug sein muss (siehe {@link #varintSize}).
+     * @return Position hinter dem Varint
+     */
+    public static int putVarint(byte[] buf, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf[pos++] = (byte) value;
+        return pos;
+    }
+
+    /** Schreibt einen Text mit vorangestellter Länge. */
+    public static void writeString(ByteArrayOutputStream out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    /**
+     * Setzt einen vollständigen Frame (Länge, Opcode, Nutzdaten) zusammen.
+     */
+    public static byte[] frame(int opcode, ByteArrayOutputStream payload) {
+        int length = 1 + payload.size();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(varintSize(length) + length);
+        writeVarint(out, length);
+        out.write(opcode);
+        out.writeBytes(payload.toByteArray());
+        return out.toByteArray();
+    }
+
+    /**
+     * Frame, dessen Nutzdaten nur aus Zahlen bestehen (FLIP, MATCH, TURN, ...), ohne Zwischenpuffer direkt in
+     * ein Array der passenden Größe geschrieben.
+     */
+    public static byte[] intFrame(int opcode, int[] values) {
+        int length = 1;
+        for (int value : values) length += varintSize(value);
+        byte[] frame = new byte[varintSize(length) + length];
+        int pos = putVarint(frame, 0, length);
+        frame[pos++] = (byte) opcode;
+        for (int value : values) pos = putVarint(frame, pos, value);
+        return frame;
+    }
+
+    /**
+     * Liest einen Varint aus dem Strom.
+     * @return den Wert oder -1, wenn der Strom vor dem ersten Byte endet
+     */
+    public static int readVarint(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                if (shift == 0) return -1;
+                throw new EOFException();
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Varint zu lang");
+    }
+
+    /**
+     * Liest einen kompletten Frame (ohne Längenpräfix) aus dem Strom.
+     * @return Opcode und Nutzdaten oder null am Stromende
+     */
+    public static Reader readFrame(InputStream in) throws IOException {
+        int length = readVarint(in);
+        if (length < 0) return null;
+        if (length < 1 || length > MAX_FRAME_LENGTH) throw new IOException("Ungültige Frame-Länge " + length);
+        byte[] data = in.readNBytes(length);
+        if (data.length < length) throw new EOFException();
+        return new Reader(data, 0, length);
+    }
+
+    /**
+     * Wie {@link #readFrame(InputStream)}, liest aber in einen vorhandenen Puffer von mindestens
+     * {@link #MAX_FRAME_LENGTH} Bytes und setzt den übergebenen Reader darauf; für den Lese-Thread einer
+     * Verbindung, der so pro Frame nichts anlegt.
+     * @return der Reader oder null am Stromende
+     */
+    public static Reader readFrame(InputStream in, byte[] buffer, Reader reader) throws IOException {
+        int length = readVarint(in);
+        if (length < 0) return null;
+        if (length < 1 || length > MAX_FRAME_LENGTH) throw new IOException("Ungültige Frame-Länge " + length);
+        if (in.readNBytes(buffer, 0, length) < length) throw new EOFException();
+        return reader.reset(buffer, 0, length);
+    }
+
+    /**
+     * Liest die Felder eines Frames nacheinander aus einem Byte-Array. Ein Reader kann mit {@link #reset}
+     * für den nächsten Frame wiederverwendet werden.
+     */
+    public static final class Reader {
+        private byte[] data;
+        private int end;
+        private int pos;
+        private int opcode;
+
+        /** Leerer Reader zur Wiederverwendung; vor dem ersten Lesen {@link #reset} aufrufen. */
+        public Reader() {
+        }
+
+        /** Erwartet den Frame ab dem Opcode-Byte (ohne Längenpräfix). */
+        public Reader(byte[] data, int offset, int length) {
+            reset(data, offset, length);
+        }
+
+        /** Setzt den Reader auf den nächsten Frame (ab dem Opcode-Byte, ohne Längenpräfix). */
+        public Reader reset(byte[] data, int offset, int length) {
+            this.data = data;
+            this.pos = offset;
+            this.end = offset + length;
+            this.opcode = data[pos++] & 0xFF;
+            return this;
+        }
+
+        public int opcode() {
+            return opcode;
+        }
+
+        /**
+         * Liest einen Varint. Das Protokoll überträgt nur Werte ab 0 (fehlende Positionen als Index + 1), daher
+         * wird ein negativer Wert als ungültiger Frame abgelehnt; Aufrufer dürfen den Wert direkt als Index oder
+         * Länge verwenden.
+         */
+        public int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                if (pos >= end) throw new IOException("Frame zu kurz");
+                int b = data[pos++];
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    if (value < 0) throw new IOException("Varint außerhalb des Wertebereichs");
+                    return value;
+                }
+            }
+            throw new IOException("Varint zu lang");
+        }
+
+        public String readString() throws IOException {
+            int len = readVarint();
+            if (len < 0 || len > end - pos) throw new IOException("Frame zu kurz");
+            String s = new String(data, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            return s;
+        }
+
+        public boolean hasRemaining() {
+            return pos < end;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package memoryrush.protocol;
+
+/**
+ * Vereinbarung zwischen Spielserver-Knoten und Gateway, an welchem Knoten ein Raum bzw. ein Sitzungsplatz
+ * hängt. Ein Knoten mit {@code --node-id=N} (1 bis {@link #MAX_NODE_ID}) vergibt Raum-IDs ab
+ * {@code N * ROOM_IDS_PER_NODE} und stellt seinen Sitzungstokens {@code N.} voran; so kann das Gateway
+ * {@code WATCH <Raum>} und {@code REJOIN <Token>} ohne Rückfrage an den richtigen Knoten weiterleiten.
+ * Ein Einzelserver ohne Knoten-ID (0) vergibt Raum-IDs ab 1 und Tokens ohne Präfix wie bisher.
+ */
+public final class NodeRouting {
+    /** Größe des Raum-ID-Bereichs eines Knotens. */
+    public static final int ROOM_IDS_PER_NODE = 1_000_000;
+    /** Höchste Knoten-ID, deren Raum-IDs noch in einen {@code int} passen. */
+    public static final int MAX_NODE_ID = 2000;
+
+    private NodeRouting() {
+    }
+
+    /** Erste Raum-ID (exklusive) des Knotens; der Raumzähler startet hier. */
+    public static int firstRoomId(int nodeId) {
+        return nodeId * ROOM_IDS_PER_NODE;
+    }
+
+    /** @return Knoten-ID, aus deren Bereich die Raum-ID stammt, oder 0 ohne Knotenbezug */
+    public static int nodeOfRoom(int roomId) {
+        return roomId > 0 ? roomId / ROOM_IDS_PER_NODE : 0;
+    }
+
+    /** Sitzungstoken mit Knotenpräfix; Knoten-ID 0 lässt das Token unverändert. */
+    public static String qualifyToken(int nodeId, String token) {
+        return nodeId > 0 ? nodeId + "." + token : token;
+    }
+
+    /** @return Knoten-ID aus dem Präfix des Tokens oder 0, wenn es keins trägt */
+    public static int nodeOfToken(String token) {
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot > 4) return 0;
+        try {
+            return Integer.parseInt(token.substring(0, dot));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package memoryrush.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Annahme neuer Verbindungen, getrennt vom Spielbetrieb. Der Akzeptor-Thread prüft nur die Grenzen
+ * ({@link ServerConfig#getMaxConnections()}, {@link ServerConfig#getMaxConnectionsPerIp()}) und legt die
+ * Verbindung in eine beschränkte Warteschlange; aufgebaut (Begrüßung, Threads bzw. Event-Loop, Matchmaker)
+ * wird sie von einem eigenen Join-Thread. Ist die Warteschlange voll oder eine Grenze erreicht, bekommt der
+ * Client sofort eine vorkodierte {@code ERROR}-Zeile und wird getrennt, ohne dass dafür ein Raum, ein Lock
+ * oder ein weiterer Thread beansprucht wird.
+ * <p>
+ * So staut sich ein Ansturm (z.B. alle Clients verbinden sich nach einem Neustart gleichzeitig neu) in der
+ * Warteschlange bzw. wird abgewiesen, statt laufenden Spielen Rechenzeit zu nehmen.
+ */
+final class AcceptStage {
+    private static final byte[] SERVER_FULL =
+            "ERROR Server voll, bitte später erneut verbinden\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TOO_MANY_FROM_ADDRESS =
+            "ERROR Zu viele Verbindungen von dieser Adresse\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BUSY =
+            "ERROR Server ausgelastet, bitte später erneut verbinden\n".getBytes(StandardCharsets.UTF_8);
+
+    private final int maxConnections;
+    private final int maxPerAddress;
+    /** Angenommene, noch nicht getrennte Verbindungen (inklusive wartender). */
+    private final AtomicInteger open = new AtomicInteger();
+    /** Offene Verbindungen je Adresse; Adressen ohne Verbindung werden entfernt. */
+    private final Map<InetAddress, Integer> perAddress = new ConcurrentHashMap<>();
+    private final BlockingQueue<Runnable> pendingJoins;
+
+    AcceptStage(ServerConfig config) {
+        this.maxConnections = config.getMaxConnections();
+        this.maxPerAddress = config.getMaxConnectionsPerIp();
+        this.pendingJoins = new ArrayBlockingQueue<>(config.getJoinQueueCapacity());
+    }
+
+    /** Startet den Join-Thread, der die Warteschlange abarbeitet. */
+    void start() {
+        Thread worker = new Thread(this::drain, "join-worker");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void drain() {
+        while (true) {
+            Runnable join;
+            try {
+                join = pendingJoins.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            ServerMetrics.joinDequeued();
+            try {
+                join.run();
+            } catch (RuntimeException e) {
+                // Eine fehlerhafte Verbindung darf die übrigen nicht aufhalten
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Prüft die Grenzen für eine neue Verbindung und reserviert bei Erfolg ihren Platz, bis
+     * {@link #release(InetAddress)} aufgerufen wird.
+     * @return null bei Erfolg, sonst der Ablehnungsgrund
+     */
+    ServerMetrics.Rejection admit(InetAddress address) {
+        ServerMetrics.accepted();
+        if (open.incrementAndGet() > maxConnections) {
+            open.decrementAndGet();
+            return ServerMetrics.Rejection.CAPACITY;
+        }
+        if (maxPerAddress > 0 && perAddress.merge(address, 1, Integer::sum) > maxPerAddress) {
+            release(address);
+            return ServerMetrics.Rejection.PER_ADDRESS;
+        }
+        return null;
+    }
+
+    /**
+     * Legt den Aufbau einer zugelassenen Verbindung in die Warteschlange.
+     * @return Ablehnungsgrund {@link ServerMetrics.Rejection#QUEUE_FULL}, wenn kein Platz mehr ist (der
+     *         reservierte Platz ist dann schon wieder freigegeben), sonst null
+     */
+    ServerMetrics.Rejection enqueue(InetAddress address, Runnable join) {
+        if (!pendingJoins.offer(join)) {
+            release(address);
+            return ServerMetrics.Rejection.QUEUE_FULL;
+        }
+        ServerMetrics.joinQueued();
+        return null;
+    }
+
+    /** Gibt den Platz einer getrennten Verbindung frei. */
+    void release(InetAddress address) {
+        open.decrementAndGet();
+        if (maxPerAddress > 0) {
+            perAddress.computeIfPresent(address, (a, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /** Schließt eine abgelehnte Verbindung des blockierenden Transports mit kurzer Begründung. */
+    static void reject(Socket socket, ServerMetrics.Rejection reason) {
+        ServerMetrics.rejected(reason);
+        try (socket) {
+            // Der Sendepuffer einer frischen Verbindung ist leer: blockiert nicht
+            socket.getOutputStream().write(message(reason));
+        } catch (IOException e) {
+            // Client ist schon weg
+        }
+    }
+
+    /** Wie {@link #reject(Socket, ServerMetrics.Rejection)} für einen nicht-blockierenden Kanal. */
+    static void reject(SocketChannel channel, ServerMetrics.Rejection reason) {
+        ServerMetrics.rejected(reason);
+        try (channel) {
+            channel.write(ByteBuffer.wrap(message(reason)));
+        } catch (IOException e) {
+            // Client ist schon weg
+        }
+    }
+
+    private static byte[] message(ServerMetrics.Rejection reason) {
+        return switch (reason) {
+            case CAPACITY -> SERVER_FULL;
+            case PER_ADDRESS -> TOO_MANY_FROM_ADDRESS;
+            case QUEUE_FULL -> BUSY;
+        };
+    }
+}
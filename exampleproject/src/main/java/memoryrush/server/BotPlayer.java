@@ -0,0 +1,112 @@
+package memoryrush.server;
+
+import memoryrush.game.Board;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Computergegner, der ohne Verbindung und ohne eigenen Thread direkt in einem {@link GameRoom} sitzt. Der Raum
+ * zeigt ihm jede aufgedeckte Karte ({@link #observe(int, int)}) und fragt ihn, wenn er am Zug ist, nach der
+ * nächsten Position; getaktet wird das über den Zug-Timer des Raums, also über das gemeinsame
+ * {@link TimingWheel}. Ein Bot kostet damit nur dieses Objekt und sein Gedächtnis.
+ * <p>
+ * Das Gedächtnis fasst die letzten {@link ServerConfig#getBotMemory()} aufgedeckten Karten (Position und
+ * Motiv-ID); ältere vergisst er. Greift er auf eine Erinnerung zurück, irrt er sich mit der Wahrscheinlichkeit
+ * {@link ServerConfig#getBotErrorRate()} und deckt stattdessen eine zufällige Karte auf.
+ */
+final class BotPlayer {
+    private final int playerId;
+    private final String name;
+    private final double errorRate;
+    /** Ringpuffer aus Paaren (Position, Motiv-ID); der älteste Eintrag wird überschrieben. */
+    private final int[] memory;
+    private int next = 0;
+    private int size = 0;
+
+    BotPlayer(int playerId, String name, int memorySize, double errorRate) {
+        this.playerId = playerId;
+        this.name = name;
+        this.errorRate = errorRate;
+        this.memory = new int[2 * memorySize];
+    }
+
+    int getPlayerId() {
+        return playerId;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /** Merkt sich eine aufgedeckte Karte (auch die eigenen und die der Mitspieler). */
+    void observe(int index, int cardId) {
+        if (memory.length == 0) return;
+        // Schon bekannte Position nicht doppelt ablegen
+        for (int i = 0; i < size; i++) {
+            if (memory[2 * i] == index) return;
+        }
+        memory[2 * next] = index;
+        memory[2 * next + 1] = cardId;
+        next = (next + 1) % (memory.length / 2);
+        if (size < memory.length / 2) size++;
+    }
+
+    /** Erste Karte des Zuges: ein erinnertes Paar, sonst eine Karte, an die er sich nicht erinnert. */
+    int chooseFirst(Board board) {
+        for (int i = 0; i < size; i++) {
+            int index = memory[2 * i];
+            if (board.isMatched(index)) continue;
+            if (partnerOf(board, index, memory[2 * i + 1]) >= 0) return recall(board, index, -1);
+        }
+        return unknownCard(board, -1);
+    }
+
+    /** Zweite Karte: die erinnerte Partnerkarte zur ersten, sonst eine unbekannte. */
+    int chooseSecond(Board board, int firstIndex) {
+        int partner = partnerOf(board, firstIndex, board.cardId(firstIndex));
+        if (partner >= 0) return recall(board, partner, firstIndex);
+        return unknownCard(board, firstIndex);
+    }
+
+    /** Erinnerte, noch offene Position mit diesem Motiv außer {@code index} oder -1. */
+    private int partnerOf(Board board, int index, int cardId) {
+        for (int i = 0; i < size; i++) {
+            int other = memory[2 * i];
+            if (other != index && memory[2 * i + 1] == cardId && !board.isMatched(other)) return other;
+        }
+        return -1;
+    }
+
+    /** Die erinnerte Position, oder mit {@link #errorRate} eine zufällige (Erinnerung getrübt). */
+    private int recall(Board board, int index, int except) {
+        if (ThreadLocalRandom.current().nextDouble() < errorRate) return randomCard(board, except);
+        return index;
+    }
+
+    /** Eine offene Karte, die nicht im Gedächtnis ist; sind alle bekannt, irgendeine offene. */
+    private int unknownCard(Board board, int except) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 0; attempt < 8; attempt++) {
+            int index = random.nextInt(board.size());
+            if (index != except && !board.isMatched(index) && !remembers(index)) return index;
+        }
+        return randomCard(board, except);
+    }
+
+    /** Eine zufällige offene Karte außer {@code except}. */
+    private static int randomCard(Board board, int except) {
+        int start = ThreadLocalRandom.current().nextInt(board.size());
+        for (int i = 0; i < board.size(); i++) {
+            int index = (start + i) % board.size();
+            if (index != except && !board.isMatched(index)) return index;
+        }
+        return except;
+    }
+
+    private boolean remembers(int index) {
+        for (int i = 0; i < size; i++) {
+            if (memory[2 * i] == index) return true;
+        }
+        return false;
+    }
+}
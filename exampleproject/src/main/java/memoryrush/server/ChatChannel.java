@@ -0,0 +1,109 @@
+package memoryrush.server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Chat eines Raums, getrennt vom Spielablauf: Chatzeilen laufen nicht durch die Mailbox des Raums, sondern
+ * sammeln sich hier und werden höchstens alle {@link ServerConfig#getChatBatchMs()} Millisekunden als
+ * eine Nachricht ({@link ServerMessage#chatBatch}) an alle Empfänger verteilt. Eine Chatflut kostet den Raum
+ * damit keine Rechenzeit, und in den Ausgangswarteschlangen steht Chat hinter allen Spielnachrichten.
+ * <p>
+ * Die letzten {@link #HISTORY} Zeilen werden aufbewahrt; wer neu dazukommt (Lobby, {@code REJOIN},
+ * Zuschauer), bekommt sie zuerst. Die Empfängerliste pflegt der Raum, verteilt wird auf den Worker-Threads.
+ * Je Raum läuft höchstens ein Verteilvorgang zugleich, damit Zeilen bei allen in Eingangsreihenfolge ankommen.
+ */
+final class ChatChannel {
+    /** Aufbewahrte Zeilen für später Hinzukommende. */
+    static final int HISTORY = 50;
+
+    private final Matchmaker matchmaker;
+    private final int batchMillis;
+    private final List<ClientConnection> members = new CopyOnWriteArrayList<>();
+    private final Queue<ServerMessage> pending = new ConcurrentLinkedQueue<>();
+    /** Ein Verteilvorgang ist eingeplant oder läuft; erst an seinem Ende darf der nächste eingeplant werden. */
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    /** Eingang der ältesten noch nicht verteilten Zeile (System.nanoTime), für die CHAT-Latenz. */
+    private volatile long oldestPending;
+    /** Zuletzt verteilte Zeilen, älteste zuerst; geschützt durch sich selbst. */
+    private final ArrayDeque<ServerMessage> history = new ArrayDeque<>(HISTORY);
+
+    ChatChannel(Matchmaker matchmaker) {
+        this.matchmaker = matchmaker;
+        this.batchMillis = matchmaker.getChatBatchMillis();
+    }
+
+    /** Nimmt eine Chatzeile an; blockiert nie und darf von jedem Thread aufgerufen werden. */
+    void post(ServerMessage line) {
+        if (pending.isEmpty()) oldestPending = System.nanoTime();
+        pending.add(line);
+        if (flushScheduled.compareAndSet(false, true)) {
+            scheduleFlush();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (batchMillis == 0) {
+            matchmaker.executeOnWorkers(this::flush);
+        } else {
+            matchmaker.scheduleOnWorkers(this::flush, batchMillis);
+        }
+    }
+
+    /** Nimmt einen Empfänger auf und schickt ihm den bisherigen Verlauf. */
+    void join(ClientConnection client) {
+        if (members.contains(client)) return;
+        members.add(client);
+        List<ServerMessage> recent;
+        synchronized (history) {
+            recent = new ArrayList<>(history);
+        }
+        if (!recent.isEmpty()) {
+            client.send(ServerMessage.chatBatch(recent));
+        }
+    }
+
+    void leave(ClientConnection client) {
+        members.remove(client);
+    }
+
+    /** Verteilt alle gesammelten Zeilen als eine Nachricht pro Empfänger. */
+    private void flush() {
+        try {
+            deliver();
+        } finally {
+            flushScheduled.set(false);
+            // Während des Verteilens eingegangene Zeilen hat post() nicht eingeplant
+            if (!pending.isEmpty() && flushScheduled.compareAndSet(false, true)) {
+                scheduleFlush();
+            }
+        }
+    }
+
+    private void deliver() {
+        long received = oldestPending;
+        List<ServerMessage> lines = new ArrayList<>();
+        ServerMessage line;
+        while ((line = pending.poll()) != null) {
+            lines.add(line);
+        }
+        if (lines.isEmpty()) return;
+        synchronized (history) {
+            for (ServerMessage l : lines) {
+                if (history.size() == HISTORY) history.pollFirst();
+                history.addLast(l);
+            }
+        }
+        ServerMessage batch = lines.size() == 1 ? lines.get(0) : ServerMessage.chatBatch(lines);
+        for (ClientConnection member : members) {
+            member.send(batch);
+        }
+        ServerMetrics.chatDelivered(lines.size());
+        ServerMetrics.commandHandled(ServerMetrics.Command.CHAT, received);
+    }
+}
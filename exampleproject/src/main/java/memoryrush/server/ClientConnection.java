@@ -0,0 +1,402 @@
+package memoryrush.server;
+
+import memoryrush.protocol.BinaryProtocol;
+import memoryrush.protocol.NodeRouting;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Gemeinsame Basis aller Client-Verbindungen, unabhängig vom Transport (blockierende Threads oder NIO).
+ * Enthält die Auswertung von Text- und Binärprotokoll, damit sich alle Transporte identisch verhalten.
+ */
+abstract class ClientConnection {
+    /** Plätze, die {@code TOP} ohne Angabe liefert. */
+    private static final int DEFAULT_TOP = 10;
+    private static final SecureRandom TOKENS = new SecureRandom();
+
+    /** Spieler-ID und Name; ändern sich nur, wenn der Client mit {@code REJOIN} einen Platz übernimmt. */
+    private volatile int playerId;
+    private volatile String playerName;
+    /** Geheimes Token, mit dem der Client seinen Platz nach einem Verbindungsabbruch zurückbekommt. */
+    private volatile String sessionToken;
+    /** Zuschauer dürfen weder aufdecken noch chatten. */
+    private volatile boolean spectator = false;
+    private final AtomicBoolean disconnected = new AtomicBoolean(false);
+    private final AtomicReference<GameRoom> room = new AtomicReference<>();
+    private volatile Matchmaker matchmaker;
+    /** Annahme, bei der der Platz dieser Verbindung reserviert ist; null ohne Zugangskontrolle. */
+    private volatile AcceptStage acceptStage;
+    private volatile InetAddress remoteAddress;
+    /** Ausgehende Nachrichten, die der Transport noch nicht geschrieben hat. */
+    protected final OutboundQueue outbound;
+    /** Eingehende Daten sind nach erfolgreicher Aushandlung Binär-Frames statt Textzeilen (nur Lese-Thread). */
+    protected boolean binaryInbound = false;
+    /** Ausgehende Nachrichten werden binär kodiert (nur Schreib-Thread bzw. Event-Loop). */
+    private boolean binaryOutbound = false;
+    /** Nachrichten einer Aktion gemeinsam schreiben statt jede einzeln (siehe {@link ServerConfig#isCoalesce()}). */
+    protected final boolean coalesce;
+    /** Begrenzt die Chatnachrichten dieser Verbindung (nur Lese-Thread). */
+    private final TokenBucket chatTokens;
+    /** Über das Kontingent hinaus wurde schon gewarnt; bis zur nächsten angenommenen Nachricht nicht erneut. */
+    private boolean chatThrottled = false;
+    /** Latenzbudget, um das der Transport das Schreiben verzögern darf, um mehrere Aktionen zu bündeln. */
+    protected final int flushDelayMs;
+
+    protected ClientConnection(int playerId, String playerName, ServerConfig config) {
+        this.playerId = playerId;
+        this.playerName = playerName;
+        this.sessionToken = NodeRouting.qualifyToken(config.getNodeId(), newToken());
+        this.outbound = new OutboundQueue(config.getOutboundQueueCapacity());
+        this.coalesce = config.isCoalesce();
+        this.flushDelayMs = config.isCoalesce() ? config.getFlushDelayMs() : 0;
+        this.chatTokens = new TokenBucket(config.getChatRate(), config.getChatBurst());
+        ServerMetrics.clientConnected();
+    }
+
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    String getSessionToken() {
+        return sessionToken;
+    }
+
+    /** 128 Zufallsbits, URL-sicher kodiert. */
+    private static String newToken() {
+        byte[] bytes = new byte[16];
+        TOKENS.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /** Begrüßung nach dem Verbindungsaufbau: zugewiesener Spielername und Sitzungstoken. */
+    protected void greet() {
+        send(ServerMessage.name(playerId, playerName));
+        send(ServerMessage.session(sessionToken));
+    }
+
+    /** Übernimmt Identität und Token eines Spielers, dessen Platz der Client wieder einnimmt (nur im Raum). */
+    void assumeSeat(int playerId, String playerName, String token) {
+        this.playerId = playerId;
+        this.playerName = playerName;
+        this.sessionToken = token;
+        this.spectator = false;
+    }
+
+    /** Macht den Client zum Zuschauer (vor dem Wechsel in den Raum, damit kein Flip mehr durchgeht). */
+    void becomeSpectator() {
+        spectator = true;
+    }
+
+    boolean isSpectator() {
+        return spectator;
+    }
+
+    GameRoom getRoom() {
+        return room.get();
+    }
+
+    /**
+     * Teilt den Client einem Raum zu, sofern er noch keinem zugeteilt ist.
+     * @return false, wenn der Client inzwischen anderswo Platz genommen hat (z.B. per {@code REJOIN})
+     */
+    boolean enterRoom(GameRoom target) {
+        return room.compareAndSet(null, target);
+    }
+
+    /**
+     * Verlegt den Client in einen anderen Raum, unabhängig davon, ob eine Aufnahme in die Lobby noch aussteht.
+     * @return den bisherigen Raum oder null
+     */
+    GameRoom moveToRoom(GameRoom target) {
+        return room.getAndSet(target);
+    }
+
+    /** Gibt den Raum frei, ohne den Client dort abzumelden (z.B. nach abgelehntem {@code REJOIN}). */
+    void leaveRoom(GameRoom current) {
+        room.compareAndSet(current, null);
+    }
+
+    /** Der reservierte Platz wird beim Trennen an die Annahme zurückgegeben. */
+    void admittedBy(AcceptStage acceptStage, InetAddress remoteAddress) {
+        this.remoteAddress = remoteAddress;
+        this.acceptStage = acceptStage;
+    }
+
+    void setMatchmaker(Matchmaker matchmaker) {
+        this.matchmaker = matchmaker;
+    }
+
+    /** Sendet eine Protokollzeile an den Client (ohne Zeilenende). */
+    public void send(String msg) {
+        send(ServerMessage.of(msg));
+    }
+
+    /**
+     * Legt eine Nachricht in die Ausgangswarteschlange, ohne auf das Netzwerk zu warten, und stößt das
+     * Schreiben sofort an.
+     */
+    void send(ServerMessage message) {
+        if (enqueue(message) && coalesce) {
+            messageQueued();
+        }
+    }
+
+    /**
+     * Legt eine Nachricht ab, ohne den Transport zu wecken; der Raum ruft {@link #messageQueued()} einmal
+     * nach seiner Aktion auf, damit alle Nachrichten der Aktion in einem Schreibvorgang hinausgehen.
+     * Ein Client, dessen Warteschlange trotz Verwerfen von Chat und Zusammenfassen überläuft, wird getrennt.
+     * @return false, wenn die Verbindung deshalb geschlossen wurde
+     */
+    boolean enqueue(ServerMessage message) {
+        if (!outbound.offer(message)) {
+            System.out.println("Client " + playerName + " liest zu langsam – Verbindung wird getrennt.");
+            close();
+            return false;
+        }
+        if (!coalesce) {
+            // Vergleichsmodus: jede Nachricht sofort einzeln schreiben
+            messageQueued();
+        }
+        return true;
+    }
+
+    /** Hinweis an den Transport, dass neue Nachrichten zum Schreiben bereitliegen. */
+    protected abstract void messageQueued();
+
+    /** Schließt die zugrunde liegende Verbindung. */
+    public abstract void close();
+
+    /**
+     * Kodiert eine Nachricht im ausgehandelten Protokoll. Die PROTO-Antwort selbst geht noch als Text
+     * hinaus; alles danach binär. Darf nur vom schreibenden Thread aufgerufen werden.
+     */
+    protected byte[] encode(ServerMessage message) {
+        byte[] data = binaryOutbound ? message.getBinary() : message.getBytes();
+        TransportStats.messageEncoded();
+        if (message.getType() == ServerMessage.Type.PROTO && message.getText().startsWith("PROTO BIN")) {
+            binaryOutbound = true;
+        }
+        return data;
+    }
+
+    /**
+     * Verarbeitet eine Zeile direkt aus dem Eingangspuffer (ohne Zeilenende). {@code FLIP:} und {@code QUIT}
+     * werden aus den Bytes erkannt, der Index ohne Zwischen-String gelesen; nur seltene Befehle und Chat
+     * werden als String an {@link #handleLine(String)} weitergegeben.
+     * @return false, wenn der Client die Verbindung beenden möchte (QUIT)
+     */
+    boolean handleLine(byte[] data, int offset, int length) {
+        if (length >= 5 && data[offset] == 'F' && data[offset + 1] == 'L' && data[offset + 2] == 'I'
+                && data[offset + 3] == 'P' && data[offset + 4] == ':') {
+            long index = parseInt(data, offset + 5, offset + length);
+            if (index != Long.MIN_VALUE) {
+                flip((int) index);
+            }
+            // ungültiger Index – ignorieren
+            return true;
+        }
+        if (length == 4 && data[offset] == 'Q' && data[offset + 1] == 'U' && data[offset + 2] == 'I'
+                && data[offset + 3] == 'T') {
+            return false;
+        }
+        return handleLine(new String(data, offset, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Liest eine Dezimalzahl wie {@code Integer.parseInt(s.trim())} aus den Bytes {@code [from, to)}.
+     * @return die Zahl oder {@link Long#MIN_VALUE}, wenn dort keine gültige {@code int}-Zahl steht
+     */
+    static long parseInt(byte[] data, int from, int to) {
+        while (from < to && (data[from] & 0xFF) <= ' ') from++;
+        while (to > from && (data[to - 1] & 0xFF) <= ' ') to--;
+        if (from == to) return Long.MIN_VALUE;
+        boolean negative = data[from] == '-';
+        if (negative || data[from] == '+') {
+            if (++from == to) return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) return Long.MIN_VALUE;
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) return Long.MIN_VALUE;
+        }
+        if (negative) value = -value;
+        return value > Integer.MAX_VALUE ? Long.MIN_VALUE : value;
+    }
+
+    /**
+     * Verarbeitet eine einzelne vom Client empfangene Zeile.
+     * @return false, wenn der Client die Verbindung beenden möchte (QUIT)
+     */
+    boolean handleLine(String line) {
+        if (line.equals("QUIT")) {
+            // Spieler trennt die Verbindung freiwillig
+            return false;
+        }
+        if (line.startsWith("PROTO ")) {
+            negotiate(line);
+        } else if (line.equals("TOP") || line.startsWith("TOP ")) {
+            // Bestenliste, optional mit Anzahl Plätze
+            int count = DEFAULT_TOP;
+            try {
+                if (line.length() > 4) count = Integer.parseInt(line.substring(4).trim());
+            } catch (NumberFormatException e) {
+                // Standardanzahl
+            }
+            top(count);
+        } else if (line.equals("RANK")) {
+            rank();
+        } else if (line.equals("WATCH") || line.startsWith("WATCH ")) {
+            // Zuschauen, optional in einem bestimmten Raum
+            int roomId = 0;
+            try {
+                if (line.length() > 6) roomId = Integer.parseInt(line.substring(6).trim());
+            } catch (NumberFormatException e) {
+                // beliebiges Spiel
+            }
+            watch(roomId);
+        } else if (line.startsWith("REJOIN ")) {
+            rejoin(line.substring(7).trim());
+        } else if (line.startsWith("FLIP:")) {
+            // Spieler möchte eine Karte aufdecken
+            try {
+                flip(Integer.parseInt(line.substring(5).trim()));
+            } catch (NumberFormatException e) {
+                // ungültiger Index – ignorieren
+            }
+        } else if (line.startsWith("CHAT:")) {
+            // Chat-Nachricht vom Spieler
+            chat(line.substring(5));
+        } else {
+            // Unbekanntes Kommando – als Chat auffassen
+            chat(line);
+        }
+        return true;
+    }
+
+    /**
+     * Verarbeitet einen Binär-Frame des Clients.
+     * @return false, wenn der Client die Verbindung beenden möchte
+     */
+    boolean handleFrame(BinaryProtocol.Reader frame) throws IOException {
+        switch (frame.opcode()) {
+            case BinaryProtocol.C_FLIP -> flip(frame.readVarint());
+            case BinaryProtocol.C_CHAT -> chat(frame.readString());
+            case BinaryProtocol.C_TOP -> top(frame.hasRemaining() ? frame.readVarint() : DEFAULT_TOP);
+            case BinaryProtocol.C_RANK -> rank();
+            case BinaryProtocol.C_REJOIN -> rejoin(frame.readString());
+            case BinaryProtocol.C_WATCH -> watch(frame.hasRemaining() ? frame.readVarint() : 0);
+            case BinaryProtocol.C_QUIT -> {
+                return false;
+            }
+            default -> throw new IOException("Unbekannter Opcode " + frame.opcode());
+        }
+        return true;
+    }
+
+    /**
+     * Beantwortet {@code PROTO BIN <version>}: die niedrigere der beiden Versionen gilt, ab sofort wird
+     * binär gelesen. Unbekannte Varianten werden mit {@code PROTO TEXT} abgelehnt.
+     */
+    private void negotiate(String line) {
+        int version = 0;
+        String[] parts = line.split(" ");
+        if (parts.length == 3 && parts[1].equals("BIN")) {
+            try {
+                version = Math.min(Integer.parseInt(parts[2]), BinaryProtocol.VERSION);
+            } catch (NumberFormatException ignored) {
+                // bleibt beim Textprotokoll
+            }
+        }
+        send(ServerMessage.protocol(Math.max(version, 0)));
+        binaryInbound = version > 0;
+    }
+
+    private void rejoin(String token) {
+        Matchmaker matchmaker = this.matchmaker;
+        if (matchmaker != null) {
+            matchmaker.resumeSeat(this, token);
+        }
+    }
+
+    private void watch(int roomId) {
+        Matchmaker matchmaker = this.matchmaker;
+        if (matchmaker != null) {
+            matchmaker.watch(this, roomId);
+        }
+    }
+
+    private void flip(int index) {
+        GameRoom room = this.room.get();
+        if (room != null && !spectator) {
+            room.handleFlip(playerId, index);
+        }
+    }
+
+    private void top(int count) {
+        GameRoom room = this.room.get();
+        if (room != null) {
+            room.showTop(this, Math.max(1, Math.min(count, Leaderboard.TOP_K)));
+        }
+    }
+
+    private void rank() {
+        GameRoom room = this.room.get();
+        if (room != null) {
+            room.showRank(this);
+        }
+    }
+
+    private void chat(String text) {
+        if (spectator) {
+            send(ServerMessage.error("Zuschauer können nicht chatten"));
+            return;
+        }
+        GameRoom room = this.room.get();
+        if (room == null) return;
+        if (!chatTokens.tryAcquire()) {
+            ServerMetrics.chatRateLimited();
+            if (!chatThrottled) {
+                chatThrottled = true;
+                send(ServerMessage.error("Zu viele Chatnachrichten, bitte etwas langsamer"));
+            }
+            return;
+        }
+        chatThrottled = false;
+        room.chat(this, text);
+    }
+
+    /**
+     * Meldet den Client beim Raum ab. Wird höchstens einmal ausgeführt, egal wie oft der Transport
+     * den Verbindungsabbruch erkennt. Ist der Client noch keinem Raum zugeteilt, räumt der Raum bei der
+     * Aufnahme selbst auf.
+     */
+    void disconnected() {
+        if (disconnected.compareAndSet(false, true)) {
+            ServerMetrics.clientDisconnected();
+            AcceptStage acceptStage = this.acceptStage;
+            if (acceptStage != null) {
+                acceptStage.release(remoteAddress);
+            }
+            GameRoom room = this.room.get();
+            if (room != null) {
+                room.removeClient(this);
+            }
+        }
+    }
+
+    boolean isDisconnected() {
+        return disconnected.get();
+    }
+}
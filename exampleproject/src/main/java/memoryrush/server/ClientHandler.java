@@ -0,0 +1,142 @@
+package memoryrush.server;
+
+import memoryrush.protocol.BinaryProtocol;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blockierende Verbindung zu einem einzelnen Client.
+ * Jede ClientHandler-Instanz liest in einem eigenen Thread und gehört zu genau einem Spielraum.
+ * Geschrieben wird von einem zweiten Thread ({@link #writeLoop()}), der die Ausgangswarteschlange leert,
+ * damit ein Client mit vollem Sendepuffer den Raum nicht aufhält.
+ */
+class ClientHandler extends ClientConnection implements Runnable {
+    /** Längere Zeilen sind kein gültiges Protokoll und führen zum Verbindungsabbau. */
+    private static final int MAX_LINE_LENGTH = 8192;
+
+    private final Socket socket;
+    private OutputStream out;
+    private InputStream in;
+    /** Aktuelle Eingabezeile; wächst bis {@link #MAX_LINE_LENGTH} und wird für jede Zeile wiederverwendet. */
+    private byte[] lineBuffer = new byte[128];
+    /** Puffer und Reader für Binär-Frames, erst nach der Umschaltung angelegt. */
+    private byte[] frameBuffer;
+    private final BinaryProtocol.Reader frameReader = new BinaryProtocol.Reader();
+
+    public ClientHandler(Socket socket, int playerId, String playerName, ServerConfig config) {
+        super(playerId, playerName, config);
+        this.socket = socket;
+        try {
+            // Gebündelt wird bereits im Server; Nagle würde die fertigen Blöcke nur zusätzlich verzögern
+            socket.setTcpNoDelay(coalesce);
+            this.out = new BufferedOutputStream(new CountingOutputStream(socket.getOutputStream()), 8192);
+            // Kein Reader: nach der Protokollaushandlung folgen Binär-Frames im selben Strom
+            this.in = new BufferedInputStream(socket.getInputStream(), 8192);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        // Sende dem Client seinen zugewiesenen Spielernamen und sein Sitzungstoken
+        greet();
+    }
+
+    @Override
+    protected void messageQueued() {
+        outbound.wakeUp();
+    }
+
+    @Override
+    public void close() {
+        outbound.close();
+        try { socket.close(); } catch (IOException ignored) {}
+        disconnected();
+    }
+
+    /**
+     * Schreibt wartende Nachrichten, bis die Verbindung geschlossen wird. Alle gerade verfügbaren
+     * Nachrichten werden gepuffert und mit einem einzigen flush verschickt; mit Latenzbudget wartet der
+     * Writer vorher so lange, dass auch die Nachrichten folgender Aktionen noch mitgehen.
+     */
+    void writeLoop() {
+        try {
+            while (!outbound.isClosed()) {
+                ServerMessage m = outbound.poll(1, TimeUnit.SECONDS);
+                if (m == null) continue;
+                if (flushDelayMs > 0) {
+                    Thread.sleep(flushDelayMs);
+                }
+                do {
+                    out.write(encode(m));
+                    if (!coalesce) out.flush();
+                } while ((m = outbound.poll()) != null);
+                out.flush();
+            }
+        } catch (IOException | InterruptedException e) {
+            close();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            // Solange Eingaben vom Client empfangen, diese verarbeiten
+            while (true) {
+                if (binaryInbound) {
+                    if (frameBuffer == null) frameBuffer = new byte[BinaryProtocol.MAX_FRAME_LENGTH];
+                    BinaryProtocol.Reader frame = BinaryProtocol.readFrame(in, frameBuffer, frameReader);
+                    if (frame == null || !handleFrame(frame)) break;
+                } else {
+                    int length = readLine();
+                    if (length < 0 || !handleLine(lineBuffer, 0, length)) break;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Verbindung zu " + getPlayerName() + " unterbrochen.");
+        } finally {
+            // Cleanup, wenn Client disconnectet
+            close();
+        }
+    }
+
+    /**
+     * Liest eine Textzeile (Zeilenende \n oder \r\n) direkt aus dem Bytestrom in {@link #lineBuffer}.
+     * @return Länge der Zeile ohne Zeilenende oder -1 am Stromende
+     */
+    private int readLine() throws IOException {
+        int len = 0;
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == '\n') {
+                if (len > 0 && lineBuffer[len - 1] == '\r') len--;
+                return len;
+            }
+            if (len == MAX_LINE_LENGTH) throw new IOException("Zeile zu lang");
+            if (len == lineBuffer.length) {
+                lineBuffer = Arrays.copyOf(lineBuffer, Math.min(MAX_LINE_LENGTH, len * 2));
+            }
+            lineBuffer[len++] = (byte) b;
+        }
+        return len > 0 ? len : -1;
+    }
+
+    /** Zählt die Schreibvorgänge, die der Puffer tatsächlich an den Socket weitergibt. */
+    private static class CountingOutputStream extends FilterOutputStream {
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            TransportStats.written(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            TransportStats.written(len);
+        }
+    }
+}
@@ -0,0 +1,736 @@
+package memoryrush.server;
+
+import memoryrush.game.Board;
+import memoryrush.game.GameEngine;
+import memoryrush.game.GameEvents;
+import memoryrush.game.GameState;
+import memoryrush.game.Player;
+import memoryrush.journal.Journal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ein Spielraum mit eigenem Spielzustand, eigener Client-Liste und eigenem Zug-Timer.
+ * Mehrere Räume laufen unabhängig voneinander im selben Serverprozess.
+ * <p>
+ * Jeder Raum ist ein Aktor: Alle Befehle (Beitritt, Flip, Chat, Timeout, Verbindungsabbruch) landen in
+ * einer Mailbox und werden nacheinander auf einem gemeinsamen Executor abgearbeitet. Der Zustand wird
+ * dadurch nie von zwei Threads gleichzeitig angefasst und braucht keine Locks; verschiedene Räume laufen
+ * parallel, und Aufrufer (Akzeptor, Event-Loops, Timer) warten nie auf einen Raum.
+ * <p>
+ * Jeder Platz ist über das Sitzungstoken seines Spielers reserviert. Ein Client, der es mit {@code REJOIN}
+ * vorzeigt, übernimmt den Platz und bekommt den Spielstand kompakt als STATE und REVEALED. Aus einem
+ * {@link RoomSnapshot} wiederhergestellte Räume ruhen, bis alle Spieler zurück sind oder
+ * {@link Matchmaker#RECOVERY_GRACE_MS} verstrichen ist. Verliert ein Spieler im laufenden Spiel die
+ * Verbindung, erfahren die anderen es per AWAY; seine Züge werden sofort übersprungen, bis er zurück ist (BACK).
+ * <p>
+ * Zuschauer ({@code WATCH}) verwaltet der {@link SpectatorFeed}; sie zählen nicht zu den Spielern und
+ * erhalten alle Nachrichten, die an die Spieler gehen. Chat läuft am Raum vorbei über den {@link ChatChannel}.
+ * <p>
+ * Wartet eine Lobby zu lange auf Mitspieler, füllt der Raum sie mit Computergegnern ({@link BotPlayer}) auf.
+ * Sie haben keine Verbindung, gelten aber immer als anwesend; ihre Züge laufen als Befehle durch dieselbe
+ * Mailbox, angestoßen vom Bot-Timer des Raums.
+ * <p>
+ * Die Spielregeln selbst stecken in der {@link GameEngine}; der Raum reicht Flips, Timeouts und
+ * übersprungene Züge an sie weiter und setzt die zurückgegebenen {@link GameEvents} in Nachrichten,
+ * Journaleinträge, Metriken und den Zug-Timer um.
+ */
+public class GameRoom {
+    /** Maximale Anzahl Befehle pro Durchlauf, damit ein voller Raum andere nicht aushungert. */
+    private static final int MAILBOX_BATCH = 64;
+    /** Gefundene Karten pro REVEALED-Nachricht, damit auch große Felder unter der Frame-Grenze bleiben. */
+    private static final int REVEALED_CHUNK = 2048;
+    /** Mindestens so viel Zugzeit bleibt dem Spieler am Zug, wenn ein ruhendes Spiel weitergeht. */
+    private static final int MIN_RESUMED_TURN_MS = 5000;
+
+    private final int id;
+    private final Matchmaker matchmaker;
+    private final Journal journal;
+    private final Executor executor;
+    private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final List<ClientConnection> clients = new ArrayList<>();
+    /** Zuschauer dieses Raums; wird mit dem ersten {@code WATCH} angelegt, sonst null. */
+    private SpectatorFeed spectators;
+    private final ChatChannel chat;
+    private final GameState gameState = new GameState();
+    private final GameEngine engine;
+    private boolean gameStarted = false;
+    private boolean gameOver = false;
+    /** Wiederhergestelltes Spiel, das auf seine Spieler wartet: keine Flips, kein Zug-Timer. */
+    private boolean suspended = false;
+    /** Verbliebene Zugzeit des ruhenden Spiels. */
+    private int suspendedTurnMillis;
+    /** Sitzungstokens der Spieler (Spieler-ID -> Token) in Beitrittsreihenfolge. */
+    private final Map<Integer, String> seatTokens = new LinkedHashMap<>();
+    /** Zug-Timer dieses Raums; wird mit dem ersten Zug angelegt und danach für jeden Zug neu geplant. */
+    private TimingWheel.Timeout turnTimer;
+    /** Computergegner auf Plätzen dieses Raums (nicht in {@link #clients}). */
+    private final List<BotPlayer> bots = new ArrayList<>(0);
+    /** Taktet die Karten der Computergegner; wird mit dem ersten Bot angelegt. */
+    private TimingWheel.Timeout botTimer;
+    /** Im aktuellen Mailbox-Durchlauf abgelegte, noch nicht zum Schreiben freigegebene Nachrichten. */
+    private int unflushedMessages = 0;
+
+    public GameRoom(int id, Matchmaker matchmaker, Executor executor) {
+        this.id = id;
+        this.matchmaker = matchmaker;
+        this.journal = matchmaker.getJournal();
+        this.executor = executor;
+        this.chat = new ChatChannel(matchmaker);
+        this.engine = new GameEngine(gameState, matchmaker.getTurnMillis(), System::nanoTime);
+    }
+
+    /**
+     * Stellt ein laufendes Spiel aus einem Schnappschuss wieder her. Der Raum ruht, bis die Spieler mit
+     * {@code REJOIN} zurück sind; erreichbar wird er erst mit {@link #awaitRecovery()}.
+     */
+    GameRoom(RoomSnapshot snapshot, Matchmaker matchmaker, Executor executor) {
+        this(snapshot.roomId(), matchmaker, executor);
+        List<Player> players = new ArrayList<>(snapshot.seats().size());
+        for (RoomSnapshot.Seat seat : snapshot.seats()) {
+            players.add(new Player(seat.playerId(), seat.name(), seat.score()));
+            if (seat.token().isEmpty()) {
+                bots.add(matchmaker.newBot(seat.playerId(), seat.name()));
+            } else {
+                seatTokens.put(seat.playerId(), seat.token());
+            }
+        }
+        ServerMetrics.botsJoined(bots.size());
+        engine.restore(Board.restore(snapshot.cardIds(), snapshot.matchedBits()), players,
+                snapshot.currentPlayerIndex(), snapshot.firstSelectedIndex(), snapshot.remainingTurnMillis());
+        gameStarted = true;
+        suspended = true;
+        suspendedTurnMillis = snapshot.remainingTurnMillis();
+        journalRestore(players, snapshot);
+        ServerMetrics.gameStarted();
+    }
+
+    /**
+     * Macht einen wiederhergestellten Raum für {@code REJOIN} erreichbar und startet die Frist, nach der er
+     * ohne die fehlenden Spieler weitergeht. Erst nach dem Konstruktor aufrufen, damit kein anderer Thread einen
+     * halb aufgebauten Raum sieht.
+     */
+    void awaitRecovery() {
+        matchmaker.registerSeats(this, seatTokens.values());
+        matchmaker.schedule(() -> tell(this::recoveryExpired), Matchmaker.RECOVERY_GRACE_MS);
+    }
+
+    /** Trägt Plätze, Feld und Punktestände des fortgesetzten Spiels ins Journal ein (es beginnt ohne START). */
+    private void journalRestore(List<Player> players, RoomSnapshot snapshot) {
+        if (!journal.isEnabled()) return;
+        int[] playerIds = new int[players.size()];
+        int[] scores = new int[players.size()];
+        for (int i = 0; i < players.size(); i++) {
+            playerIds[i] = players.get(i).getId();
+            scores[i] = players.get(i).getScore();
+        }
+        // RESTORE zuerst: so ordnet der JournalReader den Raum der Partie aus dem vorigen Lauf zu
+        journal.restore(id, matchmaker.getTurnMillis(), players.get(snapshot.currentPlayerIndex()).getId(),
+                snapshot.cardIds(), playerIds, scores);
+        for (Player p : players) {
+            journal.join(id, p.getId(), p.getName());
+        }
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Legt einen Befehl in die Mailbox und sorgt dafür, dass der Raum auf dem Executor abgearbeitet wird.
+     * Darf von jedem Thread aufgerufen werden und blockiert nie.
+     */
+    void tell(Runnable command) {
+        mailbox.add(command);
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drainMailbox);
+        }
+    }
+
+    /** Wie {@link #tell(Runnable)}, misst zusätzlich die Zeit vom Eingang bis zum Ende der Verarbeitung. */
+    private void tell(ServerMetrics.Command type, Runnable command) {
+        long received = System.nanoTime();
+        tell(() -> {
+            command.run();
+            ServerMetrics.commandHandled(type, received);
+        });
+    }
+
+    /**
+     * Arbeitet bis zu {@link #MAILBOX_BATCH} Befehle ab und plant sich neu ein, falls noch welche warten.
+     * Die dabei erzeugten Nachrichten werden erst am Ende des Durchlaufs zum Schreiben freigegeben, so dass
+     * z.B. FLIP, MATCH und TURN eines Zuges pro Client in einem Schreibvorgang hinausgehen.
+     */
+    private void drainMailbox() {
+        Runnable command;
+        int processed = 0;
+        while (processed < MAILBOX_BATCH && (command = mailbox.poll()) != null) {
+            int before = unflushedMessages;
+            try {
+                command.run();
+            } catch (RuntimeException e) {
+                // Ein fehlerhafter Befehl darf den Raum nicht blockieren
+                e.printStackTrace();
+            }
+            if (unflushedMessages > before) {
+                TransportStats.actionProcessed();
+            }
+            processed++;
+        }
+        flushClients();
+        scheduled.set(false);
+        if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drainMailbox);
+        }
+    }
+
+    /**
+     * Nimmt einen Spieler in die Lobby auf. Ist der Raum inzwischen gestartet oder voll, wird der Spieler
+     * an den Matchmaker zurückgegeben, der ihn einem neuen Raum zuweist.
+     */
+    public void join(ClientConnection client) {
+        tell(ServerMetrics.Command.JOIN, () -> addPlayer(client));
+    }
+
+    /** Befehl aus der Mailbox: Flip eines Spielers. */
+    public void handleFlip(int playerId, int index) {
+        // Häufigster Befehl: Messung direkt im Lambda, ohne zusätzliches Objekt wie in tell(Command, ...)
+        long received = System.nanoTime();
+        tell(() -> {
+            flip(playerId, index);
+            ServerMetrics.commandHandled(ServerMetrics.Command.FLIP, received);
+        });
+    }
+
+    /** Chatnachricht eines Spielers an alle im Raum; geht nicht durch die Mailbox. */
+    void chat(ClientConnection from, String text) {
+        chat.post(ServerMessage.chat(from.getPlayerId(), from.getPlayerName(), text));
+    }
+
+    /** Befehl aus der Mailbox: Bestenliste an einen Client schicken. */
+    void showTop(ClientConnection client, int count) {
+        tell(ServerMetrics.Command.TOP, () -> client.send(ServerMessage.top(matchmaker.getLeaderboard().top(count))));
+    }
+
+    /** Befehl aus der Mailbox: Rang eines Clients schicken. */
+    void showRank(ClientConnection client) {
+        tell(ServerMetrics.Command.RANK, () -> {
+            Leaderboard leaderboard = matchmaker.getLeaderboard();
+            int playerId = client.getPlayerId();
+            client.send(ServerMessage.rank(leaderboard.getRank(playerId), leaderboard.getScore(playerId),
+                    leaderboard.size()));
+        });
+    }
+
+    /** Befehl aus der Mailbox: Spielstart (z.B. nach Ablauf der Lobby-Wartezeit). */
+    public void startGame() {
+        tell(ServerMetrics.Command.START, this::start);
+    }
+
+    /** Befehl aus der Mailbox: Wartezeit der Lobby ist um, freie Plätze mit Computergegnern besetzen. */
+    void fillWithBots() {
+        tell(ServerMetrics.Command.START, this::addBots);
+    }
+
+    /** Befehl aus der Mailbox: Client hat die Verbindung verloren oder wechselt den Raum. */
+    public void removeClient(ClientConnection client) {
+        // ID jetzt festhalten: bei REJOIN übernimmt der Client gleich die ID seines alten Platzes
+        int playerId = client.getPlayerId();
+        tell(ServerMetrics.Command.LEAVE, () -> remove(client, playerId));
+    }
+
+    /** Befehl aus der Mailbox: Client nimmt mit seinem Sitzungstoken seinen Platz wieder ein. */
+    void resume(ClientConnection client, String token) {
+        tell(ServerMetrics.Command.JOIN, () -> takeSeat(client, token));
+    }
+
+    /** Befehl aus der Mailbox: Client verfolgt das Spiel als Zuschauer. */
+    void watch(ClientConnection client) {
+        tell(ServerMetrics.Command.WATCH, () -> addSpectator(client));
+    }
+
+    /**
+     * Befehl aus der Mailbox: Spielstand für den Schnappschuss.
+     * @return Future mit dem Stand oder null, wenn der Raum kein laufendes Spiel hat
+     */
+    CompletableFuture<RoomSnapshot> snapshot() {
+        CompletableFuture<RoomSnapshot> result = new CompletableFuture<>();
+        tell(() -> result.complete(gameStarted && !gameOver ? capture() : null));
+        return result;
+    }
+
+    /**
+     * Fügt einen Spieler in die Lobby dieses Raums ein und verschickt die aktualisierte Spielerliste.
+     * Mit dem zweiten Spieler wird der verzögerte Start geplant, bei voller Lobby sofort gestartet.
+     */
+    private void addPlayer(ClientConnection client) {
+        if (gameStarted || gameOver || gameState.getPlayers().size() >= MemoryRushServer.MAX_PLAYERS) {
+            matchmaker.rejoin(client, this);
+            return;
+        }
+        // Identität vor enterRoom lesen: danach kann REJOIN sie jederzeit ändern
+        int playerId = client.getPlayerId();
+        String playerName = client.getPlayerName();
+        if (!client.enterRoom(this)) {
+            // Client hat inzwischen per REJOIN seinen Platz in einem laufenden Spiel eingenommen
+            return;
+        }
+        gameState.getPlayers().add(new Player(playerId, playerName));
+        seatTokens.put(playerId, client.getSessionToken());
+        clients.add(client);
+        chat.join(client);
+        journal.join(id, playerId, playerName);
+        if (client.isDisconnected()) {
+            // Verbindung ist schon vor der Aufnahme abgebrochen
+            remove(client, playerId);
+            return;
+        }
+        broadcast(ServerMessage.players(gameState.getPlayers()));
+        int players = gameState.getPlayers().size();
+        if (players == 1 && matchmaker.getBotSeats() > 0) {
+            matchmaker.schedule(this::fillWithBots, matchmaker.getBotWaitMillis());
+        }
+        if (players == 2) {
+            matchmaker.schedule(this::startGame, Matchmaker.START_DELAY_MS);
+        }
+        if (players == MemoryRushServer.MAX_PLAYERS) {
+            start();
+        }
+    }
+
+    /**
+     * Startet das Memory-Spiel: mischt die Karten, benachrichtigt die Spieler und beginnt mit dem ersten Zug.
+     */
+    private void start() {
+        if (gameStarted || gameOver || gameState.getPlayers().size() < 2) return;
+        gameStarted = true;
+        ServerMetrics.gameStarted();
+        System.out.println("Raum " + id + ": Spiel startet mit Spielern: " + gameState.getPlayerNames());
+        matchmaker.roomStarted(this);
+        matchmaker.registerSeats(this, seatTokens.values());
+        // Abwesende (nicht verbundene) Spieler überspringt die Engine beim Zugwechsel
+        engine.setPresence(this::isConnected);
+        // Kartendeck initialisieren und mischen (Standard: 16 Paare = 32 Karten)
+        publish(engine.start(matchmaker.getPairs(), ThreadLocalRandom.current().nextLong()));
+    }
+
+    /**
+     * Füllt die Lobby bis {@link Matchmaker#getBotSeats()} mit Computergegnern auf und startet das Spiel.
+     * Ohne menschlichen Spieler (alle wieder gegangen) passiert nichts.
+     */
+    private void addBots() {
+        if (gameStarted || gameOver || clients.isEmpty()) return;
+        int added = 0;
+        while (gameState.getPlayers().size() < matchmaker.getBotSeats()) {
+            BotPlayer bot = matchmaker.newBot();
+            bots.add(bot);
+            gameState.getPlayers().add(new Player(bot.getPlayerId(), bot.getName()));
+            journal.join(id, bot.getPlayerId(), bot.getName());
+            added++;
+        }
+        if (added == 0) return;
+        ServerMetrics.botsJoined(added);
+        System.out.println("Raum " + id + ": " + added + " Computergegner aufgenommen.");
+        broadcast(ServerMessage.players(gameState.getPlayers()));
+        start();
+    }
+
+    /**
+     * Setzt die Ereignisse eines Engine-Aufrufs um: Journal, Metriken und Nachrichten an alle Clients; bei
+     * jedem Zugwechsel wird der Zug-Timer neu geplant (ersetzt die Deadline des vorigen Zuges).
+     */
+    private void publish(GameEvents events) {
+        List<Player> players = gameState.getPlayers();
+        for (int i = 0; i < events.size(); i++) {
+            Player player = events.playerIndex(i) >= 0 ? players.get(events.playerIndex(i)) : null;
+            switch (events.type(i)) {
+                case START -> {
+                    if (journal.isEnabled()) {
+                        journal.start(id, matchmaker.getTurnMillis(), gameState.getBoard().cardIds());
+                    }
+                    broadcast(ServerMessage.start(events.cardIndex(i), matchmaker.getTurnMillis()));
+                }
+                case TURN -> {
+                    if (events.skipped(i) > 0) ServerMetrics.turnSkipped(events.skipped(i));
+                    journal.turn(id, player.getId());
+                    broadcast(ServerMessage.turn(player));
+                    scheduleTurnTimer(matchmaker.getTurnMillis());
+                    scheduleBotMove();
+                }
+                case FLIP -> {
+                    ServerMetrics.flipped();
+                    journal.flip(id, player.getId(), events.cardIndex(i), events.cardId(i));
+                    broadcast(ServerMessage.flip(events.cardIndex(i), events.cardId(i)));
+                    for (BotPlayer bot : bots) {
+                        bot.observe(events.cardIndex(i), events.cardId(i));
+                    }
+                }
+                case MATCH -> {
+                    // Computergegner kommen nicht in die Bestenliste
+                    if (bot(player.getId()) == null) {
+                        matchmaker.getLeaderboard().addPoints(player.getId(), player.getName(), 1);
+                    }
+                    journal.match(id, player.getId(), events.cardIndex(i), events.secondIndex(i));
+                    broadcast(ServerMessage.match(player, events.cardIndex(i), events.secondIndex(i)));
+                }
+                case NOMATCH -> {
+                    journal.noMatch(id, player.getId(), events.cardIndex(i), events.secondIndex(i));
+                    broadcast(ServerMessage.noMatch(player, events.cardIndex(i), events.secondIndex(i)));
+                }
+                case TIMEOUT -> {
+                    journal.timeout(id, player.getId(), events.cardIndex(i));
+                    broadcast(ServerMessage.timeout(player, events.cardIndex(i)));
+                }
+                case GAMEOVER -> finishGame();
+            }
+        }
+    }
+
+    /**
+     * Setzt einen Spieler auf seinen reservierten Platz und schickt ihm den Spielstand. Eine noch bestehende
+     * alte Verbindung desselben Spielers wird getrennt. Sind alle Plätze eines ruhenden Spiels wieder
+     * besetzt, geht es weiter.
+     */
+    private void takeSeat(ClientConnection client, String token) {
+        Player player = null;
+        for (Player p : gameState.getPlayers()) {
+            if (token.equals(seatTokens.get(p.getId()))) player = p;
+        }
+        if (player == null || gameOver) {
+            // Spiel ist inzwischen vorbei: als neuer Spieler in die Lobby
+            client.leaveRoom(this);
+            clients.remove(client);
+            client.send(ServerMessage.error("Sitzung abgelaufen, das Spiel ist beendet"));
+            matchmaker.join(client);
+            return;
+        }
+        boolean away = true;
+        for (ClientConnection other : clients) {
+            if (other != client && other.getPlayerId() == player.getId()) {
+                clients.remove(other);
+                chat.leave(other);
+                other.leaveRoom(this);
+                other.close();
+                away = false;
+                break;
+            }
+        }
+        if (away && !suspended && !clients.contains(client)) {
+            broadcast(ServerMessage.back(player));
+        }
+        if (spectators != null) spectators.remove(client);
+        client.assumeSeat(player.getId(), player.getName(), token);
+        if (!clients.contains(client)) clients.add(client);
+        chat.join(client);
+        journal.join(id, player.getId(), player.getName());
+        System.out.println("Raum " + id + ": " + player.getName() + " ist wieder da.");
+        client.enqueue(ServerMessage.name(player.getId(), player.getName()));
+        client.enqueue(ServerMessage.session(token));
+        client.enqueue(ServerMessage.players(gameState.getPlayers()));
+        sendState(client);
+        if (suspended && clients.size() + bots.size() == gameState.getPlayers().size()) {
+            resumeGame();
+        }
+    }
+
+    /** Legt STATE und die gefundenen Karten für einen Client ab. */
+    private void sendState(ClientConnection client) {
+        for (ServerMessage message : stateMessages()) {
+            client.enqueue(message);
+        }
+        unflushedMessages++;
+    }
+
+    /** STATE, die gefundenen Karten als REVEALED in Stücken und AWAY für jeden abwesenden Spieler. */
+    private List<ServerMessage> stateMessages() {
+        List<ServerMessage> messages = new ArrayList<>();
+        messages.add(stateMessage());
+        Board board = gameState.getBoard();
+        int[] chunk = new int[2 * REVEALED_CHUNK];
+        int n = 0;
+        for (int i = 0; i < board.size(); i++) {
+            if (!board.isMatched(i)) continue;
+            chunk[n++] = i;
+            chunk[n++] = board.cardId(i);
+            if (n == chunk.length) {
+                messages.add(ServerMessage.revealed(chunk));
+                chunk = new int[chunk.length];
+                n = 0;
+            }
+        }
+        if (n > 0) messages.add(ServerMessage.revealed(Arrays.copyOf(chunk, n)));
+        if (!suspended) {
+            for (Player p : gameState.getPlayers()) {
+                if (!isConnected(p.getId())) messages.add(ServerMessage.away(p));
+            }
+        }
+        return messages;
+    }
+
+    /** Nimmt einen Zuschauer auf; er bekommt Spielerliste und Spielstand, danach alle Spielnachrichten. */
+    private void addSpectator(ClientConnection client) {
+        if (!gameStarted || gameOver) {
+            client.leaveRoom(this);
+            client.send(ServerMessage.error("Spiel in Raum " + id + " ist bereits beendet"));
+            return;
+        }
+        List<ServerMessage> intro = new ArrayList<>();
+        intro.add(ServerMessage.players(gameState.getPlayers()));
+        intro.addAll(stateMessages());
+        if (spectators == null) spectators = new SpectatorFeed(this, matchmaker, chat);
+        spectators.add(client, intro);
+    }
+
+    private ServerMessage stateMessage() {
+        Board board = gameState.getBoard();
+        int open = gameState.getFirstSelectedIndex();
+        return ServerMessage.state(board.size(), matchmaker.getTurnMillis(),
+                gameState.getPlayers().get(gameState.getCurrentPlayerIndex()), remainingTurnMillis(), open,
+                open >= 0 ? board.cardId(open) : 0, gameState.getPlayers());
+    }
+
+    private int remainingTurnMillis() {
+        if (suspended) return suspendedTurnMillis;
+        return engine.remainingTurnMillis();
+    }
+
+    /** Setzt ein ruhendes Spiel mit der verbliebenen Zugzeit fort und gleicht die Countdowns aller Clients an. */
+    private void resumeGame() {
+        suspended = false;
+        engine.setPresence(this::isConnected);
+        int millis = Math.max(suspendedTurnMillis, MIN_RESUMED_TURN_MS);
+        engine.resumeTurn(millis);
+        scheduleTurnTimer(millis);
+        broadcast(stateMessage());
+        for (Player p : gameState.getPlayers()) {
+            if (!isConnected(p.getId())) broadcast(ServerMessage.away(p));
+        }
+        System.out.println("Raum " + id + ": Spiel geht weiter.");
+        scheduleBotMove();
+        skipTurnIfAway();
+    }
+
+    /** Die Wartezeit eines wiederhergestellten Spiels ist um: ohne Spieler schließen, sonst weiterspielen. */
+    private void recoveryExpired() {
+        if (!suspended || gameOver) return;
+        if (clients.isEmpty()) {
+            System.out.println("Raum " + id + ": kein Spieler zurückgekehrt, Spiel wird verworfen.");
+            close();
+        } else {
+            resumeGame();
+        }
+    }
+
+    private RoomSnapshot capture() {
+        List<RoomSnapshot.Seat> seats = new ArrayList<>(gameState.getPlayers().size());
+        for (Player p : gameState.getPlayers()) {
+            // Computergegner ohne Token; beim Wiederherstellen werden sie wieder zu Bots
+            String token = seatTokens.getOrDefault(p.getId(), "");
+            seats.add(new RoomSnapshot.Seat(p.getId(), p.getName(), p.getScore(), token));
+        }
+        Board board = gameState.getBoard();
+        return new RoomSnapshot(id, remainingTurnMillis(), gameState.getCurrentPlayerIndex(),
+                gameState.getFirstSelectedIndex(), seats, board.cardIds(), board.matchedBits());
+    }
+
+    /**
+     * Wird über die Mailbox vom Zug-Timer ausgelöst: deckt eine offene Karte wieder zu und gibt den Zug weiter.
+     */
+    private void turnTimedOut() {
+        if (!gameStarted || gameOver || suspended) return;
+        // Ein Timeout, der noch zu einem früheren Zug gehört, endet vor der aktuellen Deadline: keine Ereignisse
+        GameEvents events = engine.timeout();
+        if (events.isEmpty()) return;
+        ServerMetrics.turnTimedOut();
+        publish(events);
+    }
+
+    /** Gibt den Zug sofort weiter, wenn der Spieler am Zug nicht verbunden ist. */
+    private void skipTurnIfAway() {
+        if (!gameStarted || gameOver || suspended || clients.isEmpty()) return;
+        Player player = gameState.getPlayers().get(gameState.getCurrentPlayerIndex());
+        if (isConnected(player.getId())) return;
+        publish(engine.skipTurn());
+    }
+
+    /**
+     * Ob der Spieler gerade mit einer Verbindung im Raum sitzt oder ein Computergegner ist (höchstens
+     * {@link MemoryRushServer#MAX_PLAYERS}).
+     */
+    private boolean isConnected(int playerId) {
+        for (ClientConnection client : clients) {
+            if (client.getPlayerId() == playerId) return true;
+        }
+        return bot(playerId) != null;
+    }
+
+    /** Gibt die Bestenlisten-Einträge der Spieler frei, die nicht mehr verbunden sind (Spiel ist vorbei). */
+    private void retireAbsentPlayers() {
+        Leaderboard leaderboard = matchmaker.getLeaderboard();
+        for (Player p : gameState.getPlayers()) {
+            if (!isConnected(p.getId())) leaderboard.retire(p.getId());
+        }
+    }
+
+    private BotPlayer bot(int playerId) {
+        for (BotPlayer bot : bots) {
+            if (bot.getPlayerId() == playerId) return bot;
+        }
+        return null;
+    }
+
+    /** Ist ein Computergegner am Zug, deckt er nach seiner Bedenkzeit die nächste Karte auf. */
+    private void scheduleBotMove() {
+        if (bots.isEmpty() || suspended) return;
+        if (bot(gameState.getPlayers().get(gameState.getCurrentPlayerIndex()).getId()) == null) return;
+        if (botTimer == null) {
+            Runnable move = this::botMove;
+            botTimer = matchmaker.newTurnTimer(() -> tell(move));
+        }
+        botTimer.schedule(matchmaker.nextBotThinkMillis());
+    }
+
+    /** Bot-Timer ist abgelaufen: der Computergegner am Zug wählt eine Karte, wie ein Flip eines Clients. */
+    private void botMove() {
+        if (!gameStarted || gameOver || suspended) return;
+        BotPlayer bot = bot(gameState.getPlayers().get(gameState.getCurrentPlayerIndex()).getId());
+        if (bot == null) return;
+        Board board = gameState.getBoard();
+        int open = gameState.getFirstSelectedIndex();
+        flip(bot.getPlayerId(), open < 0 ? bot.chooseFirst(board) : bot.chooseSecond(board, open));
+        // Nach der ersten Karte bleibt er am Zug; die zweite folgt nach erneuter Bedenkzeit
+        if (!gameOver && gameState.getFirstSelectedIndex() >= 0) scheduleBotMove();
+    }
+
+    /** Meldet die Computergegner ab, wenn das Spiel endet oder der Raum schließt. */
+    private void dismissBots() {
+        if (botTimer != null) botTimer.cancel();
+        ServerMetrics.botsLeft(bots.size());
+        bots.clear();
+    }
+
+    private void scheduleTurnTimer(int millis) {
+        if (turnTimer == null) {
+            Runnable timedOut = this::turnTimedOut;
+            turnTimer = matchmaker.newTurnTimer(() -> tell(timedOut));
+        }
+        turnTimer.schedule(millis);
+    }
+
+    private void cancelTurnTimer() {
+        if (turnTimer != null) turnTimer.cancel();
+    }
+
+    /**
+     * Sendet eine Nachricht an alle Clients dieses Raums. Geschrieben wird erst nach dem Mailbox-Durchlauf.
+     */
+    private void broadcast(ServerMessage message) {
+        long begin = System.nanoTime();
+        for (ClientConnection client : clients) {
+            client.enqueue(message);
+        }
+        if (spectators != null) spectators.publish(message);
+        unflushedMessages++;
+        ServerMetrics.broadcast(System.nanoTime() - begin);
+    }
+
+    /** Gibt die im Durchlauf abgelegten Nachrichten aller Clients an die Transporte weiter. */
+    private void flushClients() {
+        boolean spectatorsPending = spectators != null && spectators.hasUnflushed();
+        if (unflushedMessages == 0 && !spectatorsPending) return;
+        long begin = System.nanoTime();
+        if (unflushedMessages > 0) {
+            unflushedMessages = 0;
+            for (ClientConnection client : clients) {
+                client.messageQueued();
+            }
+        }
+        if (spectatorsPending) spectators.flush();
+        ServerMetrics.flushed(System.nanoTime() - begin);
+    }
+
+    /**
+     * Verarbeitet einen Flip-Befehl (Kartenaufdeck-Aktion) von einem Spieler dieses Raums.
+     * @param playerId ID des Spielers, der die Karte aufdeckt
+     * @param index Index der Karte, die aufgedeckt werden soll
+     */
+    private void flip(int playerId, int index) {
+        if (!gameStarted || gameOver || suspended) return;
+        // Nicht am Zug, ungültige oder schon gefundene Karte: die Engine liefert keine Ereignisse
+        publish(engine.flip(playerId, index));
+    }
+
+    /**
+     * Ermittelt die Gewinner, verschickt GAMEOVER und meldet den Raum beim Matchmaker ab.
+     */
+    private void finishGame() {
+        gameOver = true;
+        ServerMetrics.gameEnded();
+        cancelTurnTimer();
+        // Gewinner ermitteln (höchste Punktzahl, bei Gleichstand mehrere)
+        List<Player> winners = gameState.getWinners();
+        journal.gameOver(id, winners.stream().mapToInt(Player::getId).toArray());
+        broadcast(ServerMessage.gameOver(winners));
+        retireAbsentPlayers();
+        dismissBots();
+        if (spectators != null) spectators.close();
+        matchmaker.releaseSeats(seatTokens.values());
+        matchmaker.roomClosed(this);
+    }
+
+    /**
+     * Entfernt einen Client (z.B. bei Verbindungsverlust) aus dem Raum.
+     * Vor Spielbeginn wird auch der Spieler aus der Lobby entfernt; ein leerer Raum wird geschlossen.
+     */
+    private void remove(ClientConnection client, int playerId) {
+        // Zuschauer, schon ersetzt (REJOIN) oder nie aufgenommen
+        chat.leave(client);
+        if (!clients.remove(client)) {
+            if (spectators != null) spectators.remove(client);
+            return;
+        }
+        journal.leave(id, playerId);
+        // Nach Spielende ändern sich seine Punkte nicht mehr, und fragen kann er ohne Verbindung auch nicht
+        if (gameOver) matchmaker.getLeaderboard().retire(playerId);
+        if (!gameStarted) {
+            gameState.getPlayers().removeIf(p -> p.getId() == playerId);
+            seatTokens.remove(playerId);
+            broadcast(ServerMessage.players(gameState.getPlayers()));
+        }
+        // Laufendes Spiel: Platz bleibt für REJOIN reserviert, die anderen spielen ohne Wartezeit weiter
+        if (gameStarted && !gameOver && !suspended && !clients.isEmpty()) {
+            for (Player p : gameState.getPlayers()) {
+                if (p.getId() == playerId) broadcast(ServerMessage.away(p));
+            }
+            skipTurnIfAway();
+        }
+        // Nach GAMEOVER ist der Raum schon abgemeldet; ein ruhendes Spiel wartet bis recoveryExpired
+        if (clients.isEmpty() && !gameOver && !suspended) {
+            close();
+        }
+    }
+
+    /** Schließt den Raum ohne Ergebnis (alle Spieler weg). */
+    private void close() {
+        if (gameStarted) ServerMetrics.gameEnded();
+        gameOver = true;
+        engine.abort();
+        cancelTurnTimer();
+        retireAbsentPlayers();
+        dismissBots();
+        if (spectators != null) spectators.close();
+        matchmaker.releaseSeats(seatTokens.values());
+        matchmaker.roomClosed(this);
+    }
+}
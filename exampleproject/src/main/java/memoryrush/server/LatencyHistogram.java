@@ -0,0 +1,82 @@
+package memoryrush.server;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logarithmisches Latenz-Histogramm mit 16 Unterteilungen pro Zweierpotenz (etwa 6 % Auflösung); die
+ * Einheit bestimmt der Aufrufer (Server: Nanosekunden, Lastgenerator: Mikrosekunden). Aufzeichnen ist
+ * lock-frei und darf aus beliebig vielen Threads passieren; der Speicherbedarf ist unabhängig von der
+ * Anzahl der Messwerte.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts.incrementAndGet(index(value));
+        sum.add(value);
+    }
+
+    /** Summe aller aufgezeichneten Werte (für den Mittelwert bzw. Prometheus {@code _sum}). */
+    public long sum() {
+        return sum.sum();
+    }
+
+    /** Aktuelle Zählerstände; die Differenz zweier Schnappschüsse ergibt ein Intervall. */
+    public long[] snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return copy;
+    }
+
+    public static long[] difference(long[] now, long[] before) {
+        long[] diff = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            diff[i] = now[i] - before[i];
+        }
+        return diff;
+    }
+
+    public static long count(long[] snapshot) {
+        long total = 0;
+        for (long c : snapshot) total += c;
+        return total;
+    }
+
+    /** Obere Grenze des Buckets, in dem das Perzentil {@code p} (0..1) liegt. */
+    public static long percentile(long[] snapshot, double p) {
+        long total = count(snapshot);
+        if (total == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return i + 1 < BUCKETS ? lowerBound(i + 1) - 1 : Long.MAX_VALUE;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = index % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+    }
+}
@@ -0,0 +1,162 @@
+package memoryrush.server;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Serverweite Bestenliste über alle Räume und Spiele. Jeder {@code MATCH} wird sofort eingetragen,
+ * ohne globales Lock:
+ * <ul>
+ *   <li>Punkte pro Spieler in einer {@link ConcurrentHashMap} (ein kleines Objekt je Spieler),</li>
+ *   <li>Anzahl Spieler je Punktestand in einem lock-freien Fenwick-Baum, damit der Rang eines Spielers
+ *       in O(log n) berechnet wird, egal wie viele Spieler erfasst sind,</li>
+ *   <li>die besten {@link #TOP_K} Spieler in einer sortierten {@link ConcurrentSkipListSet}.</li>
+ * </ul>
+ * Abfragen sind schwach konsistent: Während gleichzeitiger Updates kann ein Rang kurz um einen Platz
+ * abweichen. Punktestände über {@link #MAX_TRACKED_SCORE} teilen sich beim Rang den obersten Platz.
+ * <p>
+ * Aufbewahrung: Erfasst wird jeder Spieler, der seit dem Serverstart gepunktet hat; im Fenwick-Baum und in
+ * der Bestenliste zählt er bis zum Neustart mit. Seinen Eintrag in der Map braucht es dagegen nur, solange
+ * sich seine Punkte noch ändern oder er nach seinem Rang fragen kann. Der Raum gibt ihn mit
+ * {@link #retire(int)} frei, sobald das Spiel vorbei und die Verbindung des Spielers weg ist. Der Speicher
+ * wächst also mit den verbundenen Spielern, nicht mit allen, die je gespielt haben.
+ */
+public final class Leaderboard {
+    /** Anzahl Plätze, die sortiert vorgehalten werden. */
+    public static final int TOP_K = 100;
+    /** Höchster Punktestand mit eigenem Zähler im Fenwick-Baum. */
+    static final int MAX_TRACKED_SCORE = (1 << 16) - 1;
+
+    private static final Comparator<Ranked> ORDER = Comparator.comparingInt(Ranked::score).reversed()
+            .thenComparingInt(Ranked::playerId);
+
+    /** Spieler, deren Punkte sich noch ändern können oder die noch verbunden sind. */
+    private final ConcurrentHashMap<Integer, Entry> players = new ConcurrentHashMap<>();
+    /** Erfasste Spieler insgesamt, einschließlich der schon freigegebenen. */
+    private final AtomicLong tracked = new AtomicLong();
+    /** Fenwick-Baum (1-basiert) über die Anzahl Spieler je Punktestand. */
+    private final AtomicLongArray counts = new AtomicLongArray(MAX_TRACKED_SCORE + 2);
+    private final ConcurrentSkipListSet<Ranked> top = new ConcurrentSkipListSet<>(ORDER);
+    /** Größe von {@link #top}; {@code size()} der Skip-Liste wäre linear. */
+    private final AtomicInteger topCount = new AtomicInteger();
+
+    /** Ein Platz in der Bestenliste. */
+    public record Ranked(int score, int playerId, String name) {
+    }
+
+    private static final class Entry {
+        private static final AtomicIntegerFieldUpdater<Entry> SCORE =
+                AtomicIntegerFieldUpdater.newUpdater(Entry.class, "score");
+        final String name;
+        volatile int score;
+
+        Entry(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Schreibt einem Spieler Punkte gut. Die Punkte eines Spielers werden nur von seinem Raum geändert,
+     * Aufrufe für verschiedene Spieler dürfen beliebig parallel laufen.
+     * @return neuer Gesamtpunktestand
+     */
+    public int addPoints(int playerId, String name, int points) {
+        Entry entry = players.computeIfAbsent(playerId, id -> {
+            addCount(0, 1);
+            tracked.incrementAndGet();
+            return new Entry(name);
+        });
+        int old = Entry.SCORE.getAndAdd(entry, points);
+        int now = old + points;
+        addCount(old, -1);
+        addCount(now, 1);
+        updateTop(new Ranked(old, playerId, entry.name), new Ranked(now, playerId, entry.name));
+        return now;
+    }
+
+    private void updateTop(Ranked old, Ranked now) {
+        if (top.remove(old)) {
+            topCount.decrementAndGet();
+        }
+        Ranked lowest = lowest();
+        if (topCount.get() < TOP_K || lowest == null || ORDER.compare(now, lowest) < 0) {
+            if (top.add(now)) {
+                topCount.incrementAndGet();
+            }
+            while (topCount.get() > TOP_K && top.pollLast() != null) {
+                topCount.decrementAndGet();
+            }
+        }
+    }
+
+    private Ranked lowest() {
+        try {
+            return top.last();
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gibt den Eintrag eines Spielers frei, dessen Punkte feststehen. Sein Punktestand zählt für Ränge und
+     * Bestenliste weiter; {@link #getScore(int)} und {@link #getRank(int)} liefern für ihn danach 0. Wird wie
+     * {@link #addPoints(int, String, int)} nur vom Raum des Spielers aufgerufen.
+     */
+    public void retire(int playerId) {
+        players.remove(playerId);
+    }
+
+    /** Punktestand eines Spielers (0, wenn er noch nie gepunktet hat oder freigegeben ist). */
+    public int getScore(int playerId) {
+        Entry entry = players.get(playerId);
+        return entry == null ? 0 : entry.score;
+    }
+
+    /**
+     * Rang eines Spielers (1 = bester; gleiche Punkte teilen sich den Rang).
+     * @return den Rang oder 0, wenn der Spieler noch keine Punkte hat
+     */
+    public long getRank(int playerId) {
+        Entry entry = players.get(playerId);
+        if (entry == null) return 0;
+        return tracked.get() - countUpTo(entry.score) + 1;
+    }
+
+    /** Anzahl erfasster Spieler seit dem Serverstart. */
+    public long size() {
+        return tracked.get();
+    }
+
+    /** Die besten {@code n} Spieler (höchstens {@link #TOP_K}), absteigend nach Punkten. */
+    public List<Ranked> top(int n) {
+        List<Ranked> result = new ArrayList<>(Math.min(n, TOP_K));
+        for (Ranked r : top) {
+            if (result.size() >= n) break;
+            result.add(r);
+        }
+        return result;
+    }
+
+    private void addCount(int score, long delta) {
+        for (int i = Math.min(score, MAX_TRACKED_SCORE) + 1; i < counts.length(); i += i & -i) {
+            counts.addAndGet(i, delta);
+        }
+    }
+
+    /** Anzahl Spieler mit höchstens diesem Punktestand. */
+    private long countUpTo(int score) {
+        long sum = 0;
+        for (int i = Math.min(score, MAX_TRACKED_SCORE) + 1; i > 0; i -= i & -i) {
+            sum += counts.get(i);
+        }
+        return sum;
+    }
+}
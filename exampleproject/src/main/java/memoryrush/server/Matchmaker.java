@@ -0,0 +1,355 @@
+package memoryrush.server;
+
+import memoryrush.journal.Journal;
+import memoryrush.protocol.NodeRouting;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Verteilt neue Spieler auf Räume. Es gibt immer höchstens einen offenen Raum, der gefüllt wird;
+ * sobald er startet (voll oder nach der Wartezeit), wird für die nächsten Spieler ein neuer Raum eröffnet.
+ * Die Startverzögerung aller Lobbys läuft über einen gemeinsamen Scheduler, die Zug-Timer über ein
+ * {@link TimingWheel}, die Räume selbst als Aktoren auf einem gemeinsamen Executor.
+ * <p>
+ * Außerdem merkt er sich die Sitzungstokens aller Plätze in laufenden Spielen, damit ein Client nach einem
+ * Verbindungsabbruch oder Serverneustart mit {@code REJOIN} an seinen Platz zurückfindet.
+ */
+public class Matchmaker {
+    /** Wartezeit nach dem zweiten Spieler, bevor ein nicht voller Raum startet. */
+    static final long START_DELAY_MS = 5000;
+    /** So lange warten wiederhergestellte Spiele höchstens auf ihre Spieler, bevor sie ohne die übrigen weiterlaufen. */
+    static final long RECOVERY_GRACE_MS = 30000;
+    /** Auflösung der Zug-Timer. */
+    private static final long TURN_TIMER_TICK_MS = 10;
+    /** Fächer des Timing Wheels; 4096 Ticks zu 10 ms decken eine Standard-Zugzeit in einer Umdrehung ab. */
+    private static final int TURN_TIMER_WHEEL_SIZE = 4096;
+
+    private final Map<Integer, GameRoom> rooms = new ConcurrentHashMap<>();
+    /** Räume mit laufendem Spiel, denen Zuschauer beitreten können. */
+    private final Map<Integer, GameRoom> running = new ConcurrentHashMap<>();
+    private final AtomicReference<GameRoom> openRoom = new AtomicReference<>();
+    /** Wird nur zum Eröffnen eines Raums gehalten, damit kein Raum (und keine Raumnummer) umsonst entsteht. */
+    private final Object roomOpening = new Object();
+    private final AtomicInteger roomCounter = new AtomicInteger();
+    private final AtomicInteger playerCounter = new AtomicInteger();
+    /** Sitzungstoken -> Raum des laufenden Spiels, in dem der Platz reserviert ist. */
+    private final Map<String, GameRoom> seats = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "matchmaking");
+        t.setDaemon(true);
+        return t;
+    });
+    /** Führt fällige Timer-Aufgaben aus; im virtuellen Modus je Aufgabe ein virtueller Thread. */
+    private final Executor callbacks;
+    /** Gemeinsamer Executor, auf dem die Mailboxen aller Räume abgearbeitet werden. */
+    private final ExecutorService roomExecutor;
+    private final TimingWheel turnTimers = new TimingWheel("turn-timer", TURN_TIMER_TICK_MS, TURN_TIMER_WHEEL_SIZE);
+    private final int turnMillis;
+    private final int pairs;
+    private final int spectatorDelayMillis;
+    private final int spectatorStateMillis;
+    private final int chatBatchMillis;
+    private final int botSeats;
+    private final int botWaitMillis;
+    private final int botThinkMillis;
+    private final int botMemory;
+    private final double botErrorRate;
+    private final Leaderboard leaderboard = new Leaderboard();
+    private final Journal journal;
+
+    public Matchmaker() {
+        this(new ServerConfig());
+    }
+
+    public Matchmaker(ServerConfig config) {
+        turnMillis = config.getTurnMillis();
+        pairs = config.getPairs();
+        spectatorDelayMillis = config.getSpectatorDelayMs();
+        spectatorStateMillis = config.getSpectatorStateMs();
+        chatBatchMillis = config.getChatBatchMs();
+        botSeats = config.getBotSeats();
+        botWaitMillis = config.getBotWaitMs();
+        botThinkMillis = config.getBotThinkMs();
+        botMemory = config.getBotMemory();
+        botErrorRate = config.getBotErrorRate();
+        // Hinter einem Gateway vergibt jeder Knoten Raum-IDs aus seinem eigenen Bereich
+        roomCounter.set(NodeRouting.firstRoomId(config.getNodeId()));
+        journal = openJournal(config);
+        if (config.getTransport() == ServerConfig.Transport.VIRTUAL) {
+            callbacks = Executors.newVirtualThreadPerTaskExecutor();
+            roomExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        } else {
+            callbacks = Runnable::run;
+            AtomicInteger workerCounter = new AtomicInteger();
+            roomExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                Thread t = new Thread(r, "room-worker-" + workerCounter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private static Journal openJournal(ServerConfig config) {
+        if (config.getJournalDir() == null) return Journal.disabled();
+        try {
+            Journal journal = Journal.open(config.getJournalDir(), config.getJournalSegmentMb() << 20);
+            // Beim Beenden wartende Ereignisse noch schreiben
+            Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "journal-shutdown"));
+            System.out.println("Spieljournal in " + config.getJournalDir().toAbsolutePath());
+            return journal;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Journal kann nicht geöffnet werden", e);
+        }
+    }
+
+    /**
+     * Übergibt einen neu verbundenen Spieler an den aktuell offenen Raum (oder eröffnet einen neuen).
+     * Blockiert nie auf einen Raum: die eigentliche Aufnahme passiert in der Mailbox des Raums. Nur wenn gerade
+     * kein Raum offen ist, warten gleichzeitig Beitretende kurz, bis einer von ihnen den neuen Raum eröffnet hat.
+     */
+    public void join(ClientConnection client) {
+        client.setMatchmaker(this);
+        GameRoom room = openRoom.get();
+        if (room == null) {
+            synchronized (roomOpening) {
+                // Andere setzen den offenen Raum nur auf null zurück, eröffnet wird nur hier
+                room = openRoom.get();
+                if (room == null) {
+                    room = new GameRoom(roomCounter.incrementAndGet(), this, roomExecutor);
+                    rooms.put(room.getId(), room);
+                    openRoom.set(room);
+                }
+            }
+        }
+        room.join(client);
+    }
+
+    /**
+     * Wird von einem Raum aufgerufen, der den Spieler nicht mehr aufnehmen kann (gestartet oder voll).
+     * Der Raum wird als offener Raum verworfen und der Spieler neu zugeteilt.
+     */
+    void rejoin(ClientConnection client, GameRoom fullRoom) {
+        openRoom.compareAndSet(fullRoom, null);
+        join(client);
+    }
+
+    /**
+     * Verarbeitet {@code REJOIN <token>}: Gehört das Token zu einem laufenden Spiel, verlässt der Client
+     * seine Lobby und nimmt dort seinen Platz ein. Sonst erhält er eine Fehlermeldung und bleibt, wo er ist.
+     */
+    void resumeSeat(ClientConnection client, String token) {
+        GameRoom target = seats.get(token);
+        if (target == null) {
+            client.send(ServerMessage.error("Sitzung unbekannt oder abgelaufen"));
+            return;
+        }
+        // Eine noch ausstehende Aufnahme in eine Lobby scheitert danach an enterRoom
+        GameRoom previous = client.moveToRoom(target);
+        if (previous != null && previous != target) {
+            previous.removeClient(client);
+        }
+        target.resume(client, token);
+    }
+
+    /**
+     * Verarbeitet {@code WATCH [raum]}: der Client verlässt seine Lobby und verfolgt das Spiel als Zuschauer.
+     * @param roomId gewünschter Raum oder 0 für irgendein laufendes Spiel
+     */
+    void watch(ClientConnection client, int roomId) {
+        GameRoom current = client.getRoom();
+        if (current != null && running.containsKey(current.getId()) && !client.isSpectator()) {
+            client.send(ServerMessage.error("Im eigenen Spiel kann nicht zugeschaut werden"));
+            return;
+        }
+        GameRoom target = roomId > 0 ? running.get(roomId) : running.values().stream().findAny().orElse(null);
+        if (target == null) {
+            client.send(ServerMessage.error(roomId > 0 ? "Kein laufendes Spiel in Raum " + roomId
+                    : "Kein laufendes Spiel"));
+            return;
+        }
+        client.becomeSpectator();
+        GameRoom previous = client.moveToRoom(target);
+        if (previous != null && previous != target) {
+            previous.removeClient(client);
+        }
+        target.watch(client);
+    }
+
+    /** Vom Raum beim Spielstart bzw. bei der Wiederherstellung: diese Plätze können per REJOIN übernommen werden. */
+    void registerSeats(GameRoom room, Collection<String> tokens) {
+        for (String token : tokens) {
+            seats.put(token, room);
+        }
+    }
+
+    /** Vom Raum am Spielende: die Tokens verfallen. */
+    void releaseSeats(Collection<String> tokens) {
+        for (String token : tokens) {
+            seats.remove(token);
+        }
+    }
+
+    /**
+     * Fordert von allen Räumen ihren Spielstand an; Lobbys und beendete Spiele liefern keinen.
+     * Jeder Raum antwortet aus seiner Mailbox, ohne dass ein Spiel angehalten wird.
+     */
+    CompletableFuture<List<RoomSnapshot>> snapshotRooms() {
+        List<CompletableFuture<RoomSnapshot>> parts = rooms.values().stream().map(GameRoom::snapshot).toList();
+        return CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> parts.stream().map(CompletableFuture::join).filter(Objects::nonNull).toList());
+    }
+
+    /**
+     * Stellt die Spiele eines Schnappschusses wieder her. Die Räume warten, bis ihre Spieler per REJOIN
+     * zurück sind (höchstens {@link #RECOVERY_GRACE_MS}), und setzen das Spiel dann mit der verbliebenen
+     * Zugzeit fort. Die ID-Zähler werden hinter die gesicherten IDs gesetzt, damit neue Spieler und Räume
+     * nicht mit wiederhergestellten zusammenfallen.
+     */
+    void restore(SnapshotStore.Recovered recovered) {
+        playerCounter.accumulateAndGet(recovered.lastPlayerId(), Math::max);
+        roomCounter.accumulateAndGet(recovered.lastRoomId(), Math::max);
+        for (RoomSnapshot snapshot : recovered.rooms()) {
+            GameRoom room = new GameRoom(snapshot, this, roomExecutor);
+            rooms.put(room.getId(), room);
+            running.put(room.getId(), room);
+            room.awaitRecovery();
+        }
+    }
+
+    /** Vergibt die nächste freie Spieler-ID. */
+    int nextPlayerId() {
+        return playerCounter.incrementAndGet();
+    }
+
+    int getLastPlayerId() {
+        return playerCounter.get();
+    }
+
+    int getLastRoomId() {
+        return roomCounter.get();
+    }
+
+    /**
+     * Plant eine Aufgabe auf dem gemeinsamen Scheduler (z.B. Lobby-Start).
+     */
+    ScheduledFuture<?> schedule(Runnable task, long delayMs) {
+        return scheduler.schedule(() -> callbacks.execute(task), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Führt eine Aufgabe nach der Verzögerung auf den Worker-Threads der Räume aus (außerhalb jeder Mailbox). */
+    void scheduleOnWorkers(Runnable task, long delayMs) {
+        scheduler.schedule(() -> roomExecutor.execute(task), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Führt eine Aufgabe sofort auf den Worker-Threads der Räume aus (außerhalb jeder Mailbox). */
+    void executeOnWorkers(Runnable task) {
+        roomExecutor.execute(task);
+    }
+
+    /** Führt eine Aufgabe regelmäßig auf dem gemeinsamen Scheduler aus (z.B. Statusausgabe). */
+    ScheduledFuture<?> scheduleRepeating(Runnable task, long periodMs) {
+        return scheduler.scheduleAtFixedRate(task, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Legt einen Zug-Timer für einen Raum an. Der Handle wird für alle Züge wiederverwendet; die Aufgabe
+     * läuft im Timer-Thread und soll nur einen Befehl an den Raum schicken.
+     */
+    TimingWheel.Timeout newTurnTimer(Runnable task) {
+        return turnTimers.newTimeout(task);
+    }
+
+    /** Serverweite Bestenliste, in die alle Räume ihre Punkte eintragen. */
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    /** Journal aller Spielereignisse (ohne {@code --journal-dir} ein Journal, das nichts schreibt). */
+    public Journal getJournal() {
+        return journal;
+    }
+
+    /** Anzahl Kartenpaare für neue Spiele. */
+    int getPairs() {
+        return pairs;
+    }
+
+    /** Verzögerung des Zuschauerstroms in Millisekunden. */
+    int getSpectatorDelayMillis() {
+        return spectatorDelayMillis;
+    }
+
+    /** Mindestabstand gedrosselter Zustandsmeldungen an Zuschauer in Millisekunden. */
+    int getSpectatorStateMillis() {
+        return spectatorStateMillis;
+    }
+
+    /** Sammelzeit für Chatzeilen eines Raums in Millisekunden. */
+    int getChatBatchMillis() {
+        return chatBatchMillis;
+    }
+
+    /** Bedenkzeit pro Zug in Millisekunden. */
+    int getTurnMillis() {
+        return turnMillis;
+    }
+
+    /** Plätze, auf die eine wartende Lobby mit Computergegnern aufgefüllt wird; 0 = keine. */
+    int getBotSeats() {
+        return botSeats;
+    }
+
+    /** Wartezeit ab dem ersten Spieler einer Lobby, bevor Computergegner dazukommen. */
+    int getBotWaitMillis() {
+        return botWaitMillis;
+    }
+
+    /** Zufällige Bedenkzeit eines Computergegners pro Karte (halbe bis anderthalbfache mittlere Zeit). */
+    int nextBotThinkMillis() {
+        return botThinkMillis / 2 + ThreadLocalRandom.current().nextInt(botThinkMillis + 1);
+    }
+
+    /** Neuer Computergegner mit serverweit eindeutiger Spieler-ID. */
+    BotPlayer newBot() {
+        int playerId = nextPlayerId();
+        return newBot(playerId, "Bot " + playerId);
+    }
+
+    /** Computergegner auf einem wiederhergestellten Platz. */
+    BotPlayer newBot(int playerId, String name) {
+        return new BotPlayer(playerId, name, botMemory, botErrorRate);
+    }
+
+    /** Wird vom Raum beim Spielstart aufgerufen; der Raum nimmt danach keine Spieler mehr auf. */
+    void roomStarted(GameRoom room) {
+        openRoom.compareAndSet(room, null);
+        running.put(room.getId(), room);
+    }
+
+    /** Wird vom Raum aufgerufen, wenn das Spiel beendet oder der Raum leer ist. */
+    void roomClosed(GameRoom room) {
+        openRoom.compareAndSet(room, null);
+        rooms.remove(room.getId());
+        running.remove(room.getId());
+    }
+
+    public int getActiveRoomCount() {
+        return rooms.size();
+    }
+}
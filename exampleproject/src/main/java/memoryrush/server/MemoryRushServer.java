@@ -1,95 +1,55 @@
 package memoryrush.server;
 
-import memoryrush.game.GameState;
-import memoryrush.game.Player;
-import memoryrush.game.Card;
-
 import java.io.*;
+import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.nio.file.Path;
+import java.time.Instant;
 
 /**
- * Server-Klasse für Memory Rush. Verwaltet Client-Verbindungen, Spielzustand und Spielablauf.
+ * Server-Klasse für Memory Rush. Nimmt Client-Verbindungen an und übergibt die Spieler an den Matchmaker,
+ * der sie auf unabhängige Spielräume verteilt. Der Transport (blockierend, virtuelle Threads oder NIO) wird beim Start gewählt.
+ * Vor dem Aufbau jeder Verbindung steht die {@link AcceptStage} mit Verbindungsgrenzen und Join-Warteschlange.
  */
 public class MemoryRushServer {
-    private static final int PORT = 8090;
-    private static final int MAX_PLAYERS = 4;
+    static final int MAX_PLAYERS = 4;
+    /** Abstand der Statusausgabe auf der Konsole. */
+    private static final long STATUS_INTERVAL_MS = 60000;
+    private final ServerConfig config;
     private ServerSocket serverSocket;
-    private final List<ClientHandler> clients = new ArrayList<>();
-    private final GameState gameState = new GameState();
-    private boolean gameStarted = false;
-    private Timer turnTimer = new Timer(true);
-    private TimerTask currentTurnTask;
+    private final Matchmaker matchmaker;
+    private final AcceptStage acceptStage;
+
+    public MemoryRushServer() {
+        this(new ServerConfig());
+    }
+
+    public MemoryRushServer(ServerConfig config) {
+        this.config = config;
+        this.matchmaker = new Matchmaker(config);
+        this.acceptStage = new AcceptStage(config);
+    }
 
     public static void main(String[] args) {
-        MemoryRushServer server = new MemoryRushServer();
+        MemoryRushServer server = new MemoryRushServer(ServerConfig.fromArgs(args));
         server.start();
     }
 
     /**
-     * Startet den Server-Socket und wartet auf eingehende Client-Verbindungen.
-     * Sobald genügend Spieler verbunden sind, wird das Spiel gestartet.
+     * Startet den konfigurierten Transport und wartet auf eingehende Client-Verbindungen.
+     * Jeder neue Spieler wird dem Matchmaker übergeben; die Räume starten ihre Spiele selbstständig.
      */
     public void start() {
+        recover();
+        matchmaker.scheduleRepeating(this::logStatus, STATUS_INTERVAL_MS);
+        acceptStage.start();
         try {
-            serverSocket = new ServerSocket(PORT);
-            System.out.println("Server gestartet auf Port " + PORT + ". Warte auf Spieler...");
-            int playerCount = 0;
-            while (true) {
-                Socket clientSocket = serverSocket.accept();
-                synchronized (this) {
-                    if (gameStarted) {
-                        // Keine neuen Spieler zulassen, wenn das Spiel bereits läuft
-                        PrintWriter tempOut = new PrintWriter(clientSocket.getOutputStream(), true);
-                        tempOut.println("ERROR Game already in progress. Connection closed.");
-                        clientSocket.close();
-                        continue;
-                    }
-                    if (gameState.getPlayers().size() >= MAX_PLAYERS) {
-                        // Lobby ist voll
-                        PrintWriter tempOut = new PrintWriter(clientSocket.getOutputStream(), true);
-                        tempOut.println("ERROR Game lobby full. Connection closed.");
-                        clientSocket.close();
-                        continue;
-                    }
-                    // Neuen Spieler akzeptieren
-                    playerCount++;
-                    String playerName = "Player " + playerCount;
-                    // Spieler zur Spielerliste hinzufügen
-                    Player player = new Player(playerName);
-                    gameState.getPlayers().add(player);
-                    // Handler-Thread für den Client erzeugen und starten
-                    ClientHandler handler = new ClientHandler(this, clientSocket, playerName);
-                    clients.add(handler);
-                    handler.start();
-                    // Aktualisierte Spielerliste an alle Clients senden
-                    broadcast("PLAYERS " + gameState.getPlayerNames());
-                    System.out.println(playerName + " verbunden.");
-                    // Wenn mindestens 2 Spieler verbunden sind, Spielstart planen (oder bei 4 sofort starten)
-                    if (gameState.getPlayers().size() == 2) {
-                        // Starte Spiel nach 5 Sekunden (Wartezeit für evtl. weitere Spieler)
-                        new Thread(() -> {
-                            try {
-                                Thread.sleep(5000);
-                            } catch (InterruptedException ignored) {}
-                            synchronized (MemoryRushServer.this) {
-                                if (!gameStarted && gameState.getPlayers().size() >= 2) {
-                                    startGame();
-                                }
-                            }
-                        }).start();
-                    }
-                    if (gameState.getPlayers().size() == MAX_PLAYERS) {
-                        // Bei Erreichen der Maximalspielerzahl sofort starten
-                        if (!gameStarted) {
-                            startGame();
-                        }
-                    }
-                }
+            new ServerMonitor(matchmaker, config.getNodeId()).start(config.getMetricsPort());
+            if (config.getTransport() == ServerConfig.Transport.NIO) {
+                new NioTransport(this, config).start();
+            } else {
+                startBlocking();
             }
         } catch (IOException e) {
             e.printStackTrace();
@@ -97,217 +57,125 @@ public class MemoryRushServer {
     }
 
     /**
-     * Startet das Memory-Spiel: mischt die Karten, benachrichtigt die Spieler und beginnt mit dem ersten Zug.
+     * Stellt mit {@code --snapshot-file} die Spiele des letzten Schnappschusses wieder her, bevor die ersten
+     * Verbindungen angenommen werden, und schreibt danach regelmäßig neue Schnappschüsse.
      */
-    private synchronized void startGame() {
-        if (gameStarted) return;
-        gameStarted = true;
-        System.out.println("Spiel startet mit Spielern: " + gameState.getPlayerNames());
-        // Kartendeck initialisieren und mischen (z.B. 16 Paare = 32 Karten)
-        gameState.initCards(16);  // 16 Paare => 32 Karten
-        // Wähle Startspieler (z.B. den ersten Spieler in der Liste oder zufällig)
-        int startingIndex = 0;
-        // Optional: Startspieler zufällig bestimmen
-        // startingIndex = new java.util.Random().nextInt(gameState.getPlayers().size());
-        // Signalisiere Spielstart und erste Runde
-        broadcast("START " + gameState.getCards().size());
-        // Ersten Zug bekanntgeben
-        setTurn(startingIndex);
+    private void recover() {
+        Path file = config.getSnapshotFile();
+        if (file == null) return;
+        long begin = System.nanoTime();
+        try {
+            SnapshotStore.Recovered recovered = SnapshotStore.load(file);
+            if (recovered != null) {
+                matchmaker.restore(recovered);
+                System.out.printf("%d Spiele aus dem Schnappschuss vom %s in %.1f ms wiederhergestellt.%n",
+                        recovered.rooms().size(), Instant.ofEpochMilli(recovered.savedAtMillis()),
+                        (System.nanoTime() - begin) / 1e6);
+            }
+        } catch (IOException e) {
+            // Ohne Wiederherstellung starten; der kaputte Schnappschuss wird beim nächsten Schreiben ersetzt
+            System.out.println("Schnappschuss " + file + " nicht lesbar: " + e.getMessage());
+        }
+        new SnapshotStore(file, matchmaker).start(config.getSnapshotIntervalMs());
     }
 
     /**
-     * Legt fest, welcher Spieler am Zug ist, und benachrichtigt alle Clients.
-     * Startet außerdem den 30-Sekunden-Timer für den Zug dieses Spielers.
+     * Blockierender Transport: ein Thread pro Client, je nach Modus als Plattform- oder virtueller Thread.
      */
-    private synchronized void setTurn(int playerIndex) {
-        gameState.setCurrentPlayerIndex(playerIndex);
-        String playerName = gameState.getPlayers().get(playerIndex).getName();
-        broadcast("TURN " + playerName);
-        // Bestehenden Zug-Timer abbrechen
-        if (currentTurnTask != null) {
-            currentTurnTask.cancel();
-        }
-        // Neuen Timer für diesen Zug planen (30 Sekunden)
-        currentTurnTask = new TimerTask() {
-            @Override
-            public void run() {
-                synchronized (MemoryRushServer.this) {
-                    // Prüfen, ob der Spieler noch am Zug ist und kein Zug abgeschlossen wurde
-                    if (gameState.getCurrentPlayerIndex() == playerIndex && !gameState.isTurnCompleted()) {
-                        // Falls ein Karte offen war und die Zeit abläuft, diese Karte zurückdecken
-                        if (gameState.getFirstSelectedIndex() >= 0) {
-                            int idx = gameState.getFirstSelectedIndex();
-                            gameState.setFirstSelectedIndex(-1);
-                            broadcast("TIMEOUT " + playerName + " " + idx);
-                        } else {
-                            broadcast("TIMEOUT " + playerName);
-                        }
-                        // Zum nächsten Spieler wechseln
-                        int nextIndex = (playerIndex + 1) % gameState.getPlayers().size();
-                        setTurn(nextIndex);
+    private void startBlocking() throws IOException {
+        boolean virtual = config.getTransport() == ServerConfig.Transport.VIRTUAL;
+        Thread.Builder threads = virtual ? Thread.ofVirtual() : Thread.ofPlatform();
+        serverSocket = new ServerSocket(config.getPort());
+        System.out.println("Server gestartet auf Port " + config.getPort()
+                + (virtual ? " (virtuelle Threads)" : "") + ". Warte auf Spieler...");
+        while (true) {
+            Socket clientSocket = serverSocket.accept();
+            InetAddress address = clientSocket.getInetAddress();
+            // Der Akzeptor prüft nur Grenzen; aufgebaut wird die Verbindung im Join-Thread
+            ServerMetrics.Rejection rejection = acceptStage.admit(address);
+            if (rejection == null) {
+                rejection = acceptStage.enqueue(address, () -> {
+                    ClientHandler handler = null;
+                    try {
+                        int playerId = nextPlayerId();
+                        handler = new ClientHandler(clientSocket, playerId, playerName(playerId), config);
+                        handler.admittedBy(acceptStage, address);
+                        // Spieler einem Raum zuweisen, danach Lese- und Schreib-Thread starten
+                        playerConnected(handler);
+                        threads.name("client-" + handler.getPlayerName()).start(handler);
+                        threads.name("writer-" + handler.getPlayerName()).start(handler::writeLoop);
+                    } catch (RuntimeException e) {
+                        abandonJoin(handler, address);
+                        closeQuietly(clientSocket);
+                        throw e;
                     }
-                }
+                });
+            }
+            if (rejection != null) {
+                AcceptStage.reject(clientSocket, rejection);
             }
-        };
-        turnTimer.schedule(currentTurnTask, 30000); // 30.000 ms = 30 Sekunden
-        // Markiert, dass ein neuer Zug begonnen hat (noch kein Paar versucht)
-        gameState.setTurnCompleted(false);
+        }
     }
 
     /**
-     * Sendet eine Nachricht an alle verbundenen Clients.
+     * Räumt nach einem gescheiterten Verbindungsaufbau auf: Eine schon erzeugte Verbindung meldet sich
+     * ab (gibt dabei ihren Platz frei und verlässt einen bereits zugeteilten Raum), sonst wird der
+     * reservierte Platz direkt an die Annahme zurückgegeben.
      */
-    public synchronized void broadcast(String message) {
-        for (ClientHandler client : clients) {
-            client.send(message);
+    void abandonJoin(ClientConnection connection, InetAddress address) {
+        if (connection != null) {
+            connection.disconnected();
+        } else {
+            acceptStage.release(address);
         }
     }
 
-    /**
-     * Verarbeitet einen Flip-Befehl (Kartenaufdeck-Aktion) von einem Client/Spieler.
-     * @param playerName Name des Spielers, der die Karte aufdeckt
-     * @param index Index der Karte, die aufgedeckt werden soll
-     */
-    public synchronized void handleFlip(String playerName, int index) {
-        if (!gameStarted) return;
-        // Nur ausführen, falls dieser Spieler gerade am Zug ist
-        Player currentPlayer = gameState.getPlayers().get(gameState.getCurrentPlayerIndex());
-        if (!currentPlayer.getName().equals(playerName)) {
-            // Nicht sein Zug -> ignorieren
-            return;
-        }
-        // Ungültige Indizes oder bereits gefundene Karten ignorieren
-        if (index < 0 || index >= gameState.getCards().size()) return;
-        Card card = gameState.getCards().get(index);
-        if (card.isMatched()) {
-            return;
-        }
-        // Flip-Verarbeitung
-        if (gameState.getFirstSelectedIndex() == -1) {
-            // Erste Karte eines Paares wird aufgedeckt
-            gameState.setFirstSelectedIndex(index);
-            broadcast("FLIP " + index + " " + card.getId());
-            // Noch nicht turnCompleted markieren – wartet auf zweite Karte
-        } else {
-            // Zweite Karte aufdecken
-            int firstIndex = gameState.getFirstSelectedIndex();
-            if (firstIndex == index) {
-                // Derselbe Kartenindex doppelt geklickt -> ignorieren
-                return;
-            }
-            Card firstCard = gameState.getCards().get(firstIndex);
-            gameState.setFirstSelectedIndex(-1);
-            broadcast("FLIP " + index + " " + card.getId());
-            // Überprüfen, ob das aufgedeckte Paar übereinstimmt
-            if (firstCard.getId() == card.getId()) {
-                // Paar gefunden
-                firstCard.setMatched(true);
-                card.setMatched(true);
-                currentPlayer.incrementScore();
-                broadcast("MATCH " + currentPlayer.getName() + " " + firstIndex + " " + index + " " + currentPlayer.getScore());
-                // Prüfen, ob alle Paare gefunden wurden (Spielende)
-                if (gameState.allCardsMatched()) {
-                    // Gewinner ermitteln (höchste Punktzahl, ggf. mehrere bei Gleichstand)
-                    List<Player> winners = gameState.getWinners();
-                    if (winners.size() == 1) {
-                        broadcast("GAMEOVER " + winners.get(0).getName());
-                    } else {
-                        // Unentschieden, mehrere Gewinner
-                        String winnerNames = "";
-                        for (Player p : winners) {
-                            if (!winnerNames.isEmpty()) winnerNames += ",";
-                            winnerNames += p.getName();
-                        }
-                        broadcast("GAMEOVER TIE " + winnerNames);
-                    }
-                    // (Optional: Server könnte hier neu starten oder stoppen)
-                } else {
-                    // Spiel geht weiter: gleicher Spieler ist erneut am Zug (weiterer Versuch, da richtiges Paar)
-                    setTurn(gameState.getCurrentPlayerIndex());
-                }
-            } else {
-                // Falsch geraten (kein Match)
-                broadcast("NOMATCH " + currentPlayer.getName() + " " + firstIndex + " " + index);
-                // Nächster Spieler ist an der Reihe
-                int nextIndex = (gameState.getCurrentPlayerIndex() + 1) % gameState.getPlayers().size();
-                setTurn(nextIndex);
-            }
-            // Markieren, dass der Zug (Paarversuch) abgeschlossen ist – für den Timer
-            gameState.setTurnCompleted(true);
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Verbindung ist ohnehin verloren
         }
     }
 
-    /**
-     * Entfernt einen Client (z.B. bei Verbindungsverlust) aus der Client-Liste.
-     * (Erweiterbar: z.B. andere Spieler benachrichtigen, wenn jemand das Spiel verlässt.)
-     */
-    public synchronized void removeClient(ClientHandler client) {
-        clients.remove(client);
-        // TODO: Bei Bedarf andere Spieler informieren oder Spiel beenden, falls ein Spieler geht
+    AcceptStage getAcceptStage() {
+        return acceptStage;
     }
 
-    /**
-     * Innere Klasse zur Abwicklung der Kommunikation mit einem einzelnen Client.
-     * Jede ClientHandler-Instanz läuft in einem eigenen Thread.
-     */
-    private class ClientHandler extends Thread {
-        private MemoryRushServer server;
-        private Socket socket;
-        private PrintWriter out;
-        private BufferedReader in;
-        private String playerName;
+    /** Vergibt die nächste freie Spieler-ID. */
+    int nextPlayerId() {
+        return matchmaker.nextPlayerId();
+    }
 
-        public ClientHandler(MemoryRushServer server, Socket socket, String playerName) {
-            this.server = server;
-            this.socket = socket;
-            this.playerName = playerName;
-            try {
-                this.out = new PrintWriter(socket.getOutputStream(), true);
-                this.in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            // Sende dem Client seinen zugewiesenen Spielernamen
-            send("NAME " + playerName);
-        }
+    /** Anzeigename zu einer Spieler-ID. */
+    static String playerName(int playerId) {
+        return "Player " + playerId;
+    }
 
-        public void send(String msg) {
-            out.println(msg);
-        }
+    /** Übergibt eine neue Verbindung an den Matchmaker. */
+    void playerConnected(ClientConnection connection) {
+        matchmaker.join(connection);
+        System.out.println(connection.getPlayerName() + " verbunden.");
+    }
 
-        @Override
-        public void run() {
-            try {
-                String line;
-                // Solange Eingaben vom Client empfangen, diese verarbeiten
-                while ((line = in.readLine()) != null) {
-                    if (line.startsWith("FLIP:")) {
-                        // Spieler möchte eine Karte aufdecken
-                        try {
-                            int index = Integer.parseInt(line.substring(5).trim());
-                            server.handleFlip(playerName, index);
-                        } catch (NumberFormatException e) {
-                            // ungültiger Index – ignorieren
-                        }
-                    } else if (line.equals("QUIT")) {
-                        // Spieler trennt die Verbindung freiwillig
-                        break;
-                    } else if (line.startsWith("CHAT:")) {
-                        // Chat-Nachricht vom Spieler
-                        String chatMsg = line.substring(5);
-                        server.broadcast("CHAT " + playerName + ": " + chatMsg);
-                    } else {
-                        // Unbekanntes Kommando – als Chat auffassen
-                        server.broadcast("CHAT " + playerName + ": " + line);
-                    }
-                }
-            } catch (IOException e) {
-                System.out.println("Verbindung zu " + playerName + " unterbrochen.");
-            } finally {
-                // Cleanup, wenn Client disconnectet
-                server.removeClient(this);
-                try { socket.close(); } catch (IOException ignored) {}
-            }
+    /** Gibt regelmäßig Statuszeilen mit Clients, Räumen und Ausgangswarteschlangen aus. */
+    private void logStatus() {
+        System.out.println("Status: " + ServerMetrics.getClientsConnected() + " Clients, "
+                + ServerMetrics.getBots() + " Computergegner, " + matchmaker.getActiveRoomCount() + " Räume, " + ServerMetrics.getGamesActive() + " laufende Spiele, "
+                + ServerMetrics.getFlips() + " Flips, " + ServerMetrics.getTurnTimeouts() + " Zug-Timeouts");
+        System.out.println("Annahme: " + ServerMetrics.getAccepted() + " Verbindungen, " + ServerMetrics.getPendingJoins()
+                + " warten auf Aufbau, abgelehnt: " + ServerMetrics.Rejection.CAPACITY.getCount() + " (voll), "
+                + ServerMetrics.Rejection.PER_ADDRESS.getCount() + " (pro Adresse), "
+                + ServerMetrics.Rejection.QUEUE_FULL.getCount() + " (Warteschlange)");
+        System.out.println("Warteschlangen: " + OutboundQueue.getTotalDepth() + " wartende Nachrichten (max. " + OutboundQueue.getMaxDepth()
+                + " pro Client), Chat verworfen: " + OutboundQueue.getDroppedChatCount()
+                + ", zusammengefasst: " + OutboundQueue.getCoalescedCount()
+                + ", langsame Clients getrennt: " + OutboundQueue.getOverflowCount());
+        long actions = TransportStats.getActions();
+        if (actions > 0) {
+            System.out.printf("Ausgabe: %d Aktionen, %.2f Nachrichten, %.2f Schreibvorgänge und %.2f Pakete"
+                            + " (geschätzt) pro Aktion%n", actions, (double) TransportStats.getMessages() / actions,
+                    (double) TransportStats.getWrites() / actions, (double) TransportStats.getPackets() / actions);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,238 @@
+package memoryrush.server;
+
+import memoryrush.protocol.BinaryProtocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Nicht-blockierende Client-Verbindung. Lesen und Schreiben passieren ausschließlich im zugeordneten
+ * Event-Loop-Thread; {@link #send(String)} legt nur in der Ausgangswarteschlange ab und darf von
+ * beliebigen Threads aufgerufen werden.
+ */
+class NioConnection extends ClientConnection {
+    /** Längere Zeilen sind kein gültiges Protokoll und führen zum Verbindungsabbau. */
+    private static final int MAX_LINE_LENGTH = 8192;
+    /** Größter Eingangspuffer im Binärmodus: ein maximaler Frame samt Längenpräfix. */
+    private static final int MAX_FRAME_BUFFER = BinaryProtocol.MAX_FRAME_LENGTH + 5;
+    /** Höchstzahl Nachrichten pro Schreibvorgang. */
+    private static final int MAX_WRITE_BATCH = 64;
+
+    private final SocketChannel channel;
+    private final NioTransport.EventLoop loop;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+    /** Noch nicht verarbeitete Eingabe: angefangene Zeile bzw. unvollständige Frames. */
+    private byte[] inBuffer = new byte[256];
+    private int inLength = 0;
+    /** Wird für jeden Binär-Frame neu auf den Eingangspuffer gesetzt. */
+    private final BinaryProtocol.Reader frameReader = new BinaryProtocol.Reader();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    /**
+     * Nachrichten des laufenden Schreibvorgangs; werden mit einem einzigen gathering write verschickt.
+     * Ein Rest wartet auf OP_WRITE.
+     */
+    private final ByteBuffer[] writeBatch = new ByteBuffer[MAX_WRITE_BATCH];
+    private int batchStart = 0;
+    private int batchEnd = 0;
+    private SelectionKey key;
+
+    NioConnection(SocketChannel channel, NioTransport.EventLoop loop, int playerId, String playerName,
+                  ServerConfig config) {
+        super(playerId, playerName, config);
+        this.channel = channel;
+        this.loop = loop;
+        greet();
+    }
+
+    /** Registriert den Kanal am Selector; muss im Event-Loop-Thread laufen. */
+    void register(SelectionKey key) {
+        this.key = key;
+        flush();
+    }
+
+    @Override
+    protected void messageQueued() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            Runnable task = () -> {
+                flushScheduled.set(false);
+                flush();
+            };
+            if (flushDelayMs > 0) {
+                // Nachrichten weiterer Aktionen innerhalb des Latenzbudgets gehen im selben Schreibvorgang mit
+                loop.schedule(task, flushDelayMs);
+            } else {
+                loop.execute(task);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        outbound.close();
+        if (key != null) {
+            key.cancel();
+        }
+        try { channel.close(); } catch (IOException ignored) {}
+        disconnected();
+    }
+
+    /** Liest verfügbare Bytes und verarbeitet jede vollständige Zeile bzw. jeden vollständigen Frame. */
+    void onReadable() {
+        int read;
+        try {
+            read = channel.read(readBuffer);
+        } catch (IOException e) {
+            System.out.println("Verbindung zu " + getPlayerName() + " unterbrochen.");
+            close();
+            return;
+        }
+        if (read < 0) {
+            close();
+            return;
+        }
+        readBuffer.flip();
+        try {
+            while (readBuffer.hasRemaining()) {
+                // Nach PROTO wechselt der Modus mitten im Puffer; der Rest wird dann als Frames gelesen
+                boolean open = binaryInbound ? readFrames() : readLines();
+                if (!open) {
+                    close();
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // Protokollfehler im Binärmodus
+            close();
+            return;
+        } catch (RuntimeException e) {
+            // Fehler beim Verarbeiten eines Befehls: nur diese Verbindung geht verloren, nicht der Event-Loop
+            e.printStackTrace();
+            close();
+            return;
+        }
+        readBuffer.clear();
+    }
+
+    /**
+     * Liest Textzeilen, bis der Puffer leer ist oder auf das Binärprotokoll umgeschaltet wurde.
+     * @return false, wenn die Verbindung beendet werden soll
+     */
+    private boolean readLines() {
+        while (readBuffer.hasRemaining() && !binaryInbound) {
+            byte b = readBuffer.get();
+            if (b == '\n') {
+                int len = inLength;
+                if (len > 0 && inBuffer[len - 1] == '\r') len--;
+                inLength = 0;
+                // Verarbeitung direkt aus dem Puffer; er wird erst beim nächsten Byte wieder beschrieben
+                if (!handleLine(inBuffer, 0, len)) {
+                    return false;
+                }
+            } else {
+                if (inLength == MAX_LINE_LENGTH) {
+                    return false;
+                }
+                ensureCapacity(inLength + 1);
+                inBuffer[inLength++] = b;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hängt den restlichen Puffer an und verarbeitet alle vollständigen Binär-Frames.
+     * @return false, wenn die Verbindung beendet werden soll
+     */
+    private boolean readFrames() throws IOException {
+        int n = readBuffer.remaining();
+        if (inLength + n > MAX_FRAME_BUFFER) {
+            return false;
+        }
+        ensureCapacity(inLength + n);
+        readBuffer.get(inBuffer, inLength, n);
+        inLength += n;
+        int pos = 0;
+        while (true) {
+            // Varint-Länge lesen, falls schon vollständig vorhanden
+            int p = pos;
+            int length = 0;
+            int shift = 0;
+            boolean complete = false;
+            while (p < inLength && shift < 35) {
+                int b = inBuffer[p++];
+                length |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    complete = true;
+                    break;
+                }
+                shift += 7;
+            }
+            if (!complete) {
+                if (shift >= 35) throw new IOException("Varint zu lang");
+                break;
+            }
+            if (length < 1 || length > BinaryProtocol.MAX_FRAME_LENGTH) {
+                throw new IOException("Ungültige Frame-Länge " + length);
+            }
+            if (p + length > inLength) break;
+            boolean open = handleFrame(frameReader.reset(inBuffer, p, length));
+            pos = p + length;
+            if (!open) return false;
+        }
+        // Unvollständigen Rest an den Anfang schieben
+        System.arraycopy(inBuffer, pos, inBuffer, 0, inLength - pos);
+        inLength -= pos;
+        return true;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed > inBuffer.length) {
+            inBuffer = Arrays.copyOf(inBuffer, Math.max(needed, inBuffer.length * 2));
+        }
+    }
+
+    /**
+     * Schreibt so viel wie möglich aus der Ausgangswarteschlange; alle wartenden Nachrichten gehen mit
+     * einem gathering write hinaus, der Rest wartet auf OP_WRITE.
+     */
+    void flush() {
+        if (key == null || !key.isValid()) return;
+        try {
+            while (true) {
+                if (batchStart == batchEnd && !fillBatch()) break;
+                long written = channel.write(writeBatch, batchStart, batchEnd - batchStart);
+                TransportStats.written(written);
+                while (batchStart < batchEnd && !writeBatch[batchStart].hasRemaining()) {
+                    writeBatch[batchStart++] = null;
+                }
+                if (batchStart < batchEnd) {
+                    // Sendepuffer voll – weiterschreiben, sobald der Kanal wieder schreibbar ist
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /**
+     * Kodiert wartende Nachrichten für den nächsten Schreibvorgang (ohne Bündelung nur eine).
+     * @return false, wenn nichts zu schreiben ist
+     */
+    private boolean fillBatch() {
+        batchStart = 0;
+        batchEnd = 0;
+        ServerMessage m;
+        while (batchEnd < writeBatch.length && (m = outbound.poll()) != null) {
+            writeBatch[batchEnd++] = ByteBuffer.wrap(encode(m));
+            if (!coalesce) break;
+        }
+        return batchEnd > 0;
+    }
+}
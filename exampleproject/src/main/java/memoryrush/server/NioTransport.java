@@ -0,0 +1,192 @@
+package memoryrush.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport auf Basis von java.nio: Ein Akzeptor-Thread nimmt Verbindungen an und verteilt sie reihum
+ * auf eine feste Anzahl von Event-Loops. Jeder Event-Loop bedient viele Verbindungen mit einem Selector,
+ * statt wie {@link ClientHandler} pro Client einen Thread zu blockieren. Aufgebaut werden die Verbindungen
+ * wie beim blockierenden Transport erst nach der {@link AcceptStage}.
+ */
+class NioTransport {
+    private final MemoryRushServer server;
+    private final ServerConfig config;
+    private final EventLoop[] loops;
+    private final AcceptStage acceptStage;
+
+    NioTransport(MemoryRushServer server, ServerConfig config) {
+        this.server = server;
+        this.config = config;
+        this.acceptStage = server.getAcceptStage();
+        this.loops = new EventLoop[config.getEventLoops()];
+    }
+
+    /**
+     * Startet die Event-Loops und nimmt im aufrufenden Thread Verbindungen an.
+     */
+    void start() throws IOException {
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop();
+            Thread t = new Thread(loops[i], "nio-loop-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(config.getPort()));
+            System.out.println("Server gestartet auf Port " + config.getPort() + " (NIO, "
+                    + loops.length + " Event-Loops). Warte auf Spieler...");
+            int next = 0;
+            while (true) {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                InetAddress address = ((InetSocketAddress) channel.getRemoteAddress()).getAddress();
+                // Der Akzeptor prüft nur Grenzen; aufgebaut wird die Verbindung im Join-Thread
+                ServerMetrics.Rejection rejection = acceptStage.admit(address);
+                if (rejection == null) {
+                    EventLoop loop = loops[next];
+                    next = (next + 1) % loops.length;
+                    rejection = acceptStage.enqueue(address, () -> connect(channel, address, loop));
+                }
+                if (rejection != null) {
+                    AcceptStage.reject(channel, rejection);
+                }
+            }
+        }
+    }
+
+    /** Baut eine zugelassene Verbindung auf (Join-Thread) und übergibt sie ihrem Event-Loop. */
+    private void connect(SocketChannel channel, InetAddress address, EventLoop loop) {
+        try {
+            // Gebündelt wird bereits im Server; Nagle würde die fertigen Blöcke nur zusätzlich verzögern
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, config.isCoalesce());
+        } catch (IOException e) {
+            // Verbindung schon wieder weg; das merkt der Event-Loop beim ersten Lesen
+        }
+        NioConnection connection = null;
+        try {
+            int playerId = server.nextPlayerId();
+            connection = new NioConnection(channel, loop, playerId, MemoryRushServer.playerName(playerId), config);
+            connection.admittedBy(acceptStage, address);
+            server.playerConnected(connection);
+            NioConnection registered = connection;
+            loop.execute(() -> loop.register(channel, registered));
+        } catch (RuntimeException e) {
+            server.abandonJoin(connection, address);
+            try {
+                channel.close();
+            } catch (IOException closeFailed) {
+                // Verbindung ist ohnehin verloren
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Ein Event-Loop-Thread mit eigenem Selector. Aufgaben anderer Threads (Registrierung, Flush)
+     * werden über eine Warteschlange übergeben und nach jedem select ausgeführt; verzögerte Aufgaben
+     * bestimmen das Timeout des select.
+     */
+    static class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        /** Verzögerte Aufgaben nach Fälligkeit (nur Event-Loop-Thread). */
+        private final PriorityQueue<DelayedTask> delayed =
+                new PriorityQueue<>(Comparator.comparingLong(DelayedTask::deadline));
+
+        private record DelayedTask(long deadline, Runnable task) {
+        }
+
+        EventLoop() throws IOException {
+            this.selector = Selector.open();
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        /** Führt eine Aufgabe frühestens nach der angegebenen Zeit im Event-Loop-Thread aus. */
+        void schedule(Runnable task, long delayMs) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+            execute(() -> delayed.add(new DelayedTask(deadline, task)));
+        }
+
+        void register(SocketChannel channel, NioConnection connection) {
+            try {
+                connection.register(channel.register(selector, SelectionKey.OP_READ, connection));
+            } catch (IOException e) {
+                connection.close();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    DelayedTask next = delayed.peek();
+                    if (next == null) {
+                        selector.select();
+                    } else {
+                        long waitMs = TimeUnit.NANOSECONDS.toMillis(next.deadline() - System.nanoTime());
+                        if (waitMs > 0) {
+                            selector.select(waitMs);
+                        } else {
+                            selector.selectNow();
+                        }
+                    }
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        runTask(task);
+                    }
+                    long now = System.nanoTime();
+                    while ((next = delayed.peek()) != null && next.deadline() - now <= 0) {
+                        runTask(delayed.poll().task());
+                    }
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        NioConnection connection = (NioConnection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isReadable()) {
+                                connection.onReadable();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.flush();
+                            }
+                        } catch (RuntimeException e) {
+                            // Eine fehlerhafte Verbindung darf die übrigen am selben Selector nicht aufhalten
+                            e.printStackTrace();
+                            connection.close();
+                        }
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                e.printStackTrace();
+            }
+        }
+
+        /** Führt eine übergebene Aufgabe aus; ein Fehler darin beendet den Event-Loop nicht. */
+        private static void runTask(Runnable task) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
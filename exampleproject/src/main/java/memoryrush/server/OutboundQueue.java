@@ -0,0 +1,239 @@
+package memoryrush.server;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Begrenzte Ausgangswarteschlange einer Verbindung. Räume legen Nachrichten nur ab und warten nie auf
+ * das Netzwerk; geleert wird die Warteschlange vom Transport (Writer-Thread bzw. Event-Loop).
+ * <p>
+ * Ist die Warteschlange voll, greift die Regel für langsame Clients in dieser Reihenfolge:
+ * neue Chatnachrichten verwerfen, ältere Chatnachrichten verdrängen, veraltete Zustandsmeldungen
+ * zusammenfassen – und erst wenn das nicht reicht, wird der Client getrennt.
+ * <p>
+ * Chat wartet in einer eigenen Schlange und wird erst geschrieben, wenn keine Spielnachricht mehr wartet;
+ * die Kapazität gilt für beide zusammen.
+ */
+class OutboundQueue {
+    private static final LongAdder TOTAL_DEPTH = new LongAdder();
+    private static final AtomicInteger MAX_DEPTH = new AtomicInteger();
+    private static final LongAdder DROPPED_CHAT = new LongAdder();
+    private static final LongAdder COALESCED = new LongAdder();
+    private static final LongAdder OVERFLOWS = new LongAdder();
+
+    private final int capacity;
+    private final ArrayDeque<ServerMessage> queue = new ArrayDeque<>();
+    /** Chatnachrichten, nachrangig hinter {@link #queue}. */
+    private final ArrayDeque<ServerMessage> chat = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private boolean closed = false;
+
+    OutboundQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Nimmt den Lock; nur wenn er belegt ist, wird die Wartezeit gemessen, damit der unumkämpfte Fall
+     * nichts kostet.
+     */
+    private void acquire() {
+        if (lock.tryLock()) return;
+        long begin = System.nanoTime();
+        lock.lock();
+        ServerMetrics.lockWaited(System.nanoTime() - begin);
+    }
+
+    /**
+     * Legt eine Nachricht ab. Ein wartender Writer wird erst durch {@link #wakeUp()} geweckt, damit alle
+     * Nachrichten einer Aktion zusammen geschrieben werden.
+     * @return false, wenn die Nachricht trotz Verwerfen und Zusammenfassen nicht mehr passt –
+     *         der Client ist dann zu langsam und sollte getrennt werden
+     */
+    boolean offer(ServerMessage message) {
+        acquire();
+        try {
+            if (closed) return true;
+            if (queue.size() + chat.size() >= capacity && !makeRoom(message)) {
+                if (message.getKind() == ServerMessage.Kind.CHAT) {
+                    return true;
+                }
+                OVERFLOWS.increment();
+                return false;
+            }
+            (message.getKind() == ServerMessage.Kind.CHAT ? chat : queue).addLast(message);
+            TOTAL_DEPTH.increment();
+            int depth = queue.size() + chat.size();
+            MAX_DEPTH.accumulateAndGet(depth, Math::max);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Versucht, in einer vollen Warteschlange Platz für die Nachricht zu schaffen.
+     * @return true, wenn die Nachricht danach angehängt werden darf
+     */
+    private boolean makeRoom(ServerMessage incoming) {
+        // 1. Neue Chatnachrichten haben die niedrigste Priorität
+        if (incoming.getKind() == ServerMessage.Kind.CHAT) {
+            DROPPED_CHAT.increment();
+            return false;
+        }
+        // 2. Älteste wartende Chatnachricht verdrängen
+        if (chat.pollFirst() != null) {
+            TOTAL_DEPTH.decrement();
+            DROPPED_CHAT.increment();
+            return true;
+        }
+        // 3. Zustandsmeldung gleichen Typs ist durch die neue überholt
+        if (incoming.getKind() == ServerMessage.Kind.STATE
+                && removeFirst(m -> m.getType() == incoming.getType())) {
+            COALESCED.increment();
+            return true;
+        }
+        // 4. Ältere Zustandsmeldung, von der weiter hinten schon eine neuere wartet
+        Iterator<ServerMessage> it = queue.iterator();
+        while (it.hasNext()) {
+            ServerMessage m = it.next();
+            if (m.getKind() == ServerMessage.Kind.STATE && hasNewer(m)) {
+                it.remove();
+                TOTAL_DEPTH.decrement();
+                COALESCED.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasNewer(ServerMessage older) {
+        boolean seen = false;
+        for (ServerMessage m : queue) {
+            if (m == older) {
+                seen = true;
+            } else if (seen && m.getType() == older.getType()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean removeFirst(Predicate<ServerMessage> filter) {
+        Iterator<ServerMessage> it = queue.iterator();
+        while (it.hasNext()) {
+            if (filter.test(it.next())) {
+                it.remove();
+                TOTAL_DEPTH.decrement();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Weckt einen in {@link #poll(long, TimeUnit)} wartenden Writer. */
+    void wakeUp() {
+        acquire();
+        try {
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Entnimmt die nächste Nachricht (Spielnachrichten vor Chat) oder liefert null, wenn keine wartet. */
+    ServerMessage poll() {
+        acquire();
+        try {
+            return next();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ServerMessage next() {
+        ServerMessage m = queue.pollFirst();
+        if (m == null) m = chat.pollFirst();
+        if (m != null) TOTAL_DEPTH.decrement();
+        return m;
+    }
+
+    /**
+     * Wartet höchstens die angegebene Zeit auf die nächste Nachricht.
+     * @return die Nachricht oder null bei Zeitablauf bzw. geschlossener Warteschlange
+     */
+    ServerMessage poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        acquire();
+        try {
+            while (queue.isEmpty() && chat.isEmpty() && !closed) {
+                if (nanos <= 0) return null;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return next();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Verwirft alle wartenden Nachrichten und weckt wartende Writer auf. */
+    void close() {
+        acquire();
+        try {
+            closed = true;
+            TOTAL_DEPTH.add(-queue.size() - chat.size());
+            queue.clear();
+            chat.clear();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isClosed() {
+        acquire();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        acquire();
+        try {
+            return queue.size() + chat.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Summe aller aktuell wartenden Nachrichten über alle Verbindungen. */
+    static long getTotalDepth() {
+        return TOTAL_DEPTH.sum();
+    }
+
+    /** Größte bisher beobachtete Tiefe einer einzelnen Warteschlange. */
+    static int getMaxDepth() {
+        return MAX_DEPTH.get();
+    }
+
+    static long getDroppedChatCount() {
+        return DROPPED_CHAT.sum();
+    }
+
+    static long getCoalescedCount() {
+        return COALESCED.sum();
+    }
+
+    /** Anzahl der Clients, die wegen voller Warteschlange getrennt wurden. */
+    static long getOverflowCount() {
+        return OVERFLOWS.sum();
+    }
+}
@@ -0,0 +1,73 @@
+package memoryrush.server;
+
+import memoryrush.game.Board;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kompakter Stand eines laufenden Spiels, aus dem sich der Raum nach einem Neustart wiederherstellen lässt.
+ * Wird in der Mailbox des Raums erzeugt und danach nicht mehr verändert.
+ *
+ * @param roomId              ID des Raums
+ * @param remainingTurnMillis verbleibende Zeit des laufenden Zuges
+ * @param currentPlayerIndex  Spieler am Zug (Index in {@code seats})
+ * @param firstSelectedIndex  aufgedeckte erste Karte des Zuges oder -1
+ * @param seats               Spieler in Zugreihenfolge
+ * @param cardIds             Motiv-IDs in Feldreihenfolge
+ * @param matchedBits         gefundene Karten als Bitmenge
+ */
+record RoomSnapshot(int roomId, int remainingTurnMillis, int currentPlayerIndex, int firstSelectedIndex,
+                    List<Seat> seats, int[] cardIds, long[] matchedBits) {
+
+    /**
+     * Ein Platz im Spiel samt Sitzungstoken, mit dem der Spieler ihn per {@code REJOIN} zurückbekommt; leer
+     * für Computergegner.
+     */
+    record Seat(int playerId, String name, int score, String token) {
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(roomId);
+        out.writeInt(remainingTurnMillis);
+        out.writeByte(currentPlayerIndex);
+        out.writeInt(firstSelectedIndex);
+        out.writeByte(seats.size());
+        for (Seat seat : seats) {
+            out.writeInt(seat.playerId());
+            out.writeUTF(seat.name());
+            out.writeInt(seat.score());
+            out.writeUTF(seat.token());
+        }
+        out.writeInt(cardIds.length);
+        for (int cardId : cardIds) out.writeShort(cardId);
+        for (long word : matchedBits) out.writeLong(word);
+    }
+
+    static RoomSnapshot read(DataInputStream in) throws IOException {
+        int roomId = in.readInt();
+        int remaining = in.readInt();
+        int current = in.readUnsignedByte();
+        int firstSelected = in.readInt();
+        int seatCount = in.readUnsignedByte();
+        List<Seat> seats = new ArrayList<>(seatCount);
+        for (int i = 0; i < seatCount; i++) {
+            seats.add(new Seat(in.readInt(), in.readUTF(), in.readInt(), in.readUTF()));
+        }
+        int cardCount = in.readInt();
+        if (cardCount <= 0 || cardCount > 2 * Board.MAX_PAIRS) {
+            throw new IOException("Ungültige Kartenzahl " + cardCount + " für Raum " + roomId);
+        }
+        int[] cardIds = new int[cardCount];
+        for (int i = 0; i < cardIds.length; i++) cardIds[i] = in.readUnsignedShort();
+        long[] matched = new long[(cardIds.length + 63) >>> 6];
+        for (int i = 0; i < matched.length; i++) matched[i] = in.readLong();
+        if (current >= seatCount || firstSelected >= cardIds.length) {
+            throw new IOException("Ungültiger Schnappschuss für Raum " + roomId);
+        }
+        return new RoomSnapshot(roomId, remaining, current, firstSelected, seats, cardIds, matched);
+    }
+}
@@ -0,0 +1,365 @@
+package memoryrush.server;
+
+import memoryrush.game.Board;
+import memoryrush.protocol.NodeRouting;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Startkonfiguration des Servers. Wird aus Kommandozeilenargumenten der Form {@code --name=wert} gelesen,
+ * z.B. {@code --port=8090 --transport=nio --event-loops=4} oder
+ * {@code --transport=virtual --flush-delay-ms=5 --metrics-port=9404 --journal-dir=journal}
+ * oder {@code --snapshot-file=games.snap --spectator-delay-ms=10000 --chat-rate=2 --chat-batch-ms=100}.
+ * Annahme-Grenzen z.B. {@code --max-connections=20000 --max-connections-per-ip=50 --join-queue=2000}.
+ * Hinter einem Gateway ({@code memoryrush.gateway.Gateway}) z.B. {@code --port=8091 --node-id=1 --metrics-port=9091}.
+ * Computergegner z.B. {@code --bot-seats=4 --bot-wait-ms=10000 --bot-memory=6 --bot-error=0.3}.
+ */
+public class ServerConfig {
+    /** Netzwerk-Transport für die Client-Verbindungen. */
+    public enum Transport {
+        /** Ein blockierender Thread pro Client (ursprüngliches Verhalten). */
+        BLOCKING,
+        /** Wenige Event-Loop-Threads mit java.nio-Selector und nicht-blockierenden Kanälen. */
+        NIO,
+        /** Blockierende Verbindungen wie {@link #BLOCKING}, aber auf virtuellen Threads (auch die Timer). */
+        VIRTUAL
+    }
+
+    private int port = 8090;
+    private Transport transport = Transport.BLOCKING;
+    private int eventLoops = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private int outboundQueueCapacity = 256;
+    private boolean coalesce = true;
+    private int flushDelayMs = 0;
+    private int turnMillis = 30000;
+    private int pairs = 16;
+    private int metricsPort = 0;
+    private Path journalDir = null;
+    private int journalSegmentMb = 64;
+    private Path snapshotFile = null;
+    private int snapshotIntervalMs = 1000;
+    private int spectatorDelayMs = 0;
+    private int spectatorStateMs = 0;
+    private double chatRate = 3;
+    private int chatBurst = 10;
+    private int chatBatchMs = 50;
+    private int nodeId = 0;
+    private int maxConnections = 10000;
+    private int maxConnectionsPerIp = 0;
+    private int joinQueueCapacity = 1000;
+    private int botSeats = 0;
+    private int botWaitMs = 10000;
+    private int botMemory = 8;
+    private double botErrorRate = 0.2;
+    private int botThinkMs = 800;
+
+    /**
+     * Liest die Konfiguration aus den Programmargumenten. Unbekannte Argumente führen zu einem Fehler,
+     * damit Tippfehler beim Start auffallen.
+     */
+    public static ServerConfig fromArgs(String[] args) {
+        ServerConfig config = new ServerConfig();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Ungültiges Argument: " + arg);
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            switch (key) {
+                case "port" -> config.setPort(Integer.parseInt(value));
+                case "transport" -> config.setTransport(Transport.valueOf(value.toUpperCase()));
+                case "event-loops" -> config.setEventLoops(Integer.parseInt(value));
+                case "outbound-queue" -> config.setOutboundQueueCapacity(Integer.parseInt(value));
+                case "coalesce" -> config.setCoalesce(Boolean.parseBoolean(value));
+                case "flush-delay-ms" -> config.setFlushDelayMs(Integer.parseInt(value));
+                case "turn-ms" -> config.setTurnMillis(Integer.parseInt(value));
+                case "pairs" -> config.setPairs(Integer.parseInt(value));
+                case "metrics-port" -> config.setMetricsPort(Integer.parseInt(value));
+                case "journal-dir" -> config.setJournalDir(value.isEmpty() ? null : Paths.get(value));
+                case "journal-segment-mb" -> config.setJournalSegmentMb(Integer.parseInt(value));
+                case "snapshot-file" -> config.setSnapshotFile(value.isEmpty() ? null : Paths.get(value));
+                case "snapshot-interval-ms" -> config.setSnapshotIntervalMs(Integer.parseInt(value));
+                case "spectator-delay-ms" -> config.setSpectatorDelayMs(Integer.parseInt(value));
+                case "spectator-state-ms" -> config.setSpectatorStateMs(Integer.parseInt(value));
+                case "chat-rate" -> config.setChatRate(Double.parseDouble(value));
+                case "chat-burst" -> config.setChatBurst(Integer.parseInt(value));
+                case "chat-batch-ms" -> config.setChatBatchMs(Integer.parseInt(value));
+                case "node-id" -> config.setNodeId(Integer.parseInt(value));
+                case "max-connections" -> config.setMaxConnections(Integer.parseInt(value));
+                case "max-connections-per-ip" -> config.setMaxConnectionsPerIp(Integer.parseInt(value));
+                case "join-queue" -> config.setJoinQueueCapacity(Integer.parseInt(value));
+                case "bot-seats" -> config.setBotSeats(Integer.parseInt(value));
+                case "bot-wait-ms" -> config.setBotWaitMs(Integer.parseInt(value));
+                case "bot-memory" -> config.setBotMemory(Integer.parseInt(value));
+                case "bot-error" -> config.setBotErrorRate(Double.parseDouble(value));
+                case "bot-think-ms" -> config.setBotThinkMs(Integer.parseInt(value));
+                default -> throw new IllegalArgumentException("Unbekannte Option: " + key);
+            }
+        }
+        return config;
+    }
+
+    public int getPort() {
+        return port;
+    }
+    public void setPort(int port) {
+        this.port = port;
+    }
+    public Transport getTransport() {
+        return transport;
+    }
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+    public int getEventLoops() {
+        return eventLoops;
+    }
+    public void setEventLoops(int eventLoops) {
+        if (eventLoops < 1) throw new IllegalArgumentException("event-loops muss >= 1 sein");
+        this.eventLoops = eventLoops;
+    }
+    /** Maximale Anzahl ungesendeter Nachrichten pro Client, bevor die Regel für langsame Clients greift. */
+    public int getOutboundQueueCapacity() {
+        return outboundQueueCapacity;
+    }
+    public void setOutboundQueueCapacity(int outboundQueueCapacity) {
+        if (outboundQueueCapacity < 1) throw new IllegalArgumentException("outbound-queue muss >= 1 sein");
+        this.outboundQueueCapacity = outboundQueueCapacity;
+    }
+    /**
+     * Bündelt alle Nachrichten einer Spielaktion pro Verbindung in einen Schreibvorgang. Ohne Bündelung
+     * wird jede Nachricht einzeln geschrieben (Vergleichsmodus für die Messung).
+     */
+    public boolean isCoalesce() {
+        return coalesce;
+    }
+    public void setCoalesce(boolean coalesce) {
+        this.coalesce = coalesce;
+    }
+    /**
+     * Latenzbudget in Millisekunden: so lange darf eine Nachricht höchstens warten, damit Nachrichten
+     * mehrerer Aktionen im selben Schreibvorgang landen. 0 schreibt direkt nach jeder Aktion.
+     */
+    public int getFlushDelayMs() {
+        return flushDelayMs;
+    }
+    public void setFlushDelayMs(int flushDelayMs) {
+        if (flushDelayMs < 0 || flushDelayMs > 1000) {
+            throw new IllegalArgumentException("flush-delay-ms muss zwischen 0 und 1000 liegen");
+        }
+        this.flushDelayMs = flushDelayMs;
+    }
+    /** Bedenkzeit pro Zug in Millisekunden; danach verfällt der Zug. */
+    public int getTurnMillis() {
+        return turnMillis;
+    }
+    public void setTurnMillis(int turnMillis) {
+        if (turnMillis < 100) throw new IllegalArgumentException("turn-ms muss >= 100 sein");
+        this.turnMillis = turnMillis;
+    }
+    /** Anzahl Kartenpaare pro Spiel (Standard 16 = 32 Karten). */
+    public int getPairs() {
+        return pairs;
+    }
+    public void setPairs(int pairs) {
+        if (pairs < 1 || pairs > Board.MAX_PAIRS) {
+            throw new IllegalArgumentException("pairs muss zwischen 1 und " + Board.MAX_PAIRS + " liegen");
+        }
+        this.pairs = pairs;
+    }
+    /** Port des lokalen HTTP-Endpunkts für Prometheus-Metriken; 0 schaltet ihn ab (JMX ist immer aktiv). */
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+    public void setMetricsPort(int metricsPort) {
+        if (metricsPort < 0 || metricsPort > 65535) {
+            throw new IllegalArgumentException("metrics-port muss zwischen 0 und 65535 liegen");
+        }
+        this.metricsPort = metricsPort;
+    }
+    /** Verzeichnis des Spieljournals; null (Standard) schreibt kein Journal. */
+    public Path getJournalDir() {
+        return journalDir;
+    }
+    public void setJournalDir(Path journalDir) {
+        this.journalDir = journalDir;
+    }
+    /** Größe eines Journal-Segments in MiB. */
+    public int getJournalSegmentMb() {
+        return journalSegmentMb;
+    }
+    public void setJournalSegmentMb(int journalSegmentMb) {
+        if (journalSegmentMb < 1 || journalSegmentMb > 1024) {
+            throw new IllegalArgumentException("journal-segment-mb muss zwischen 1 und 1024 liegen");
+        }
+        this.journalSegmentMb = journalSegmentMb;
+    }
+    /**
+     * Datei für Schnappschüsse laufender Spiele; beim Start werden die Spiele daraus wiederhergestellt.
+     * null (Standard) schaltet beides ab.
+     */
+    public Path getSnapshotFile() {
+        return snapshotFile;
+    }
+    public void setSnapshotFile(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+    /** Abstand der Schnappschüsse in Millisekunden. */
+    public int getSnapshotIntervalMs() {
+        return snapshotIntervalMs;
+    }
+    public void setSnapshotIntervalMs(int snapshotIntervalMs) {
+        if (snapshotIntervalMs < 100 || snapshotIntervalMs > 600000) {
+            throw new IllegalArgumentException("snapshot-interval-ms muss zwischen 100 und 600000 liegen");
+        }
+        this.snapshotIntervalMs = snapshotIntervalMs;
+    }
+    /** So weit laufen Zuschauer dem Spiel hinterher (Millisekunden); 0 = live. */
+    public int getSpectatorDelayMs() {
+        return spectatorDelayMs;
+    }
+    public void setSpectatorDelayMs(int spectatorDelayMs) {
+        if (spectatorDelayMs < 0 || spectatorDelayMs > 600000) {
+            throw new IllegalArgumentException("spectator-delay-ms muss zwischen 0 und 600000 liegen");
+        }
+        this.spectatorDelayMs = spectatorDelayMs;
+    }
+    /**
+     * Zuschauer erhalten Zustandsmeldungen (PLAYERS, TURN) höchstens einmal pro Intervall (Millisekunden);
+     * 0 schickt jede sofort.
+     */
+    public int getSpectatorStateMs() {
+        return spectatorStateMs;
+    }
+    public void setSpectatorStateMs(int spectatorStateMs) {
+        if (spectatorStateMs < 0 || spectatorStateMs > 60000) {
+            throw new IllegalArgumentException("spectator-state-ms muss zwischen 0 und 60000 liegen");
+        }
+        this.spectatorStateMs = spectatorStateMs;
+    }
+    /** Dauerhaft erlaubte Chatnachrichten pro Sekunde und Spieler; darüber hinaus wird verworfen. */
+    public double getChatRate() {
+        return chatRate;
+    }
+    public void setChatRate(double chatRate) {
+        if (!(chatRate > 0) || chatRate > 1000) {
+            throw new IllegalArgumentException("chat-rate muss größer 0 und höchstens 1000 sein");
+        }
+        this.chatRate = chatRate;
+    }
+    /** So viele Chatnachrichten darf ein Spieler auf einmal schicken, bevor {@link #getChatRate()} greift. */
+    public int getChatBurst() {
+        return chatBurst;
+    }
+    public void setChatBurst(int chatBurst) {
+        if (chatBurst < 1 || chatBurst > 1000) {
+            throw new IllegalArgumentException("chat-burst muss zwischen 1 und 1000 liegen");
+        }
+        this.chatBurst = chatBurst;
+    }
+    /** Chatzeilen eines Raums werden so lange gesammelt und dann gemeinsam verschickt; 0 = sofort. */
+    public int getChatBatchMs() {
+        return chatBatchMs;
+    }
+    public void setChatBatchMs(int chatBatchMs) {
+        if (chatBatchMs < 0 || chatBatchMs > 5000) {
+            throw new IllegalArgumentException("chat-batch-ms muss zwischen 0 und 5000 liegen");
+        }
+        this.chatBatchMs = chatBatchMs;
+    }
+    /**
+     * Nummer dieses Knotens hinter einem Gateway; bestimmt den Bereich der Raum-IDs und das Präfix der
+     * Sitzungstokens (siehe {@link NodeRouting}). 0 (Standard) für einen einzelnen Server.
+     */
+    public int getNodeId() {
+        return nodeId;
+    }
+    public void setNodeId(int nodeId) {
+        if (nodeId < 0 || nodeId > NodeRouting.MAX_NODE_ID) {
+            throw new IllegalArgumentException("node-id muss zwischen 0 und " + NodeRouting.MAX_NODE_ID + " liegen");
+        }
+        this.nodeId = nodeId;
+    }
+    /** Höchstzahl gleichzeitiger Verbindungen; weitere werden sofort mit {@code ERROR} geschlossen. */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+    public void setMaxConnections(int maxConnections) {
+        if (maxConnections < 1) throw new IllegalArgumentException("max-connections muss >= 1 sein");
+        this.maxConnections = maxConnections;
+    }
+    /**
+     * Höchstzahl gleichzeitiger Verbindungen einer IP-Adresse; 0 (Standard) = unbegrenzt. Hinter einem
+     * Gateway kommen alle Verbindungen von dessen Adresse, dort also 0 lassen.
+     */
+    public int getMaxConnectionsPerIp() {
+        return maxConnectionsPerIp;
+    }
+    public void setMaxConnectionsPerIp(int maxConnectionsPerIp) {
+        if (maxConnectionsPerIp < 0) throw new IllegalArgumentException("max-connections-per-ip muss >= 0 sein");
+        this.maxConnectionsPerIp = maxConnectionsPerIp;
+    }
+    /** Angenommene Verbindungen, die höchstens auf ihren Aufbau warten; darüber wird sofort abgelehnt. */
+    public int getJoinQueueCapacity() {
+        return joinQueueCapacity;
+    }
+    public void setJoinQueueCapacity(int joinQueueCapacity) {
+        if (joinQueueCapacity < 1) throw new IllegalArgumentException("join-queue muss >= 1 sein");
+        this.joinQueueCapacity = joinQueueCapacity;
+    }
+    /**
+     * Eine Lobby, die nach {@link #getBotWaitMs()} noch weniger Spieler hat, wird mit Computergegnern auf so
+     * viele Plätze aufgefüllt und startet sofort; 0 (Standard) = keine Computergegner.
+     */
+    public int getBotSeats() {
+        return botSeats;
+    }
+    public void setBotSeats(int botSeats) {
+        if (botSeats < 0 || botSeats == 1 || botSeats > MemoryRushServer.MAX_PLAYERS) {
+            throw new IllegalArgumentException("bot-seats muss 0 oder zwischen 2 und " + MemoryRushServer.MAX_PLAYERS
+                    + " liegen");
+        }
+        this.botSeats = botSeats;
+    }
+    /** Wartezeit ab dem ersten Spieler einer Lobby, bevor Computergegner dazukommen. */
+    public int getBotWaitMs() {
+        return botWaitMs;
+    }
+    public void setBotWaitMs(int botWaitMs) {
+        if (botWaitMs < 0 || botWaitMs > 600000) {
+            throw new IllegalArgumentException("bot-wait-ms muss zwischen 0 und 600000 liegen");
+        }
+        this.botWaitMs = botWaitMs;
+    }
+    /** So viele zuletzt aufgedeckte Karten merkt sich ein Computergegner. */
+    public int getBotMemory() {
+        return botMemory;
+    }
+    public void setBotMemory(int botMemory) {
+        if (botMemory < 0 || botMemory > 1024) {
+            throw new IllegalArgumentException("bot-memory muss zwischen 0 und 1024 liegen");
+        }
+        this.botMemory = botMemory;
+    }
+    /** Wahrscheinlichkeit, mit der sich ein Computergegner bei einer gemerkten Karte irrt. */
+    public double getBotErrorRate() {
+        return botErrorRate;
+    }
+    public void setBotErrorRate(double botErrorRate) {
+        if (!(botErrorRate >= 0) || botErrorRate > 1) {
+            throw new IllegalArgumentException("bot-error muss zwischen 0 und 1 liegen");
+        }
+        this.botErrorRate = botErrorRate;
+    }
+    /** Mittlere Bedenkzeit eines Computergegners pro Karte (zufällig zwischen halber und anderthalbfacher Zeit). */
+    public int getBotThinkMs() {
+        return botThinkMs;
+    }
+    public void setBotThinkMs(int botThinkMs) {
+        if (botThinkMs < 0 || botThinkMs > 60000) {
+            throw new IllegalArgumentException("bot-think-ms muss zwischen 0 und 60000 liegen");
+        }
+        this.botThinkMs = botThinkMs;
+    }
+}
@@ -0,0 +1,457 @@
+package memoryrush.server;
+
+import memoryrush.game.Player;
+import memoryrush.protocol.BinaryProtocol;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Eine ausgehende Nachricht zusammen mit ihrer Einordnung für die Ausgangswarteschlangen.
+ * Eine Broadcast-Nachricht wird einmal erzeugt und an alle Empfänger weitergereicht; Text- und
+ * Binärdarstellung werden jeweils höchstens einmal berechnet, egal wie viele Clients sie erhalten.
+ * Die häufigen Spielereignisse (FLIP, MATCH, NOMATCH, TURN, ...) werden dabei ohne Zwischen-Strings direkt
+ * in ein Array genau der benötigten Größe kodiert.
+ */
+final class ServerMessage {
+    /** Wichtigkeit einer Nachricht, wenn ein Client nicht schnell genug liest. */
+    enum Kind {
+        /** Spielereignis (FLIP, MATCH, START, ...) – darf nie verloren gehen. */
+        EVENT,
+        /** Zustandsmeldung (PLAYERS, TURN) – eine neuere ersetzt eine ältere gleichen Typs. */
+        STATE,
+        /** Chatnachricht – wird bei Überlast als Erstes verworfen. */
+        CHAT
+    }
+
+    /** Nachrichtentyp, entspricht dem Befehlswort im Textprotokoll. */
+    enum Type {
+        NAME(Kind.EVENT), PLAYERS(Kind.STATE), START(Kind.EVENT), TURN(Kind.STATE), FLIP(Kind.EVENT),
+        MATCH(Kind.EVENT), NOMATCH(Kind.EVENT), TIMEOUT(Kind.EVENT), GAMEOVER(Kind.EVENT), CHAT(Kind.CHAT),
+        ERROR(Kind.EVENT), PROTO(Kind.EVENT), TOP(Kind.EVENT), RANK(Kind.EVENT), SESSION(Kind.EVENT),
+        STATE(Kind.EVENT), REVEALED(Kind.EVENT), AWAY(Kind.EVENT), BACK(Kind.EVENT), TEXT(Kind.EVENT);
+
+        private final Kind kind;
+        /** Befehlswort im Textprotokoll als ASCII. */
+        private final byte[] keyword;
+
+        Type(Kind kind) {
+            this.kind = kind;
+            this.keyword = name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final Type type;
+    private final int[] ints;
+    private final String[] strings;
+    /** Teilnachrichten einer gebündelten Nachricht ({@link #chatBatch}), sonst null. */
+    private final ServerMessage[] parts;
+    private String text;
+    private byte[] bytes;
+    private byte[] binary;
+
+    private ServerMessage(Type type, int[] ints, String... strings) {
+        this.type = type;
+        this.ints = ints;
+        this.strings = strings;
+        this.parts = null;
+    }
+
+    private ServerMessage(Type type, ServerMessage[] parts) {
+        this.type = type;
+        this.ints = new int[0];
+        this.strings = new String[0];
+        this.parts = parts;
+    }
+
+    /** Beliebige Textzeile ohne eigene Struktur (im Binärprotokoll als TEXT-Frame). */
+    static ServerMessage of(String line) {
+        return new ServerMessage(Type.TEXT, new int[0], line);
+    }
+
+    static ServerMessage name(int playerId, String name) {
+        return new ServerMessage(Type.NAME, new int[]{playerId}, name);
+    }
+
+    static ServerMessage players(List<Player> players) {
+        int[] ids = new int[players.size()];
+        String[] names = new String[players.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = players.get(i).getId();
+            names[i] = players.get(i).getName();
+        }
+        return new ServerMessage(Type.PLAYERS, ids, names);
+    }
+
+    /** @param turnMillis Bedenkzeit pro Zug, damit die Clients ihren Countdown anpassen */
+    static ServerMessage start(int cardCount, int turnMillis) {
+        return new ServerMessage(Type.START, new int[]{cardCount, turnMillis});
+    }
+
+    static ServerMessage turn(Player player) {
+        return new ServerMessage(Type.TURN, new int[]{player.getId()}, player.getName());
+    }
+
+    static ServerMessage flip(int index, int cardId) {
+        return new ServerMessage(Type.FLIP, new int[]{index, cardId});
+    }
+
+    static ServerMessage match(Player player, int firstIndex, int secondIndex) {
+        return new ServerMessage(Type.MATCH, new int[]{player.getId(), firstIndex, secondIndex, player.getScore()},
+                player.getName());
+    }
+
+    static ServerMessage noMatch(Player player, int firstIndex, int secondIndex) {
+        return new ServerMessage(Type.NOMATCH, new int[]{player.getId(), firstIndex, secondIndex}, player.getName());
+    }
+
+    /** @param openIndex zurückgedeckte Karte oder -1, wenn keine offen war */
+    static ServerMessage timeout(Player player, int openIndex) {
+        return new ServerMessage(Type.TIMEOUT, new int[]{player.getId(), openIndex}, player.getName());
+    }
+
+    static ServerMessage gameOver(List<Player> winners) {
+        ServerMessage m = players(winners);
+        return new ServerMessage(Type.GAMEOVER, m.ints, m.strings);
+    }
+
+    static ServerMessage chat(int playerId, String playerName, String text) {
+        return new ServerMessage(Type.CHAT, new int[]{playerId}, playerName, text);
+    }
+
+    /**
+     * Mehrere Chatzeilen als eine Nachricht: im Textprotokoll untereinander, im Binärprotokoll als
+     * aufeinanderfolgende CHAT-Frames. Clients lesen sie wie einzelne Nachrichten, die Warteschlangen
+     * und Transporte behandeln sie aber nur einmal.
+     */
+    static ServerMessage chatBatch(List<ServerMessage> lines) {
+        if (lines.size() == 1) return lines.get(0);
+        return new ServerMessage(Type.CHAT, lines.toArray(new ServerMessage[0]));
+    }
+
+    static ServerMessage error(String text) {
+        return new ServerMessage(Type.ERROR, new int[0], text);
+    }
+
+    /** Bestenliste als Antwort auf {@code TOP}. */
+    static ServerMessage top(List<Leaderboard.Ranked> ranking) {
+        int[] ints = new int[ranking.size() * 2];
+        String[] names = new String[ranking.size()];
+        for (int i = 0; i < names.length; i++) {
+            Leaderboard.Ranked r = ranking.get(i);
+            ints[2 * i] = r.playerId();
+            ints[2 * i + 1] = r.score();
+            names[i] = r.name();
+        }
+        return new ServerMessage(Type.TOP, ints, names);
+    }
+
+    /** Eigener Rang als Antwort auf {@code RANK}; Rang 0 heißt noch keine Punkte. */
+    static ServerMessage rank(long rank, int score, long players) {
+        return new ServerMessage(Type.RANK, new int[]{(int) Math.min(rank, Integer.MAX_VALUE), score,
+                (int) Math.min(players, Integer.MAX_VALUE)});
+    }
+
+    static ServerMessage session(String token) {
+        return new ServerMessage(Type.SESSION, new int[0], token);
+    }
+
+    /**
+     * Kompakter Spielstand für einen Client, der mitten im Spiel (wieder) einsteigt. Die gefundenen Karten
+     * folgen getrennt in {@link #revealed}-Nachrichten.
+     * @param remainingMillis verbleibende Zeit des laufenden Zuges
+     * @param openIndex aufgedeckte erste Karte des Zuges oder -1
+     */
+    static ServerMessage state(int cardCount, int turnMillis, Player current, int remainingMillis, int openIndex,
+                               int openCardId, List<Player> players) {
+        int[] ints = new int[7 + 2 * players.size()];
+        ints[0] = cardCount;
+        ints[1] = turnMillis;
+        ints[2] = current.getId();
+        ints[3] = remainingMillis;
+        ints[4] = openIndex;
+        ints[5] = openIndex >= 0 ? openCardId : 0;
+        ints[6] = players.size();
+        String[] strings = new String[1 + players.size()];
+        strings[0] = current.getName();
+        for (int i = 0; i < players.size(); i++) {
+            ints[7 + 2 * i] = players.get(i).getId();
+            ints[8 + 2 * i] = players.get(i).getScore();
+            strings[1 + i] = players.get(i).getName();
+        }
+        return new ServerMessage(Type.STATE, ints, strings);
+    }
+
+    /** Gefundene Karten als Paare aus Index und Motiv: {@code indexAndId[2*i]}, {@code indexAndId[2*i+1]}. */
+    static ServerMessage revealed(int[] indexAndId) {
+        return new ServerMessage(Type.REVEALED, indexAndId);
+    }
+
+    /** Spieler hat im laufenden Spiel die Verbindung verloren; seine Züge werden übersprungen. */
+    static ServerMessage away(Player player) {
+        return new ServerMessage(Type.AWAY, new int[]{player.getId()}, player.getName());
+    }
+
+    /** Abwesender Spieler hat seinen Platz per {@code REJOIN} wieder eingenommen. */
+    static ServerMessage back(Player player) {
+        return new ServerMessage(Type.BACK, new int[]{player.getId()}, player.getName());
+    }
+
+    /** Antwort auf die Protokollaushandlung; Version 0 bedeutet Textprotokoll. */
+    static ServerMessage protocol(int version) {
+        return new ServerMessage(Type.PROTO, new int[]{version});
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    Kind getKind() {
+        return type.kind;
+    }
+
+    /** Liefert die Nachricht im Textprotokoll (ohne Zeilenende). */
+    String getText() {
+        String t = text;
+        if (t == null) {
+            t = buildText();
+            text = t;
+        }
+        return t;
+    }
+
+    private String buildText() {
+        if (parts != null) {
+            StringBuilder sb = new StringBuilder();
+            for (ServerMessage part : parts) {
+                if (sb.length() > 0) sb.append('\n');
+                sb.append(part.getText());
+            }
+            return sb.toString();
+        }
+        return switch (type) {
+            case TEXT -> strings[0];
+            case NAME -> "NAME " + strings[0];
+            case PLAYERS -> "PLAYERS " + String.join(",", strings);
+            case START -> "START " + ints[0] + " " + ints[1];
+            case TURN -> "TURN " + strings[0];
+            case FLIP -> "FLIP " + ints[0] + " " + ints[1];
+            case MATCH -> "MATCH " + strings[0] + " " + ints[1] + " " + ints[2] + " " + ints[3];
+            case NOMATCH -> "NOMATCH " + strings[0] + " " + ints[1] + " " + ints[2];
+            case TIMEOUT -> ints[1] >= 0 ? "TIMEOUT " + strings[0] + " " + ints[1] : "TIMEOUT " + strings[0];
+            case GAMEOVER -> strings.length == 1
+                    ? "GAMEOVER " + strings[0]
+                    : "GAMEOVER TIE " + String.join(",", strings);
+            case CHAT -> "CHAT " + strings[0] + ": " + strings[1];
+            case ERROR -> "ERROR " + strings[0];
+            case PROTO -> ints[0] > 0 ? "PROTO BIN " + ints[0] : "PROTO TEXT";
+            case TOP -> {
+                StringBuilder sb = new StringBuilder("TOP ");
+                for (int i = 0; i < strings.length; i++) {
+                    if (i > 0) sb.append(',');
+                    sb.append(strings[i]).append('=').append(ints[2 * i + 1]);
+                }
+                yield sb.toString();
+            }
+            case RANK -> "RANK " + ints[0] + " " + ints[1] + " " + ints[2];
+            case SESSION -> "SESSION " + strings[0];
+            case AWAY -> "AWAY " + strings[0];
+            case BACK -> "BACK " + strings[0];
+            case STATE -> {
+                // STATE <Karten> <Zugzeit> <verbleibend> <offene Karte> <Motiv> <Name=Punkte,...>;<am Zug>
+                StringBuilder sb = new StringBuilder("STATE ").append(ints[0]).append(' ').append(ints[1])
+                        .append(' ').append(ints[3]).append(' ').append(ints[4]).append(' ').append(ints[5]).append(' ');
+                for (int i = 0; i < ints[6]; i++) {
+                    if (i > 0) sb.append(',');
+                    sb.append(strings[1 + i]).append('=').append(ints[8 + 2 * i]);
+                }
+                yield sb.append(';').append(strings[0]).toString();
+            }
+            case REVEALED -> {
+                StringBuilder sb = new StringBuilder("REVEALED ");
+                for (int i = 0; i < ints.length; i += 2) {
+                    if (i > 0) sb.append(',');
+                    sb.append(ints[i]).append(':').append(ints[i + 1]);
+                }
+                yield sb.toString();
+            }
+        };
+    }
+
+    /**
+     * Liefert die Zeile inklusive Zeilenende als UTF-8. Mehrfaches Berechnen bei gleichzeitigen Aufrufen
+     * ist harmlos, da das Ergebnis immer gleich ist.
+     */
+    byte[] getBytes() {
+        byte[] b = bytes;
+        if (b == null) {
+            b = buildBytes();
+            if (b == null) b = (getText() + "\n").getBytes(StandardCharsets.UTF_8);
+            bytes = b;
+        }
+        return b;
+    }
+
+    /**
+     * Textzeile der häufigen Ereignisse direkt als Bytes.
+     * @return null für andere Typen und Namen mit Nicht-ASCII-Zeichen; dann gilt {@link #buildText()}
+     */
+    private byte[] buildBytes() {
+        if (parts != null) return null;
+        return switch (type) {
+            case FLIP, START -> asciiLine(null, 0, 2);
+            case RANK -> asciiLine(null, 0, 3);
+            case TURN -> isAscii(strings[0]) ? asciiLine(strings[0], 0, 0) : null;
+            case MATCH -> isAscii(strings[0]) ? asciiLine(strings[0], 1, 4) : null;
+            case NOMATCH -> isAscii(strings[0]) ? asciiLine(strings[0], 1, 3) : null;
+            default -> null;
+        };
+    }
+
+    /** Befehlswort, optional ein Name und {@code ints[from..to)}, durch Leerzeichen getrennt, mit Zeilenende. */
+    private byte[] asciiLine(String name, int from, int to) {
+        byte[] keyword = type.keyword;
+        int size = keyword.length + 1;
+        if (name != null) size += 1 + name.length();
+        for (int i = from; i < to; i++) size += 1 + decimalSize(ints[i]);
+        byte[] line = new byte[size];
+        System.arraycopy(keyword, 0, line, 0, keyword.length);
+        int pos = keyword.length;
+        if (name != null) {
+            line[pos++] = ' ';
+            for (int i = 0; i < name.length(); i++) line[pos++] = (byte) name.charAt(i);
+        }
+        for (int i = from; i < to; i++) {
+            line[pos++] = ' ';
+            pos = putDecimal(line, pos, ints[i]);
+        }
+        line[pos] = '\n';
+        return line;
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    private static int decimalSize(long value) {
+        int size = value < 0 ? 2 : 1;
+        for (long v = Math.abs(value); v >= 10; v /= 10) size++;
+        return size;
+    }
+
+    /** @return Position hinter der Zahl */
+    private static int putDecimal(byte[] buf, int pos, long value) {
+        int end = pos + decimalSize(value);
+        if (value < 0) buf[pos] = '-';
+        long v = Math.abs(value);
+        int i = end;
+        do {
+            buf[--i] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v != 0);
+        return end;
+    }
+
+    /** Liefert den Frame im Binärprotokoll; wie {@link #getBytes()} nur einmal berechnet. */
+    byte[] getBinary() {
+        byte[] b = binary;
+        if (b == null) {
+            b = buildBinary();
+            binary = b;
+        }
+        return b;
+    }
+
+    private byte[] buildBinary() {
+        if (parts != null) {
+            ByteArrayOutputStream frames = new ByteArrayOutputStream(parts.length * 32);
+            for (ServerMessage part : parts) {
+                frames.writeBytes(part.getBinary());
+            }
+            return frames.toByteArray();
+        }
+        // Nutzdaten nur aus Zahlen: ohne Zwischenpuffer in ein Array passender Größe
+        int intOpcode = switch (type) {
+            case START -> BinaryProtocol.START;
+            case TURN -> BinaryProtocol.TURN;
+            case FLIP -> BinaryProtocol.FLIP;
+            case MATCH -> BinaryProtocol.MATCH;
+            case NOMATCH -> BinaryProtocol.NOMATCH;
+            case AWAY -> BinaryProtocol.AWAY;
+            case BACK -> BinaryProtocol.BACK;
+            case RANK -> BinaryProtocol.RANK;
+            default -> 0;
+        };
+        if (intOpcode != 0) {
+            return BinaryProtocol.intFrame(intOpcode, ints);
+        }
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(16);
+        int opcode;
+        switch (type) {
+            case NAME -> {
+                opcode = BinaryProtocol.NAME;
+                BinaryProtocol.writeVarint(payload, ints[0]);
+                BinaryProtocol.writeString(payload, strings[0]);
+            }
+            case PLAYERS, GAMEOVER -> {
+                opcode = type == Type.PLAYERS ? BinaryProtocol.PLAYERS : BinaryProtocol.GAMEOVER;
+                BinaryProtocol.writeVarint(payload, ints.length);
+                for (int i = 0; i < ints.length; i++) {
+                    BinaryProtocol.writeVarint(payload, ints[i]);
+                    if (type == Type.PLAYERS) BinaryProtocol.writeString(payload, strings[i]);
+                }
+            }
+            case TIMEOUT -> {
+                opcode = BinaryProtocol.TIMEOUT;
+                BinaryProtocol.writeVarint(payload, ints[0]);
+                // Offene Karte um eins verschoben, 0 = keine
+                BinaryProtocol.writeVarint(payload, ints[1] + 1);
+            }
+            case CHAT -> {
+                opcode = BinaryProtocol.CHAT;
+                BinaryProtocol.writeVarint(payload, ints[0]);
+                BinaryProtocol.writeString(payload, strings[1]);
+            }
+            case ERROR -> {
+                opcode = BinaryProtocol.ERROR;
+                BinaryProtocol.writeString(payload, strings[0]);
+            }
+            case TOP -> {
+                opcode = BinaryProtocol.TOP;
+                BinaryProtocol.writeVarint(payload, strings.length);
+                for (int i = 0; i < strings.length; i++) {
+                    BinaryProtocol.writeVarint(payload, ints[2 * i]);
+                    BinaryProtocol.writeString(payload, strings[i]);
+                    BinaryProtocol.writeVarint(payload, ints[2 * i + 1]);
+                }
+            }
+            case SESSION -> {
+                opcode = BinaryProtocol.SESSION;
+                BinaryProtocol.writeString(payload, strings[0]);
+            }
+            case STATE -> {
+                opcode = BinaryProtocol.STATE;
+                BinaryProtocol.writeVarint(payload, ints[0]);
+                BinaryProtocol.writeVarint(payload, ints[1]);
+                BinaryProtocol.writeVarint(payload, ints[2]);
+                BinaryProtocol.writeVarint(payload, ints[3]);
+                BinaryProtocol.writeVarint(payload, ints[4] + 1);
+                for (int i = 5; i < ints.length; i++) BinaryProtocol.writeVarint(payload, ints[i]);
+            }
+            case REVEALED -> {
+                opcode = BinaryProtocol.REVEALED;
+                BinaryProtocol.writeVarint(payload, ints.length / 2);
+                for (int value : ints) BinaryProtocol.writeVarint(payload, value);
+            }
+            default -> {
+                opcode = BinaryProtocol.TEXT;
+                BinaryProtocol.writeString(payload, getText());
+            }
+        }
+        return BinaryProtocol.frame(opcode, payload);
+    }
+}
@@ -0,0 +1,228 @@
+package memoryrush.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Laufzeitmetriken des Servers: Verbindungen, Spiele, Flips, Zug-Timeouts sowie Latenz-Histogramme für
+ * die Raumbefehle und den Broadcast. Wie {@link TransportStats} nur statische Zähler, damit das Aufzeichnen
+ * im Raum ohne Indirektion und ohne Locks auskommt; ausgelesen werden sie über {@link ServerMonitor}.
+ * Alle Zeiten in Nanosekunden.
+ */
+public final class ServerMetrics {
+    /** Raumbefehle mit eigenem Latenz-Histogramm (Eingang beim Raum bis Ende der Verarbeitung). */
+    public enum Command {
+        JOIN, LEAVE, START, FLIP, CHAT, TOP, RANK, WATCH;
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+    }
+
+    /** Gründe, aus denen die Annahme eine neue Verbindung sofort wieder schließt. */
+    public enum Rejection {
+        /** {@link ServerConfig#getMaxConnections()} erreicht. */
+        CAPACITY,
+        /** {@link ServerConfig#getMaxConnectionsPerIp()} für die Adresse erreicht. */
+        PER_ADDRESS,
+        /** Warteschlange der noch aufzubauenden Verbindungen voll. */
+        QUEUE_FULL;
+
+        private final LongAdder count = new LongAdder();
+
+        public long getCount() {
+            return count.sum();
+        }
+    }
+
+    private static final AtomicInteger CLIENTS = new AtomicInteger();
+    private static final LongAdder ACCEPTED = new LongAdder();
+    private static final AtomicInteger PENDING_JOINS = new AtomicInteger();
+    private static final AtomicInteger SPECTATORS = new AtomicInteger();
+    private static final AtomicInteger BOTS = new AtomicInteger();
+    private static final LongAdder TURNS_SKIPPED = new LongAdder();
+    private static final LongAdder CHAT_DELIVERED = new LongAdder();
+    private static final LongAdder CHAT_RATE_LIMITED = new LongAdder();
+    private static final LongAdder CONNECTIONS = new LongAdder();
+    private static final LongAdder GAMES_STARTED = new LongAdder();
+    private static final LongAdder GAMES_ENDED = new LongAdder();
+    private static final LongAdder FLIPS = new LongAdder();
+    private static final LongAdder TURN_TIMEOUTS = new LongAdder();
+    private static final LongAdder LOCK_CONTENDED = new LongAdder();
+    private static final LongAdder LOCK_WAIT = new LongAdder();
+    private static final LatencyHistogram BROADCAST = new LatencyHistogram();
+    private static final LatencyHistogram FLUSH = new LatencyHistogram();
+
+    private ServerMetrics() {
+    }
+
+    static void clientConnected() {
+        CLIENTS.incrementAndGet();
+        CONNECTIONS.increment();
+    }
+
+    static void clientDisconnected() {
+        CLIENTS.decrementAndGet();
+    }
+
+    /** Der Akzeptor hat eine Verbindung entgegengenommen (zugelassen oder nicht). */
+    static void accepted() {
+        ACCEPTED.increment();
+    }
+
+    static void rejected(Rejection reason) {
+        reason.count.increment();
+    }
+
+    static void joinQueued() {
+        PENDING_JOINS.incrementAndGet();
+    }
+
+    static void joinDequeued() {
+        PENDING_JOINS.decrementAndGet();
+    }
+
+    static void spectatorJoined() {
+        SPECTATORS.incrementAndGet();
+    }
+
+    static void spectatorLeft() {
+        SPECTATORS.decrementAndGet();
+    }
+
+    static void botsJoined(int count) {
+        BOTS.addAndGet(count);
+    }
+
+    static void botsLeft(int count) {
+        BOTS.addAndGet(-count);
+    }
+
+    static void gameStarted() {
+        GAMES_STARTED.increment();
+    }
+
+    static void gameEnded() {
+        GAMES_ENDED.increment();
+    }
+
+    /** Ein gültiger Flip wurde ausgeführt (ignorierte Flips zählen nicht). */
+    static void flipped() {
+        FLIPS.increment();
+    }
+
+    static void turnTimedOut() {
+        TURN_TIMEOUTS.increment();
+    }
+
+    /** Züge wurden übersprungen, weil die Spieler nicht verbunden sind. */
+    static void turnSkipped(int count) {
+        TURNS_SKIPPED.add(count);
+    }
+
+    /** Chatzeilen, die ein Raum (gebündelt) an seine Empfänger verteilt hat. */
+    static void chatDelivered(int lines) {
+        CHAT_DELIVERED.add(lines);
+    }
+
+    /** Chatnachricht wurde verworfen, weil der Spieler sein Kontingent überschritten hat. */
+    static void chatRateLimited() {
+        CHAT_RATE_LIMITED.increment();
+    }
+
+    /** Ein Raumbefehl ist fertig; {@code received} ist der Zeitpunkt (System.nanoTime), zu dem er einging. */
+    static void commandHandled(Command command, long received) {
+        command.latency.record(System.nanoTime() - received);
+    }
+
+    /** Dauer, eine Nachricht an alle Clients eines Raums abzulegen. */
+    static void broadcast(long nanos) {
+        BROADCAST.record(nanos);
+    }
+
+    /** Dauer, die Nachrichten eines Mailbox-Durchlaufs an die Transporte freizugeben. */
+    static void flushed(long nanos) {
+        FLUSH.record(nanos);
+    }
+
+    /** Ein Thread musste auf den Lock einer Ausgangswarteschlange warten. */
+    static void lockWaited(long nanos) {
+        LOCK_CONTENDED.increment();
+        LOCK_WAIT.add(nanos);
+    }
+
+    public static int getClientsConnected() {
+        return CLIENTS.get();
+    }
+
+    /** Verbindungen, die gerade ein Spiel als Zuschauer verfolgen. */
+    public static int getSpectators() {
+        return SPECTATORS.get();
+    }
+
+    /** Computergegner in offenen Räumen. */
+    public static int getBots() {
+        return BOTS.get();
+    }
+
+    public static long getConnections() {
+        return CONNECTIONS.sum();
+    }
+
+    /** Vom Akzeptor entgegengenommene Verbindungen inklusive abgelehnter. */
+    public static long getAccepted() {
+        return ACCEPTED.sum();
+    }
+
+    /** Zugelassene Verbindungen, deren Aufbau noch in der Warteschlange steht. */
+    public static int getPendingJoins() {
+        return PENDING_JOINS.get();
+    }
+
+    public static long getGamesStarted() {
+        return GAMES_STARTED.sum();
+    }
+
+    /** Laufende Spiele: gestartet, aber weder beendet noch von allen Spielern verlassen. */
+    public static long getGamesActive() {
+        return GAMES_STARTED.sum() - GAMES_ENDED.sum();
+    }
+
+    public static long getFlips() {
+        return FLIPS.sum();
+    }
+
+    public static long getTurnTimeouts() {
+        return TURN_TIMEOUTS.sum();
+    }
+
+    public static long getTurnsSkipped() {
+        return TURNS_SKIPPED.sum();
+    }
+
+    public static long getChatDelivered() {
+        return CHAT_DELIVERED.sum();
+    }
+
+    public static long getChatRateLimited() {
+        return CHAT_RATE_LIMITED.sum();
+    }
+
+    public static long getLockContended() {
+        return LOCK_CONTENDED.sum();
+    }
+
+    public static long getLockWaitNanos() {
+        return LOCK_WAIT.sum();
+    }
+
+    public static LatencyHistogram getBroadcastLatency() {
+        return BROADCAST;
+    }
+
+    public static LatencyHistogram getFlushLatency() {
+        return FLUSH;
+    }
+}
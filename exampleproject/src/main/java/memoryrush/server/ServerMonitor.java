@@ -0,0 +1,356 @@
+package memoryrush.server;
+
+import com.sun.net.httpserver.HttpServer;
+import memoryrush.journal.Journal;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Veröffentlicht {@link ServerMetrics}, {@link TransportStats} und die Kennzahlen der Ausgangswarteschlangen
+ * über JMX und – mit {@code --metrics-port} – als Prometheus-Textformat unter
+ * {@code http://127.0.0.1:<port>/metrics}. Der HTTP-Endpunkt lauscht nur lokal; von außen wird er über
+ * einen Exporter bzw. Reverse Proxy erreicht. Unter {@code /health} steht eine einzelne Statuszeile
+ * ({@code UP node=1 clients=12 rooms=4 games=3}), die das Gateway zur Lastverteilung abfragt.
+ * <p>
+ * Latenzen erscheinen als Summary mit Quantilen seit Serverstart; Raten (z.B. Flips/s) berechnet Prometheus
+ * aus den Zählern, über JMX gibt es zusätzlich die Flips der letzten Sekunde.
+ */
+public class ServerMonitor implements ServerMonitorMXBean {
+    private static final String OBJECT_NAME = "memoryrush:type=Server";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Matchmaker matchmaker;
+    private long lastFlips = 0;
+    private volatile double flipsPerSecond = 0;
+    private long lastAccepted = 0;
+    private volatile double acceptsPerSecond = 0;
+
+    private final int nodeId;
+
+    ServerMonitor(Matchmaker matchmaker, int nodeId) {
+        this.matchmaker = matchmaker;
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Registriert das MXBean und startet bei {@code metricsPort > 0} den HTTP-Endpunkt.
+     */
+    void start(int metricsPort) throws IOException {
+        matchmaker.scheduleRepeating(this::sample, 1000);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.out.println("JMX-Registrierung fehlgeschlagen: " + e.getMessage());
+        }
+        if (metricsPort > 0) {
+            HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), metricsPort), 0);
+            http.createContext("/metrics", exchange -> {
+                byte[] body = prometheus().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            http.createContext("/health", exchange -> {
+                byte[] body = health().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            http.start();
+            System.out.println("Metriken unter http://127.0.0.1:" + metricsPort + "/metrics");
+        }
+    }
+
+    /** Läuft jede Sekunde auf dem Scheduler des Matchmakers. */
+    private void sample() {
+        long flips = ServerMetrics.getFlips();
+        flipsPerSecond = flips - lastFlips;
+        lastFlips = flips;
+        long accepted = ServerMetrics.getAccepted();
+        acceptsPerSecond = accepted - lastAccepted;
+        lastAccepted = accepted;
+    }
+
+    /** Statuszeile für das Gateway: Knoten-ID und aktuelle Last. */
+    String health() {
+        return "UP node=" + nodeId + " clients=" + ServerMetrics.getClientsConnected()
+                + " rooms=" + matchmaker.getActiveRoomCount() + " games=" + ServerMetrics.getGamesActive() + "\n";
+    }
+
+    /** Alle Metriken im Prometheus-Textformat (Version 0.0.4). */
+    String prometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        gauge(out, "memoryrush_clients_connected", "Verbundene Clients", ServerMetrics.getClientsConnected());
+        gauge(out, "memoryrush_spectators", "Zuschauer in laufenden Spielen", ServerMetrics.getSpectators());
+        gauge(out, "memoryrush_bots", "Computergegner in offenen Räumen", ServerMetrics.getBots());
+        counter(out, "memoryrush_connections_total", "Angenommene Verbindungen", ServerMetrics.getConnections());
+        counter(out, "memoryrush_accepts_total", "Vom Akzeptor entgegengenommene Verbindungen inklusive abgelehnter",
+                ServerMetrics.getAccepted());
+        header(out, "memoryrush_connections_rejected_total", "counter", "Sofort abgelehnte Verbindungen nach Grund");
+        for (ServerMetrics.Rejection reason : ServerMetrics.Rejection.values()) {
+            out.append("memoryrush_connections_rejected_total{reason=\"").append(reason.name().toLowerCase())
+                    .append("\"} ").append(reason.getCount()).append('\n');
+        }
+        gauge(out, "memoryrush_pending_joins", "Zugelassene Verbindungen, die auf ihren Aufbau warten",
+                ServerMetrics.getPendingJoins());
+        gauge(out, "memoryrush_rooms_active", "Offene Räume inklusive Lobbys", matchmaker.getActiveRoomCount());
+        gauge(out, "memoryrush_games_active", "Laufende Spiele", ServerMetrics.getGamesActive());
+        counter(out, "memoryrush_games_started_total", "Gestartete Spiele", ServerMetrics.getGamesStarted());
+        counter(out, "memoryrush_flips_total", "Ausgeführte Flips", ServerMetrics.getFlips());
+        counter(out, "memoryrush_turn_timeouts_total", "Abgelaufene Züge", ServerMetrics.getTurnTimeouts());
+        counter(out, "memoryrush_turns_skipped_total", "Übersprungene Züge abwesender Spieler",
+                ServerMetrics.getTurnsSkipped());
+
+        header(out, "memoryrush_command_latency_seconds", "summary",
+                "Raumbefehle vom Eingang bis zum Ende der Verarbeitung");
+        for (ServerMetrics.Command command : ServerMetrics.Command.values()) {
+            summary(out, "memoryrush_command_latency_seconds", "command=\"" + command.name().toLowerCase() + "\"",
+                    command.getLatency());
+        }
+        header(out, "memoryrush_broadcast_seconds", "summary", "Ablegen einer Nachricht bei allen Clients eines Raums");
+        summary(out, "memoryrush_broadcast_seconds", null, ServerMetrics.getBroadcastLatency());
+        header(out, "memoryrush_flush_seconds", "summary", "Freigeben eines Mailbox-Durchlaufs an die Transporte");
+        summary(out, "memoryrush_flush_seconds", null, ServerMetrics.getFlushLatency());
+
+        gauge(out, "memoryrush_outbound_queue_depth", "Wartende Nachrichten aller Clients",
+                OutboundQueue.getTotalDepth());
+        gauge(out, "memoryrush_outbound_queue_max_depth", "Größte beobachtete Warteschlange eines Clients",
+                OutboundQueue.getMaxDepth());
+        counter(out, "memoryrush_outbound_chat_dropped_total", "Verworfene Chatnachrichten",
+                OutboundQueue.getDroppedChatCount());
+        counter(out, "memoryrush_chat_delivered_total", "Verteilte Chatzeilen", ServerMetrics.getChatDelivered());
+        counter(out, "memoryrush_chat_rate_limited_total", "Wegen Chatrate verworfene Nachrichten",
+                ServerMetrics.getChatRateLimited());
+        counter(out, "memoryrush_outbound_coalesced_total", "Zusammengefasste Zustandsmeldungen",
+                OutboundQueue.getCoalescedCount());
+        counter(out, "memoryrush_slow_clients_disconnected_total", "Wegen voller Warteschlange getrennte Clients",
+                OutboundQueue.getOverflowCount());
+        counter(out, "memoryrush_outbound_lock_contended_total", "Umkämpfte Locks der Ausgangswarteschlangen",
+                ServerMetrics.getLockContended());
+        counter(out, "memoryrush_outbound_lock_wait_seconds_total", "Wartezeit auf Locks der Ausgangswarteschlangen",
+                ServerMetrics.getLockWaitNanos() / 1e9);
+
+        counter(out, "memoryrush_actions_total", "Raumbefehle mit ausgehenden Nachrichten", TransportStats.getActions());
+        counter(out, "memoryrush_messages_encoded_total", "Kodierte Nachrichten", TransportStats.getMessages());
+        counter(out, "memoryrush_socket_writes_total", "Schreibvorgänge auf Sockets", TransportStats.getWrites());
+        counter(out, "memoryrush_socket_bytes_total", "Geschriebene Bytes", TransportStats.getBytes());
+        counter(out, "memoryrush_tcp_packets_estimated_total", "Geschätzte TCP-Segmente", TransportStats.getPackets());
+
+        Journal journal = matchmaker.getJournal();
+        if (journal.isEnabled()) {
+            counter(out, "memoryrush_journal_events_total", "Ins Journal geschriebene Ereignisse",
+                    journal.getEventsWritten());
+            counter(out, "memoryrush_journal_commits_total", "Group Commits des Journals", journal.getCommits());
+            counter(out, "memoryrush_journal_dropped_total", "Verworfene Journal-Ereignisse (Writer zu langsam)",
+                    journal.getDropped());
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, double value) {
+        header(out, name, "gauge", help);
+        out.append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    private static void counter(StringBuilder out, String name, String help, double value) {
+        header(out, name, "counter", help);
+        out.append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    /** Quantile, Summe und Anzahl eines Histogramms in Nanosekunden, ausgegeben in Sekunden. */
+    private static void summary(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        long sum = histogram.sum();
+        long[] snapshot = histogram.snapshot();
+        String prefix = labels == null ? "" : labels + ",";
+        for (double q : QUANTILES) {
+            out.append(name).append("{").append(prefix).append("quantile=\"").append(q).append("\"} ")
+                    .append(format(LatencyHistogram.percentile(snapshot, q) / 1e9)).append('\n');
+        }
+        String suffix = labels == null ? " " : "{" + labels + "} ";
+        out.append(name).append("_sum").append(suffix).append(format(sum / 1e9)).append('\n');
+        out.append(name).append("_count").append(suffix).append(LatencyHistogram.count(snapshot)).append('\n');
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    private static long micros(LatencyHistogram histogram, double quantile) {
+        return LatencyHistogram.percentile(histogram.snapshot(), quantile) / 1000;
+    }
+
+    private static Map<String, Long> commandLatency(double quantile) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (ServerMetrics.Command command : ServerMetrics.Command.values()) {
+            result.put(command.name(), micros(command.getLatency(), quantile));
+        }
+        return result;
+    }
+
+    @Override
+    public int getClientsConnected() {
+        return ServerMetrics.getClientsConnected();
+    }
+
+    @Override
+    public int getSpectators() {
+        return ServerMetrics.getSpectators();
+    }
+
+    @Override
+    public int getBots() {
+        return ServerMetrics.getBots();
+    }
+
+    @Override
+    public long getConnections() {
+        return ServerMetrics.getConnections();
+    }
+
+    @Override
+    public int getActiveRooms() {
+        return matchmaker.getActiveRoomCount();
+    }
+
+    @Override
+    public long getActiveGames() {
+        return ServerMetrics.getGamesActive();
+    }
+
+    @Override
+    public long getGamesStarted() {
+        return ServerMetrics.getGamesStarted();
+    }
+
+    @Override
+    public long getFlips() {
+        return ServerMetrics.getFlips();
+    }
+
+    @Override
+    public double getFlipsPerSecond() {
+        return flipsPerSecond;
+    }
+
+    @Override
+    public long getAccepted() {
+        return ServerMetrics.getAccepted();
+    }
+
+    @Override
+    public double getAcceptsPerSecond() {
+        return acceptsPerSecond;
+    }
+
+    @Override
+    public Map<String, Long> getRejectedConnections() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (ServerMetrics.Rejection reason : ServerMetrics.Rejection.values()) {
+            result.put(reason.name(), reason.getCount());
+        }
+        return result;
+    }
+
+    @Override
+    public int getPendingJoins() {
+        return ServerMetrics.getPendingJoins();
+    }
+
+    @Override
+    public long getTurnTimeouts() {
+        return ServerMetrics.getTurnTimeouts();
+    }
+
+    @Override
+    public long getTurnsSkipped() {
+        return ServerMetrics.getTurnsSkipped();
+    }
+
+    @Override
+    public Map<String, Long> getCommandLatencyP50Micros() {
+        return commandLatency(0.5);
+    }
+
+    @Override
+    public Map<String, Long> getCommandLatencyP99Micros() {
+        return commandLatency(0.99);
+    }
+
+    @Override
+    public long getBroadcastLatencyP99Micros() {
+        return micros(ServerMetrics.getBroadcastLatency(), 0.99);
+    }
+
+    @Override
+    public long getFlushLatencyP99Micros() {
+        return micros(ServerMetrics.getFlushLatency(), 0.99);
+    }
+
+    @Override
+    public long getOutboundQueueDepth() {
+        return OutboundQueue.getTotalDepth();
+    }
+
+    @Override
+    public int getOutboundQueueMaxDepth() {
+        return OutboundQueue.getMaxDepth();
+    }
+
+    @Override
+    public long getDroppedChatMessages() {
+        return OutboundQueue.getDroppedChatCount();
+    }
+
+    @Override
+    public long getChatDelivered() {
+        return ServerMetrics.getChatDelivered();
+    }
+
+    @Override
+    public long getChatRateLimited() {
+        return ServerMetrics.getChatRateLimited();
+    }
+
+    @Override
+    public long getSlowClientsDisconnected() {
+        return OutboundQueue.getOverflowCount();
+    }
+
+    @Override
+    public long getLockContended() {
+        return ServerMetrics.getLockContended();
+    }
+
+    @Override
+    public double getLockWaitMillis() {
+        return ServerMetrics.getLockWaitNanos() / 1e6;
+    }
+
+    @Override
+    public long getSocketWrites() {
+        return TransportStats.getWrites();
+    }
+
+    @Override
+    public long getSocketBytes() {
+        return TransportStats.getBytes();
+    }
+}
@@ -0,0 +1,74 @@
+package memoryrush.server;
+
+import java.util.Map;
+
+/**
+ * JMX-Sicht auf die Laufzeitmetriken ({@code memoryrush:type=Server}), z.B. für jconsole oder
+ * VisualVM. Latenzen in Mikrosekunden, je Raumbefehl als Tabelle.
+ */
+public interface ServerMonitorMXBean {
+    int getClientsConnected();
+
+    int getSpectators();
+
+    /** Computergegner in offenen Räumen (ohne Verbindung). */
+    int getBots();
+
+    long getConnections();
+
+    /** Vom Akzeptor entgegengenommene Verbindungen inklusive abgelehnter. */
+    long getAccepted();
+
+    /** Entgegengenommene Verbindungen in der letzten vollen Sekunde. */
+    double getAcceptsPerSecond();
+
+    /** Sofort abgelehnte Verbindungen je Grund. */
+    Map<String, Long> getRejectedConnections();
+
+    int getPendingJoins();
+
+    int getActiveRooms();
+
+    long getActiveGames();
+
+    long getGamesStarted();
+
+    long getFlips();
+
+    /** Flips pro Sekunde in der letzten vollen Sekunde. */
+    double getFlipsPerSecond();
+
+    long getTurnTimeouts();
+
+    /** Züge abwesender Spieler, die der Server sofort weitergegeben hat. */
+    long getTurnsSkipped();
+
+    Map<String, Long> getCommandLatencyP50Micros();
+
+    Map<String, Long> getCommandLatencyP99Micros();
+
+    long getBroadcastLatencyP99Micros();
+
+    long getFlushLatencyP99Micros();
+
+    long getOutboundQueueDepth();
+
+    int getOutboundQueueMaxDepth();
+
+    long getDroppedChatMessages();
+
+    long getChatDelivered();
+
+    /** Chatnachrichten, die wegen Überschreitung der Chatrate verworfen wurden. */
+    long getChatRateLimited();
+
+    long getSlowClientsDisconnected();
+
+    long getLockContended();
+
+    double getLockWaitMillis();
+
+    long getSocketWrites();
+
+    long getSocketBytes();
+}
@@ -0,0 +1,136 @@
+package memoryrush.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Schreibt regelmäßig den Stand aller laufenden Spiele in eine Datei, aus der der Server nach einem
+ * Absturz oder Neustart die Räume wiederherstellt.
+ * <p>
+ * Jeder Raum liefert seinen {@link RoomSnapshot} in der eigenen Mailbox – das Spiel wird dafür weder
+ * angehalten noch gesperrt. Geschrieben wird auf einem eigenen Thread in eine temporäre Datei, die nach
+ * {@code fsync} atomar über die alte verschoben wird; nach einem Absturz liegt so immer ein vollständiger
+ * Schnappschuss vor. Läuft ein Schnappschuss noch, fällt der nächste aus.
+ * <p>
+ * Format: {@link #MAGIC}, Version, Zeitpunkt, zuletzt vergebene Spieler- und Raum-ID, Anzahl Räume, Räume.
+ */
+final class SnapshotStore {
+    /** Kennung am Dateianfang ("MRS1"). */
+    static final int MAGIC = 0x4D525331;
+    private static final int VERSION = 1;
+    /** So lange wartet der letzte Schnappschuss beim Herunterfahren höchstens auf die Räume. */
+    private static final long SHUTDOWN_TIMEOUT_MS = 2000;
+
+    /** Inhalt einer Schnappschussdatei. */
+    record Recovered(long savedAtMillis, int lastPlayerId, int lastRoomId, List<RoomSnapshot> rooms) {
+    }
+
+    private final Path file;
+    private final Path temporary;
+    private final Matchmaker matchmaker;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "snapshot");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean inProgress = new AtomicBoolean(false);
+
+    SnapshotStore(Path file, Matchmaker matchmaker) {
+        this.file = file;
+        this.temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        this.matchmaker = matchmaker;
+    }
+
+    /**
+     * Liest einen Schnappschuss.
+     * @return den Inhalt oder null, wenn es die Datei nicht gibt
+     */
+    static Recovered load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 65536))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file + " ist kein Schnappschuss dieser Version");
+            }
+            long savedAt = in.readLong();
+            int lastPlayerId = in.readInt();
+            int lastRoomId = in.readInt();
+            int count = in.readInt();
+            List<RoomSnapshot> rooms = new ArrayList<>(Math.min(count, 65536));
+            for (int i = 0; i < count; i++) {
+                rooms.add(RoomSnapshot.read(in));
+            }
+            return new Recovered(savedAt, lastPlayerId, lastRoomId, rooms);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Schreibt ab jetzt alle {@code intervalMs} einen Schnappschuss und beim Herunterfahren einen letzten.
+     */
+    void start(long intervalMs) {
+        matchmaker.scheduleRepeating(this::takeSnapshot, intervalMs);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::takeFinalSnapshot, "snapshot-shutdown"));
+    }
+
+    private void takeSnapshot() {
+        if (!inProgress.compareAndSet(false, true)) return;
+        int lastPlayerId = matchmaker.getLastPlayerId();
+        int lastRoomId = matchmaker.getLastRoomId();
+        matchmaker.snapshotRooms()
+                .thenAcceptAsync(rooms -> write(lastPlayerId, lastRoomId, rooms), writer)
+                .whenComplete((ignored, e) -> {
+                    inProgress.set(false);
+                    if (e != null) System.out.println("Schnappschuss fehlgeschlagen: " + e.getMessage());
+                });
+    }
+
+    private void takeFinalSnapshot() {
+        try {
+            int lastPlayerId = matchmaker.getLastPlayerId();
+            int lastRoomId = matchmaker.getLastRoomId();
+            List<RoomSnapshot> rooms = matchmaker.snapshotRooms().get(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            writer.submit(() -> write(lastPlayerId, lastRoomId, rooms)).get();
+        } catch (Exception e) {
+            // Der letzte regelmäßige Schnappschuss bleibt gültig
+            System.out.println("Letzter Schnappschuss fehlgeschlagen: " + e.getMessage());
+        }
+    }
+
+    /** Schreibt die temporäre Datei, macht sie dauerhaft und ersetzt damit den bisherigen Schnappschuss. */
+    private void write(int lastPlayerId, int lastRoomId, List<RoomSnapshot> rooms) {
+        try {
+            try (FileOutputStream fileOut = new FileOutputStream(temporary.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 65536))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(lastPlayerId);
+                out.writeInt(lastRoomId);
+                out.writeInt(rooms.size());
+                for (RoomSnapshot room : rooms) {
+                    room.write(out);
+                }
+                out.flush();
+                fileOut.getChannel().force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package memoryrush.server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Zuschauer eines Raums. Sie zählen nicht zu den Spielern, dürfen nicht aufdecken und bekommen dieselben
+ * Nachrichten wie die Spieler: jede wird nur einmal kodiert ({@link ServerMessage} hält Text- und Binärform)
+ * und dasselbe unveränderliche Byte-Array an alle Zuschauerverbindungen übergeben.
+ * <p>
+ * Optional läuft der Zuschauerstrom um eine feste Verzögerung hinterher, damit niemand den Spielern
+ * vorsagen kann; auch der Spielstand für neue Zuschauer reiht sich dann in die Verzögerung ein. Außerdem
+ * können Zustandsmeldungen (PLAYERS, TURN) gedrosselt werden: pro Intervall geht je Typ nur die neueste hinaus.
+ * <p>
+ * Wird nur aus der Mailbox des Raums benutzt; verzögerte Aufgaben kommen über den Scheduler des
+ * Matchmakers als Befehl in dieselbe Mailbox zurück.
+ */
+final class SpectatorFeed {
+    private record Pending(Runnable action, long due) {
+    }
+
+    private final GameRoom room;
+    private final Matchmaker matchmaker;
+    private final ChatChannel chat;
+    private final long delayNanos;
+    private final long stateIntervalNanos;
+    private final List<ClientConnection> spectators = new ArrayList<>();
+    /** Verzögerte Nachrichten und Aufnahmen, aufsteigend nach Fälligkeit. */
+    private final ArrayDeque<Pending> delayed = new ArrayDeque<>();
+    /** Gedrosselte Zustandsmeldungen, je Typ die neueste. */
+    private final Map<ServerMessage.Type, ServerMessage> throttled = new EnumMap<>(ServerMessage.Type.class);
+    private boolean releaseScheduled = false;
+    private boolean stateFlushScheduled = false;
+    private long lastStateFlush;
+    /** Seit dem letzten {@link #flush()} abgelegte Nachrichten. */
+    private boolean unflushed = false;
+
+    SpectatorFeed(GameRoom room, Matchmaker matchmaker, ChatChannel chat) {
+        this.room = room;
+        this.matchmaker = matchmaker;
+        this.chat = chat;
+        this.delayNanos = matchmaker.getSpectatorDelayMillis() * 1_000_000L;
+        this.stateIntervalNanos = matchmaker.getSpectatorStateMillis() * 1_000_000L;
+        this.lastStateFlush = System.nanoTime() - stateIntervalNanos;
+    }
+
+    /**
+     * Nimmt einen Zuschauer auf; er erhält zuerst den Spielstand ({@code intro}) und danach den laufenden
+     * Strom. Mit Verzögerung geschieht beides erst nach Ablauf der Verzögerung.
+     */
+    void add(ClientConnection client, List<ServerMessage> intro) {
+        later(() -> admit(client, intro));
+    }
+
+    private void admit(ClientConnection client, List<ServerMessage> intro) {
+        if (client.isDisconnected() || client.getRoom() != room) return;
+        for (ServerMessage message : intro) {
+            client.enqueue(message);
+        }
+        spectators.add(client);
+        // Chat läuft live und unverzögert über den Chatkanal des Raums
+        chat.join(client);
+        ServerMetrics.spectatorJoined();
+        unflushed = true;
+    }
+
+    /** @return false, wenn der Client kein Zuschauer dieses Raums war */
+    boolean remove(ClientConnection client) {
+        if (!spectators.remove(client)) return false;
+        chat.leave(client);
+        ServerMetrics.spectatorLeft();
+        return true;
+    }
+
+    /** Reicht eine an die Spieler verschickte Nachricht an die Zuschauer weiter. */
+    void publish(ServerMessage message) {
+        if (spectators.isEmpty() && delayed.isEmpty()) return;
+        later(() -> deliver(message));
+    }
+
+    private void later(Runnable action) {
+        if (delayNanos == 0) {
+            action.run();
+            return;
+        }
+        delayed.add(new Pending(action, System.nanoTime() + delayNanos));
+        if (!releaseScheduled) {
+            releaseScheduled = true;
+            matchmaker.schedule(() -> room.tell(this::release), delayNanos / 1_000_000);
+        }
+    }
+
+    /** Führt alle fälligen verzögerten Aufgaben aus und plant sich für die nächste neu ein. */
+    private void release() {
+        long now = System.nanoTime();
+        Pending next;
+        while ((next = delayed.peek()) != null && next.due() - now <= 0) {
+            delayed.poll().action().run();
+        }
+        if (next == null) {
+            releaseScheduled = false;
+        } else {
+            long waitMillis = Math.max(1, (next.due() - now + 999_999) / 1_000_000);
+            matchmaker.schedule(() -> room.tell(this::release), waitMillis);
+        }
+    }
+
+    private void deliver(ServerMessage message) {
+        if (stateIntervalNanos > 0 && message.getKind() == ServerMessage.Kind.STATE) {
+            throttled.put(message.getType(), message);
+            if (!stateFlushScheduled) {
+                stateFlushScheduled = true;
+                long wait = lastStateFlush + stateIntervalNanos - System.nanoTime();
+                matchmaker.schedule(() -> room.tell(this::flushState), Math.max(0, wait / 1_000_000));
+            }
+            return;
+        }
+        fanOut(message);
+    }
+
+    private void flushState() {
+        stateFlushScheduled = false;
+        lastStateFlush = System.nanoTime();
+        for (ServerMessage message : throttled.values()) {
+            fanOut(message);
+        }
+        throttled.clear();
+    }
+
+    private void fanOut(ServerMessage message) {
+        if (spectators.isEmpty()) return;
+        for (ClientConnection spectator : spectators) {
+            // Zu langsame Zuschauer trennt enqueue; ihr Abmelden kommt später über die Mailbox
+            spectator.enqueue(message);
+        }
+        unflushed = true;
+    }
+
+    /**
+     * Spielende: Nach den letzten (ggf. verzögerten) Nachrichten werden alle Zuschauer aus dem Raum entlassen.
+     * Ihre Verbindungen bleiben offen, damit sie mit {@code WATCH} das nächste Spiel verfolgen können.
+     */
+    void close() {
+        later(() -> {
+            flushState();
+            for (ClientConnection spectator : spectators) {
+                spectator.leaveRoom(room);
+                chat.leave(spectator);
+                ServerMetrics.spectatorLeft();
+            }
+            flush();
+            spectators.clear();
+        });
+    }
+
+    /** Gibt die abgelegten Nachrichten an die Transporte weiter; am Ende jedes Mailbox-Durchlaufs. */
+    void flush() {
+        if (!unflushed) return;
+        unflushed = false;
+        for (ClientConnection spectator : spectators) {
+            spectator.messageQueued();
+        }
+    }
+
+    boolean hasUnflushed() {
+        return unflushed;
+    }
+
+    int size() {
+        return spectators.size();
+    }
+}
@@ -0,0 +1,177 @@
+package memoryrush.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed Timing Wheel für viele gleichzeitige Deadlines (z.B. die Zug-Timer aller Räume).
+ * <p>
+ * Jede Deadline hat einen wiederverwendbaren {@link Timeout}-Handle; Planen, Verschieben und Abbrechen
+ * kosten O(1) und erzeugen keinen Müll. Änderungen werden nur vermerkt und über einen lock-freien Stapel
+ * an den Timer-Thread übergeben, der allein die Fächer des Rades verwaltet. Pro Tick wird genau ein Fach
+ * abgearbeitet; Deadlines, die weiter als eine Umdrehung entfernt sind, bleiben bis zur passenden Runde liegen.
+ * <p>
+ * Aufgaben laufen im Timer-Thread und müssen kurz sein (z.B. einen Befehl in eine Mailbox legen).
+ * Ein Abbruch kurz vor Ablauf kann die Aufgabe nicht mehr sicher verhindern; Aufrufer prüfen deshalb
+ * selbst, ob die Deadline noch gilt.
+ */
+public final class TimingWheel {
+    /** Markiert einen Handle ohne aktive Deadline. */
+    private static final long NOT_SCHEDULED = -1;
+
+    private final long startNanos = System.nanoTime();
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    /** Handles mit geänderter Deadline, verkettet über {@link Timeout#nextChange}. */
+    private final AtomicReference<Timeout> changes = new AtomicReference<>();
+    private final Thread worker;
+    private volatile boolean running = true;
+    /** Nächster abzuarbeitender Tick (nur Timer-Thread). */
+    private long tick = 0;
+
+    /**
+     * @param name Name des Timer-Threads
+     * @param tickMs Auflösung; Aufgaben laufen höchstens etwa einen Tick nach ihrer Deadline
+     * @param wheelSize Anzahl Fächer, wird auf eine Zweierpotenz aufgerundet
+     */
+    public TimingWheel(String name, long tickMs, int wheelSize) {
+        if (tickMs < 1) throw new IllegalArgumentException("tickMs muss >= 1 sein");
+        if (wheelSize < 1 || wheelSize > (1 << 20)) throw new IllegalArgumentException("Ungültige Radgröße");
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) size <<= 1;
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /** Legt einen Handle für eine Aufgabe an; geplant wird erst mit {@link Timeout#schedule(long)}. */
+    public Timeout newTimeout(Runnable task) {
+        return new Timeout(task);
+    }
+
+    /** Hält den Timer-Thread an; noch nicht fällige Aufgaben werden verworfen. */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        while (running) {
+            long wait = startNanos + tick * tickNanos - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            applyChanges();
+            expire(tick);
+            tick++;
+        }
+    }
+
+    /** Übernimmt alle seit dem letzten Tick gemeldeten Änderungen in die Fächer. */
+    private void applyChanges() {
+        Timeout t = changes.getAndSet(null);
+        while (t != null) {
+            Timeout next = t.nextChange;
+            t.nextChange = null;
+            // Erst danach freigeben: eine neue Änderung reiht den Handle erneut ein und wird später gelesen
+            t.queued.set(false);
+            long deadline = t.requestedDeadline;
+            unlink(t);
+            if (deadline != NOT_SCHEDULED) {
+                // Aufrunden, damit nie vor der Deadline ausgelöst wird
+                t.deadlineTick = Math.max(tick, (deadline + tickNanos - 1) / tickNanos);
+                link(t);
+            }
+            t = next;
+        }
+    }
+
+    /** Löst alle Handles im Fach dieses Ticks aus, deren Runde erreicht ist. */
+    private void expire(long currentTick) {
+        Timeout t = buckets[(int) (currentTick & mask)];
+        while (t != null) {
+            Timeout next = t.next;
+            if (t.deadlineTick <= currentTick) {
+                unlink(t);
+                try {
+                    t.task.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+            t = next;
+        }
+    }
+
+    private void link(Timeout t) {
+        int bucket = (int) (t.deadlineTick & mask);
+        Timeout head = buckets[bucket];
+        t.next = head;
+        if (head != null) head.prev = t;
+        buckets[bucket] = t;
+        t.bucket = bucket;
+    }
+
+    private void unlink(Timeout t) {
+        if (t.bucket < 0) return;
+        if (t.prev != null) {
+            t.prev.next = t.next;
+        } else {
+            buckets[t.bucket] = t.next;
+        }
+        if (t.next != null) t.next.prev = t.prev;
+        t.prev = null;
+        t.next = null;
+        t.bucket = -1;
+    }
+
+    /**
+     * Wiederverwendbarer Handle für eine Deadline. {@link #schedule(long)} und {@link #cancel()} dürfen aus
+     * beliebigen Threads aufgerufen werden; die jeweils letzte Änderung gilt.
+     */
+    public final class Timeout {
+        private final Runnable task;
+        private final AtomicBoolean queued = new AtomicBoolean(false);
+        /** Gewünschte Deadline relativ zum Start des Rades oder {@link #NOT_SCHEDULED}. */
+        private volatile long requestedDeadline = NOT_SCHEDULED;
+        private Timeout nextChange;
+        // Nur Timer-Thread
+        private Timeout prev;
+        private Timeout next;
+        private int bucket = -1;
+        private long deadlineTick;
+
+        private Timeout(Runnable task) {
+            this.task = task;
+        }
+
+        /** Plant die Aufgabe neu; eine bestehende Deadline wird ersetzt. */
+        public void schedule(long delayMs) {
+            requestedDeadline = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(delayMs);
+            submit();
+        }
+
+        /** Verwirft die aktuelle Deadline. */
+        public void cancel() {
+            requestedDeadline = NOT_SCHEDULED;
+            submit();
+        }
+
+        private void submit() {
+            if (queued.compareAndSet(false, true)) {
+                Timeout head;
+                do {
+                    head = changes.get();
+                    nextChange = head;
+                } while (!changes.compareAndSet(head, this));
+            }
+        }
+    }
+}
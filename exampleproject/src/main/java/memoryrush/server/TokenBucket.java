@@ -0,0 +1,30 @@
+package memoryrush.server;
+
+/**
+ * Einfacher Token-Bucket zur Ratenbegrenzung: füllt sich mit {@code ratePerSecond} Token pro Sekunde bis
+ * höchstens {@code burst} auf, jede Aktion kostet ein Token. Nicht threadsicher; jede Verbindung hat ihren
+ * eigenen und benutzt ihn nur aus dem lesenden Thread.
+ */
+final class TokenBucket {
+    private final double tokensPerNano;
+    private final double burst;
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(double ratePerSecond, int burst) {
+        this.tokensPerNano = ratePerSecond / 1_000_000_000.0;
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /** @return true, wenn ein Token verfügbar war (und verbraucht wurde) */
+    boolean tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+        if (tokens < 1) return false;
+        tokens--;
+        return true;
+    }
+}
@@ -0,0 +1,63 @@
+package memoryrush.server;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Zähler für das Schreibverhalten der Transporte: wie viele Schreib-Syscalls und (geschätzte) TCP-Pakete
+ * eine Spielaktion im Mittel kostet. Damit lässt sich die Bündelung ausgehender Nachrichten
+ * ({@code --coalesce=true}) mit dem Schreiben jeder einzelnen Nachricht ({@code --coalesce=false}) vergleichen.
+ */
+public final class TransportStats {
+    /** Angenommene Nutzlast eines TCP-Segments (Ethernet-MTU abzüglich IP-/TCP-Header mit Timestamps). */
+    private static final int SEGMENT_PAYLOAD = 1448;
+
+    private static final LongAdder ACTIONS = new LongAdder();
+    private static final LongAdder MESSAGES = new LongAdder();
+    private static final LongAdder WRITES = new LongAdder();
+    private static final LongAdder PACKETS = new LongAdder();
+    private static final LongAdder BYTES = new LongAdder();
+
+    private TransportStats() {
+    }
+
+    /** Ein Raumbefehl hat Nachrichten an Clients erzeugt. */
+    static void actionProcessed() {
+        ACTIONS.increment();
+    }
+
+    /** Eine Nachricht wurde für eine Verbindung kodiert und geht in den nächsten Schreibvorgang. */
+    static void messageEncoded() {
+        MESSAGES.increment();
+    }
+
+    /**
+     * Ein Schreibvorgang auf einen Socket. Die Paketzahl ist eine Schätzung: mit TCP_NODELAY mindestens ein
+     * Segment pro Schreibvorgang, größere Blöcke werden in Segmente zu {@link #SEGMENT_PAYLOAD} Bytes geteilt.
+     */
+    static void written(long bytes) {
+        if (bytes <= 0) return;
+        WRITES.increment();
+        BYTES.add(bytes);
+        PACKETS.add((bytes + SEGMENT_PAYLOAD - 1) / SEGMENT_PAYLOAD);
+    }
+
+    public static long getActions() {
+        return ACTIONS.sum();
+    }
+
+    public static long getMessages() {
+        return MESSAGES.sum();
+    }
+
+    public static long getWrites() {
+        return WRITES.sum();
+    }
+
+    public static long getPackets() {
+        return PACKETS.sum();
+    }
+
+    public static long getBytes() {
+        return BYTES.sum();
+    }
+}
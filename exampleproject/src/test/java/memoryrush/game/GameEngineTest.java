@@ -0,0 +1,106 @@
+package memoryrush.game;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Spielt Partien mit festem Seed und eigener Uhr auf der {@link GameEngine} und prüft die Ereignisfolge.
+ * Mit Seed 42 und drei Paaren liegt das Feld als {@code [1, 2, 0, 1, 0, 2]} (Motiv-IDs nach Position).
+ */
+class GameEngineTest {
+    private static final int TURN_MILLIS = 1000;
+    private static final long SEED = 42;
+
+    /** Uhr der Engine in Nanosekunden; wird nur vom Test vorgestellt. */
+    private long now = 0;
+    private GameState state;
+    private GameEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        state = new GameState();
+        engine = new GameEngine(state, TURN_MILLIS, () -> now);
+    }
+
+    private void addPlayers(int... ids) {
+        for (int id : ids) {
+            state.getPlayers().add(new Player(id, "Player " + id));
+        }
+    }
+
+    private void advanceMillis(long millis) {
+        now += millis * 1_000_000L;
+    }
+
+    private static void assertEvents(String expected, GameEvents events) {
+        assertEquals(expected, events.toString());
+    }
+
+    @Test
+    void scriptedGameWithTimeout() {
+        addPlayers(7, 8);
+        assertEvents("[START(-1,6,0), TURN(0,0,0)]", engine.start(3, SEED));
+        assertArrayEquals(new int[] {1, 2, 0, 1, 0, 2}, state.getBoard().cardIds());
+
+        // Zeit noch nicht abgelaufen: Timeout bewirkt nichts
+        assertEvents("[]", engine.timeout());
+        assertEvents("[FLIP(0,0,1)]", engine.flip(7, 0));
+        advanceMillis(TURN_MILLIS - 1);
+        assertEvents("[]", engine.timeout());
+        // Zug läuft ab, die offene Karte wird zugedeckt
+        advanceMillis(1);
+        assertEvents("[TIMEOUT(0,0,0), TURN(1,0,0)]", engine.timeout());
+        assertEquals(-1, state.getFirstSelectedIndex());
+
+        // Nicht am Zug, dieselbe Karte zweimal
+        assertEvents("[]", engine.flip(7, 1));
+        assertEvents("[FLIP(1,1,2)]", engine.flip(8, 1));
+        assertEvents("[]", engine.flip(8, 1));
+        assertEvents("[FLIP(1,2,0), NOMATCH(1,1,2), TURN(0,0,0)]", engine.flip(8, 2));
+
+        assertEvents("[FLIP(0,0,1)]", engine.flip(7, 0));
+        assertEvents("[FLIP(0,3,1), MATCH(0,0,3), TURN(0,0,0)]", engine.flip(7, 3));
+        advanceMillis(TURN_MILLIS / 2);
+        assertEvents("[FLIP(0,2,0)]", engine.flip(7, 2));
+        assertEvents("[FLIP(0,4,0), MATCH(0,2,4), TURN(0,0,0)]", engine.flip(7, 4));
+        // Schon gefundene Karte
+        assertEvents("[]", engine.flip(7, 0));
+        assertEvents("[FLIP(0,1,2)]", engine.flip(7, 1));
+        assertEvents("[FLIP(0,5,2), MATCH(0,1,5), GAMEOVER(-1,0,0)]", engine.flip(7, 5));
+
+        // Nach Spielende bewirkt auch ein verspäteter Timeout nichts mehr
+        advanceMillis(10 * TURN_MILLIS);
+        assertEvents("[]", engine.timeout());
+        assertTrue(engine.isOver());
+        assertEquals(3, state.getPlayers().get(0).getScore());
+        assertEquals(0, state.getPlayers().get(1).getScore());
+        assertEquals(List.of(state.getPlayers().get(0)), state.getWinners());
+    }
+
+    @Test
+    void skippedTurnCountsCurrentAndAbsentPlayers() {
+        addPlayers(1, 2, 3);
+        engine.setPresence(id -> id == 3);
+        assertEvents("[START(-1,6,0), TURN(0,0,0)]", engine.start(3, SEED));
+        // Spieler 1 ist weg, Spieler 2 ebenfalls: beide zählen als übersprungen
+        assertEvents("[TIMEOUT(0,-1,0), TURN(2,0,2)]", engine.skipTurn());
+        // Regulärer Timeout des anwesenden Spielers: Spieler 1 und 2 werden übersprungen, er ist wieder dran
+        advanceMillis(TURN_MILLIS);
+        assertEvents("[TIMEOUT(2,-1,0), TURN(2,0,2)]", engine.timeout());
+    }
+
+    @Test
+    void sameSeedGivesSameBoard() {
+        addPlayers(1, 2);
+        engine.start(64, SEED);
+        GameState other = new GameState();
+        other.initCards(64, SEED);
+        assertArrayEquals(other.getBoard().cardIds(), state.getBoard().cardIds());
+    }
+}